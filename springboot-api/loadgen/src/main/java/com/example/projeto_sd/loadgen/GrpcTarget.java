@@ -0,0 +1,107 @@
+package com.example.projeto_sd.loadgen;
+
+import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.grpc.ServerServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Operações pelos RPCs de cliente do {@code ServerService}, distribuídas em round-robin entre os nós
+ * (seguidores encaminham as escritas ao coordenador, como faz o nginx no REST).
+ * <p>
+ * Não há RPC de cliente para leitura de timeline nem para marcar notificações como lidas;
+ * essas operações vão pelo {@code readFallback} (REST).
+ */
+public final class GrpcTarget implements Target {
+
+    private final List<ManagedChannel> channels;
+    private final List<ServerServiceGrpc.ServerServiceBlockingStub> stubs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Duration requestTimeout;
+    private final Target readFallback;
+
+    public GrpcTarget(List<String> addresses, Duration requestTimeout, Target readFallback) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um endereço gRPC (host:porta).");
+        }
+        this.channels = addresses.stream()
+                .map(address -> ManagedChannelBuilder.forTarget(address).usePlaintext().build())
+                .toList();
+        this.stubs = channels.stream().map(ServerServiceGrpc::newBlockingStub).toList();
+        this.requestTimeout = requestTimeout;
+        this.readFallback = readFallback;
+    }
+
+    @Override
+    public String createUser(String name) {
+        return stub().createUserRPC(ServerCommsProto.CreateUserRequest.newBuilder().setName(name).build()).getId();
+    }
+
+    @Override
+    public Outcome execute(Operation operation, String userId, String otherUserId) {
+        if (operation == Operation.READ_FEED || operation == Operation.MARK_READ) {
+            return readFallback.execute(operation, userId, otherUserId);
+        }
+        try {
+            switch (operation) {
+                case CREATE_USER -> createUser("load_" + UUID.randomUUID().toString().substring(0, 8));
+                case FOLLOW -> {
+                    ServerCommsProto.ReplicationResponse response = stub().followUserRPC(ServerCommsProto.FollowRequest.newBuilder()
+                            .setFollowerId(userId)
+                            .setFollowedId(otherUserId)
+                            .build());
+                    if (!response.getSuccess()) {
+                        return Outcome.REJECTED;
+                    }
+                }
+                case POST -> stub().createPostRPC(ServerCommsProto.CreatePostRequest.newBuilder()
+                        .setUserId(userId)
+                        .setContent(Payloads.postContent())
+                        .build());
+                case MESSAGE -> stub().sendMessageRPC(ServerCommsProto.SendMessageRequest.newBuilder()
+                        .setSenderId(userId)
+                        .setReceiverId(otherUserId)
+                        .setContent(Payloads.messageContent())
+                        .build());
+                default -> throw new IllegalStateException("Operação sem RPC: " + operation);
+            }
+            return Outcome.OK;
+        } catch (StatusRuntimeException e) {
+            return classify(e.getStatus().getCode());
+        }
+    }
+
+    private static Outcome classify(Status.Code code) {
+        return switch (code) {
+            case INVALID_ARGUMENT, NOT_FOUND, ALREADY_EXISTS, FAILED_PRECONDITION -> Outcome.REJECTED;
+            default -> Outcome.ERROR;
+        };
+    }
+
+    private ServerServiceGrpc.ServerServiceBlockingStub stub() {
+        int index = Math.floorMod(next.getAndIncrement(), stubs.size());
+        return stubs.get(index).withDeadlineAfter(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        channels.forEach(ManagedChannel::shutdown);
+        for (ManagedChannel channel : channels) {
+            try {
+                channel.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        readFallback.close();
+    }
+}
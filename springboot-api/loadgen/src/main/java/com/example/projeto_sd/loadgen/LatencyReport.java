@@ -0,0 +1,145 @@
+package com.example.projeto_sd.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latências (HdrHistogram, em microssegundos) e contadores de resultado por operação.
+ * {@link #record} é chamado por todas as threads do gerador; {@link #reset} descarta o aquecimento
+ * e {@link #finish} congela os histogramas para o relatório.
+ */
+public final class LatencyReport {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder[]> outcomes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final LongAdder dropped = new LongAdder();
+
+    public LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(SIGNIFICANT_DIGITS));
+            LongAdder[] counters = new LongAdder[Target.Outcome.values().length];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new LongAdder();
+            }
+            outcomes.put(operation, counters);
+        }
+    }
+
+    public void record(Operation operation, Target.Outcome outcome, long latencyNanos) {
+        recorders.get(operation).recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        outcomes.get(operation)[outcome.ordinal()].increment();
+    }
+
+    /**
+     * Requisição planejada que não chegou a ser enviada (modo open com fila de atraso cheia).
+     */
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    public void reset() {
+        recorders.values().forEach(Recorder::reset);
+        outcomes.values().forEach(counters -> {
+            for (LongAdder counter : counters) {
+                counter.reset();
+            }
+        });
+        dropped.reset();
+    }
+
+    public void finish() {
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+    }
+
+    public void print(PrintStream out, double elapsedSeconds) {
+        out.printf("%n%-11s %9s %9s %9s %9s %10s %9s %9s %9s %9s %9s%n",
+                "operação", "total", "ok", "rejeit.", "erros", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long[] totalOutcomes = new long[Target.Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            long[] counts = counts(operation);
+            for (int i = 0; i < counts.length; i++) {
+                totalOutcomes[i] += counts[i];
+            }
+            printRow(out, operation.key(), histogram, counts, elapsedSeconds);
+        }
+        if (total.getTotalCount() > 0) {
+            printRow(out, "TOTAL", total, totalOutcomes, elapsedSeconds);
+        }
+        if (dropped.sum() > 0) {
+            out.printf("%nDescartadas (fila de atraso cheia no modo open): %d. A taxa alvo está acima da capacidade do cluster.%n", dropped.sum());
+        }
+    }
+
+    /**
+     * Grava um {@code <operacao>.hgrm} por operação (e {@code total.hgrm}), em milissegundos,
+     * no formato de distribuição de percentis do HdrHistogram (plotável no HistogramLogAnalyzer).
+     */
+    public void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            write(histogram, directory.resolve(operation.key() + ".hgrm"));
+        }
+        if (total.getTotalCount() > 0) {
+            write(total, directory.resolve("total.hgrm"));
+        }
+    }
+
+    private long[] counts(Operation operation) {
+        LongAdder[] counters = outcomes.get(operation);
+        long[] counts = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            counts[i] = counters[i].sum();
+        }
+        return counts;
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long[] counts, double elapsedSeconds) {
+        out.printf("%-11s %9d %9d %9d %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                counts[Target.Outcome.OK.ordinal()],
+                counts[Target.Outcome.REJECTED.ordinal()],
+                counts[Target.Outcome.ERROR.ordinal()],
+                histogram.getTotalCount() / elapsedSeconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static void write(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+}
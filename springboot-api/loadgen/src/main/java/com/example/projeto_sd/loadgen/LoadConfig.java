@@ -0,0 +1,126 @@
+package com.example.projeto_sd.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parâmetros de uma execução, lidos de argumentos {@code --chave=valor}.
+ */
+public record LoadConfig(
+        String transport,
+        String restUrl,
+        List<String> grpcTargets,
+        String mode,
+        double rate,
+        int concurrency,
+        int maxBacklog,
+        Duration duration,
+        Duration warmup,
+        int users,
+        int followsPerUser,
+        double zipfExponent,
+        OperationMix mix,
+        Duration requestTimeout,
+        Path outputDir) {
+
+    private static final Set<String> KEYS = Set.of("transport", "rest-url", "grpc-targets", "mode", "rate", "concurrency",
+            "max-backlog", "duration", "warmup", "users", "follows-per-user", "zipf", "mix", "timeout-ms", "out", "help");
+
+    static final String USAGE = """
+            Uso: ./gradlew :loadgen:run --args="--chave=valor ..."
+
+              --transport=rest|grpc        Transporte das escritas (padrão: rest). Em gRPC, readFeed e markRead usam REST.
+              --rest-url=URL               Base da API REST (padrão: http://localhost, o nginx do docker-compose)
+              --grpc-targets=h:p,...       Nós gRPC em round-robin (padrão: localhost:9090,localhost:9091,localhost:9092)
+              --mode=closed|open           closed: N clientes em laço; open: taxa fixa, latência medida do instante planejado
+              --rate=OPS                   Taxa alvo em ops/s no modo open (padrão: 200)
+              --concurrency=N              Clientes (closed) ou requisições simultâneas máximas (open) (padrão: 32)
+              --max-backlog=N              Open: requisições atrasadas enfileiradas antes de descartar (padrão: 10000)
+              --duration=S                 Segundos medidos (padrão: 60)
+              --warmup=S                   Segundos de aquecimento, descartados do relatório (padrão: 10)
+              --users=N                    Usuários criados na preparação (padrão: 1000)
+              --follows-per-user=N         Follows semeados por usuário, com alvos Zipfian (padrão: 5)
+              --zipf=THETA                 Expoente Zipfian da escolha de usuários; 0 = uniforme (padrão: 0.99)
+              --mix=op=peso,...            Operações: createUser, follow, post, message, readFeed, markRead
+                                           (padrão: %s)
+              --timeout-ms=MS              Timeout por requisição (padrão: 5000)
+              --out=DIR                    Diretório dos histogramas .hgrm (padrão: build/loadgen)
+            """.formatted(OperationMix.DEFAULT);
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento inválido: '" + arg + "' (esperado --chave=valor).");
+            }
+            String[] parts = arg.substring(2).split("=", 2);
+            if (!KEYS.contains(parts[0])) {
+                throw new IllegalArgumentException("Opção desconhecida: --" + parts[0]);
+            }
+            values.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        if (values.containsKey("help")) {
+            return null;
+        }
+
+        String transport = values.getOrDefault("transport", "rest");
+        String mode = values.getOrDefault("mode", "closed");
+        if (!transport.equals("rest") && !transport.equals("grpc")) {
+            throw new IllegalArgumentException("--transport deve ser rest ou grpc.");
+        }
+        if (!mode.equals("closed") && !mode.equals("open")) {
+            throw new IllegalArgumentException("--mode deve ser closed ou open.");
+        }
+        LoadConfig config = new LoadConfig(
+                transport,
+                values.getOrDefault("rest-url", "http://localhost"),
+                Arrays.stream(values.getOrDefault("grpc-targets", "localhost:9090,localhost:9091,localhost:9092").split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .toList(),
+                mode,
+                Double.parseDouble(values.getOrDefault("rate", "200")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                Integer.parseInt(values.getOrDefault("max-backlog", "10000")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Integer.parseInt(values.getOrDefault("users", "1000")),
+                Integer.parseInt(values.getOrDefault("follows-per-user", "5")),
+                Double.parseDouble(values.getOrDefault("zipf", "0.99")),
+                OperationMix.parse(values.getOrDefault("mix", OperationMix.DEFAULT)),
+                Duration.ofMillis(Long.parseLong(values.getOrDefault("timeout-ms", "5000"))),
+                Path.of(values.getOrDefault("out", "build/loadgen")));
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (rate <= 0 || concurrency <= 0 || maxBacklog <= 0) {
+            throw new IllegalArgumentException("--rate, --concurrency e --max-backlog devem ser positivos.");
+        }
+        if (users < 2) {
+            throw new IllegalArgumentException("--users deve ser ao menos 2 (follows e mensagens precisam de dois usuários).");
+        }
+        if (duration.isZero() || duration.isNegative() || warmup.isNegative()) {
+            throw new IllegalArgumentException("--duration deve ser positivo e --warmup não negativo.");
+        }
+    }
+
+    public boolean openLoop() {
+        return mode.equals("open");
+    }
+
+    @Override
+    public String toString() {
+        return "transporte=" + transport + (transport.equals("grpc") ? " " + grpcTargets : " " + restUrl)
+                + ", modo=" + mode + (openLoop() ? " (" + rate + " ops/s, até " + concurrency + " simultâneas)" : " (" + concurrency + " clientes)")
+                + ", duração=" + duration.toSeconds() + "s (+" + warmup.toSeconds() + "s de aquecimento)"
+                + ", usuários=" + users + " (zipf " + zipfExponent + ", " + followsPerUser + " follows/usuário)"
+                + ", mix=" + mix;
+    }
+}
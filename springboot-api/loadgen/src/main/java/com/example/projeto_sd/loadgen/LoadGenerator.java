@@ -0,0 +1,237 @@
+package com.example.projeto_sd.loadgen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga do cluster: cria um conjunto de usuários, semeia follows e dispara o mix de
+ * operações por REST ou gRPC, em laço fechado (N clientes, cada um espera a resposta antes da
+ * próxima requisição) ou aberto (taxa fixa). No modo aberto a latência é medida a partir do
+ * instante planejado de cada requisição, para não esconder filas quando o cluster não acompanha a taxa
+ * (coordinated omission). Ao final imprime p50/p90/p99/p99.9 por operação e grava os .hgrm.
+ */
+public final class LoadGenerator {
+
+    private final LoadConfig config;
+    private final Target target;
+    private final LatencyReport report = new LatencyReport();
+    private final ZipfianGenerator zipf;
+    private String[] userIds;
+
+    private LoadGenerator(LoadConfig config, Target target) {
+        this.config = config;
+        this.target = target;
+        this.zipf = new ZipfianGenerator(config.users(), config.zipfExponent());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (config == null) {
+            System.out.println(LoadConfig.USAGE);
+            return;
+        }
+
+        RestTarget rest = new RestTarget(config.restUrl(), config.requestTimeout());
+        Target target = config.transport().equals("grpc")
+                ? new GrpcTarget(config.grpcTargets(), config.requestTimeout(), rest)
+                : rest;
+        try (target) {
+            new LoadGenerator(config, target).run();
+        }
+    }
+
+    private void run() throws Exception {
+        System.out.println("[LoadGen] " + config);
+        setUp();
+
+        long runNanos = config.warmup().plus(config.duration()).toNanos();
+        long start = System.nanoTime();
+        Runnable stop = config.openLoop() ? startOpenLoop(start, start + runNanos) : startClosedLoop(start + runNanos);
+
+        sleepUntil(start + config.warmup().toNanos());
+        report.reset();
+        long measuredFrom = System.nanoTime();
+        System.out.println("[LoadGen] Aquecimento concluído; medindo por " + config.duration().toSeconds() + "s...");
+        sleepUntil(start + runNanos);
+        stop.run();
+        double elapsedSeconds = (System.nanoTime() - measuredFrom) / 1e9;
+
+        report.finish();
+        report.print(System.out, elapsedSeconds);
+        report.writeHistograms(config.outputDir());
+        System.out.println("\n[LoadGen] Histogramas gravados em " + config.outputDir().toAbsolutePath());
+    }
+
+    /**
+     * Cria os usuários do conjunto e semeia follows (alvos Zipfian, como os seguidos populares de uma rede real),
+     * com {@code concurrency} requisições em paralelo.
+     */
+    private void setUp() throws Exception {
+        System.out.println("[LoadGen] Criando " + config.users() + " usuários...");
+        long start = System.nanoTime();
+        String runTag = UUID.randomUUID().toString().substring(0, 6);
+        String[] ids = new String[config.users()];
+        AtomicInteger failures = new AtomicInteger();
+        runInParallel(config.users(), i -> {
+            try {
+                ids[i] = target.createUser("load_" + runTag + "_" + i);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+            }
+        });
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " de " + config.users()
+                    + " usuários não foram criados; verifique se o cluster está no ar e tem coordenador.");
+        }
+        this.userIds = ids;
+
+        int follows = config.users() * config.followsPerUser();
+        if (follows > 0) {
+            System.out.println("[LoadGen] Semeando " + follows + " follows...");
+            AtomicInteger rejected = new AtomicInteger();
+            runInParallel(follows, i -> {
+                String follower = userIds[i / config.followsPerUser()];
+                if (target.execute(Operation.FOLLOW, follower, otherUser(follower)) != Target.Outcome.OK) {
+                    rejected.incrementAndGet();
+                }
+            });
+            if (rejected.get() > 0) {
+                System.out.println("[LoadGen] " + rejected.get() + " follows não aplicados (repetidos ou com erro).");
+            }
+        }
+        System.out.printf("[LoadGen] Preparação concluída em %.1fs.%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    private Runnable startClosedLoop(long deadline) {
+        ExecutorService workers = Executors.newFixedThreadPool(config.concurrency(), daemonThreads("loadgen-client-"));
+        for (int i = 0; i < config.concurrency(); i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    issue(System.nanoTime());
+                }
+            });
+        }
+        return () -> awaitShutdown(workers);
+    }
+
+    private Runnable startOpenLoop(long start, long deadline) {
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(config.concurrency(), config.concurrency(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.maxBacklog()), daemonThreads("loadgen-open-"));
+        long intervalNanos = (long) (1e9 / config.rate());
+        Thread pacer = daemonThreads("loadgen-pacer").newThread(() -> {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= deadline || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                try {
+                    workers.execute(() -> issue(intended));
+                } catch (RejectedExecutionException e) {
+                    report.recordDropped();
+                }
+            }
+        });
+        pacer.start();
+        return () -> {
+            try {
+                pacer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            awaitShutdown(workers);
+        };
+    }
+
+    /**
+     * Executa uma operação sorteada do mix; a latência conta a partir de {@code intendedStartNanos}.
+     */
+    private void issue(long intendedStartNanos) {
+        Operation operation = config.mix().next();
+        String userId = userIds[zipf.next()];
+        Target.Outcome outcome = target.execute(operation, userId, otherUser(userId));
+        report.record(operation, outcome, System.nanoTime() - intendedStartNanos);
+    }
+
+    private String otherUser(String userId) {
+        String other = userIds[zipf.next()];
+        while (other.equals(userId)) {
+            other = userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+        }
+        return other;
+    }
+
+    private void runInParallel(int tasks, IntTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(config.concurrency(), daemonThreads("loadgen-setup-"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> task.run(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void awaitShutdown(ExecutorService workers) {
+        workers.shutdown();
+        try {
+            // Requisições em andamento terminam em até um timeout; depois disso são abandonadas
+            if (!workers.awaitTermination(config.requestTimeout().toMillis() + Duration.ofSeconds(1).toMillis(), TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix.endsWith("-") ? prefix + counter.incrementAndGet() : prefix);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int index);
+    }
+}
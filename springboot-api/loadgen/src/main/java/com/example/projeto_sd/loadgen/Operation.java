@@ -0,0 +1,35 @@
+package com.example.projeto_sd.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * Operações que o gerador sabe disparar. O nome curto é o usado em {@code --mix}.
+ */
+public enum Operation {
+    CREATE_USER("createUser"),
+    FOLLOW("follow"),
+    POST("post"),
+    MESSAGE("message"),
+    READ_FEED("readFeed"),
+    MARK_READ("markRead");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Operação desconhecida no mix: '" + key + "'. Válidas: "
+                + String.join(", ", Arrays.stream(values()).map(Operation::key).toList()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.projeto_sd.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mix ponderado de operações, lido de {@code --mix} no formato {@code createUser=1,follow=4,post=10,...}.
+ * Pesos são relativos; operações ausentes têm peso zero.
+ */
+public final class OperationMix {
+
+    public static final String DEFAULT = "createUser=1,follow=4,post=10,message=10,readFeed=60,markRead=15";
+
+    private final Operation[] operations;
+    private final double[] cumulative;
+    private final Map<Operation, Double> weights;
+
+    private OperationMix(Map<Operation, Double> weights) {
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("O mix precisa de ao menos uma operação com peso positivo.");
+        }
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulative = new double[operations.length];
+        double acc = 0;
+        for (int i = 0; i < operations.length; i++) {
+            acc += weights.get(operations[i]) / total;
+            cumulative[i] = acc;
+        }
+        cumulative[operations.length - 1] = 1.0;
+    }
+
+    public static OperationMix parse(String spec) {
+        Map<Operation, Double> weights = new EnumMap<>(Operation.class);
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Entrada inválida no mix: '" + entry + "' (esperado operacao=peso).");
+            }
+            double weight = Double.parseDouble(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Peso negativo no mix: '" + entry + "'.");
+            }
+            if (weight > 0) {
+                weights.put(Operation.fromKey(parts[0]), weight);
+            }
+        }
+        return new OperationMix(weights);
+    }
+
+    public Operation next() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    public boolean includes(Operation operation) {
+        return weights.containsKey(operation);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(operation.key()).append('=').append(weight == Math.rint(weight) ? String.valueOf(weight.longValue()) : String.valueOf(weight));
+        });
+        return sb.toString();
+    }
+}
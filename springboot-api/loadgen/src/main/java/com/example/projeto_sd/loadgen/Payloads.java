@@ -0,0 +1,35 @@
+package com.example.projeto_sd.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Conteúdo de posts e mensagens gerados, com tamanho variável para não favorecer um único tamanho de linha.
+ */
+final class Payloads {
+
+    private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor "
+            + "incididunt ut labore et dolore magna aliqua ut enim ad minim veniam quis nostrud exercitation";
+
+    private Payloads() {
+    }
+
+    static String postContent() {
+        return text(40, 280);
+    }
+
+    static String messageContent() {
+        return text(10, 200);
+    }
+
+    private static String text(int minLength, int maxLength) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int length = random.nextInt(minLength, maxLength + 1);
+        int start = random.nextInt(WORDS.length());
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(WORDS, start, WORDS.length()).append(' ');
+            start = 0;
+        }
+        return sb.substring(0, length).trim();
+    }
+}
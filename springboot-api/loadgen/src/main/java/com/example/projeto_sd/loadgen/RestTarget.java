@@ -0,0 +1,99 @@
+package com.example.projeto_sd.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Operações pela API REST (normalmente o nginx na frente dos nós, {@code http://localhost}).
+ */
+public final class RestTarget implements Target {
+
+    private static final int FEED_PAGE_SIZE = 20;
+
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public RestTarget(String baseUrl, Duration requestTimeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .build();
+    }
+
+    @Override
+    public String createUser(String name) throws Exception {
+        HttpResponse<String> response = send(post("/api/users", Map.of("name", name)));
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("POST /api/users respondeu " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode body = mapper.readTree(response.body());
+        return body.path("id").asText();
+    }
+
+    @Override
+    public Outcome execute(Operation operation, String userId, String otherUserId) {
+        try {
+            HttpRequest request = switch (operation) {
+                case CREATE_USER -> post("/api/users", Map.of("name", "load_" + UUID.randomUUID().toString().substring(0, 8)));
+                case FOLLOW -> post("/api/follows/" + userId + "/follow/" + otherUserId, null);
+                case POST -> post("/api/posts", Map.of("userId", userId, "content", Payloads.postContent()));
+                case MESSAGE -> post("/api/messages", Map.of("senderId", userId, "receiverId", otherUserId, "content", Payloads.messageContent()));
+                case READ_FEED -> get("/api/users/" + userId + "/timeline?limit=" + FEED_PAGE_SIZE);
+                case MARK_READ -> post("/api/users/" + userId + "/notifications/mark-all-read", null);
+            };
+            return classify(send(request).statusCode());
+        } catch (IOException e) {
+            return Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.ERROR;
+        }
+    }
+
+    private static Outcome classify(int status) {
+        if (status / 100 == 2) {
+            return Outcome.OK;
+        }
+        return status / 100 == 4 ? Outcome.REJECTED : Outcome.ERROR;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) throws IOException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body));
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(publisher)
+                .build();
+    }
+
+    @Override
+    public void close() {
+        // HttpClient do JDK 17 não tem close(); as conexões são liberadas com o processo
+    }
+}
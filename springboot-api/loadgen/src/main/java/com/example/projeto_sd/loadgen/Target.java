@@ -0,0 +1,30 @@
+package com.example.projeto_sd.loadgen;
+
+/**
+ * Transporte pelo qual as operações chegam ao cluster (REST via load balancer ou gRPC direto nos nós).
+ * Implementações são compartilhadas por todas as threads do gerador.
+ */
+public interface Target extends AutoCloseable {
+
+    /**
+     * Resultado de uma operação. Rejeições (4xx, {@code success=false}, erros de validação gRPC)
+     * são respostas válidas do servidor; erros são 5xx, timeouts e falhas de conexão.
+     * Os três entram nos histogramas e são contados separadamente no relatório.
+     */
+    enum Outcome { OK, REJECTED, ERROR }
+
+    /**
+     * Cria um usuário e devolve o ID atribuído pelo coordenador.
+     * @throws Exception se o servidor não criou o usuário
+     */
+    String createUser(String name) throws Exception;
+
+    /**
+     * Executa uma operação do mix em nome de {@code userId}; {@code otherUserId} é o alvo
+     * de follow e de mensagens.
+     */
+    Outcome execute(Operation operation, String userId, String otherUserId);
+
+    @Override
+    void close();
+}
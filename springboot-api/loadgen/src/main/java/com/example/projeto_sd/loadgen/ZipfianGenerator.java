@@ -0,0 +1,57 @@
+package com.example.projeto_sd.loadgen;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorteia índices em {@code [0, n)} com distribuição Zipfian (posição 0 é a mais popular),
+ * pelo método de Gray et al., "Quickly Generating Billion-Record Synthetic Databases" (o mesmo do YCSB).
+ * Com expoente 0 a distribuição é uniforme. Thread-safe: o estado é imutável após a construção.
+ */
+public final class ZipfianGenerator {
+
+    private final int n;
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final double half;
+
+    public ZipfianGenerator(int n, double theta) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n deve ser positivo.");
+        }
+        if (theta < 0 || theta == 1.0) {
+            throw new IllegalArgumentException("Expoente Zipfian deve ser >= 0 e diferente de 1 (use 0.99).");
+        }
+        this.n = n;
+        this.theta = theta;
+        this.zetan = zeta(n, theta);
+        double zeta2 = zeta(Math.min(n, 2), theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = n <= 1 ? 1.0 : (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+        this.half = 1.0 + Math.pow(0.5, theta);
+    }
+
+    public int next() {
+        if (theta == 0) {
+            return ThreadLocalRandom.current().nextInt(n);
+        }
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetan;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (n > 1 && uz < half) {
+            return 1;
+        }
+        return (int) Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
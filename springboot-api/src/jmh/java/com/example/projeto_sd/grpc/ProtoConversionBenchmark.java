@@ -0,0 +1,54 @@
+package com.example.projeto_sd.grpc;
+
+import com.example.projeto_sd.dto.message.MessageDTO;
+import com.example.projeto_sd.grpc.ServerCommsProto.MessageInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.PostInfo;
+import com.example.projeto_sd.model.Post;
+import com.example.projeto_sd.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversões para proto usadas nas respostas de RPC encaminhadas ao coordenador
+ * ({@code ServerServiceImpl.toPostInfoProto} e {@code toMessageInfoProto}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtoConversionBenchmark {
+
+    private Post post;
+    private MessageDTO message;
+
+    @Setup
+    public void setup() {
+        post = new Post();
+        post.setId(UUID.randomUUID().toString());
+        post.setUser(new User(UUID.randomUUID().toString(), "autor"));
+        post.setContent("Conteúdo do post de benchmark com tamanho típico de uma publicação.");
+        post.setCreatedAt(LocalDateTime.now());
+        post.setLogicalClock(42);
+
+        message = new MessageDTO(UUID.randomUUID().toString(), UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "Olá! Mensagem de benchmark com tamanho típico de conversa.", LocalDateTime.now(), 42, false);
+    }
+
+    @Benchmark
+    public PostInfo toPostInfoProto() {
+        return ServerServiceImpl.toPostInfoProto(post);
+    }
+
+    @Benchmark
+    public MessageInfo toMessageInfoProto() {
+        return ServerServiceImpl.toMessageInfoProto(message);
+    }
+}
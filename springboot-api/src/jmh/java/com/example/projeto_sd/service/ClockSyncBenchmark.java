@@ -0,0 +1,45 @@
+package com.example.projeto_sd.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo dos ajustes de Berkeley ({@link ClockSyncService#computeBerkeleyAdjustments}) para
+ * diferentes tamanhos de cluster. A parte com efeitos colaterais (persistência do offset e
+ * envio por gRPC) fica fora da medição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClockSyncBenchmark {
+
+    @Param({"3", "10", "100"})
+    public int servers;
+
+    private Map<String, Long> times;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis();
+        times = new HashMap<>();
+        for (int i = 0; i < servers; i++) {
+            times.put("server-" + i, now + ThreadLocalRandom.current().nextLong(-500, 500));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Long> calculateBerkeleyAdjustments() {
+        return ClockSyncService.computeBerkeleyAdjustments(times);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.projeto_sd.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de gerar uma chave primária: UUID aleatório (v4, usado antes) versus o
+ * {@link UuidV7IdGenerator}, sozinho e com várias threads disputando o contador.
+ * O ganho nas inserções e no tamanho dos índices é medido no banco (ver model.md).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+
+    private UuidV7IdGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new UuidV7IdGenerator(System::currentTimeMillis, "server-1");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String uuidV7Uncontended() {
+        return generator.newId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidV7Contended() {
+        return generator.newId();
+    }
+}
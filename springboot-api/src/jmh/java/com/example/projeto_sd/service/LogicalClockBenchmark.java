@@ -0,0 +1,65 @@
+package com.example.projeto_sd.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relógio de Lamport sob contenção: todas as threads compartilham o mesmo LogicalClock,
+ * como as threads de requisição e de replicação do coordenador.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LogicalClockBenchmark {
+
+    private LogicalClock clock;
+
+    @Setup
+    public void setup() {
+        clock = new LogicalClock();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int incrementUncontended() {
+        return clock.increment();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int incrementContended() {
+        return clock.increment();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int synchronizeWithContended() {
+        // Valores próximos do relógio atual: o caso comum na replicação, em que o CAS mais disputa.
+        return clock.synchronizeWith(clock.getValue() + ThreadLocalRandom.current().nextInt(-2, 3));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int mixedIncrement() {
+        return clock.increment();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int mixedSynchronizeWith() {
+        return clock.synchronizeWith(clock.getValue() + 1);
+    }
+}
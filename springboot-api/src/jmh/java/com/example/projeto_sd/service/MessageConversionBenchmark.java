@@ -0,0 +1,49 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.MessageInfo;
+import com.example.projeto_sd.model.Message;
+import com.example.projeto_sd.model.Server;
+import com.example.projeto_sd.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão entidade → proto feita pelo coordenador a cada mensagem enviada
+ * ({@code MessageService.convertEntityToProto}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageConversionBenchmark {
+
+    private Message message;
+
+    @Setup
+    public void setup() {
+        Server server = new Server();
+        server.setId("server-1");
+
+        message = new Message();
+        message.setId(UUID.randomUUID().toString());
+        message.setSender(new User(UUID.randomUUID().toString(), "remetente"));
+        message.setReceiver(new User(UUID.randomUUID().toString(), "destinatário"));
+        message.setContent("Olá! Mensagem de benchmark com tamanho típico de conversa.");
+        message.setSentAt(LocalDateTime.now());
+        message.setLogicalClock(42);
+        message.setServer(server);
+    }
+
+    @Benchmark
+    public MessageInfo convertEntityToProto() {
+        return MessageService.convertEntityToProto(message);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.model.Notification;
+import com.example.projeto_sd.model.Post;
+import com.example.projeto_sd.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laço de criação de notificações de {@code PostService.createAndSaveNotifications}:
+ * montagem das entidades por seguidor e agrupamento em lotes de replicação
+ * (com os limites padrão do application.properties).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NotificationFanOutBenchmark {
+
+    private static final int MAX_BATCH_BYTES = 1_048_576;
+    private static final int MAX_BATCH_COUNT = 1000;
+
+    @Param({"10", "1000", "10000"})
+    public int followers;
+
+    private final IdGenerator idGenerator = new UuidV7IdGenerator(System::currentTimeMillis, "server-1");
+
+    private Post post;
+    private List<User> followerUsers;
+    private List<Notification> notifications;
+
+    @Setup
+    public void setup() {
+        User author = new User(UUID.randomUUID().toString(), "autor");
+        post = new Post();
+        post.setId(UUID.randomUUID().toString());
+        post.setUser(author);
+        post.setContent("Conteúdo do post de benchmark");
+        post.setCreatedAt(LocalDateTime.now());
+
+        followerUsers = new ArrayList<>(followers);
+        for (int i = 0; i < followers; i++) {
+            followerUsers.add(new User(UUID.randomUUID().toString(), "seguidor-" + i));
+        }
+        notifications = PostService.buildPostNotifications(post, followerUsers, idGenerator);
+    }
+
+    @Benchmark
+    public List<Notification> buildNotifications() {
+        return PostService.buildPostNotifications(post, followerUsers, idGenerator);
+    }
+
+    @Benchmark
+    public List<ServerCommsProto.ReplicateNotificationsBatchRequest> buildBatches() {
+        return PostService.buildNotificationBatches(notifications, "server-1", MAX_BATCH_BYTES, MAX_BATCH_COUNT);
+    }
+
+    @Benchmark
+    public List<ServerCommsProto.ReplicateNotificationsBatchRequest> buildNotificationsAndBatches() {
+        List<Notification> built = PostService.buildPostNotifications(post, followerUsers, idGenerator);
+        return PostService.buildNotificationBatches(built, "server-1", MAX_BATCH_BYTES, MAX_BATCH_COUNT);
+    }
+}
@@ -6,7 +6,7 @@ import com.example.projeto_sd.grpc.ServerCommsProto;
 import com.example.projeto_sd.grpc.ServerServiceImpl;
 import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.service.ElectionService;
-import com.example.projeto_sd.service.GrpcClientService;
+import com.example.projeto_sd.service.WriteForwarder;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,7 +23,7 @@ import java.util.Optional;
 public class FollowController {
 
     private final ElectionService electionService;
-    private final GrpcClientService grpcClientService;
+    private final WriteForwarder writeForwarder;
     private final ServerServiceImpl serverServiceImpl;
 
     /**
@@ -80,7 +80,8 @@ public class FollowController {
                 String target = coordinator.getHost() + ":" + coordinator.getPort();
                 log.info("Encaminhando requisição de seguir {} -> {} para o coordenador {} em {}", followerId, followedId, coordinator.getId(), target);
 
-                ServerCommsProto.ReplicationResponse grpcResponse = grpcClientService.followUserOnLeader(target, followerId, followedId);
+                ServerCommsProto.ReplicationResponse grpcResponse = writeForwarder.forwardFollow(coordinator.getHost(), coordinator.getPort(),
+                        ServerCommsProto.FollowRequest.newBuilder().setFollowerId(followerId).setFollowedId(followedId).build());
 
                 if (grpcResponse == null || !grpcResponse.getSuccess()) {
                      String errorMsg = (grpcResponse != null) ? grpcResponse.getMessage() : "No response from coordinator.";
@@ -152,7 +153,8 @@ public class FollowController {
                 String target = coordinator.getHost() + ":" + coordinator.getPort();
                 log.info("Encaminhando requisição de deixar de seguir {} deixa de seguir {} para o coordenador {} em {}", followerId, followedId, coordinator.getId(), target);
 
-                ServerCommsProto.ReplicationResponse grpcResponse = grpcClientService.unfollowUserOnLeader(target, followerId, followedId);
+                ServerCommsProto.ReplicationResponse grpcResponse = writeForwarder.forwardUnfollow(coordinator.getHost(), coordinator.getPort(),
+                        ServerCommsProto.FollowRequest.newBuilder().setFollowerId(followerId).setFollowedId(followedId).build());
 
                  if (grpcResponse == null || !grpcResponse.getSuccess()) {
                     String errorMsg = (grpcResponse != null) ? grpcResponse.getMessage() : "No response from coordinator.";
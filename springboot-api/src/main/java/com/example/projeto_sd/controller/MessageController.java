@@ -1,9 +1,11 @@
 package com.example.projeto_sd.controller;
 
+import com.example.projeto_sd.dto.message.ConversationSummaryDTO;
 import com.example.projeto_sd.dto.message.CreateMessageRequestDTO;
 import com.example.projeto_sd.dto.message.MessageDTO;
 import com.example.projeto_sd.dto.response.ErrorResponse;
 import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.service.LogicalClock;
 import com.example.projeto_sd.service.MessageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -23,6 +26,7 @@ import java.net.URI;
 public class MessageController {
 
     private final MessageService messageService;
+    private final LogicalClock logicalClock;
 
     /**
      * POST /api/messages
@@ -42,7 +46,9 @@ public class MessageController {
                     .buildAndExpand(createdMessage.getId())
                     .toUri();
 
-            return ResponseEntity.created(location).body(createdMessage);
+            return ResponseEntity.created(location)
+                    .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(createdMessage.getLogicalClock()))
+                    .body(createdMessage);
         } catch (UserNotFoundException e) {
             log.error("Usuário não encontrado ao enviar mensagem: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
@@ -60,17 +66,22 @@ public class MessageController {
      * @param userId1 ID do primeiro usuário.
      * @param userId2 ID do segundo usuário.
      * @param pageable Informações de paginação (page, size).
+     * @param minToken Token de consistência mínimo que esta réplica deve ter aplicado (opcional).
      * @return ResponseEntity com a página de MessageDTOs ou um erro.
      */
     @GetMapping("/users/{userId1}/conversation/{userId2}")
     public ResponseEntity<?> getConversation(
             @PathVariable String userId1,
             @PathVariable String userId2,
-            Pageable pageable) {
+            Pageable pageable,
+            @RequestParam(required = false) Integer minToken) {
         log.info("Recebida requisição GET /api/users/{}/conversation/{} com pageable: {}", userId1, userId2, pageable);
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
         try {
             Page<MessageDTO> conversationPage = messageService.getConversation(userId1, userId2, pageable);
-            return ResponseEntity.ok(conversationPage);
+            return okWithToken().body(conversationPage);
         } catch (UserNotFoundException e) {
             log.error("Usuário não encontrado ao buscar conversa: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
@@ -79,4 +90,46 @@ public class MessageController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao buscar conversa: " + e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * GET /api/users/{userId}/conversations
+     * Retorna a caixa de entrada do usuário: suas conversas, da mais recente para a mais antiga,
+     * com a última mensagem e o total de mensagens não lidas de cada uma.
+     *
+     * @param userId ID do usuário.
+     * @param pageable Informações de paginação (page, size).
+     * @param minToken Token de consistência mínimo que esta réplica deve ter aplicado (opcional).
+     * @return ResponseEntity com a lista de ConversationSummaryDTOs ou um erro.
+     */
+    @GetMapping("/users/{userId}/conversations")
+    public ResponseEntity<?> getInbox(
+            @PathVariable String userId,
+            Pageable pageable,
+            @RequestParam(required = false) Integer minToken) {
+        log.info("Recebida requisição GET /api/users/{}/conversations com pageable: {}", userId, pageable);
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
+        try {
+            List<ConversationSummaryDTO> inbox = messageService.getInbox(userId, pageable);
+            return okWithToken().body(inbox);
+        } catch (UserNotFoundException e) {
+            log.error("Usuário não encontrado ao buscar conversas: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erro ao buscar conversas de {}: {}", userId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao buscar conversas: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> replicaBehind(Integer minToken) {
+        log.warn("Réplica ainda não aplicou o token de consistência {} (aplicado: {}).", minToken, logicalClock.getAppliedValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()))
+                .body(new ErrorResponse("Réplica ainda não alcançou o token de consistência " + minToken + ". Tente novamente."));
+    }
+
+    private ResponseEntity.BodyBuilder okWithToken() {
+        return ResponseEntity.ok().header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()));
+    }
+}
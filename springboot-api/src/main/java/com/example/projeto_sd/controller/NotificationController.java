@@ -1,15 +1,25 @@
 package com.example.projeto_sd.controller;
 
+import com.example.projeto_sd.dto.notification.NotificationCursor;
 import com.example.projeto_sd.dto.notification.NotificationDTO;
 import com.example.projeto_sd.dto.response.ErrorResponse;
 import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.service.LogicalClock;
 import com.example.projeto_sd.service.NotificationService;
+import com.example.projeto_sd.service.NotificationStreamRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
@@ -18,21 +28,48 @@ import java.util.List;
 @Slf4j
 public class NotificationController {
 
+    private static final int DEFAULT_CURSOR_LIMIT = 20;
+    private static final int MAX_CURSOR_LIMIT = 100;
+
     private final NotificationService notificationService;
+    private final LogicalClock logicalClock;
+
+    @Value("${notifications.stream.sse.timeout.ms:1800000}")
+    private long sseTimeoutMs;
 
     /**
      * GET /api/users/{userId}/notifications
-     * Retorna a lista de notificações não lidas para o usuário especificado.
+     * Sem {@code cursor}/{@code limit}: retorna a lista completa de notificações não lidas, como antes.
+     * Com {@code cursor} ou {@code limit}: paginação por cursor (createdAt, id); {@code count=true}
+     * inclui o total de não lidas, lido do contador do usuário.
      *
      * @param userId O ID do usuário.
-     * @return ResponseEntity contendo a lista de NotificationDTOs ou status apropriado.
+     * @param minToken Token de consistência mínimo que esta réplica deve ter aplicado (opcional).
+     * @return ResponseEntity contendo a lista (ou página) de NotificationDTOs ou status apropriado.
      */
     @GetMapping("/users/{userId}/notifications")
-    public ResponseEntity<?> getUnreadNotifications(@PathVariable String userId) {
+    public ResponseEntity<?> getUnreadNotifications(@PathVariable String userId,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(defaultValue = "false") boolean count,
+                                                    @RequestParam(required = false) Integer minToken) {
         log.info("Recebida requisição GET /api/users/{}/notifications", userId);
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
         try {
+            if (cursor != null || limit != null) {
+                int pageLimit = limit != null ? limit : DEFAULT_CURSOR_LIMIT;
+                if (pageLimit < 1 || pageLimit > MAX_CURSOR_LIMIT) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("O limite deve estar entre 1 e " + MAX_CURSOR_LIMIT + "."));
+                }
+                if (!isValidCursor(cursor)) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Cursor inválido."));
+                }
+                return okWithToken().body(notificationService.getUnreadNotificationsByCursor(userId, cursor, pageLimit, count));
+            }
             List<NotificationDTO> notifications = notificationService.getUnreadNotifications(userId);
-            return ResponseEntity.ok(notifications);
+            return okWithToken().body(notifications);
         } catch (UserNotFoundException e) {
             log.error("Usuário não encontrado ao buscar notificações: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
@@ -42,6 +79,75 @@ public class NotificationController {
         }
     }
 
+    /**
+     * GET /api/users/{userId}/notifications/unread-count
+     * Retorna a quantidade de notificações não lidas do usuário (contador, sem varrer as notificações).
+     *
+     * @param userId O ID do usuário.
+     * @param minToken Token de consistência mínimo que esta réplica deve ter aplicado (opcional).
+     */
+    @GetMapping("/users/{userId}/notifications/unread-count")
+    public ResponseEntity<?> getUnreadCount(@PathVariable String userId,
+                                            @RequestParam(required = false) Integer minToken) {
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
+        try {
+            return okWithToken().body(notificationService.getUnreadCount(userId));
+        } catch (UserNotFoundException e) {
+            log.error("Usuário não encontrado ao contar notificações: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erro ao contar notificações não lidas para o usuário {}: {}", userId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao contar notificações: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/users/{userId}/notifications/stream
+     * Push (Server-Sent Events) das notificações do usuário gravadas neste nó, assim que a
+     * transação é confirmada. Cada evento {@code notification} traz um NotificationDTO e usa o ID
+     * da notificação como {@code id}. Depois de abrir o stream, o cliente lê as pendentes pelo GET
+     * paginado (descartando IDs repetidos); ao expirar ({@code notifications.stream.sse.timeout.ms})
+     * ou ao ser encerrado por lentidão, reconecta.
+     *
+     * @param userId O ID do usuário.
+     */
+    @GetMapping(value = "/users/{userId}/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamNotifications(@PathVariable String userId) {
+        log.info("Recebida requisição GET /api/users/{}/notifications/stream", userId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        NotificationStreamRegistry.Subscriber subscriber = new NotificationStreamRegistry.Subscriber() {
+            @Override
+            public boolean deliver(NotificationDTO notification) {
+                try {
+                    emitter.send(SseEmitter.event().id(notification.getId()).name("notification").data(notification));
+                    return true;
+                } catch (IOException | IllegalStateException e) {
+                    return false;
+                }
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        };
+        try {
+            Runnable unsubscribe = notificationService.subscribe(userId, subscriber);
+            emitter.onCompletion(unsubscribe);
+            emitter.onTimeout(unsubscribe);
+            emitter.onError(e -> unsubscribe.run());
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+        } catch (UserNotFoundException e) {
+            log.error("Usuário não encontrado ao abrir o stream de notificações: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            log.warn("Stream de notificações recusado para o usuário {}: {}", userId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON).body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
     /**
      * POST /api/users/{userId}/notifications/mark-read
      * Marca as notificações especificadas como lidas para o usuário.
@@ -66,4 +172,54 @@ public class NotificationController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao marcar notificações como lidas: " + e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * POST /api/users/{userId}/notifications/mark-all-read
+     * Marca como lidas todas as notificações do usuário criadas até {@code upTo} (UTC, ISO-8601).
+     * Sem {@code upTo}, usa o instante atual. Replicado como um único comando (usuário + limite).
+     *
+     * @param userId O ID do usuário.
+     * @param upTo Limite de data de criação (opcional).
+     * @return ResponseEntity com status 204 No Content em caso de sucesso.
+     */
+    @PostMapping("/users/{userId}/notifications/mark-all-read")
+    public ResponseEntity<?> markAllNotificationsAsRead(@PathVariable String userId,
+                                                        @RequestParam(required = false)
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upTo) {
+        LocalDateTime limit = upTo != null ? upTo : LocalDateTime.now(ZoneOffset.UTC);
+        log.info("Recebida requisição POST /api/users/{}/notifications/mark-all-read até {}", userId, limit);
+        try {
+            notificationService.markAllNotificationsAsReadUpTo(userId, limit);
+            return ResponseEntity.noContent().build();
+        } catch (UserNotFoundException e) {
+            log.error("Usuário não encontrado ao marcar todas as notificações como lidas: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erro ao marcar todas as notificações como lidas para o usuário {}: {}", userId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao marcar notificações como lidas: " + e.getMessage()));
+        }
+    }
+
+    private boolean isValidCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return true;
+        }
+        try {
+            NotificationCursor.decode(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private ResponseEntity<?> replicaBehind(Integer minToken) {
+        log.warn("Réplica ainda não aplicou o token de consistência {} (aplicado: {}).", minToken, logicalClock.getAppliedValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()))
+                .body(new ErrorResponse("Réplica ainda não alcançou o token de consistência " + minToken + ". Tente novamente."));
+    }
+
+    private ResponseEntity.BodyBuilder okWithToken() {
+        return ResponseEntity.ok().header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()));
+    }
+}
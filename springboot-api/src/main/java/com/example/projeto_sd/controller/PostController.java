@@ -2,8 +2,10 @@ package com.example.projeto_sd.controller;
 
 import com.example.projeto_sd.dto.post.CreatePostRequestDto;
 import com.example.projeto_sd.dto.post.DeletePostRequestDto;
+import com.example.projeto_sd.dto.post.PostCursor;
 import com.example.projeto_sd.dto.post.PostResponseDto;
 import com.example.projeto_sd.dto.response.ErrorResponse;
+import com.example.projeto_sd.service.LogicalClock;
 import com.example.projeto_sd.service.PostService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,7 +21,11 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class PostController {
 
+    private static final int DEFAULT_CURSOR_LIMIT = 20;
+    private static final int MAX_CURSOR_LIMIT = 100;
+
     private final PostService postService;
+    private final LogicalClock logicalClock;
 
     @PostMapping
     public ResponseEntity<?> createPost(@RequestBody CreatePostRequestDto requestDto) {
@@ -35,8 +41,10 @@ public class PostController {
         }
 
         try {
-            postService.createPost(requestDto);
-            return ResponseEntity.status(HttpStatus.CREATED).build();
+            int token = postService.createPost(requestDto);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(token))
+                    .build();
         } catch (IllegalArgumentException e) {
             log.warn("Requisição inválida ao criar post: {}", e.getMessage());
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
@@ -49,12 +57,37 @@ public class PostController {
         }
     }
 
+    /**
+     * GET /api/posts
+     * Sem {@code cursor}/{@code limit}: paginação por offset (Pageable), como antes.
+     * Com {@code cursor} ou {@code limit}: paginação por cursor (createdAt, id), sem contagem
+     * a menos que {@code count=true}.
+     * Com {@code minToken}, espera (limitado) até esta réplica aplicar o token de consistência.
+     */
     @GetMapping
-    public ResponseEntity<?> getAllPosts(Pageable pageable) {
-        log.info("Recebida requisição GET /api/posts com pageable: {}", pageable);
+    public ResponseEntity<?> getAllPosts(Pageable pageable,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(defaultValue = "false") boolean count,
+                                         @RequestParam(required = false) Integer minToken) {
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
         try {
+            if (cursor != null || limit != null) {
+                log.info("Recebida requisição GET /api/posts por cursor (limite: {}, contagem: {})", limit, count);
+                int pageLimit = limit != null ? limit : DEFAULT_CURSOR_LIMIT;
+                if (pageLimit < 1 || pageLimit > MAX_CURSOR_LIMIT) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("O limite deve estar entre 1 e " + MAX_CURSOR_LIMIT + "."));
+                }
+                return okWithToken().body(postService.getAllPostsByCursor(cursor, pageLimit, count));
+            }
+            log.info("Recebida requisição GET /api/posts com pageable: {}", pageable);
             Page<PostResponseDto> posts = postService.getAllPosts(pageable);
-            return ResponseEntity.ok(posts);
+            return okWithToken().body(posts);
+        } catch (IllegalArgumentException e) {
+            log.warn("Requisição inválida ao buscar posts: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
         } catch (IllegalStateException e) {
             log.error("Erro de estado ao buscar posts: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ErrorResponse(e.getMessage()));
@@ -64,12 +97,34 @@ public class PostController {
         }
     }
 
+    /**
+     * GET /api/posts/user/{userId}
+     * Mesmos modos de paginação de {@link #getAllPosts}.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getPostsByUserId(@PathVariable String userId, Pageable pageable) {
-        log.info("Recebida requisição GET /api/posts/user/{} com pageable: {}", userId, pageable);
+    public ResponseEntity<?> getPostsByUserId(@PathVariable String userId, Pageable pageable,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(defaultValue = "false") boolean count,
+                                              @RequestParam(required = false) Integer minToken) {
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
         try {
+            if (cursor != null || limit != null) {
+                log.info("Recebida requisição GET /api/posts/user/{} por cursor (limite: {}, contagem: {})", userId, limit, count);
+                int pageLimit = limit != null ? limit : DEFAULT_CURSOR_LIMIT;
+                if (pageLimit < 1 || pageLimit > MAX_CURSOR_LIMIT) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("O limite deve estar entre 1 e " + MAX_CURSOR_LIMIT + "."));
+                }
+                if (!isValidCursor(cursor)) {
+                    return ResponseEntity.badRequest().body(new ErrorResponse("Cursor inválido."));
+                }
+                return okWithToken().body(postService.getPostsByUserIdByCursor(userId, cursor, pageLimit, count));
+            }
+            log.info("Recebida requisição GET /api/posts/user/{} com pageable: {}", userId, pageable);
             Page<PostResponseDto> posts = postService.getPostsByUserId(userId, pageable);
-            return ResponseEntity.ok(posts);
+            return okWithToken().body(posts);
         } catch (IllegalArgumentException e) {
             log.warn("Requisição inválida ao buscar posts para o usuário {}: {}", userId, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
@@ -107,4 +162,27 @@ public class PostController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Ocorreu um erro interno."));
         }
     }
-} 
\ No newline at end of file
+
+    private boolean isValidCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return true;
+        }
+        try {
+            PostCursor.decode(cursor);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private ResponseEntity<?> replicaBehind(Integer minToken) {
+        log.warn("Réplica ainda não aplicou o token de consistência {} (aplicado: {}).", minToken, logicalClock.getAppliedValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()))
+                .body(new ErrorResponse("Réplica ainda não alcançou o token de consistência " + minToken + ". Tente novamente."));
+    }
+
+    private ResponseEntity.BodyBuilder okWithToken() {
+        return ResponseEntity.ok().header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()));
+    }
+}
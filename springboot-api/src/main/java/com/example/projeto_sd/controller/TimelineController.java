@@ -0,0 +1,74 @@
+package com.example.projeto_sd.controller;
+
+import com.example.projeto_sd.dto.post.PostResponseDto;
+import com.example.projeto_sd.dto.response.CursorPageResponse;
+import com.example.projeto_sd.dto.response.ErrorResponse;
+import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.service.LogicalClock;
+import com.example.projeto_sd.service.TimelineService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final TimelineService timelineService;
+    private final LogicalClock logicalClock;
+
+    /**
+     * GET /api/users/{userId}/timeline
+     * Retorna a timeline (home) do usuário: posts dele e de quem ele segue, do mais recente
+     * para o mais antigo, paginados por cursor.
+     *
+     * @param userId O ID do usuário.
+     * @param cursor Cursor retornado em {@code nextCursor} da página anterior (opcional).
+     * @param limit Quantidade de posts por página (1 a 100).
+     * @param minToken Token de consistência mínimo que esta réplica deve ter aplicado (opcional).
+     * @return ResponseEntity contendo a página de posts ou status apropriado.
+     */
+    @GetMapping("/users/{userId}/timeline")
+    public ResponseEntity<?> getTimeline(@PathVariable String userId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         @RequestParam(required = false) Integer minToken) {
+        log.info("Recebida requisição GET /api/users/{}/timeline (limite: {})", userId, limit);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("O limite deve estar entre 1 e " + MAX_LIMIT + "."));
+        }
+        if (!logicalClock.awaitApplied(minToken)) {
+            return replicaBehind(minToken);
+        }
+        try {
+            CursorPageResponse<PostResponseDto> page = timelineService.getTimeline(userId, cursor, limit);
+            return okWithToken().body(page);
+        } catch (UserNotFoundException e) {
+            log.error("Usuário não encontrado ao buscar timeline: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Cursor inválido ao buscar timeline do usuário {}: {}", userId, e.getMessage());
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erro ao buscar timeline do usuário {}: {}", userId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao buscar timeline: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> replicaBehind(Integer minToken) {
+        log.warn("Réplica ainda não aplicou o token de consistência {} (aplicado: {}).", minToken, logicalClock.getAppliedValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()))
+                .body(new ErrorResponse("Réplica ainda não alcançou o token de consistência " + minToken + ". Tente novamente."));
+    }
+
+    private ResponseEntity.BodyBuilder okWithToken() {
+        return ResponseEntity.ok().header(LogicalClock.CONSISTENCY_TOKEN_HEADER, String.valueOf(logicalClock.getAppliedValue()));
+    }
+}
@@ -9,16 +9,14 @@ import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.model.User;
 import com.example.projeto_sd.service.ElectionService;
 import com.example.projeto_sd.service.FollowService;
-import com.example.projeto_sd.service.GrpcClientService;
+import com.example.projeto_sd.service.WriteForwarder;
 import com.example.projeto_sd.service.UserService;
-import com.example.projeto_sd.repository.ServerRepository;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.beans.factory.annotation.Value;
 
 import java.util.List;
 import java.util.Optional;
@@ -31,12 +29,8 @@ public class UserController {
 
     private final UserService userService;
     private final ElectionService electionService;
-    private final GrpcClientService grpcClientService;
+    private final WriteForwarder writeForwarder;
     private final FollowService followService;
-    private final ServerRepository serverRepository;
-
-    @Value("${server.id}")
-    private String selfId;
 
     @PostMapping
     public ResponseEntity<?> createUser(@Valid @RequestBody CreateUserRequestDTO requestDTO) {
@@ -48,8 +42,6 @@ public class UserController {
                 User createdUser = userService.createUser(requestDTO.getName());
                 UserResponseDTO userResponseDTO = new UserResponseDTO(createdUser.getId(), createdUser.getName());
 
-                replicateUserCreationToFollowers(createdUser);
-
                 log.info("Requisição createUser processada com sucesso. ID do usuário: {}", userResponseDTO.getId());
                 return ResponseEntity.status(HttpStatus.CREATED).body(userResponseDTO);
             } catch (IllegalArgumentException e) {
@@ -78,9 +70,10 @@ public class UserController {
                     coordinator.getId(), coordinator.getHost(), coordinator.getPort());
             
             try {
-                ServerCommsProto.UserResponse grpcResponse = grpcClientService.createUserOnLeader(
-                        coordinator.getHost() + ":" + coordinator.getPort(), 
-                        requestDTO.getName());
+                ServerCommsProto.UserResponse grpcResponse = writeForwarder.forwardCreateUser(
+                        coordinator.getHost(),
+                        coordinator.getPort(),
+                        ServerCommsProto.CreateUserRequest.newBuilder().setName(requestDTO.getName()).build());
                 
                 if (grpcResponse == null) {
                     log.error("Falha ao criar usuário: Sem resposta do coordenador {}.", coordinator.getId());
@@ -140,36 +133,4 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponse("Erro ao buscar quem está seguindo: " + e.getMessage()));
         }
     }
-
-    private void replicateUserCreationToFollowers(User user) {
-        log.info("Coordenador ({}) iniciando replicação para o ID do usuário: {}", this.selfId, user.getId());
-
-        List<Server> activeServers = serverRepository.findByIsActiveTrue();
-        ServerCommsProto.UserInfo userInfoProto = ServerCommsProto.UserInfo.newBuilder()
-                .setId(user.getId())
-                .setName(user.getName())
-                .build();
-
-        for (Server server : activeServers) {
-            if (server != null && server.getId() != null && !server.getId().equals(this.selfId)) {
-                log.debug("Replicando usuário {} para o servidor {} em {}:{}", 
-                        user.getId(), server.getId(), server.getHost(), server.getPort());
-                try {
-                    ServerCommsProto.ReplicationResponse replicationResponse =
-                            grpcClientService.replicateUserCreationToPeer(server.getHost(), server.getPort(), userInfoProto);
-                    if (replicationResponse == null || !replicationResponse.getSuccess()) {
-                        log.warn("Replicação do usuário {} para o servidor {} falhou. Mensagem: {}",
-                                user.getId(), server.getId(), 
-                                replicationResponse != null ? replicationResponse.getMessage() : "Sem resposta");
-                    } else {
-                        log.info("Usuário {} replicado com sucesso para o servidor {}", user.getId(), server.getId());
-                    }
-                } catch (Exception e) {
-                    log.error("Erro durante a replicação do usuário {} para o servidor {}: {}",
-                            user.getId(), server.getId(), e.getMessage(), e);
-                }
-            }
-        }
-        log.info("Processo de replicação finalizado para o ID do usuário: {}", user.getId());
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.projeto_sd.dto.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Item da caixa de entrada: uma conversa do usuário com a última mensagem e o total não lido.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryDTO {
+
+    private String peerId;
+    private String peerName;
+    private String lastMessageId;
+    private String lastSenderId;
+    private String lastContent;
+    private LocalDateTime lastSentAt;
+    private int lastLogicalClock;
+    private int unreadCount;
+
+}
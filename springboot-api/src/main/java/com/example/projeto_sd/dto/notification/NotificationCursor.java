@@ -0,0 +1,45 @@
+package com.example.projeto_sd.dto.notification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de paginação de notificações: posição (createdAt, notificationId) do último item da página.
+ * Codificado em Base64 URL-safe para ser usado diretamente em query strings.
+ */
+public record NotificationCursor(LocalDateTime createdAt, String notificationId) {
+
+    private static final String SEPARATOR = "|";
+
+    public static NotificationCursor of(NotificationDTO notification) {
+        return new NotificationCursor(notification.getCreatedAt(), notification.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + notificationId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica um cursor recebido do cliente.
+     *
+     * @param cursor O cursor codificado.
+     * @return O cursor decodificado.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    public static NotificationCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return new NotificationCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+}
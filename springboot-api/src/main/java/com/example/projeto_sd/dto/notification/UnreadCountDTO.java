@@ -0,0 +1,15 @@
+package com.example.projeto_sd.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCountDTO {
+    private String userId;
+    private long unreadCount;
+}
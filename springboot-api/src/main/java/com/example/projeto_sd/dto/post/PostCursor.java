@@ -0,0 +1,45 @@
+package com.example.projeto_sd.dto.post;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de paginação de posts: posição (createdAt, postId) do último item da página.
+ * Codificado em Base64 URL-safe para ser usado diretamente em query strings.
+ */
+public record PostCursor(LocalDateTime createdAt, String postId) {
+
+    private static final String SEPARATOR = "|";
+
+    public static PostCursor of(PostResponseDto post) {
+        return new PostCursor(post.getCreatedAt(), post.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica um cursor recebido do cliente.
+     *
+     * @param cursor O cursor codificado.
+     * @return O cursor decodificado.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    public static PostCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor);
+            }
+            return new PostCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.projeto_sd.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interceptor dos canais de saída (GrpcClientService): mede duração, status, deadlines
+ * estourados e chamadas em andamento por RPC e peer, e envia o ID deste servidor no
+ * header {@link GrpcMetrics#SERVER_ID_HEADER} para as métricas do lado servidor.
+ */
+@Component
+@RequiredArgsConstructor
+public class ClientMetricsInterceptor implements ClientInterceptor {
+
+    private final GrpcMetrics grpcMetrics;
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions, Channel next) {
+        String rpc = method.getBareMethodName();
+        String peer = grpcMetrics.resolvePeerId(next.authority());
+
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                headers.put(GrpcMetrics.SERVER_ID_HEADER, grpcMetrics.getSelfServerId());
+                AtomicInteger inflight = grpcMetrics.inflight("client", rpc, peer);
+                long start = System.nanoTime();
+                inflight.incrementAndGet();
+                try {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            inflight.decrementAndGet();
+                            grpcMetrics.recordCall("client", rpc, peer, status, System.nanoTime() - start);
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                } catch (RuntimeException e) {
+                    inflight.decrementAndGet();
+                    grpcMetrics.recordCall("client", rpc, peer, Status.fromThrowable(e), System.nanoTime() - start);
+                    throw e;
+                }
+            }
+        };
+    }
+}
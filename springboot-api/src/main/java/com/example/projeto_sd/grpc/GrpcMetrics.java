@@ -0,0 +1,103 @@
+package com.example.projeto_sd.grpc;
+
+import com.example.projeto_sd.service.ClusterMembership;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas Micrometer das chamadas gRPC (cliente e servidor), exportadas pelo actuator
+ * em /actuator/prometheus. Todas as métricas são marcadas com o nome do RPC, o ID do
+ * servidor peer e, quando concluídas, o código de status.
+ * <ul>
+ *   <li>{@code grpc.client.calls} / {@code grpc.server.calls}: timer (com histograma) por rpc, peer e status.</li>
+ *   <li>{@code grpc.client.inflight} / {@code grpc.server.inflight}: chamadas em andamento por rpc e peer.</li>
+ *   <li>{@code grpc.client.deadline.exceeded}: chamadas de saída encerradas por deadline.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class GrpcMetrics {
+
+    /**
+     * Header com o ID do servidor que originou a chamada, preenchido pelo interceptor cliente.
+     */
+    public static final Metadata.Key<String> SERVER_ID_HEADER =
+            Metadata.Key.of("x-server-id", Metadata.ASCII_STRING_MARSHALLER);
+
+    static final String UNKNOWN_PEER = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final ClusterMembership clusterMembership;
+
+    @Value("${server.id}")
+    private String selfServerId;
+
+    private final ConcurrentMap<String, AtomicInteger> inflight = new ConcurrentHashMap<>();
+
+    public String getSelfServerId() {
+        return selfServerId;
+    }
+
+    /**
+     * Registra uma chamada concluída.
+     *
+     * @param side "client" ou "server".
+     * @param rpc Nome do método gRPC.
+     * @param peer ID do servidor peer.
+     * @param status Status final da chamada.
+     * @param elapsedNanos Duração da chamada.
+     */
+    void recordCall(String side, String rpc, String peer, Status status, long elapsedNanos) {
+        Timer.builder("grpc." + side + ".calls")
+                .description("Duração das chamadas gRPC")
+                .tag("rpc", rpc)
+                .tag("peer", peer)
+                .tag("status", status.getCode().name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if ("client".equals(side) && status.getCode() == Status.Code.DEADLINE_EXCEEDED) {
+            Counter.builder("grpc.client.deadline.exceeded")
+                    .description("Chamadas gRPC de saída encerradas por deadline")
+                    .tag("rpc", rpc)
+                    .tag("peer", peer)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Contador de chamadas em andamento (registrado como gauge na primeira utilização).
+     */
+    AtomicInteger inflight(String side, String rpc, String peer) {
+        return inflight.computeIfAbsent(side + "|" + rpc + "|" + peer, key -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("grpc." + side + ".inflight", counter, AtomicInteger::get)
+                    .description("Chamadas gRPC em andamento")
+                    .tag("rpc", rpc)
+                    .tag("peer", peer)
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    /**
+     * Resolve o ID do servidor a partir do alvo "host:porta" do canal, pelo snapshot de membros.
+     */
+    String resolvePeerId(String target) {
+        return clusterMembership.findServerIdByTarget(target).orElse(UNKNOWN_PEER);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.projeto_sd.grpc;
+
+import com.example.projeto_sd.service.WorkerThreads;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Executor do servidor gRPC (net.devh). No modo virtual threads, cada chamada é atendida
+ * em uma virtual thread, já que os handlers bloqueiam em banco e em stubs síncronos;
+ * caso contrário, mantém o pool padrão do grpc-java.
+ */
+@Configuration
+@Slf4j
+public class GrpcServerExecutorConfig {
+
+    @Bean
+    public GrpcServerConfigurer virtualThreadExecutorConfigurer(WorkerThreads workerThreads) {
+        return serverBuilder -> workerThreads.virtualExecutor("grpc-server-").ifPresent(executor -> {
+            serverBuilder.executor(executor);
+            log.info("[gRPC] Servidor configurado para atender chamadas em virtual threads.");
+        });
+    }
+}
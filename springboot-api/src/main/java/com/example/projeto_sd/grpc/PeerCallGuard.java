@@ -0,0 +1,405 @@
+package com.example.projeto_sd.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Deadline;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Proteções das chamadas de saída por alvo "host:porta" (um interceptor por canal do GrpcClientService):
+ * <ul>
+ *   <li><b>Circuit breaker</b>: após {@code grpc.client.breaker.failure-threshold} falhas de transporte
+ *       seguidas (UNAVAILABLE ou DEADLINE_EXCEEDED), as chamadas unárias ao alvo falham na hora com
+ *       UNAVAILABLE por {@code grpc.client.breaker.open.ms}. Depois disso, uma única chamada passa como sonda
+ *       (meio-aberto): se ela tiver sucesso o circuito fecha; se falhar, ele volta a abrir. Streams não são
+ *       barrados (têm backoff próprio), mas o resultado deles também alimenta o estado.</li>
+ *   <li><b>Deadline adaptativo</b>: cada RPC unário por alvo mantém uma estimativa de latência no estilo do
+ *       RTO do TCP (média suavizada + 4 desvios). Com amostras suficientes, o deadline passa a ser
+ *       {@code multiplier} × estimativa (com um mínimo). Ele só encurta o deadline do chamador, nunca o estende.
+ *       As escritas encaminhadas ao coordenador e os RPCs de anti-entropia e snapshot ficam de fora
+ *       ({@code grpc.client.deadline.adaptive.exclude}).</li>
+ *   <li><b>Orçamento de retry</b> global: cada chamada bem-sucedida deposita {@code ratio} fichas (até
+ *       {@code max-tokens}) e cada retry consome uma. Sob falha generalizada, os retries param em vez de
+ *       multiplicar a carga.</li>
+ * </ul>
+ * Métricas: {@code grpc.client.circuit.state} (0 fechado, 1 meio-aberto, 2 aberto) e
+ * {@code grpc.client.circuit.rejected} por alvo; {@code grpc.client.retries} e
+ * {@code grpc.client.retry.budget.tokens}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PeerCallGuard {
+
+    private enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private enum Permit { DENIED, ALLOWED, PROBE, UNGATED }
+
+    private static final double MILLI_TOKENS = 1000.0;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${grpc.client.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${grpc.client.breaker.open.ms:5000}")
+    private long openMs;
+
+    @Value("${grpc.client.deadline.adaptive.enabled:true}")
+    private boolean adaptiveDeadlines;
+
+    @Value("${grpc.client.deadline.min.ms:250}")
+    private long minDeadlineMs;
+
+    @Value("${grpc.client.deadline.multiplier:3}")
+    private double deadlineMultiplier;
+
+    @Value("${grpc.client.deadline.min-samples:20}")
+    private int minSamples;
+
+    // Escritas encaminhadas ao coordenador esperam o quórum no servidor e não são idempotentes:
+    // encurtar o deadline delas geraria falhas ambíguas (escrita aplicada, cliente com erro).
+    // A latência de anti-entropia e snapshot depende do tamanho do intervalo (raiz de um dia x folha de um
+    // minuto): um deadline aprendido nas folhas estouraria nas raízes e abriria o circuito do coordenador
+    @Value("${grpc.client.deadline.adaptive.exclude:CreateUserRPC,FollowUserRPC,UnfollowUserRPC,CreatePostRPC,DeletePostRPC,SendMessageRPC,GetRangeDigests,StreamRangeRows,StreamSnapshot}")
+    private Set<String> adaptiveDeadlineExclusions;
+
+    @Value("${grpc.client.retry.budget.ratio:0.1}")
+    private double retryRatio;
+
+    @Value("${grpc.client.retry.budget.max-tokens:20}")
+    private double retryMaxTokens;
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyEstimator> latencies = new ConcurrentHashMap<>();
+
+    // Fichas do orçamento de retry, em milésimos
+    private final AtomicLong retryMilliTokens = new AtomicLong();
+    private Counter retries;
+
+    @PostConstruct
+    void init() {
+        retryMilliTokens.set((long) (retryMaxTokens * MILLI_TOKENS));
+        retries = Counter.builder("grpc.client.retries")
+                .description("Retries de chamadas gRPC de saída autorizados pelo orçamento")
+                .register(meterRegistry);
+        Gauge.builder("grpc.client.retry.budget.tokens", retryMilliTokens, tokens -> tokens.get() / MILLI_TOKENS)
+                .description("Fichas disponíveis no orçamento global de retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Interceptor para o canal do alvo "host:porta".
+     */
+    public ClientInterceptor interceptorFor(String target) {
+        return new GuardInterceptor(target);
+    }
+
+    /**
+     * Indica se chamadas ao alvo podem ser feitas agora (circuito fechado, ou aberto há tempo suficiente para uma sonda).
+     */
+    public boolean isAvailable(String target) {
+        CircuitBreaker breaker = breakers.get(target);
+        return breaker == null || breaker.isAvailable(System.nanoTime());
+    }
+
+    public boolean isAvailable(String host, int port) {
+        return isAvailable(host + ":" + port);
+    }
+
+    /**
+     * Consome uma ficha do orçamento global de retry.
+     *
+     * @return false se o orçamento está esgotado (o retry não deve ser feito)
+     */
+    public boolean tryAcquireRetry() {
+        long milli = (long) MILLI_TOKENS;
+        while (true) {
+            long current = retryMilliTokens.get();
+            if (current < milli) {
+                return false;
+            }
+            if (retryMilliTokens.compareAndSet(current, current - milli)) {
+                retries.increment();
+                return true;
+            }
+        }
+    }
+
+    private void depositRetryTokens() {
+        long max = (long) (retryMaxTokens * MILLI_TOKENS);
+        long deposit = (long) (retryRatio * MILLI_TOKENS);
+        retryMilliTokens.getAndUpdate(current -> Math.min(max, current + deposit));
+    }
+
+    private CircuitBreaker breaker(String target) {
+        return breakers.computeIfAbsent(target, key -> {
+            CircuitBreaker breaker = new CircuitBreaker(key);
+            Gauge.builder("grpc.client.circuit.state", breaker, b -> b.state.ordinal())
+                    .description("Estado do circuit breaker por alvo (0 fechado, 1 meio-aberto, 2 aberto)")
+                    .tag("target", key)
+                    .register(meterRegistry);
+            breaker.rejected = Counter.builder("grpc.client.circuit.rejected")
+                    .description("Chamadas gRPC de saída recusadas com o circuito aberto")
+                    .tag("target", key)
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    private static boolean isTransportFailure(Status.Code code) {
+        return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED;
+    }
+
+    private final class GuardInterceptor implements ClientInterceptor {
+
+        private final String target;
+
+        private GuardInterceptor(String target) {
+            this.target = target;
+        }
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                                   CallOptions callOptions, Channel next) {
+            boolean unary = method.getType() == MethodDescriptor.MethodType.UNARY;
+            CircuitBreaker breaker = breaker(target);
+            Permit permit = unary ? breaker.tryAcquire(System.nanoTime()) : Permit.UNGATED;
+            if (permit == Permit.DENIED) {
+                breaker.rejected.increment();
+                Executor executor = callOptions.getExecutor() != null ? callOptions.getExecutor() : ForkJoinPool.commonPool();
+                return new RejectedCall<>(executor, Status.UNAVAILABLE.withDescription(
+                        "Circuito aberto para " + target + ": chamada recusada sem acessar a rede."));
+            }
+
+            LatencyEstimator estimator = unary && !adaptiveDeadlineExclusions.contains(method.getBareMethodName())
+                    ? latencies.computeIfAbsent(target + "|" + method.getFullMethodName(), key -> new LatencyEstimator())
+                    : null;
+            CallOptions options = estimator != null ? withAdaptiveDeadline(callOptions, estimator) : callOptions;
+
+            return new ForwardingClientCall.SimpleForwardingClientCall<>(next.newCall(method, options)) {
+                @Override
+                public void start(Listener<RespT> responseListener, Metadata headers) {
+                    long start = System.nanoTime();
+                    AtomicBoolean settled = new AtomicBoolean();
+                    try {
+                        super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                            @Override
+                            public void onHeaders(Metadata responseHeaders) {
+                                // Em streams, receber headers já mostra que o peer está acessível
+                                if (!unary && settled.compareAndSet(false, true)) {
+                                    breaker.onSuccess(permit);
+                                }
+                                super.onHeaders(responseHeaders);
+                            }
+
+                            @Override
+                            public void onClose(Status status, Metadata trailers) {
+                                long elapsedNanos = System.nanoTime() - start;
+                                boolean transportFailure = isTransportFailure(status.getCode());
+                                if (estimator != null && status.getCode() != Status.Code.UNAVAILABLE) {
+                                    estimator.record(elapsedNanos);
+                                }
+                                if (transportFailure) {
+                                    breaker.onFailure(permit, System.nanoTime());
+                                } else if (status.getCode() == Status.Code.CANCELLED) {
+                                    // Cancelada por este nó: não diz nada sobre o peer
+                                    breaker.release(permit);
+                                } else if (settled.compareAndSet(false, true)) {
+                                    breaker.onSuccess(permit);
+                                }
+                                if (status.isOk()) {
+                                    depositRetryTokens();
+                                }
+                                super.onClose(status, trailers);
+                            }
+                        }, headers);
+                    } catch (RuntimeException e) {
+                        breaker.release(permit);
+                        throw e;
+                    }
+                }
+            };
+        }
+
+        private CallOptions withAdaptiveDeadline(CallOptions callOptions, LatencyEstimator estimator) {
+            if (!adaptiveDeadlines) {
+                return callOptions;
+            }
+            long adaptiveMs = estimator.deadlineMillis(minSamples, deadlineMultiplier, minDeadlineMs);
+            if (adaptiveMs <= 0) {
+                return callOptions;
+            }
+            Deadline adaptive = Deadline.after(adaptiveMs, TimeUnit.MILLISECONDS);
+            Deadline current = callOptions.getDeadline();
+            return current == null || adaptive.isBefore(current) ? callOptions.withDeadline(adaptive) : callOptions;
+        }
+    }
+
+    /**
+     * Estado do circuito de um alvo. Os métodos são sincronizados: são poucas instruções por chamada.
+     */
+    private final class CircuitBreaker {
+
+        private final String target;
+        private volatile State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean probeInFlight;
+        private Counter rejected;
+
+        private CircuitBreaker(String target) {
+            this.target = target;
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return state == State.CLOSED || (state == State.OPEN && now - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(openMs));
+        }
+
+        synchronized Permit tryAcquire(long now) {
+            switch (state) {
+                case CLOSED:
+                    return Permit.ALLOWED;
+                case OPEN:
+                    if (now - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(openMs)) {
+                        return Permit.DENIED;
+                    }
+                    state = State.HALF_OPEN;
+                    probeInFlight = true;
+                    log.info("[CircuitBreaker] Circuito para {} meio-aberto: enviando chamada de sonda.", target);
+                    return Permit.PROBE;
+                case HALF_OPEN:
+                default:
+                    if (probeInFlight) {
+                        return Permit.DENIED;
+                    }
+                    probeInFlight = true;
+                    return Permit.PROBE;
+            }
+        }
+
+        synchronized void onSuccess(Permit permit) {
+            consecutiveFailures = 0;
+            if (permit == Permit.PROBE) {
+                probeInFlight = false;
+            }
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                probeInFlight = false;
+                log.info("[CircuitBreaker] Circuito para {} fechado: o peer voltou a responder.", target);
+            }
+        }
+
+        synchronized void onFailure(Permit permit, long now) {
+            consecutiveFailures++;
+            if (permit == Permit.PROBE) {
+                probeInFlight = false;
+                open(now, "a sonda falhou");
+            } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+                open(now, consecutiveFailures + " falhas de transporte seguidas");
+            }
+        }
+
+        synchronized void release(Permit permit) {
+            if (permit == Permit.PROBE) {
+                probeInFlight = false;
+            }
+        }
+
+        private void open(long now, String reason) {
+            state = State.OPEN;
+            openedAtNanos = now;
+            log.warn("[CircuitBreaker] Circuito para {} aberto ({}): chamadas unárias falham na hora por {}ms.", target, reason, openMs);
+        }
+    }
+
+    /**
+     * Latência suavizada de um RPC em um alvo (Jacobson/Karels, como o RTO do TCP).
+     */
+    private static final class LatencyEstimator {
+
+        private double smoothedNanos;
+        private double varianceNanos;
+        private long samples;
+
+        synchronized void record(long elapsedNanos) {
+            if (samples == 0) {
+                smoothedNanos = elapsedNanos;
+                varianceNanos = elapsedNanos / 2.0;
+            } else {
+                varianceNanos = 0.75 * varianceNanos + 0.25 * Math.abs(smoothedNanos - elapsedNanos);
+                smoothedNanos = 0.875 * smoothedNanos + 0.125 * elapsedNanos;
+            }
+            samples++;
+        }
+
+        /**
+         * @return deadline adaptativo em ms, ou -1 se ainda não há amostras suficientes
+         */
+        synchronized long deadlineMillis(int minSamples, double multiplier, long minMillis) {
+            if (samples < minSamples) {
+                return -1;
+            }
+            double estimateNanos = smoothedNanos + 4 * varianceNanos;
+            return Math.max(minMillis, (long) Math.ceil(multiplier * estimateNanos / 1_000_000.0));
+        }
+    }
+
+    /**
+     * Chamada recusada pelo circuito aberto: encerra com o status informado, sem tocar no transporte.
+     */
+    private static final class RejectedCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final Executor executor;
+        private final Status status;
+
+        private RejectedCall(Executor executor, Status status) {
+            this.executor = executor;
+            this.status = status;
+        }
+
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+            executor.execute(() -> responseListener.onClose(status, new Metadata()));
+        }
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void halfClose() {
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.projeto_sd.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import lombok.RequiredArgsConstructor;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interceptor global dos handlers de ServerServiceImpl: mede duração, status e chamadas
+ * em andamento por RPC e pelo servidor que originou a chamada (header
+ * {@link GrpcMetrics#SERVER_ID_HEADER}; "unknown" para clientes sem o header).
+ */
+@GrpcGlobalServerInterceptor
+@RequiredArgsConstructor
+public class ServerMetricsInterceptor implements ServerInterceptor {
+
+    private final GrpcMetrics grpcMetrics;
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String rpc = call.getMethodDescriptor().getBareMethodName();
+        String callerId = headers.get(GrpcMetrics.SERVER_ID_HEADER);
+        String peer = callerId != null && !callerId.isBlank() ? callerId : GrpcMetrics.UNKNOWN_PEER;
+
+        AtomicInteger inflight = grpcMetrics.inflight("server", rpc, peer);
+        AtomicBoolean finished = new AtomicBoolean();
+        long start = System.nanoTime();
+        inflight.incrementAndGet();
+
+        ServerCall<ReqT, RespT> measuredCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                finish(status);
+                super.close(status, trailers);
+            }
+
+            private void finish(Status status) {
+                if (finished.compareAndSet(false, true)) {
+                    inflight.decrementAndGet();
+                    grpcMetrics.recordCall("server", rpc, peer, status, System.nanoTime() - start);
+                }
+            }
+        };
+        ServerCall.Listener<ReqT> listener = next.startCall(measuredCall, headers);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onCancel() {
+                // Cancelada pelo cliente (ou deadline): close() pode não ser chamado.
+                if (finished.compareAndSet(false, true)) {
+                    inflight.decrementAndGet();
+                    grpcMetrics.recordCall("server", rpc, peer, Status.CANCELLED, System.nanoTime() - start);
+                }
+                super.onCancel();
+            }
+        };
+    }
+}
@@ -3,16 +3,21 @@ package com.example.projeto_sd.grpc;
 import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.model.User;
 import com.example.projeto_sd.repository.ServerRepository;
-import com.example.projeto_sd.repository.UserRepository;
+import com.example.projeto_sd.service.AntiEntropyService;
+import com.example.projeto_sd.service.SnapshotService;
 import com.example.projeto_sd.service.ElectionService;
 import com.example.projeto_sd.service.FollowService;
 import com.example.projeto_sd.service.HeartbeatService;
 import com.example.projeto_sd.service.ClockSyncService;
+import com.example.projeto_sd.service.UserCache;
 import com.example.projeto_sd.service.UserService;
+import com.example.projeto_sd.service.WorkerThreads;
+import com.example.projeto_sd.service.WriteForwarder;
 import com.google.protobuf.Empty;
 import com.example.projeto_sd.grpc.ServerCommsProto.*;
 import com.example.projeto_sd.grpc.ServerCommsProto.UserInfo;
 import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationResponse;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,51 +27,81 @@ import org.springframework.beans.factory.annotation.Value;
 import com.example.projeto_sd.service.PostService;
 import com.example.projeto_sd.model.Post;
 import com.example.projeto_sd.dto.post.DeletePostRequestDto;
-import com.example.projeto_sd.repository.NotificationRepository;
+import com.example.projeto_sd.dto.notification.NotificationDTO;
+import com.example.projeto_sd.service.NotificationStreamRegistry;
 import com.google.protobuf.Timestamp;
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import com.example.projeto_sd.service.NotificationService;
 import com.example.projeto_sd.service.MessageService;
+import com.example.projeto_sd.service.ReplicationApplier;
 import com.example.projeto_sd.dto.message.CreateMessageRequestDTO;
 import com.example.projeto_sd.dto.message.MessageDTO;
 import com.example.projeto_sd.exception.UserNotFoundException;
 import java.util.function.Supplier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.beans.factory.annotation.Autowired;
 
 @GrpcService
 @RequiredArgsConstructor
 @Slf4j
 public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
 
+    // Intervalo entre verificações de prontidão do stream ao enviar o snapshot.
+    private static final long SNAPSHOT_READY_POLL_MS = 5;
+
     private final ServerRepository serverRepository;
     private final ElectionService electionService;
     private final HeartbeatService heartbeatService;
     private final ClockSyncService clockSyncService;
     private final UserService userService;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
     private final GrpcClientService grpcClientService;
     private final FollowService followService;
     private final PostService postService;
-    private final NotificationRepository notificationRepository;
     private final NotificationService notificationService;
     private final MessageService messageService;
+    private final ReplicationApplier replicationApplier;
+
+    private final WorkerThreads workerThreads;
+    private final WriteForwarder writeForwarder;
+    private final AntiEntropyService antiEntropyService;
+    private final SnapshotService snapshotService;
 
     @Value("${server.id}")
     private String selfId;
 
-    @Autowired
-    private DiscoveryClient discoveryClient;
+    @Value("${forward.server.threads:64}")
+    private int forwardedWriteThreads;
+
+    // Executa as escritas recebidas por ForwardWrites (virtual threads quando o modo está ativo)
+    private Executor forwardedWriteExecutor;
 
-    @Value("${spring.application.name}")
-    private String selfServiceName;
+    @PostConstruct
+    void initForwardedWriteExecutor() {
+        forwardedWriteExecutor = workerThreads.virtualExecutor("forwarded-write-")
+                .orElseGet(() -> Executors.newFixedThreadPool(forwardedWriteThreads, r -> {
+                    Thread thread = new Thread(r, "forwarded-write");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    @PreDestroy
+    void shutdownForwardedWriteExecutor() {
+        if (forwardedWriteExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
 
     // --- Métodos Auxiliares para Conversão ---
 
@@ -86,7 +121,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
                 .build();
     }
 
-    private static PostInfo toPostInfoProto(Post post) {
+    static PostInfo toPostInfoProto(Post post) {
         if (post == null || post.getUser() == null || post.getCreatedAt() == null) {
              log.warn("Tentando converter Post inválido ou incompleto para PostInfo");
              return PostInfo.newBuilder().build();
@@ -100,7 +135,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
             .build();
     }
 
-     private static MessageInfo toMessageInfoProto(MessageDTO messageDTO) {
+    static MessageInfo toMessageInfoProto(MessageDTO messageDTO) {
         if (messageDTO == null || messageDTO.getSentAt() == null) {
             log.warn("Tentando converter MessageDTO inválido ou incompleto para MessageInfo");
             return MessageInfo.newBuilder().build();
@@ -134,7 +169,8 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
 
         try {
             Server server = processServerRegistration(request);
-            serverRepository.save(server);
+            Server saved = serverRepository.save(server);
+            electionService.onServerUpdated(saved);
 
             ServerRegistrationResponse response = buildRegistrationResponse(true, "Servidor registrado com sucesso");
             responseObserver.onNext(response);
@@ -290,7 +326,6 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
                 responseObserver.onNext(response);
                 responseObserver.onCompleted();
                 log.info("Usuário criado com sucesso: ID={}, Nome={}", createdUser.getId(), createdUser.getName());
-                replicateUserCreationToFollowers(createdUser);
             } catch (Exception e) {
                  handleGrpcError(e, responseObserver, "criar usuário");
             }
@@ -302,7 +337,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
                          log.info("Nó {} não é coordenador. Encaminhando {} para o coordenador {} em {}:{}",
                                  selfId, operationName, coordinator.getId(), coordinator.getHost(), coordinator.getPort());
                         try {
-                            UserResponse response = grpcClientService.forwardCreateUserRPC(
+                            UserResponse response = writeForwarder.forwardCreateUser(
                                     coordinator.getHost(),
                                     coordinator.getPort(),
                                     request
@@ -319,122 +354,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
     }
 
-    // --- Métodos de Replicação ---
-
-    private void replicateUserCreationToFollowers(User user) {
-        if (!electionService.isCurrentNodeCoordinator()) { // Check if it's still coordinator
-            log.error("Tentativa de replicação de criação de usuário por nó não-coordenador: {}", selfId);
-            return;
-        }
-
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfId) && !peerServerId.startsWith("unknown") && getGrpcPortFromInstance(instance) != -1;
-                })
-                .collect(Collectors.toList());
-
-        UserInfo userInfoProto = toUserInfoProto(user);
-
-        log.info("[UserCreationRepl] Replicando usuário {} para {} peers encontrados via Consul.", user.getId(), activePeerInstances.size());
-
-        for (ServiceInstance peerInstance : activePeerInstances) {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-            
-            replicateToServer(peerHost, peerPort, peerServerId, userInfoProto);
-        }
-    }
-
-    private void replicateToServer(String host, int port, String peerServerId, UserInfo userInfo) {
-        try {
-            log.debug("[UserCreationRepl] Replicando usuário {} para o peer {} em {}:{}", userInfo.getId(), peerServerId, host, port);
-            ReplicationResponse response = grpcClientService.replicateUserCreationToPeer(
-                host, port, userInfo);
-            
-            if (response == null || !response.getSuccess()) { // Adicionar verificação de nulidade para response
-                handleReplicationFailure(peerServerId, "criação de usuário", response != null ? response.getMessage() : "Sem resposta");
-            } else {
-                log.info("[UserCreationRepl] Usuário {} replicado com sucesso para o peer {}.", userInfo.getId(), peerServerId);
-            }
-        } catch (Exception e) {
-            handleReplicationException(peerServerId, "criação de usuário", e);
-        }
-    }
-
-    // --- Métodos Auxiliares ---
-
-    private void handleReplicationFailure(String serverId, String operation, String failureMessage) {
-        log.error("Falha na replicação de {} para servidor {}. Mensagem: {}. Será retentado no próximo heartbeat.", 
-                operation, serverId, failureMessage);
-    }
-
-    private void handleReplicationException(String serverId, String operation, Exception e) {
-        log.error("Erro durante replicação de {} para servidor {}: {}", 
-                operation, serverId, e.getMessage());
-    }
-
-    /**
-     * RPC: Recebe dados de um usuário criado no coordenador e replica localmente.
-     */
-    @Override
-    public void replicateUserCreation(UserInfo request, StreamObserver<ReplicationResponse> responseObserver) {
-        String operationName = "replicateUserCreation";
-        log.info("Recebida solicitação {} para ID de usuário: {}, Nome: {}", operationName, request.getId(), request.getName());
-
-        if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("Coordenador recebeu uma solicitação de {}. Isso não deveria acontecer. Ignorando.", operationName);
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(false)
-                    .setMessage("Coordenador não deve receber requisições de replicação.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-            return;
-        }
-
-        try {
-            validateReplicationRequest(request);
-            processUserReplication(request);
-
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Usuário replicado com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-
-        } catch (IllegalStateException e) {
-            log.error("Erro de validação durante {}: {}", operationName, e.getMessage());
-             ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(false)
-                    .setMessage("Erro de validação: " + e.getMessage())
-                    .build();
-             responseObserver.onNext(response);
-             responseObserver.onCompleted();
-        } catch (Exception e) {
-             handleGrpcError(e, responseObserver, "replicar criação de usuário");
-        }
-    }
-
-    private void validateReplicationRequest(UserInfo request) {
-        if (request == null || request.getId().isEmpty() || request.getName().isEmpty()) {
-            throw new IllegalStateException("Requisição de replicação inválida: campos obrigatórios ausentes");
-        }
-    }
-
-    private void processUserReplication(UserInfo request) {
-        if (userRepository.existsById(request.getId())) {
-            log.warn("Solicitação de replicação para ID de usuário existente: {}. Assumindo que já foi replicado.", request.getId());
-            return;
-        }
-
-        User userToReplicate = new User(request.getId(), request.getName());
-        userRepository.save(userToReplicate);
-        log.info("ID de usuário replicado com sucesso: {}, Nome: {}", request.getId(), request.getName());
-    }
+    // ----- Implementação RPCs para Follow/Unfollow -----
 
     /**
      * RPC: Recebe solicitação para seguir um usuário (esperado no coordenador).
@@ -448,15 +368,12 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
 
         handleSimpleCoordinatorForwarding(
             operationName,
-            () -> {
-                followService.followUser(followerId, followedId);
-                replicateFollowToFollowers(followerId, followedId);
-            },
+            () -> followService.followUser(followerId, followedId),
             () -> {
                 Server coordinator = electionService.getCoordinatorId()
                     .flatMap(electionService::getCoordinatorServerDetails)
                     .orElseThrow(() -> new IllegalStateException("Coordinator not found when trying to forward " + operationName)); // Lança exceção se coordenador sumir
-                return grpcClientService.forwardFollowUserRPC(coordinator.getHost(), coordinator.getPort(), request);
+                return writeForwarder.forwardFollow(coordinator.getHost(), coordinator.getPort(), request);
             },
             responseObserver
         );
@@ -474,174 +391,17 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
 
          handleSimpleCoordinatorForwarding(
             operationName,
-            () -> {
-                followService.unfollowUser(followerId, followedId);
-                replicateUnfollowToFollowers(followerId, followedId);
-            },
+            () -> followService.unfollowUser(followerId, followedId),
             () -> {
                 Server coordinator = electionService.getCoordinatorId()
                     .flatMap(electionService::getCoordinatorServerDetails)
                     .orElseThrow(() -> new IllegalStateException("Coordinator not found when trying to forward " + operationName));
-                return grpcClientService.forwardUnfollowUserRPC(coordinator.getHost(), coordinator.getPort(), request);
+                return writeForwarder.forwardUnfollow(coordinator.getHost(), coordinator.getPort(), request);
             },
             responseObserver
         );
     }
 
-    // --- Novos Métodos Auxiliares de Replicação para Follow/Unfollow ---
-
-    private void replicateFollowToFollowers(String followerId, String followedId) {
-        log.info("Coordenador ({}) iniciando replicação para SEGUIR: {} -> {}", selfId, followerId, followedId);
-        
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfId) && !peerServerId.startsWith("unknown") && getGrpcPortFromInstance(instance) != -1;
-                })
-                .collect(Collectors.toList());
-
-        if (activePeerInstances.isEmpty()) {
-            log.info("[FollowRepl] Nenhum peer ativo encontrado via Consul para replicar SEGUIR {} -> {}.", followerId, followedId);
-            return;
-        }
-
-        log.info("[FollowRepl] Replicando SEGUIR {} -> {} para {} peers via Consul.", followerId, followedId, activePeerInstances.size());
-
-        for (ServiceInstance peerInstance : activePeerInstances) {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-
-            if (peerPort == -1 || "unknown".startsWith(peerServerId)) {
-                log.warn("[FollowRepl] Pulando peer {} devido a porta gRPC inválida ou ID desconhecido.", peerInstance.getInstanceId());
-                continue;
-            }
-
-            log.debug("[FollowRepl] Replicando SEGUIR {} -> {} para o peer {} em {}:{}", followerId, followedId, peerServerId, peerHost, peerPort);
-            try {
-                ServerCommsProto.ReplicationResponse replicationResponse =
-                        grpcClientService.replicateFollowToPeer(peerHost, peerPort, followerId, followedId);
-                if (replicationResponse == null || !replicationResponse.getSuccess()) {
-                    log.warn("[FollowRepl] Replicação SEGUIR {} -> {} para o peer {} falhou. Mensagem: {}",
-                             followerId, followedId, peerServerId, replicationResponse != null ? replicationResponse.getMessage() : "Sem resposta");
-                }
-            } catch (Exception e) {
-                log.error("[FollowRepl] Erro durante a replicação de SEGUIR {} -> {} para o peer {} ({}:{}): {}",
-                          followerId, followedId, peerServerId, peerHost, peerPort, e.getMessage(), e);
-            }
-        }
-        log.info("[FollowRepl] Processo de replicação finalizado para SEGUIR: {} -> {}", followerId, followedId);
-    }
-
-     private void replicateUnfollowToFollowers(String followerId, String followedId) {
-        log.info("Coordenador ({}) iniciando replicação para DEIXAR DE SEGUIR: {} -> {}", selfId, followerId, followedId);
-        
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfId) && !peerServerId.startsWith("unknown") && getGrpcPortFromInstance(instance) != -1;
-                })
-                .collect(Collectors.toList());
-
-        if (activePeerInstances.isEmpty()) {
-            log.info("[UnfollowRepl] Nenhum peer ativo encontrado via Consul para replicar DEIXAR DE SEGUIR {} -> {}.", followerId, followedId);
-            return;
-        }
-
-        log.info("[UnfollowRepl] Replicando DEIXAR DE SEGUIR {} -> {} para {} peers via Consul.", followerId, followedId, activePeerInstances.size());
-
-        for (ServiceInstance peerInstance : activePeerInstances) {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-
-            if (peerPort == -1 || "unknown".startsWith(peerServerId)) {
-                log.warn("[UnfollowRepl] Pulando peer {} devido a porta gRPC inválida ou ID desconhecido.", peerInstance.getInstanceId());
-                continue;
-            }
-
-            log.debug("[UnfollowRepl] Replicando DEIXAR DE SEGUIR {} -> {} para o peer {} em {}:{}", followerId, followedId, peerServerId, peerHost, peerPort);
-            try {
-                ServerCommsProto.ReplicationResponse replicationResponse =
-                        grpcClientService.replicateUnfollowToPeer(peerHost, peerPort, followerId, followedId);
-                if (replicationResponse == null || !replicationResponse.getSuccess()) {
-                    log.warn("[UnfollowRepl] Replicação DEIXAR DE SEGUIR {} -> {} para o peer {} falhou. Mensagem: {}",
-                             followerId, followedId, peerServerId, replicationResponse != null ? replicationResponse.getMessage() : "Sem resposta");
-                }
-            } catch (Exception e) {
-                log.error("[UnfollowRepl] Erro durante a replicação de DEIXAR DE SEGUIR {} -> {} para o peer {} ({}:{}): {}",
-                          followerId, followedId, peerServerId, peerHost, peerPort, e.getMessage(), e);
-            }
-        }
-        log.info("[UnfollowRepl] Processo de replicação finalizado para DEIXAR DE SEGUIR: {} -> {}", followerId, followedId);
-    }
-
-    /**
-     * RPC: Recebe uma solicitação para replicar uma ação de seguir.
-     * Executa a ação localmente.
-     */
-    @Override
-    public void replicateFollow(FollowRequest request, StreamObserver<ReplicationResponse> responseObserver) {
-        log.info("Recebida solicitação replicateFollow: seguidor={}, seguido={}", request.getFollowerId(), request.getFollowedId());
-        if (electionService.isCoordinator()) {
-            log.warn("Nó coordenador {} recebeu solicitação replicateFollow. Ignorando.", selfId);
-            ReplicationResponse response = ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-            return;
-        }
-        try {
-            followService.followUser(request.getFollowerId(), request.getFollowedId());
-
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Operação 'seguir' replicada com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception e) {
-             log.error("Erro ao replicar seguir para {} -> {}: {}", request.getFollowerId(), request.getFollowedId(), e.getMessage(), e);
-             responseObserver.onError(io.grpc.Status.INTERNAL
-                 .withDescription("Erro ao replicar seguir: " + e.getMessage())
-                 .withCause(e)
-                 .asRuntimeException());
-        }
-    }
-
-    /**
-     * RPC: Recebe uma solicitação para replicar uma ação de deixar de seguir.
-     * Executa a ação localmente.
-     */
-    @Override
-    public void replicateUnfollow(FollowRequest request, StreamObserver<ReplicationResponse> responseObserver) {
-        log.info("Recebida solicitação replicateUnfollow: seguidor={}, deixou de seguir={}", request.getFollowerId(), request.getFollowedId());
-        if (electionService.isCoordinator()) {
-            log.warn("Nó coordenador {} recebeu solicitação replicateUnfollow. Ignorando.", selfId);
-            ReplicationResponse response = ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-            return;
-        }
-        try {
-            followService.unfollowUser(request.getFollowerId(), request.getFollowedId());
-
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Operação 'deixar de seguir' replicada com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception e) {
-             log.error("Erro ao replicar deixar de seguir para {} deixar de seguir {}: {}", request.getFollowerId(), request.getFollowedId(), e.getMessage(), e);
-             responseObserver.onError(io.grpc.Status.INTERNAL
-                 .withDescription("Erro ao replicar deixar de seguir: " + e.getMessage())
-                 .withCause(e)
-                 .asRuntimeException());
-        }
-    }
-
     // ----- Implementação RPCs para Posts -----
 
     /**
@@ -662,7 +422,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
 
         try {
-            User user = userRepository.findById(request.getUserId())
+            User user = userCache.getReference(request.getUserId())
                 .orElseThrow(() -> new UserNotFoundException("Usuário não encontrado com ID: " + request.getUserId()));
             
             Post createdPost = postService.processAndReplicatePost(user, request.getContent());
@@ -681,42 +441,6 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
     }
 
-    /**
-     * RPC: Recebe dados de um post criado no coordenador e replica localmente.
-     */
-    @Override
-    public void replicatePostCreation(PostInfo request, StreamObserver<ReplicationResponse> responseObserver) {
-        String operationName = "replicatePostCreation";
-        log.info("Recebida solicitação {} para ID do post: {}", operationName, request.getId());
-
-        if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("Coordenador recebeu uma solicitação {}. Ignorando.", operationName);
-            responseObserver.onNext(ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build());
-            responseObserver.onCompleted();
-            return;
-        }
-
-        try {
-            postService.saveReplicatedPost(
-                request.getId(),
-                request.getUserId(),
-                request.getContent(),
-                request.getCreatedAtMillis(),
-                request.getLogicalClock()
-            );
-
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Post replicado com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-
-        } catch (Exception e) {
-            handleGrpcError(e, responseObserver, "replicar criação de post " + request.getId());
-        }
-    }
-
     // ----- Implementação RPCs para Deletar Posts -----
 
     /**
@@ -755,94 +479,7 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
     }
 
-    /**
-     * RPC: Recebe instrução para marcar um post como deletado (replicação).
-     */
-    @Override
-    public void replicatePostDeletion(ReplicatePostDeletionRequest request, StreamObserver<ReplicationResponse> responseObserver) {
-        String operationName = "replicatePostDeletion";
-        String postId = request.getPostId();
-        log.info("Recebida solicitação {} para ID do post: {}", operationName, postId);
-
-        if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("Coordenador recebeu solicitação {}. Ignorando.", operationName);
-            responseObserver.onNext(ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build());
-            responseObserver.onCompleted();
-            return;
-        }
-
-        try {
-            postService.markReplicatedPostAsDeleted(postId);
-
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Exclusão de post replicada com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-
-        } catch (Exception e) {
-             handleGrpcError(e, responseObserver, "replicar exclusão de post " + postId);
-        }
-    }
-
-    // --- IMPLEMENTAÇÃO DO RPC DE REPLICAÇÃO DE NOTIFICAÇÃO ---
-
-    @Override
-    public void replicateNotification(ServerCommsProto.ReplicateNotificationRequest request,
-                                      StreamObserver<ServerCommsProto.ReplicationResponse> responseObserver) {
-        String operationName = "replicateNotification";
-        ServerCommsProto.NotificationProto protoNotification = request.getNotification();
-        String coordinatorId = request.getCoordinatorId(); // Pode ser útil para logs
-        String notificationId = protoNotification.getId();
-        String userId = protoNotification.getUserId();
-
-        log.info("[gRPC Replica] Seguidor {} recebeu solicitação {} do coordenador {} para ID da notificação {} (usuário {})",
-                selfId, operationName, coordinatorId, notificationId, userId);
-
-        if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("[gRPC Replica] Nó coordenador {} recebeu solicitação {}. Ignorando.", selfId, operationName);
-            responseObserver.onNext(ServerCommsProto.ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build());
-            responseObserver.onCompleted();
-            return;
-        }
-
-        if (notificationRepository.existsById(notificationId)) {
-            log.warn("[gRPC Replica] Solicitação {} para ID de notificação existente: {}. Assumindo que já foi replicado.", operationName, notificationId);
-            responseObserver.onNext(ServerCommsProto.ReplicationResponse.newBuilder().setSuccess(true).setMessage("Notificação já existe.").build());
-            responseObserver.onCompleted();
-            return;
-        }
-
-        try {
-            User user = userRepository.findById(userId)
-                .orElseThrow(() -> new UserNotFoundException("Não é possível replicar notificação, usuário não encontrado localmente: " + userId));
-
-            com.example.projeto_sd.model.Notification notificationEntity = new com.example.projeto_sd.model.Notification();
-            notificationEntity.setId(notificationId);
-            notificationEntity.setUser(user);
-            notificationEntity.setType(protoNotification.getType());
-            notificationEntity.setMessage(protoNotification.getMessage());
-            notificationEntity.setRelatedEntityId(protoNotification.getRelatedEntityId());
-            notificationEntity.setRead(protoNotification.getIsRead());
-            Timestamp protoTimestamp = protoNotification.getCreatedAt();
-            Instant instant = Instant.ofEpochSecond(protoTimestamp.getSeconds(), protoTimestamp.getNanos());
-            notificationEntity.setCreatedAt(LocalDateTime.ofInstant(instant, ZoneId.of("UTC"))); // Usar UTC
-
-            notificationRepository.save(notificationEntity);
-            log.info("[gRPC Replica] Notificação ID: {} replicada e salva com sucesso", notificationId);
-
-            ServerCommsProto.ReplicationResponse response = ServerCommsProto.ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Notificação replicada com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-
-        } catch (Exception e) {
-             handleGrpcError(e, responseObserver, "replicar notificação " + notificationId);
-        }
-    }
+    // ----- Implementação RPC para Marcar Notificações como Lidas -----
 
     @Override
     public void forwardMarkNotificationsRead(ServerCommsProto.MarkNotificationsReadRequest request, StreamObserver<Empty> responseObserver) {
@@ -854,7 +491,11 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
 
         try {
             // O coordenador chama seu próprio método de serviço, que lida com atualização local + replicação
-            notificationService.markNotificationsAsRead(userId, notificationIds);
+            if (request.getReadUpToMillis() > 0) {
+                notificationService.markAllNotificationsAsReadUpTo(userId, NotificationService.fromEpochMillis(request.getReadUpToMillis()));
+            } else {
+                notificationService.markNotificationsAsRead(userId, notificationIds);
+            }
 
             responseObserver.onNext(Empty.newBuilder().build());
             responseObserver.onCompleted();
@@ -865,43 +506,6 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
     }
 
-    @Override
-    public void replicateMarkNotificationsRead(ServerCommsProto.MarkNotificationsReadRequest request, StreamObserver<ServerCommsProto.ReplicationResponse> responseObserver) {
-        String operationName = "replicateMarkNotificationsRead";
-        String userId = request.getUserId();
-        List<String> notificationIds = request.getNotificationIdsList();
-
-        log.info("[gRPC Replica] Seguidor {} recebeu solicitação {} para o usuário {}", selfId, operationName, userId);
-
-         if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("[gRPC Replica] Nó coordenador {} recebeu solicitação {}. Ignorando.", selfId, operationName);
-            responseObserver.onNext(ServerCommsProto.ReplicationResponse.newBuilder().setSuccess(false).setMessage("Coordinator should not process replication.").build());
-            responseObserver.onCompleted();
-            return;
-        }
-
-        try {
-            notificationService.markReplicatedNotificationsAsRead(userId, notificationIds);
-
-            ServerCommsProto.ReplicationResponse response = ServerCommsProto.ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-            log.info("[gRPC Replica] Processada com sucesso a {} para o usuário {}", operationName, userId);
-        } catch (Exception e) {
-             log.error("[gRPC Replica] Erro ao processar {} para o usuário {}: {}", operationName, userId, e.getMessage(), e);
-             ServerCommsProto.ReplicationResponse response = ServerCommsProto.ReplicationResponse.newBuilder()
-                    .setSuccess(false)
-                    .setMessage("Erro ao processar replicação: " + e.getMessage())
-                    .build();
-             responseObserver.onNext(response);
-             responseObserver.onCompleted();
-            // Alternativa: Poderíamos usar handleGrpcError se quiséssemos que o coordenador visse um erro gRPC.
-            // handleGrpcError(e, responseObserver, operationName + " para usuário " + userId);
-        }
-    }
-
     // ----- Implementação RPCs para Mensagens Privadas -----
 
     /**
@@ -952,45 +556,332 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
         }
     }
 
+    // ----- Stream de Replicação -----
+
     /**
-     * RPC: Recebe dados de uma mensagem criada no coordenador e a replica localmente.
+     * RPC: Stream bidirecional de replicação. Cada envelope é aplicado na ordem de chegada
+     * e respondido com um ack cumulativo (ver {@link ReplicationApplier}).
      */
     @Override
-    public void replicateMessage(ReplicateMessageRequest request, StreamObserver<ReplicationResponse> responseObserver) {
-        String operationName = "replicateMessage";
-        MessageInfo messageInfo = request.getMessageInfo();
-        String messageId = messageInfo.getId();
-        log.info("[gRPC Replica] Recebida solicitação {} para ID da mensagem: {} de {} para {}",
-                 operationName, messageId, messageInfo.getSenderId(), messageInfo.getReceiverId());
+    public StreamObserver<ReplicationEnvelope> replicationStream(StreamObserver<ReplicationAck> responseObserver) {
+        log.info("[gRPC Replica] Nó {} aceitou um novo stream de replicação.", selfId);
+        return new StreamObserver<>() {
+            // stream_id dos envelopes recebidos, para descartar o estado no applier ao encerrar
+            private String streamId;
+
+            @Override
+            public void onNext(ReplicationEnvelope envelope) {
+                streamId = envelope.getStreamId();
+                ReplicationAck ack = replicationApplier.apply(envelope);
+                responseObserver.onNext(ack);
+            }
 
-        if (electionService.isCurrentNodeCoordinator()) {
-            log.warn("[gRPC Replica] Nó coordenador {} recebeu solicitação {}. Ignorando.", selfId, operationName);
-            responseObserver.onNext(ReplicationResponse.newBuilder()
-                .setSuccess(false)
-                .setMessage("Coordenador não deve processar replicação.")
-                .build());
+            @Override
+            public void onError(Throwable t) {
+                log.warn("[gRPC Replica] Stream de replicação encerrado com erro: {}", t.getMessage());
+                closeStream();
+            }
+
+            @Override
+            public void onCompleted() {
+                log.info("[gRPC Replica] Stream de replicação encerrado pelo remetente.");
+                closeStream();
+                responseObserver.onCompleted();
+            }
+
+            private void closeStream() {
+                if (streamId != null) {
+                    replicationApplier.streamClosed(streamId);
+                }
+            }
+        };
+    }
+
+    // ----- Anti-entropia e Snapshot -----
+
+    /**
+     * RPC: Digests por bucket de tempo de uma tabela, pedidos por um seguidor (anti-entropia).
+     */
+    @Override
+    public void getRangeDigests(RangeDigestRequest request, StreamObserver<RangeDigestResponse> responseObserver) {
+        log.debug("Recebida solicitação getRangeDigests para {} em [{}, {}) com buckets de {}ms",
+                request.getTable(), request.getFromMillis(), request.getToMillis(), request.getBucketMillis());
+        try {
+            responseObserver.onNext(antiEntropyService.digests(request));
             responseObserver.onCompleted();
-            return;
+        } catch (Exception e) {
+            handleGrpcError(e, responseObserver, "calcular digests de anti-entropia");
         }
+    }
 
+    /**
+     * RPC: Envia, em lotes, as linhas dos intervalos divergentes pedidos por um seguidor (anti-entropia).
+     */
+    @Override
+    public void streamRangeRows(RangeRowsRequest request, StreamObserver<RangeRows> responseObserver) {
+        log.info("Recebida solicitação streamRangeRows para {} com {} intervalo(s)", request.getTable(), request.getRangesCount());
         try {
-            // Chamar um método no MessageService para salvar a mensagem replicada
-            messageService.saveReplicatedMessage(messageInfo);
+            antiEntropyService.streamRows(request, responseObserver::onNext);
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            handleGrpcError(e, responseObserver, "enviar linhas de anti-entropia");
+        }
+    }
 
-            ReplicationResponse response = ReplicationResponse.newBuilder()
-                    .setSuccess(true)
-                    .setMessage("Mensagem replicada com sucesso.")
-                    .build();
-            responseObserver.onNext(response);
+    /**
+     * RPC: Envia a um nó novo ou apagado o snapshot completo das tabelas (bootstrap).
+     * Respeita o controle de fluxo do stream: cada lote só é enviado quando o transporte está
+     * pronto, em vez de acumular o snapshot inteiro no buffer de saída.
+     */
+    @Override
+    public void streamSnapshot(SnapshotRequest request, StreamObserver<SnapshotChunk> responseObserver) {
+        log.info("Recebida solicitação streamSnapshot do nó {}", request.getRequesterServerId());
+        ServerCallStreamObserver<SnapshotChunk> serverObserver = (ServerCallStreamObserver<SnapshotChunk>) responseObserver;
+        serverObserver.setOnCancelHandler(() -> log.warn("Snapshot para o nó {} cancelado pelo cliente.", request.getRequesterServerId()));
+        try {
+            snapshotService.streamSnapshot(request, chunk -> sendWhenReady(serverObserver, chunk));
             responseObserver.onCompleted();
-            log.info("[gRPC Replica] ID da mensagem {} replicado com sucesso", messageId);
+        } catch (Exception e) {
+            handleGrpcError(e, responseObserver, "enviar snapshot");
+        }
+    }
 
+    private static <T> void sendWhenReady(ServerCallStreamObserver<T> observer, T message) {
+        try {
+            while (!observer.isReady()) {
+                if (observer.isCancelled()) {
+                    throw new IllegalStateException("Chamada cancelada pelo cliente.");
+                }
+                Thread.sleep(SNAPSHOT_READY_POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envio interrompido.", e);
+        }
+        observer.onNext(message);
+    }
+
+    // ----- Push de Notificações -----
+
+    /**
+     * RPC: Push das notificações de um usuário gravadas neste nó (após o commit).
+     * O stream fica aberto até o cliente cancelar; um cliente que não consome os envios
+     * (stream não pronto) é encerrado com UNAVAILABLE e deve reconectar e ler as pendentes.
+     */
+    @Override
+    public void subscribeNotifications(SubscribeNotificationsRequest request, StreamObserver<NotificationProto> responseObserver) {
+        String userId = request.getUserId();
+        ServerCallStreamObserver<NotificationProto> serverObserver = (ServerCallStreamObserver<NotificationProto>) responseObserver;
+        NotificationStreamRegistry.Subscriber subscriber = new NotificationStreamRegistry.Subscriber() {
+            @Override
+            public boolean deliver(NotificationDTO notification) {
+                if (serverObserver.isCancelled() || !serverObserver.isReady()) {
+                    return false;
+                }
+                serverObserver.onNext(toNotificationProto(userId, notification));
+                return true;
+            }
+
+            @Override
+            public void close() {
+                if (!serverObserver.isCancelled()) {
+                    serverObserver.onError(io.grpc.Status.UNAVAILABLE
+                            .withDescription("Inscrição de notificações encerrada pelo servidor. Reconecte.")
+                            .asRuntimeException());
+                }
+            }
+        };
+        try {
+            Runnable unsubscribe = notificationService.subscribe(userId, subscriber);
+            serverObserver.setOnCancelHandler(unsubscribe);
+            log.info("[gRPC Push] Usuário {} inscrito nas notificações do nó {}.", userId, selfId);
+        } catch (IllegalStateException e) {
+            log.warn("[gRPC Push] Inscrição recusada para o usuário {}: {}", userId, e.getMessage());
+            responseObserver.onError(io.grpc.Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()).asRuntimeException());
         } catch (Exception e) {
-            // Usa helper de erro
-            handleGrpcError(e, responseObserver, "replicar mensagem " + messageId);
+            handleGrpcError(e, responseObserver, "inscrever usuário " + userId + " nas notificações");
+        }
+    }
+
+    private static NotificationProto toNotificationProto(String userId, NotificationDTO notification) {
+        Instant createdAt = notification.getCreatedAt().toInstant(ZoneOffset.UTC);
+        return NotificationProto.newBuilder()
+                .setId(notification.getId())
+                .setUserId(userId)
+                .setType(notification.getType())
+                .setMessage(notification.getMessage())
+                .setRelatedEntityId(notification.getRelatedEntityId() != null ? notification.getRelatedEntityId() : "")
+                .setIsRead(notification.isRead())
+                .setCreatedAt(Timestamp.newBuilder().setSeconds(createdAt.getEpochSecond()).setNanos(createdAt.getNano()))
+                .build();
+    }
+
+    // ----- Encaminhamento de Escritas em Lote -----
+
+    /**
+     * RPC: Stream bidirecional de escritas encaminhadas por um nó não coordenador.
+     * Cada escrita do lote é executada em paralelo pelo mesmo handler da RPC unária
+     * correspondente; os resultados prontos são agrupados em uma única resposta.
+     */
+    @Override
+    public StreamObserver<ForwardedWriteBatch> forwardWrites(StreamObserver<ForwardedWriteResults> responseObserver) {
+        log.info("Nó {} aceitou um novo stream de encaminhamento de escritas.", selfId);
+        return new ForwardedWriteStream(responseObserver);
+    }
+
+    private final class ForwardedWriteStream implements StreamObserver<ForwardedWriteBatch> {
+        private final StreamObserver<ForwardedWriteResults> responseObserver;
+        private final Object lock = new Object();
+        private final List<ForwardedWriteResult> ready = new ArrayList<>(); // guardado por lock
+        private int outstanding; // guardado por lock
+        private boolean draining; // guardado por lock
+        private boolean halfClosed; // guardado por lock
+        private boolean cancelled; // guardado por lock
+
+        private ForwardedWriteStream(StreamObserver<ForwardedWriteResults> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(ForwardedWriteBatch batch) {
+            log.debug("Recebido lote de {} escritas encaminhadas.", batch.getWritesCount());
+            synchronized (lock) {
+                outstanding += batch.getWritesCount();
+            }
+            for (ForwardedWrite write : batch.getWritesList()) {
+                try {
+                    forwardedWriteExecutor.execute(() -> complete(executeForwardedWrite(write)));
+                } catch (Exception e) {
+                    complete(forwardedWriteFailure(write.getId(), io.grpc.Status.RESOURCE_EXHAUSTED
+                            .withDescription("Coordenador sem capacidade para processar a escrita: " + e.getMessage())));
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.warn("Stream de encaminhamento de escritas encerrado com erro: {}", t.getMessage());
+            synchronized (lock) {
+                cancelled = true;
+                ready.clear();
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            boolean completeNow;
+            synchronized (lock) {
+                halfClosed = true;
+                completeNow = outstanding == 0 && !draining;
+            }
+            if (completeNow) {
+                responseObserver.onCompleted();
+            }
+        }
+
+        private void complete(ForwardedWriteResult result) {
+            synchronized (lock) {
+                outstanding--;
+                if (cancelled) {
+                    return;
+                }
+                ready.add(result);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            drain();
+        }
+
+        /**
+         * Envia os resultados acumulados; só uma thread por vez escreve no responseObserver.
+         */
+        private void drain() {
+            while (true) {
+                ForwardedWriteResults.Builder message = ForwardedWriteResults.newBuilder();
+                boolean completeAfter;
+                synchronized (lock) {
+                    if (ready.isEmpty() || cancelled) {
+                        draining = false;
+                        if (halfClosed && outstanding == 0 && !cancelled) {
+                            cancelled = true; // nada mais será enviado
+                            completeAfter = true;
+                        } else {
+                            return;
+                        }
+                    } else {
+                        message.addAllResults(ready);
+                        ready.clear();
+                        completeAfter = false;
+                    }
+                }
+                if (completeAfter) {
+                    responseObserver.onCompleted();
+                    return;
+                }
+                try {
+                    responseObserver.onNext(message.build());
+                } catch (Exception e) {
+                    log.warn("Falha ao enviar resultados de escritas encaminhadas: {}", e.getMessage());
+                    synchronized (lock) {
+                        cancelled = true;
+                        draining = false;
+                    }
+                    return;
+                }
+            }
         }
     }
 
+    /**
+     * Executa uma escrita encaminhada pelo handler da RPC unária correspondente.
+     */
+    private ForwardedWriteResult executeForwardedWrite(ForwardedWrite write) {
+        ForwardedWriteResult.Builder result = ForwardedWriteResult.newBuilder().setId(write.getId());
+        try {
+            switch (write.getWriteCase()) {
+                case CREATE_POST -> result.setCreatePost(ServerServiceImpl.<CreatePostResponse>invokeLocally(observer -> createPostRPC(write.getCreatePost(), observer)));
+                case SEND_MESSAGE -> result.setSendMessage(ServerServiceImpl.<SendMessageResponse>invokeLocally(observer -> sendMessageRPC(write.getSendMessage(), observer)));
+                case FOLLOW -> result.setReplication(ServerServiceImpl.<ReplicationResponse>invokeLocally(observer -> followUserRPC(write.getFollow(), observer)));
+                case UNFOLLOW -> result.setReplication(ServerServiceImpl.<ReplicationResponse>invokeLocally(observer -> unfollowUserRPC(write.getUnfollow(), observer)));
+                case CREATE_USER -> result.setCreateUser(ServerServiceImpl.<UserResponse>invokeLocally(observer -> createUserRPC(write.getCreateUser(), observer)));
+                default -> throw io.grpc.Status.INVALID_ARGUMENT.withDescription("Escrita encaminhada sem operação.").asRuntimeException();
+            }
+            return result.setStatusCode(io.grpc.Status.Code.OK.value()).build();
+        } catch (Exception e) {
+            return forwardedWriteFailure(write.getId(), io.grpc.Status.fromThrowable(e));
+        }
+    }
+
+    private static ForwardedWriteResult forwardedWriteFailure(long writeId, io.grpc.Status status) {
+        return ForwardedWriteResult.newBuilder()
+                .setId(writeId)
+                .setStatusCode(status.getCode().value())
+                .setStatusDescription(status.getDescription() != null ? status.getDescription() : "")
+                .build();
+    }
+
+    /**
+     * Chama um handler unário (síncrono) desta classe e devolve a resposta ou lança o erro reportado.
+     */
+    private static <T> T invokeLocally(java.util.function.Consumer<StreamObserver<T>> handler) {
+        List<T> values = new ArrayList<>(1);
+        Throwable[] error = {null};
+        handler.accept(new StreamObserver<>() {
+            @Override public void onNext(T value) { values.add(value); }
+            @Override public void onError(Throwable t) { error[0] = t; }
+            @Override public void onCompleted() { }
+        });
+        if (error[0] != null) {
+            throw io.grpc.Status.fromThrowable(error[0]).asRuntimeException();
+        }
+        if (values.isEmpty()) {
+            throw io.grpc.Status.INTERNAL.withDescription("Handler não produziu resposta.").asRuntimeException();
+        }
+        return values.get(0);
+    }
+
     // --- Métodos Auxiliares para Tratamento de Erros gRPC ---
 
     /**
@@ -1089,27 +980,4 @@ public class ServerServiceImpl extends ServerServiceGrpc.ServerServiceImplBase {
                 );
         }
     }
-
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        String grpcPortStr = instance.getMetadata().get("gRPC_port");
-        if (grpcPortStr == null) {
-             log.warn("Metadado 'gRPC_port' não encontrado para a instância {} via DiscoveryClient. Retornando -1.", instance.getInstanceId());
-             return -1; 
-        }
-        try {
-            return Integer.parseInt(grpcPortStr);
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadado gRPC_port ('{}') para a instância {}. Erro: {}", grpcPortStr, instance.getInstanceId(), e.getMessage());
-            return -1;
-        }
-    }
-
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        String serverId = instance.getMetadata().get("server-id");
-        if (serverId == null || serverId.trim().isEmpty()) {
-             log.warn("Metadado 'server-id' não encontrado ou vazio para a instância {} via DiscoveryClient. Retornando fallback.", instance.getInstanceId());
-             return "unknown-" + instance.getInstanceId(); 
-        }
-        return serverId.trim();
-    }
-} 
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "conversation_summaries",
+       indexes = {
+           @Index(name = "idx_conversation_summaries_owner_last", columnList = "owner_id, last_sent_at DESC")
+       })
+@IdClass(ConversationSummary.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Resumo de uma conversa do ponto de vista de um participante (caixa de entrada).
+ * Há uma linha por participante: {@code ownerId} vê a conversa com {@code peerId}.
+ * Mantido na gravação de cada mensagem (local ou replicada); a listagem de conversas
+ * é uma varredura do índice (owner_id, last_sent_at).
+ */
+public class ConversationSummary {
+
+    /**
+     * Dono da caixa de entrada.
+     */
+    @Id
+    @Column(name = "owner_id", nullable = false)
+    private String ownerId;
+
+    /**
+     * Outro participante da conversa.
+     */
+    @Id
+    @Column(name = "peer_id", nullable = false)
+    private String peerId;
+
+    @Column(name = "conversation_id", nullable = false, length = 80)
+    private String conversationId;
+
+    /**
+     * Última mensagem da conversa (maior relógio lógico).
+     */
+    @Column(name = "last_message_id", nullable = false)
+    private String lastMessageId;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private String lastSenderId;
+
+    @Column(name = "last_content", nullable = false)
+    private String lastContent;
+
+    @Column(name = "last_sent_at", nullable = false)
+    private LocalDateTime lastSentAt;
+
+    @Column(name = "last_logical_clock", nullable = false)
+    private int lastLogicalClock;
+
+    /**
+     * Mensagens recebidas pelo dono e ainda não lidas.
+     */
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    /**
+     * Total de mensagens da conversa (usado como total da página da conversa, sem count).
+     */
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    /**
+     * Chave composta (owner_id, peer_id).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String ownerId;
+        private String peerId;
+    }
+}
@@ -9,7 +9,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages",
+       indexes = {
+           @Index(name = "idx_messages_conversation_sent", columnList = "conversation_id, sent_at DESC")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -40,6 +43,13 @@ public class Message {
     @JoinColumn(name = "receiver_id", nullable = false, foreignKey = @ForeignKey(name = "messages_receiver_id_fk"))
     private User receiver;
 
+    /**
+     * Chave normalizada da conversa entre remetente e destinatário (mesmo valor nos dois sentidos).
+     * Ver {@link #conversationIdOf(String, String)}.
+     */
+    @Column(name = "conversation_id", length = 80)
+    private String conversationId;
+
     /**
      * Conteúdo textual da mensagem.
      */
@@ -71,4 +81,11 @@ public class Message {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "server_id", nullable = false, foreignKey = @ForeignKey(name = "messages_server_id_fk"))
     private Server server;
-} 
\ No newline at end of file
+
+    /**
+     * Chave da conversa entre dois usuários: os dois IDs em ordem lexicográfica, separados por ':'.
+     */
+    public static String conversationIdOf(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId1 + ":" + userId2 : userId2 + ":" + userId1;
+    }
+}
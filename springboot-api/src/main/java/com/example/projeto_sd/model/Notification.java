@@ -9,7 +9,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = {
+           @Index(name = "idx_notifications_user_read_created", columnList = "user_id, is_read, created_at DESC, id DESC")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
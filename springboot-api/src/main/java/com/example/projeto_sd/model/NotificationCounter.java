@@ -0,0 +1,32 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "notification_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Contador de notificações não lidas de um usuário.
+ * Mantido na mesma transação que insere notificações ou as marca como lidas,
+ * para que a contagem seja uma leitura por chave em vez de um count na tabela de notificações.
+ */
+public class NotificationCounter {
+
+    /**
+     * Usuário dono das notificações.
+     */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    /**
+     * Quantidade de notificações não lidas.
+     */
+    @Column(name = "unread_count", nullable = false)
+    private long unreadCount;
+}
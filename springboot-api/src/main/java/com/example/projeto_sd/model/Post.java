@@ -9,7 +9,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts",
+       indexes = {
+           @Index(name = "idx_posts_deleted_created_id", columnList = "is_deleted, created_at DESC, id DESC"),
+           @Index(name = "idx_posts_user_deleted_created", columnList = "user_id, is_deleted, created_at DESC")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,51 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "replication_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Entrada do outbox de replicação. É gravada na mesma transação da entidade alterada
+ * e enviada aos peers em segundo plano; o ID é a posição no log de replicação.
+ */
+public class ReplicationOutboxEntry {
+
+    /**
+     * Posição no log (sequência do banco, usada como sequência do stream).
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Rótulo da operação (ex: "PostCriado"), usado em logs.
+     */
+    @Column(nullable = false)
+    private String operation;
+
+    /**
+     * ID da entidade replicada, usado em logs.
+     */
+    @Column(name = "entity_id")
+    private String entityId;
+
+    /**
+     * ReplicationEnvelope serializado contendo apenas a mutação.
+     */
+    @Column(nullable = false)
+    private byte[] payload;
+
+    /**
+     * Data/hora da gravação no outbox.
+     */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "replication_peer_offsets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Última posição do outbox confirmada por cada peer.
+ * Permite retomar o envio de onde parou após reinícios ou quedas do peer.
+ */
+public class ReplicationPeerOffset {
+
+    /**
+     * ID do servidor peer.
+     */
+    @Id
+    @Column(name = "peer_server_id", nullable = false)
+    private String peerServerId;
+
+    /**
+     * Maior ID do outbox confirmado pelo peer.
+     */
+    @Column(name = "acked_offset", nullable = false)
+    private long ackedOffset;
+
+    /**
+     * Data/hora da última confirmação.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Indica que o peer ficou para trás além da retenção do outbox e só volta a receber
+     * a replicação depois de se recarregar por snapshot.
+     */
+    @Column(name = "snapshot_required", nullable = false, columnDefinition = "boolean not null default false")
+    private boolean snapshotRequired;
+}
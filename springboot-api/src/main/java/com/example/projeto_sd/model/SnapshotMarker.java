@@ -0,0 +1,39 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "snapshot_markers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Marca de que o nó terminou a carga inicial (snapshot do coordenador ou bootstrap dispensado).
+ * Gravada só depois da carga completa: enquanto não existe, o nó volta ao bootstrap ao subir.
+ */
+public class SnapshotMarker {
+
+    /**
+     * ID do servidor local.
+     */
+    @Id
+    @Column(name = "server_id", nullable = false)
+    private String serverId;
+
+    /**
+     * Posição do outbox do coordenador coberta pelo snapshot (0 se o bootstrap foi dispensado).
+     */
+    @Column(name = "replication_position", nullable = false)
+    private long replicationPosition;
+
+    /**
+     * Data/hora em que a carga terminou.
+     */
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,58 @@
+package com.example.projeto_sd.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "timeline_entries",
+       indexes = {
+           @Index(name = "idx_timeline_user_created_post", columnList = "user_id, created_at DESC, post_id DESC"),
+           @Index(name = "idx_timeline_post", columnList = "post_id")
+       })
+@IdClass(TimelineEntry.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+/**
+ * Entrada da timeline materializada (fan-out na escrita): o post {@code postId}
+ * aparece na home do usuário {@code userId}. A leitura do feed é uma varredura
+ * do índice (user_id, created_at, post_id).
+ */
+public class TimelineEntry {
+
+    /**
+     * Dono da timeline (seguidor do autor ou o próprio autor).
+     */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Id
+    @Column(name = "post_id", nullable = false)
+    private String postId;
+
+    @Column(name = "author_id", nullable = false)
+    private String authorId;
+
+    /**
+     * Data/hora de criação do post (cópia de posts.created_at, usada na ordenação).
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Chave composta (user_id, post_id).
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private String postId;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.projeto_sd.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preenche {@code messages.conversation_id} e a tabela {@code conversation_summaries} para
+ * mensagens gravadas antes de existirem (o Hibernate só cria as colunas e tabelas vazias).
+ * <p>
+ * Roda depois da atualização do schema e da migração para uuid e é idempotente: só toca em
+ * mensagens sem chave de conversa e só recria os resumos quando a tabela ainda está vazia.
+ * A chave usa a mesma ordenação de {@code String.compareTo} ({@code COLLATE "C"}) que
+ * {@link com.example.projeto_sd.model.Message#conversationIdOf}.
+ */
+@Component
+@DependsOn({"entityManagerFactory", "uuidKeyMigration"})
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationBackfill {
+
+    private static final String FILL_CONVERSATION_IDS_SQL = """
+            UPDATE messages SET conversation_id = CASE
+                WHEN sender_id::text COLLATE "C" <= receiver_id::text COLLATE "C"
+                THEN sender_id::text || ':' || receiver_id::text
+                ELSE receiver_id::text || ':' || sender_id::text
+            END
+            WHERE conversation_id IS NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+
+    @PostConstruct
+    public void backfill() {
+        int filled = jdbcTemplate.update(FILL_CONVERSATION_IDS_SQL);
+        if (filled > 0) {
+            log.info("[Conversas] Chave de conversa preenchida em {} mensagem(ns) existente(s).", filled);
+        }
+        if (conversationSummaryRepository.count() == 0) {
+            int summaries = conversationSummaryRepository.rebuildAll();
+            if (summaries > 0) {
+                log.info("[Conversas] {} resumo(s) de conversa criados a partir das mensagens existentes.", summaries);
+            }
+        }
+    }
+}
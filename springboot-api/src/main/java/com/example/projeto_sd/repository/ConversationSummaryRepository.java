@@ -0,0 +1,102 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.dto.message.ConversationSummaryDTO;
+import com.example.projeto_sd.model.ConversationSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, ConversationSummary.Key> {
+
+    /**
+     * Caixa de entrada de um usuário: conversas da mais recente para a mais antiga.
+     * @param ownerId ID do dono da caixa de entrada
+     * @param pageable limite de itens
+     * @return lista de DTOs com o nome do outro participante
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.message.ConversationSummaryDTO(
+               s.peerId,
+               u.name,
+               s.lastMessageId,
+               s.lastSenderId,
+               s.lastContent,
+               s.lastSentAt,
+               s.lastLogicalClock,
+               s.unreadCount
+           )
+           FROM ConversationSummary s JOIN User u ON u.id = s.peerId
+           WHERE s.ownerId = :ownerId
+           ORDER BY s.lastSentAt DESC, s.peerId DESC
+           """)
+    List<ConversationSummaryDTO> findInbox(@Param("ownerId") String ownerId, Pageable pageable);
+
+    /**
+     * Registra uma mensagem nova no resumo da conversa de um participante, criando-o se preciso.
+     * A última mensagem só é substituída por uma de relógio lógico maior ou igual, então a
+     * aplicação fora de ordem (replicação, anti-entropia) não regride o resumo.
+     * Deve ser chamado uma única vez por mensagem (apenas quando ela é inserida).
+     * @return número de linhas afetadas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO conversation_summaries (owner_id, peer_id, conversation_id, last_message_id, last_sender_id,
+                                               last_content, last_sent_at, last_logical_clock, unread_count, message_count)
+           VALUES (:ownerId, :peerId, :conversationId, :messageId, :senderId, :content, :sentAt, :logicalClock, :unread, 1)
+           ON CONFLICT (owner_id, peer_id) DO UPDATE SET
+               unread_count = conversation_summaries.unread_count + EXCLUDED.unread_count,
+               message_count = conversation_summaries.message_count + 1,
+               last_message_id = CASE WHEN EXCLUDED.last_logical_clock >= conversation_summaries.last_logical_clock
+                                      THEN EXCLUDED.last_message_id ELSE conversation_summaries.last_message_id END,
+               last_sender_id = CASE WHEN EXCLUDED.last_logical_clock >= conversation_summaries.last_logical_clock
+                                     THEN EXCLUDED.last_sender_id ELSE conversation_summaries.last_sender_id END,
+               last_content = CASE WHEN EXCLUDED.last_logical_clock >= conversation_summaries.last_logical_clock
+                                   THEN EXCLUDED.last_content ELSE conversation_summaries.last_content END,
+               last_sent_at = CASE WHEN EXCLUDED.last_logical_clock >= conversation_summaries.last_logical_clock
+                                   THEN EXCLUDED.last_sent_at ELSE conversation_summaries.last_sent_at END,
+               last_logical_clock = GREATEST(conversation_summaries.last_logical_clock, EXCLUDED.last_logical_clock)
+           """, nativeQuery = true)
+    int recordMessage(@Param("ownerId") String ownerId,
+                      @Param("peerId") String peerId,
+                      @Param("conversationId") String conversationId,
+                      @Param("messageId") String messageId,
+                      @Param("senderId") String senderId,
+                      @Param("content") String content,
+                      @Param("sentAt") LocalDateTime sentAt,
+                      @Param("logicalClock") int logicalClock,
+                      @Param("unread") int unread);
+
+    /**
+     * Recria os resumos de todas as conversas a partir da tabela de mensagens
+     * (backfill e carga por snapshot). Resumos já existentes são mantidos.
+     * @return número de resumos inseridos
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO conversation_summaries (owner_id, peer_id, conversation_id, last_message_id, last_sender_id,
+                                               last_content, last_sent_at, last_logical_clock, unread_count, message_count)
+           SELECT DISTINCT ON (x.owner_id, x.peer_id)
+                  x.owner_id, x.peer_id, x.conversation_id, x.id, x.sender_id, x.content, x.sent_at, x.logical_clock,
+                  count(*) FILTER (WHERE x.incoming AND NOT x.is_read) OVER w,
+                  count(*) OVER w
+           FROM (
+               SELECT m.sender_id AS owner_id, m.receiver_id AS peer_id, false AS incoming, m.* FROM messages m
+               UNION ALL
+               SELECT m.receiver_id, m.sender_id, true, m.* FROM messages m WHERE m.receiver_id <> m.sender_id
+           ) x
+           WINDOW w AS (PARTITION BY x.owner_id, x.peer_id)
+           ORDER BY x.owner_id, x.peer_id, x.logical_clock DESC, x.sent_at DESC
+           ON CONFLICT DO NOTHING
+           """, nativeQuery = true)
+    int rebuildAll();
+}
@@ -79,4 +79,18 @@ public interface FollowRepository extends JpaRepository<Follow, String> {
     @Query("SELECT f.followed.id FROM Follow f WHERE f.follower.id = :followerId")
     List<String> findFollowedIdsByFollowerId(String followerId);
 
-} 
\ No newline at end of file
+    /**
+     * Retorna os IDs dos seguidores de um usuário.
+     * @param followedId ID do seguido
+     * @return lista de IDs de seguidores
+     */
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.followed.id = :followedId")
+    List<String> findFollowerIdsByFollowedId(String followedId);
+
+    /**
+     * Retorna todas as relações como pares [followerId, followedId] (usado na carga do índice do grafo).
+     * @return arestas do grafo de seguidores
+     */
+    @Query("SELECT f.follower.id, f.followed.id FROM Follow f")
+    List<Object[]> findAllEdges();
+}
@@ -2,26 +2,27 @@ package com.example.projeto_sd.repository;
 
 import com.example.projeto_sd.model.Message;
 import com.example.projeto_sd.model.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, String> {
 
     /**
-     * Busca mensagens trocadas entre dois usuários, ordenadas da mais recente para a mais antiga.
-     * @param userId1 ID do primeiro usuário
-     * @param userId2 ID do segundo usuário
+     * Busca uma página das mensagens de uma conversa, da mais recente para a mais antiga
+     * (varredura do índice (conversation_id, sent_at), sem consulta de contagem).
+     * @param conversationId chave da conversa ({@link Message#conversationIdOf})
      * @param pageable informações de paginação
-     * @return página de mensagens
+     * @return mensagens da página
      */
-    @Query("SELECT m FROM Message m WHERE (m.sender.id = :userId1 AND m.receiver.id = :userId2) OR (m.sender.id = :userId2 AND m.receiver.id = :userId1) ORDER BY m.sentAt DESC")
-    Page<Message> findConversation(String userId1, String userId2, Pageable pageable);
+    @Query("SELECT m FROM Message m WHERE m.conversationId = :conversationId ORDER BY m.sentAt DESC")
+    List<Message> findConversation(@Param("conversationId") String conversationId, Pageable pageable);
 
     /**
      * Busca todas as mensagens recebidas por um usuário.
@@ -30,4 +31,20 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      */
     List<Message> findByReceiver(User receiver);
 
-} 
\ No newline at end of file
+    /**
+     * Maior relógio lógico entre as mensagens, usado para restaurar o relógio na inicialização.
+     * @return maior relógio lógico, ou 0 se não houver mensagens
+     */
+    @Query("SELECT COALESCE(MAX(m.logicalClock), 0) FROM Message m")
+    int findMaxLogicalClock();
+
+    /**
+     * Mensagens enviadas no intervalo [from, to), usadas pela anti-entropia.
+     * @param from início do intervalo (inclusivo)
+     * @param to fim do intervalo (exclusivo)
+     * @return mensagens
+     */
+    @Query("SELECT m FROM Message m WHERE m.sentAt >= :from AND m.sentAt < :to")
+    List<Message> findSentBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+}
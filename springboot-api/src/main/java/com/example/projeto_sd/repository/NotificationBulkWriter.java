@@ -0,0 +1,105 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.model.Notification;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Inserção em massa de notificações via JDBC, sem passar pelo contexto de persistência.
+ * <p>
+ * Como os IDs são atribuídos pela aplicação, {@code saveAll} do Spring Data faz um merge
+ * (SELECT + INSERT) por linha. Aqui cada comando é um INSERT de várias linhas com
+ * {@code ON CONFLICT (id) DO NOTHING}, o que também torna a aplicação de lotes replicados idempotente.
+ * O mesmo comando soma as linhas não lidas efetivamente inseridas em {@code notification_counters}
+ * (CTE sobre o {@code RETURNING}), então IDs repetidos não inflam os contadores.
+ * Participa da transação corrente (mesma conexão do JPA).
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationBulkWriter {
+
+    private static final String INSERT_PREFIX =
+            "WITH ins AS (INSERT INTO notifications (id, user_id, type, message, related_entity_id, is_read, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    // Ordena por usuário para que comandos concorrentes travem os contadores na mesma ordem.
+    private static final String INSERT_SUFFIX = """
+             ON CONFLICT (id) DO NOTHING RETURNING id, user_id, is_read),
+            counters AS (INSERT INTO notification_counters (user_id, unread_count)
+                SELECT user_id, count(*) FROM ins WHERE NOT is_read GROUP BY user_id ORDER BY user_id
+                ON CONFLICT (user_id) DO UPDATE SET unread_count = notification_counters.unread_count + EXCLUDED.unread_count)
+            SELECT id FROM ins""";
+
+    private static final int COLUMNS = 7;
+    // O protocolo do Postgres aceita no máximo 32767 parâmetros por comando.
+    private static final int MAX_ROWS_PER_STATEMENT = Short.MAX_VALUE / COLUMNS;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.bulk-insert.rows-per-statement:500}")
+    private int rowsPerStatement;
+
+    /**
+     * Insere as notificações em comandos de várias linhas, ignorando IDs já existentes.
+     * Apenas o ID do usuário é lido de {@link Notification#getUser()}, então referências
+     * não inicializadas (getReferenceById) são suficientes. Os contadores de não lidas
+     * dos destinatários são atualizados no mesmo comando.
+     *
+     * @param notifications notificações a inserir
+     * @return notificações efetivamente inseridas (sem as de IDs já existentes), na ordem recebida
+     */
+    public List<Notification> insertIgnoringExisting(List<Notification> notifications) {
+        if (notifications == null || notifications.isEmpty()) {
+            return List.of();
+        }
+        int chunkSize = Math.max(1, Math.min(rowsPerStatement, MAX_ROWS_PER_STATEMENT));
+        Set<String> insertedIds = new HashSet<>();
+        for (int from = 0; from < notifications.size(); from += chunkSize) {
+            List<Notification> chunk = notifications.subList(from, Math.min(from + chunkSize, notifications.size()));
+            jdbcTemplate.query(insertSql(chunk.size()), ps -> bindChunk(ps, chunk),
+                    (RowCallbackHandler) rs -> insertedIds.add(rs.getString(1)));
+        }
+        List<Notification> inserted = insertedIds.size() == notifications.size()
+                ? notifications
+                : notifications.stream().filter(notification -> insertedIds.contains(notification.getId())).toList();
+        log.debug("[NotificaçõesBulk] {} de {} notificações inseridas em {} comando(s).",
+                inserted.size(), notifications.size(), (notifications.size() + chunkSize - 1) / chunkSize);
+        return inserted;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 1) + INSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.append(INSERT_SUFFIX).toString();
+    }
+
+    private static void bindChunk(PreparedStatement ps, List<Notification> chunk) throws SQLException {
+        int index = 1;
+        for (Notification notification : chunk) {
+            ps.setString(index++, notification.getId());
+            ps.setString(index++, notification.getUser().getId());
+            ps.setString(index++, notification.getType());
+            ps.setString(index++, notification.getMessage());
+            ps.setString(index++, notification.getRelatedEntityId());
+            ps.setBoolean(index++, notification.isRead());
+            ps.setTimestamp(index++, Timestamp.valueOf(notification.getCreatedAt()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.projeto_sd.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preenche a tabela {@code notification_counters} a partir das notificações gravadas antes
+ * de ela existir (o Hibernate só cria a tabela vazia).
+ * <p>
+ * Roda depois da atualização do schema e da migração para uuid e é idempotente: só recria
+ * os contadores quando a tabela ainda está vazia.
+ */
+@Component
+@DependsOn({"entityManagerFactory", "uuidKeyMigration"})
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationCounterBackfill {
+
+    private final NotificationCounterRepository notificationCounterRepository;
+
+    @PostConstruct
+    public void backfill() {
+        if (notificationCounterRepository.count() == 0) {
+            int counters = notificationCounterRepository.rebuildAll();
+            if (counters > 0) {
+                log.info("[Notificações] {} contador(es) de não lidas criados a partir das notificações existentes.", counters);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.model.NotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, String> {
+
+    /**
+     * Quantidade de notificações não lidas de um usuário (leitura por chave primária).
+     * @param userId ID do usuário
+     * @return contagem, vazia se o usuário nunca recebeu notificações
+     */
+    @Query("SELECT c.unreadCount FROM NotificationCounter c WHERE c.userId = :userId")
+    Optional<Long> findUnreadCount(@Param("userId") String userId);
+
+    /**
+     * Soma {@code delta} ao contador do usuário, criando-o se preciso.
+     * @return número de linhas afetadas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO notification_counters (user_id, unread_count) VALUES (:userId, :delta)
+           ON CONFLICT (user_id) DO UPDATE SET unread_count = notification_counters.unread_count + EXCLUDED.unread_count
+           """, nativeQuery = true)
+    int increment(@Param("userId") String userId, @Param("delta") long delta);
+
+    /**
+     * Subtrai {@code delta} do contador do usuário (nunca abaixo de zero).
+     * {@code delta} deve ser o número de notificações efetivamente marcadas como lidas.
+     * @return número de linhas afetadas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           UPDATE notification_counters SET unread_count = GREATEST(unread_count - :delta, 0)
+           WHERE user_id = :userId
+           """, nativeQuery = true)
+    int decrement(@Param("userId") String userId, @Param("delta") long delta);
+
+    /**
+     * Recria os contadores a partir da tabela de notificações (backfill e carga por snapshot).
+     * Contadores já existentes são mantidos.
+     * @return número de contadores inseridos
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO notification_counters (user_id, unread_count)
+           SELECT n.user_id, count(*) FROM notifications n WHERE NOT n.is_read GROUP BY n.user_id
+           ON CONFLICT DO NOTHING
+           """, nativeQuery = true)
+    int rebuildAll();
+}
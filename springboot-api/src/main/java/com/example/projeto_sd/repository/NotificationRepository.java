@@ -1,12 +1,15 @@
 package com.example.projeto_sd.repository;
 
+import com.example.projeto_sd.dto.notification.NotificationDTO;
 import com.example.projeto_sd.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -20,6 +23,51 @@ public interface NotificationRepository extends JpaRepository<Notification, Stri
      */
     List<Notification> findByUserIdAndReadOrderByCreatedAtDesc(String userId, boolean read);
 
+    /**
+     * Primeira página das notificações de um usuário com o estado de leitura informado,
+     * da mais recente para a mais antiga. Usa o índice (user_id, is_read, created_at, id).
+     * @param userId ID do usuário
+     * @param read estado de leitura (false para não lidas)
+     * @param pageable limite de itens (o offset deve ser zero)
+     * @return lista de DTOs
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.notification.NotificationDTO(
+               n.id, n.type, n.message, n.relatedEntityId, n.createdAt, n.read
+           )
+           FROM Notification n
+           WHERE n.user.id = :userId AND n.read = :read
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+    List<NotificationDTO> findByUserIdDtoFirst(@Param("userId") String userId,
+                                               @Param("read") boolean read,
+                                               Pageable pageable);
+
+    /**
+     * Página seguinte ao cursor (createdAt, id), na mesma ordem de {@link #findByUserIdDtoFirst}.
+     * @param userId ID do usuário
+     * @param read estado de leitura (false para não lidas)
+     * @param createdAt data de criação do último item da página anterior
+     * @param notificationId ID do último item da página anterior
+     * @param pageable limite de itens (o offset deve ser zero)
+     * @return lista de DTOs
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.notification.NotificationDTO(
+               n.id, n.type, n.message, n.relatedEntityId, n.createdAt, n.read
+           )
+           FROM Notification n
+           WHERE n.user.id = :userId AND n.read = :read
+             AND n.createdAt <= :createdAt
+             AND (n.createdAt < :createdAt OR n.id < :notificationId)
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+    List<NotificationDTO> findByUserIdDtoAfter(@Param("userId") String userId,
+                                               @Param("read") boolean read,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("notificationId") String notificationId,
+                                               Pageable pageable);
+
     /**
      * Marca uma lista de notificações como lidas para um usuário específico.
      * @param userId ID do usuário
@@ -30,5 +78,31 @@ public interface NotificationRepository extends JpaRepository<Notification, Stri
     @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.id IN :notificationIds AND n.read = false")
     int markAsRead(@Param("userId") String userId, @Param("notificationIds") List<String> notificationIds);
 
+    /**
+     * Marca como lidas todas as notificações de um usuário criadas até {@code upTo} (inclusive).
+     * @param userId ID do usuário
+     * @param upTo limite de data de criação (UTC)
+     * @return número de notificações atualizadas
+     */
+    @Modifying
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false AND n.createdAt <= :upTo")
+    int markAllAsReadUpTo(@Param("userId") String userId, @Param("upTo") LocalDateTime upTo);
 
-} 
\ No newline at end of file
+    /**
+     * Retorna, dentre os IDs informados, os que já existem no banco.
+     * Usado para aplicar lotes replicados de forma idempotente.
+     * @param ids IDs candidatos
+     * @return IDs já persistidos
+     */
+    @Query("SELECT n.id FROM Notification n WHERE n.id IN :ids")
+    List<String> findExistingIds(@Param("ids") List<String> ids);
+
+    /**
+     * Notificações criadas no intervalo [from, to), usadas pela anti-entropia.
+     * @param from início do intervalo (inclusivo)
+     * @param to fim do intervalo (exclusivo)
+     * @return notificações
+     */
+    @Query("SELECT n FROM Notification n WHERE n.createdAt >= :from AND n.createdAt < :to")
+    List<Notification> findCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
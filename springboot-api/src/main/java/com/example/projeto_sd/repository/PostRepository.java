@@ -9,6 +9,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface PostRepository extends JpaRepository<Post, String> {
 
@@ -68,4 +72,148 @@ public interface PostRepository extends JpaRepository<Post, String> {
            """)
     Page<PostResponseDto> findAllPostsDto(Pageable pageable);
 
-} 
\ No newline at end of file
+    /**
+     * Busca os DTOs dos posts (não deletados) pelos IDs, sem ordenação garantida.
+     * @param ids IDs dos posts
+     * @return lista de DTOs de posts
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM Post p
+           WHERE p.id IN :ids AND p.isDeleted = false
+           """)
+    List<PostResponseDto> findPostDtosByIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Primeira página de posts não deletados, paginada por cursor (createdAt, id).
+     * Sem consulta de contagem: apenas o tamanho do pageable é usado.
+     * @param pageable limite de itens
+     * @return lista de DTOs de posts
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM Post p
+           WHERE p.isDeleted = false
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<PostResponseDto> findPostsDtoFirst(Pageable pageable);
+
+    /**
+     * Página de posts não deletados após o cursor (createdAt, id).
+     * A condição {@code createdAt <= :createdAt} limita a varredura do índice.
+     * @param createdAt data/hora do último post da página anterior
+     * @param postId ID do último post da página anterior
+     * @param pageable limite de itens
+     * @return lista de DTOs de posts
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM Post p
+           WHERE p.isDeleted = false
+             AND p.createdAt <= :createdAt
+             AND (p.createdAt < :createdAt OR p.id < :postId)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<PostResponseDto> findPostsDtoAfter(@Param("createdAt") LocalDateTime createdAt,
+                                            @Param("postId") String postId,
+                                            Pageable pageable);
+
+    /**
+     * Primeira página de posts de um usuário, paginada por cursor (createdAt, id).
+     * @param userId ID do usuário
+     * @param pageable limite de itens
+     * @return lista de DTOs de posts
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM Post p
+           WHERE p.user.id = :userId AND p.isDeleted = false
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<PostResponseDto> findPostsByUserIdDtoFirst(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Página de posts de um usuário após o cursor (createdAt, id).
+     * @param userId ID do usuário
+     * @param createdAt data/hora do último post da página anterior
+     * @param postId ID do último post da página anterior
+     * @param pageable limite de itens
+     * @return lista de DTOs de posts
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM Post p
+           WHERE p.user.id = :userId AND p.isDeleted = false
+             AND p.createdAt <= :createdAt
+             AND (p.createdAt < :createdAt OR p.id < :postId)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<PostResponseDto> findPostsByUserIdDtoAfter(@Param("userId") String userId,
+                                                    @Param("createdAt") LocalDateTime createdAt,
+                                                    @Param("postId") String postId,
+                                                    Pageable pageable);
+
+    /**
+     * Conta os posts não deletados.
+     * @return número de posts
+     */
+    long countByIsDeletedFalse();
+
+    /**
+     * Conta os posts não deletados de um usuário.
+     * @param userId ID do usuário
+     * @return número de posts
+     */
+    long countByUserIdAndIsDeletedFalse(String userId);
+
+    /**
+     * Maior relógio lógico entre os posts (inclusive deletados), usado para restaurar o relógio na inicialização.
+     * @return maior relógio lógico, ou 0 se não houver posts
+     */
+    @Query("SELECT COALESCE(MAX(p.logicalClock), 0) FROM Post p")
+    int findMaxLogicalClock();
+
+    /**
+     * Posts (inclusive deletados) criados no intervalo [from, to), usados pela anti-entropia.
+     * @param from início do intervalo (inclusivo)
+     * @param to fim do intervalo (exclusivo)
+     * @return posts com o autor carregado
+     */
+    @Query("SELECT p FROM Post p JOIN FETCH p.user WHERE p.createdAt >= :from AND p.createdAt < :to")
+    List<Post> findCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
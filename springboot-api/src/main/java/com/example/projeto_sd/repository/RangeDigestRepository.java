@@ -0,0 +1,66 @@
+package com.example.projeto_sd.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Digests por intervalo de tempo das tabelas replicadas, usados pela anti-entropia.
+ * <p>
+ * Cada bucket agrupa as linhas pelo tempo de criação ({@code floor(ms / bucketMillis)}) e
+ * resume-as com um md5 das assinaturas das linhas (ID mais o estado que pode mudar depois
+ * da criação), ordenadas por ID. Dois nós com as mesmas linhas no bucket produzem o mesmo digest.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RangeDigestRepository {
+
+    /**
+     * Tabelas comparadas: coluna de tempo de criação e assinatura de cada linha.
+     */
+    public enum Table {
+        POSTS("posts", "created_at", "id::text || ':' || is_deleted"),
+        MESSAGES("messages", "sent_at", "id::text"),
+        NOTIFICATIONS("notifications", "created_at", "id::text || ':' || is_read");
+
+        private final String name;
+        private final String timeColumn;
+        private final String rowSignature;
+
+        Table(String name, String timeColumn, String rowSignature) {
+            this.name = name;
+            this.timeColumn = timeColumn;
+            this.rowSignature = rowSignature;
+        }
+    }
+
+    public record BucketDigest(long bucket, long rows, String digest) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Digests dos buckets não vazios de {@code bucketMillis} em [fromMillis, toMillis).
+     */
+    public List<BucketDigest> digests(Table table, long fromMillis, long toMillis, long bucketMillis) {
+        String sql = "SELECT floor(extract(epoch FROM " + table.timeColumn + ") * 1000 / ?)::bigint AS bucket, " +
+                "count(*) AS row_count, md5(string_agg(" + table.rowSignature + ", ',' ORDER BY id)) AS digest " +
+                "FROM " + table.name + " WHERE " + table.timeColumn + " >= ? AND " + table.timeColumn + " < ? " +
+                "GROUP BY 1 ORDER BY 1";
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new BucketDigest(rs.getLong("bucket"), rs.getLong("row_count"), rs.getString("digest")),
+                bucketMillis, toUtc(fromMillis), toUtc(toMillis));
+    }
+
+    /**
+     * Converte ms (epoch) no LocalDateTime gravado nas colunas {@code timestamp} (interpretadas como UTC pelo extract).
+     */
+    public static LocalDateTime toUtc(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.model.ReplicationOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReplicationOutboxRepository extends JpaRepository<ReplicationOutboxEntry, Long> {
+
+    /**
+     * Busca as entradas posteriores a uma posição, em ordem.
+     * @param id posição de referência (exclusiva)
+     * @param pageable limite do lote
+     * @return entradas com ID maior que o informado
+     */
+    List<ReplicationOutboxEntry> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Maior posição gravada (visível para esta leitura).
+     * @return maior ID do outbox, ou 0 se estiver vazio
+     */
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM ReplicationOutboxEntry e")
+    long findMaxId();
+
+    /**
+     * ID da transação corrente, atribuído agora se ela ainda não tiver um.
+     * @return o ID da transação (xid8 como número)
+     */
+    @Query(value = "SELECT pg_current_xact_id()::text::bigint", nativeQuery = true)
+    long assignTransactionId();
+
+    /**
+     * Menor ID de transação ainda ativa: todas as transações com ID menor já terminaram.
+     * @return xmin do snapshot atual
+     */
+    @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    long findOldestActiveTransactionId();
+
+    /**
+     * Primeiro ID de transação ainda não atribuído: toda transação já iniciada tem ID menor.
+     * @return xmax do snapshot atual
+     */
+    @Query(value = "SELECT pg_snapshot_xmax(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    long findNextTransactionId();
+
+    /**
+     * Menor posição ainda presente no outbox.
+     * @return menor ID do outbox, ou 0 se estiver vazio
+     */
+    @Query("SELECT COALESCE(MIN(e.id), 0) FROM ReplicationOutboxEntry e")
+    long findMinId();
+
+    /**
+     * Remove as entradas já confirmadas por todos os peers acompanhados.
+     * @param ackedUpTo menor posição confirmada entre os peers
+     * @return número de entradas removidas
+     */
+    @Modifying
+    @Query("DELETE FROM ReplicationOutboxEntry e WHERE e.id <= :ackedUpTo")
+    int pruneUpTo(@Param("ackedUpTo") long ackedUpTo);
+
+    /**
+     * Remove as entradas mais antigas que o limite de retenção (usado só sem peers acompanhados).
+     * @param olderThan limite de retenção
+     * @return número de entradas removidas
+     */
+    @Modifying
+    @Query("DELETE FROM ReplicationOutboxEntry e WHERE e.createdAt < :olderThan")
+    int pruneOlderThan(@Param("olderThan") LocalDateTime olderThan);
+}
@@ -0,0 +1,62 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.model.ReplicationPeerOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReplicationPeerOffsetRepository extends JpaRepository<ReplicationPeerOffset, String> {
+
+    /**
+     * Menor posição confirmada entre os peers que ainda recebem o outbox
+     * (os marcados para recarga por snapshot não seguram a limpeza).
+     * @return Optional vazio se nenhum peer estiver sendo acompanhado
+     */
+    @Query("SELECT MIN(o.ackedOffset) FROM ReplicationPeerOffset o WHERE o.snapshotRequired = false")
+    Optional<Long> findMinAckedOffset();
+
+    /**
+     * Peers com alguma entrada ainda não confirmada gravada antes do limite de retenção.
+     * @param olderThan limite de retenção
+     * @return IDs dos peers atrasados ainda não marcados para recarga por snapshot
+     */
+    @Query("""
+           SELECT o.peerServerId FROM ReplicationPeerOffset o
+           WHERE o.snapshotRequired = false
+             AND EXISTS (SELECT e.id FROM ReplicationOutboxEntry e WHERE e.id > o.ackedOffset AND e.createdAt < :olderThan)
+           """)
+    List<String> findLaggingSince(@Param("olderThan") LocalDateTime olderThan);
+
+    /**
+     * Marca os peers para recarga por snapshot.
+     * @return número de linhas afetadas
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReplicationPeerOffset o SET o.snapshotRequired = true WHERE o.peerServerId IN :peerServerIds")
+    int markSnapshotRequired(@Param("peerServerIds") Collection<String> peerServerIds);
+
+    /**
+     * Grava a posição confirmada pelo peer, criando a linha se preciso. A marca de recarga por
+     * snapshot de uma linha existente é mantida (só o reposicionamento a remove).
+     * @return número de linhas afetadas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO replication_peer_offsets (peer_server_id, acked_offset, updated_at, snapshot_required)
+           VALUES (:peerServerId, :ackedOffset, :updatedAt, false)
+           ON CONFLICT (peer_server_id) DO UPDATE SET acked_offset = EXCLUDED.acked_offset, updated_at = EXCLUDED.updated_at
+           """, nativeQuery = true)
+    int saveAckedOffset(@Param("peerServerId") String peerServerId, @Param("ackedOffset") long ackedOffset,
+                        @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,9 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.model.SnapshotMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SnapshotMarkerRepository extends JpaRepository<SnapshotMarker, String> {
+}
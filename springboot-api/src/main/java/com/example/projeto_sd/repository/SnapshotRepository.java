@@ -0,0 +1,115 @@
+package com.example.projeto_sd.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Leitura e carga em massa das tabelas replicadas para o snapshot de bootstrap, via JDBC.
+ * <p>
+ * No coordenador, cada tabela é lida com um cursor do servidor (fetch size), sem materializar
+ * as linhas nem passar pelo contexto de persistência. No nó que está sendo carregado, cada lote
+ * é gravado com INSERTs de várias linhas e {@code ON CONFLICT DO NOTHING}, então repetir uma
+ * carga interrompida é seguro. Participa da transação corrente (mesma conexão do JPA).
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotRepository {
+
+    /**
+     * Tabelas do snapshot, na ordem em que precisam ser carregadas (chaves estrangeiras).
+     */
+    public enum Table {
+        USERS("SELECT id, name FROM users",
+                "INSERT INTO users (id, name) VALUES ", 2),
+        FOLLOWS("SELECT id, follower_id, followed_id, created_at FROM follows",
+                "INSERT INTO follows (id, follower_id, followed_id, created_at) VALUES ", 4),
+        POSTS("SELECT id, user_id, content, created_at, logical_clock, is_deleted FROM posts",
+                "INSERT INTO posts (id, user_id, content, created_at, logical_clock, is_deleted, server_id) VALUES ", 7),
+        MESSAGES("SELECT id, sender_id, receiver_id, content, sent_at, logical_clock, is_read, server_id FROM messages",
+                "INSERT INTO messages (id, sender_id, receiver_id, content, sent_at, logical_clock, is_read, server_id, conversation_id) VALUES ", 9),
+        NOTIFICATIONS("SELECT id, user_id, type, message, related_entity_id, is_read, created_at FROM notifications",
+                "INSERT INTO notifications (id, user_id, type, message, related_entity_id, is_read, created_at) VALUES ", 7);
+
+        private final String selectSql;
+        private final String insertPrefix;
+        private final int columns;
+
+        Table(String selectSql, String insertPrefix, int columns) {
+            this.selectSql = selectSql;
+            this.insertPrefix = insertPrefix;
+            this.columns = columns;
+        }
+    }
+
+    private static final String INSERT_SUFFIX = " ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Percorre todas as linhas da tabela com um cursor de {@code fetchSize} linhas.
+     * Precisa de uma transação aberta (no Postgres o cursor só é usado fora do autocommit).
+     */
+    public void scan(Table table, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(table.selectSql);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Insere as linhas (valores na ordem das colunas do INSERT da tabela) em comandos de várias
+     * linhas, ignorando as que já existem.
+     *
+     * @return quantidade de linhas efetivamente inseridas
+     */
+    public int insertIgnoringExisting(Table table, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        // O protocolo do Postgres aceita no máximo 32767 parâmetros por comando.
+        int chunkSize = Short.MAX_VALUE / table.columns;
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            inserted += jdbcTemplate.update(insertSql(table, chunk.size()), ps -> bindChunk(ps, chunk));
+        }
+        log.debug("[Snapshot] {}: {} de {} linhas inseridas.", table, inserted, rows.size());
+        return inserted;
+    }
+
+    private static String insertSql(Table table, int rows) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < table.columns; i++) {
+            placeholders.append(i > 0 ? ", ?" : "?");
+        }
+        placeholders.append(')');
+
+        StringBuilder sql = new StringBuilder(table.insertPrefix.length() + rows * (placeholders.length() + 1) + INSERT_SUFFIX.length());
+        sql.append(table.insertPrefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholders);
+        }
+        return sql.append(INSERT_SUFFIX).toString();
+    }
+
+    private static void bindChunk(PreparedStatement ps, List<Object[]> chunk) throws SQLException {
+        int index = 1;
+        for (Object[] row : chunk) {
+            for (Object value : row) {
+                ps.setObject(index++, value);
+            }
+        }
+    }
+}
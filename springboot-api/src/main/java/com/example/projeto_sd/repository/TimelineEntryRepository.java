@@ -0,0 +1,166 @@
+package com.example.projeto_sd.repository;
+
+import com.example.projeto_sd.dto.post.PostResponseDto;
+import com.example.projeto_sd.model.TimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, TimelineEntry.Key> {
+
+    /**
+     * Primeira página da timeline de um usuário, do post mais recente para o mais antigo.
+     * @param userId ID do dono da timeline
+     * @param pageable limite de itens (apenas o tamanho é usado)
+     * @return lista de DTOs de posts não deletados
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM TimelineEntry t JOIN Post p ON p.id = t.postId
+           WHERE t.userId = :userId AND p.isDeleted = false
+           ORDER BY t.createdAt DESC, t.postId DESC
+           """)
+    List<PostResponseDto> findTimeline(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Página da timeline após o cursor (createdAt, postId), mesma ordenação de {@link #findTimeline}.
+     * @param userId ID do dono da timeline
+     * @param createdAt data/hora do último post da página anterior
+     * @param postId ID do último post da página anterior
+     * @param pageable limite de itens (apenas o tamanho é usado)
+     * @return lista de DTOs de posts não deletados
+     */
+    @Query("""
+           SELECT NEW com.example.projeto_sd.dto.post.PostResponseDto(
+               p.id,
+               p.user.id,
+               p.user.name,
+               p.content,
+               p.createdAt,
+               p.logicalClock
+           )
+           FROM TimelineEntry t JOIN Post p ON p.id = t.postId
+           WHERE t.userId = :userId AND p.isDeleted = false
+             AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.postId < :postId))
+           ORDER BY t.createdAt DESC, t.postId DESC
+           """)
+    List<PostResponseDto> findTimelineAfter(@Param("userId") String userId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("postId") String postId,
+                                            Pageable pageable);
+
+    /**
+     * Entradas mais recentes da timeline (sem juntar posts), usadas para aquecer o cache em memória.
+     * @param userId ID do dono da timeline
+     * @param pageable limite de itens
+     * @return entradas da timeline
+     */
+    @Query("SELECT t FROM TimelineEntry t WHERE t.userId = :userId ORDER BY t.createdAt DESC, t.postId DESC")
+    List<TimelineEntry> findRecentEntries(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Insere o post na timeline de todos os seguidores do autor e na do próprio autor,
+     * em um único comando. Entradas já existentes são ignoradas (idempotente sob reenvio).
+     * @return número de entradas inseridas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+           SELECT f.follower_id, :postId, :authorId, :createdAt FROM follows f WHERE f.followed_id = :authorId
+           UNION
+           SELECT :authorId, :postId, :authorId, :createdAt
+           ON CONFLICT DO NOTHING
+           """, nativeQuery = true)
+    int fanOut(@Param("postId") String postId,
+               @Param("authorId") String authorId,
+               @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Copia os posts mais recentes de um autor para a timeline de um novo seguidor.
+     * @return número de entradas inseridas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+           SELECT :userId, p.id, p.user_id, p.created_at FROM posts p
+           WHERE p.user_id = :authorId AND p.is_deleted = false
+           ORDER BY p.created_at DESC
+           LIMIT :limit
+           ON CONFLICT DO NOTHING
+           """, nativeQuery = true)
+    int backfill(@Param("userId") String userId, @Param("authorId") String authorId, @Param("limit") int limit);
+
+    /**
+     * Recria as timelines de todos os usuários a partir de posts e follows (carga por snapshot),
+     * com no máximo {@code maxPerUser} entradas por timeline. Entradas já existentes são ignoradas.
+     * @return número de entradas inseridas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+           SELECT user_id, post_id, author_id, created_at FROM (
+               SELECT e.*, row_number() OVER (PARTITION BY e.user_id ORDER BY e.created_at DESC, e.post_id DESC) AS rn
+               FROM (
+                   SELECT p.user_id AS user_id, p.id AS post_id, p.user_id AS author_id, p.created_at
+                   FROM posts p WHERE p.is_deleted = false
+                   UNION ALL
+                   SELECT f.follower_id, p.id, p.user_id, p.created_at
+                   FROM posts p JOIN follows f ON f.followed_id = p.user_id WHERE p.is_deleted = false
+               ) e
+           ) r
+           WHERE r.rn <= :maxPerUser
+           ON CONFLICT DO NOTHING
+           """, nativeQuery = true)
+    int rebuildAll(@Param("maxPerUser") int maxPerUser);
+
+    /**
+     * Remove da timeline de um usuário os posts de um autor (usado ao deixar de seguir).
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.userId = :userId AND t.authorId = :authorId")
+    int deleteByUserIdAndAuthorId(@Param("userId") String userId, @Param("authorId") String authorId);
+
+    /**
+     * Remove um post de todas as timelines (usado na deleção do post).
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.postId = :postId")
+    int deleteByPostId(@Param("postId") String postId);
+
+    /**
+     * Mantém no máximo {@code maxPerUser} entradas por timeline, removendo as mais antigas.
+     * @return número de entradas removidas
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+           DELETE FROM timeline_entries t
+           USING (
+               SELECT user_id, post_id,
+                      row_number() OVER (PARTITION BY user_id ORDER BY created_at DESC, post_id DESC) AS rn
+               FROM timeline_entries
+           ) r
+           WHERE t.user_id = r.user_id AND t.post_id = r.post_id AND r.rn > :maxPerUser
+           """, nativeQuery = true)
+    int trim(@Param("maxPerUser") int maxPerUser);
+}
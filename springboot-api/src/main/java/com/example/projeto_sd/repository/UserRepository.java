@@ -1,9 +1,14 @@
 package com.example.projeto_sd.repository;
 
+import com.example.projeto_sd.dto.user.UserResponseDTO;
 import com.example.projeto_sd.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,4 +20,26 @@ public interface UserRepository extends JpaRepository<User, String> {
      */
     Optional<User> findByName(String name);
 
-} 
\ No newline at end of file
+    /**
+     * Retorna, dentre os IDs informados, os de usuários existentes (projeção apenas com IDs).
+     * @param ids IDs candidatos
+     * @return IDs de usuários existentes
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Retorna ID e nome de todos os usuários (usado na carga do índice do grafo de seguidores).
+     * @return resumos de todos os usuários
+     */
+    @Query("SELECT new com.example.projeto_sd.dto.user.UserResponseDTO(u.id, u.name) FROM User u")
+    List<UserResponseDTO> findAllSummaries();
+
+    /**
+     * Nome de um usuário (projeção, sem carregar a entidade). Usado pelo {@code UserCache} em caso de falta.
+     * @param id ID do usuário
+     * @return nome, se o usuário existir
+     */
+    @Query("SELECT u.name FROM User u WHERE u.id = :id")
+    Optional<String> findNameById(@Param("id") String id);
+}
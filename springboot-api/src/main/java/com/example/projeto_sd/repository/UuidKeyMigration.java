@@ -0,0 +1,108 @@
+package com.example.projeto_sd.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migração das chaves das entidades de domínio de {@code varchar(255)} para o tipo nativo
+ * {@code uuid} do Postgres (16 bytes em vez de 37), em PKs, FKs e na tabela de timeline.
+ * <p>
+ * O Hibernate ({@code ddl-auto=update}) cria as colunas como varchar e não altera tipos de
+ * colunas existentes, então a conversão roda aqui, depois da atualização do schema e antes de
+ * a aplicação atender requisições. É idempotente: colunas já convertidas são ignoradas.
+ * As entidades continuam usando {@code String}; o driver envia strings sem tipo
+ * ({@code stringtype=unspecified}) e o Postgres as converte para uuid.
+ * Tudo roda numa transação: se algum ID existente não for um UUID válido, nada é alterado.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class UuidKeyMigration {
+
+    private static final Map<String, List<String>> UUID_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        UUID_COLUMNS.put("users", List.of("id"));
+        UUID_COLUMNS.put("posts", List.of("id", "user_id"));
+        UUID_COLUMNS.put("messages", List.of("id", "sender_id", "receiver_id"));
+        UUID_COLUMNS.put("notifications", List.of("id", "user_id"));
+        UUID_COLUMNS.put("follows", List.of("id", "follower_id", "followed_id"));
+        UUID_COLUMNS.put("timeline_entries", List.of("user_id", "post_id", "author_id"));
+        UUID_COLUMNS.put("conversation_summaries", List.of("owner_id", "peer_id", "last_message_id", "last_sender_id"));
+        UUID_COLUMNS.put("notification_counters", List.of("user_id"));
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${ids.uuid-columns.migrate:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        List<String[]> pending = findPendingColumns();
+        if (pending.isEmpty()) {
+            log.debug("[MigraçãoUUID] Colunas de ID já estão no tipo uuid.");
+            return;
+        }
+        log.info("[MigraçãoUUID] Convertendo {} coluna(s) de ID para uuid...", pending.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> convert(pending));
+            log.info("[MigraçãoUUID] Conversão concluída.");
+        } catch (DataAccessException e) {
+            log.error("[MigraçãoUUID] Falha ao converter colunas de ID para uuid; mantendo varchar: {}", e.getMessage());
+        }
+    }
+
+    private List<String[]> findPendingColumns() {
+        List<String[]> pending = new ArrayList<>();
+        UUID_COLUMNS.forEach((table, columns) -> {
+            for (String column : columns) {
+                List<String> types = jdbcTemplate.queryForList(
+                        "SELECT data_type FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?",
+                        String.class, table, column);
+                if (!types.isEmpty() && !"uuid".equals(types.get(0))) {
+                    pending.add(new String[]{table, column});
+                }
+            }
+        });
+        return pending;
+    }
+
+    private void convert(List<String[]> pending) {
+        // As FKs precisam ser removidas e recriadas: o Postgres não altera o tipo de uma
+        // coluna referenciada enquanto o outro lado ainda é varchar.
+        String tables = String.join(",", UUID_COLUMNS.keySet().stream().map(t -> "'" + t + "'").toList());
+        List<Map<String, Object>> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT c.conrelid::regclass::text AS table_name, c.conname AS name, pg_get_constraintdef(c.oid) AS definition " +
+                "FROM pg_constraint c WHERE c.contype = 'f' " +
+                "AND (c.conrelid::regclass::text IN (" + tables + ") OR c.confrelid::regclass::text IN (" + tables + "))");
+
+        for (Map<String, Object> fk : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + fk.get("table_name") + " DROP CONSTRAINT \"" + fk.get("name") + "\"");
+        }
+        for (String[] column : pending) {
+            jdbcTemplate.execute("ALTER TABLE " + column[0] + " ALTER COLUMN " + column[1] + " TYPE uuid USING " + column[1] + "::uuid");
+        }
+        for (Map<String, Object> fk : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE " + fk.get("table_name") + " ADD CONSTRAINT \"" + fk.get("name") + "\" " + fk.get("definition"));
+        }
+        log.info("[MigraçãoUUID] {} coluna(s) convertida(s); {} FK(s) recriada(s).", pending.size(), foreignKeys.size());
+    }
+}
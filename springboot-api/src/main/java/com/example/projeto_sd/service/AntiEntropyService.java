@@ -0,0 +1,333 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.grpc.ServerCommsProto.AntiEntropyTable;
+import com.example.projeto_sd.grpc.ServerCommsProto.MessageInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.NotificationProto;
+import com.example.projeto_sd.grpc.ServerCommsProto.PostInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.RangeDigestRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.RangeDigestResponse;
+import com.example.projeto_sd.grpc.ServerCommsProto.RangeRows;
+import com.example.projeto_sd.grpc.ServerCommsProto.RangeRowsRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.TimeRange;
+import com.example.projeto_sd.model.Message;
+import com.example.projeto_sd.model.Notification;
+import com.example.projeto_sd.model.Post;
+import com.example.projeto_sd.model.Server;
+import com.example.projeto_sd.repository.MessageRepository;
+import com.example.projeto_sd.repository.NotificationRepository;
+import com.example.projeto_sd.repository.PostRepository;
+import com.example.projeto_sd.repository.RangeDigestRepository;
+import com.example.projeto_sd.repository.RangeDigestRepository.BucketDigest;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Anti-entropia entre o coordenador e os seguidores para posts, mensagens e notificações.
+ * <p>
+ * O stream de replicação entrega as escritas em ordem e reenvia as que falham ao ser aplicadas,
+ * mas dados gravados durante uma troca de coordenador (no outbox do coordenador anterior)
+ * podem nunca chegar. Periodicamente, cada seguidor compara com o coordenador digests por
+ * intervalos de tempo de criação, no estilo de uma árvore de Merkle: começa com buckets de
+ * {@code anti-entropy.bucket.root-ms} e só subdivide (por {@code anti-entropy.bucket.fanout})
+ * os que divergem, até {@code anti-entropy.bucket.leaf-ms}. Apenas as linhas dos intervalos
+ * folha divergentes são transferidas, em lotes, e aplicadas pelos mesmos métodos idempotentes
+ * da replicação. O coordenador é a fonte da verdade; linhas que só existem no seguidor são mantidas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AntiEntropyService {
+
+    private static final int MAX_RANGES_PER_REQUEST = 100;
+
+    private final GrpcClientService grpcClientService;
+    private final ElectionService electionService;
+    private final RangeDigestRepository rangeDigestRepository;
+    private final PostRepository postRepository;
+    private final MessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+    private final PostService postService;
+    private final MessageService messageService;
+    private final NotificationService notificationService;
+
+    @Value("${anti-entropy.enabled:true}")
+    private boolean enabled;
+
+    @Value("${anti-entropy.interval.ms:600000}")
+    private long intervalMs;
+
+    @Value("${anti-entropy.settle.ms:60000}")
+    private long settleMs;
+
+    @Value("${anti-entropy.bucket.root-ms:86400000}")
+    private long rootBucketMs;
+
+    @Value("${anti-entropy.bucket.leaf-ms:60000}")
+    private long leafBucketMs;
+
+    @Value("${anti-entropy.bucket.fanout:24}")
+    private int fanout;
+
+    @Value("${anti-entropy.rows-per-message:500}")
+    private int rowsPerMessage;
+
+    @Value("${anti-entropy.deadline.ms:30000}")
+    private long deadlineMs;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "anti-entropy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("[AntiEntropia] Desabilitada (anti-entropy.enabled=false).");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runRound, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // ---- Lado do coordenador (RPCs) ----
+
+    /**
+     * Digests locais dos buckets pedidos.
+     */
+    public RangeDigestResponse digests(RangeDigestRequest request) {
+        RangeDigestResponse.Builder response = RangeDigestResponse.newBuilder();
+        for (BucketDigest bucket : rangeDigestRepository.digests(toTable(request.getTable()),
+                request.getFromMillis(), request.getToMillis(), request.getBucketMillis())) {
+            response.addBuckets(ServerCommsProto.BucketDigest.newBuilder()
+                    .setBucket(bucket.bucket())
+                    .setRows(bucket.rows())
+                    .setDigest(bucket.digest()));
+        }
+        return response.build();
+    }
+
+    /**
+     * Envia ao {@code sink}, em lotes de {@code anti-entropy.rows-per-message}, as linhas dos intervalos pedidos.
+     */
+    @Transactional(readOnly = true)
+    public void streamRows(RangeRowsRequest request, Consumer<RangeRows> sink) {
+        for (TimeRange range : request.getRangesList()) {
+            LocalDateTime from = RangeDigestRepository.toUtc(range.getFromMillis());
+            LocalDateTime to = RangeDigestRepository.toUtc(range.getToMillis());
+            switch (request.getTable()) {
+                case POSTS -> sendInBatches(postRepository.findCreatedBetween(from, to), sink, (batch, post) -> {
+                    batch.addPosts(PostService.toReplicatedPostInfo(post));
+                    if (post.isDeleted()) {
+                        batch.addDeletedPostIds(post.getId());
+                    }
+                });
+                case MESSAGES -> sendInBatches(messageRepository.findSentBetween(from, to), sink,
+                        (batch, message) -> batch.addMessages(MessageService.convertEntityToProto(message)));
+                case NOTIFICATIONS -> sendInBatches(notificationRepository.findCreatedBetween(from, to), sink,
+                        (batch, notification) -> batch.addNotifications(PostService.toNotificationProto(notification)));
+                default -> throw new IllegalArgumentException("Tabela de anti-entropia desconhecida: " + request.getTable());
+            }
+        }
+    }
+
+    private <T> void sendInBatches(List<T> rows, Consumer<RangeRows> sink, BiConsumer<RangeRows.Builder, T> add) {
+        RangeRows.Builder batch = RangeRows.newBuilder();
+        int inBatch = 0;
+        for (T row : rows) {
+            add.accept(batch, row);
+            if (++inBatch >= rowsPerMessage) {
+                sink.accept(batch.build());
+                batch = RangeRows.newBuilder();
+                inBatch = 0;
+            }
+        }
+        if (inBatch > 0) {
+            sink.accept(batch.build());
+        }
+    }
+
+    // ---- Lado do seguidor (reparo periódico) ----
+
+    void runRound() {
+        try {
+            if (electionService.isCoordinator()) {
+                return;
+            }
+            Optional<Server> coordinator = electionService.getCoordinatorId()
+                    .flatMap(electionService::getCoordinatorServerDetails);
+            if (coordinator.isEmpty()) {
+                log.debug("[AntiEntropia] Coordenador desconhecido. Rodada ignorada.");
+                return;
+            }
+            // Escritas recentes ainda podem estar a caminho pelo stream de replicação.
+            long to = Math.min(System.currentTimeMillis(), LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli()) - settleMs;
+            for (AntiEntropyTable table : List.of(AntiEntropyTable.POSTS, AntiEntropyTable.MESSAGES, AntiEntropyTable.NOTIFICATIONS)) {
+                repairTable(coordinator.get(), table, to);
+            }
+        } catch (Exception e) {
+            log.warn("[AntiEntropia] Rodada interrompida: {}", e.getMessage());
+        }
+    }
+
+    private void repairTable(Server coordinator, AntiEntropyTable table, long to) {
+        List<TimeRange> divergent = new ArrayList<>();
+        collectDivergent(coordinator, table, 0, to, rootBucketMs, divergent);
+        if (divergent.isEmpty()) {
+            log.debug("[AntiEntropia] {} sem divergências com o coordenador {}.", table, coordinator.getId());
+            return;
+        }
+        log.info("[AntiEntropia] {}: {} intervalo(s) de {}ms divergem do coordenador {}. Buscando linhas.",
+                table, divergent.size(), leafBucketMs, coordinator.getId());
+
+        int repaired = 0;
+        for (int from = 0; from < divergent.size(); from += MAX_RANGES_PER_REQUEST) {
+            RangeRowsRequest request = RangeRowsRequest.newBuilder()
+                    .setTable(table)
+                    .addAllRanges(divergent.subList(from, Math.min(from + MAX_RANGES_PER_REQUEST, divergent.size())))
+                    .build();
+            Iterator<RangeRows> rows = grpcClientService.streamRangeRows(coordinator.getHost(), coordinator.getPort(), request, deadlineMs);
+            while (rows.hasNext()) {
+                repaired += apply(table, rows.next());
+            }
+        }
+        log.info("[AntiEntropia] {}: {} linha(s) reparada(s) a partir do coordenador {}.", table, repaired, coordinator.getId());
+    }
+
+    /**
+     * Desce pelos buckets que divergem até o tamanho de folha, acumulando os intervalos folha em {@code out}.
+     */
+    private void collectDivergent(Server coordinator, AntiEntropyTable table, long from, long to, long bucketMs, List<TimeRange> out) {
+        RangeDigestRequest request = RangeDigestRequest.newBuilder()
+                .setTable(table)
+                .setFromMillis(from)
+                .setToMillis(to)
+                .setBucketMillis(bucketMs)
+                .build();
+        RangeDigestResponse remote = grpcClientService.getRangeDigests(coordinator.getHost(), coordinator.getPort(), request, deadlineMs);
+        Map<Long, BucketDigest> local = rangeDigestRepository.digests(toTable(table), from, to, bucketMs).stream()
+                .collect(Collectors.toMap(BucketDigest::bucket, Function.identity()));
+
+        long childBucketMs = Math.max(leafBucketMs, bucketMs / Math.max(2, fanout));
+        for (ServerCommsProto.BucketDigest bucket : remote.getBucketsList()) {
+            BucketDigest mine = local.get(bucket.getBucket());
+            if (mine != null && mine.rows() == bucket.getRows() && mine.digest().equals(bucket.getDigest())) {
+                continue;
+            }
+            long bucketFrom = Math.max(from, bucket.getBucket() * bucketMs);
+            long bucketTo = Math.min(to, (bucket.getBucket() + 1) * bucketMs);
+            if (bucketMs <= leafBucketMs) {
+                out.add(TimeRange.newBuilder().setFromMillis(bucketFrom).setToMillis(bucketTo).build());
+            } else {
+                collectDivergent(coordinator, table, bucketFrom, bucketTo, childBucketMs, out);
+            }
+        }
+    }
+
+    private int apply(AntiEntropyTable table, RangeRows rows) {
+        return switch (table) {
+            case POSTS -> applyPosts(rows.getPostsList(), Set.copyOf(rows.getDeletedPostIdsList()));
+            case MESSAGES -> applyMessages(rows.getMessagesList());
+            case NOTIFICATIONS -> applyNotifications(rows.getNotificationsList());
+            default -> 0;
+        };
+    }
+
+    private int applyPosts(List<PostInfo> posts, Set<String> deletedIds) {
+        Map<String, Boolean> localDeleted = postRepository.findAllById(posts.stream().map(PostInfo::getId).toList()).stream()
+                .collect(Collectors.toMap(Post::getId, Post::isDeleted));
+        int repaired = 0;
+        for (PostInfo post : posts) {
+            try {
+                Boolean deleted = localDeleted.get(post.getId());
+                if (deleted == null) {
+                    postService.saveReplicatedPost(post.getId(), post.getUserId(), post.getContent(),
+                            post.getCreatedAtMillis(), post.getLogicalClock());
+                    repaired++;
+                    deleted = false;
+                }
+                if (!deleted && deletedIds.contains(post.getId())) {
+                    postService.markReplicatedPostAsDeleted(post.getId());
+                    repaired++;
+                }
+            } catch (Exception e) {
+                log.warn("[AntiEntropia] Falha ao reparar o post {}: {}", post.getId(), e.getMessage());
+            }
+        }
+        return repaired;
+    }
+
+    private int applyMessages(List<MessageInfo> messages) {
+        Set<String> existing = messageRepository.findAllById(messages.stream().map(MessageInfo::getId).toList()).stream()
+                .map(Message::getId)
+                .collect(Collectors.toSet());
+        int repaired = 0;
+        for (MessageInfo message : messages) {
+            if (existing.contains(message.getId())) {
+                continue;
+            }
+            try {
+                messageService.saveReplicatedMessage(message);
+                repaired++;
+            } catch (Exception e) {
+                log.warn("[AntiEntropia] Falha ao reparar a mensagem {}: {}", message.getId(), e.getMessage());
+            }
+        }
+        return repaired;
+    }
+
+    private int applyNotifications(List<NotificationProto> notifications) {
+        int repaired = notificationService.saveReplicatedNotifications(notifications);
+
+        Set<String> unreadLocally = notificationRepository.findAllById(notifications.stream()
+                        .filter(NotificationProto::getIsRead).map(NotificationProto::getId).toList()).stream()
+                .filter(notification -> !notification.isRead())
+                .map(Notification::getId)
+                .collect(Collectors.toSet());
+        Map<String, List<String>> readByUser = new LinkedHashMap<>();
+        for (NotificationProto notification : notifications) {
+            if (unreadLocally.contains(notification.getId())) {
+                readByUser.computeIfAbsent(notification.getUserId(), k -> new ArrayList<>()).add(notification.getId());
+            }
+        }
+        readByUser.forEach(notificationService::markReplicatedNotificationsAsRead);
+        return repaired + unreadLocally.size();
+    }
+
+    private static RangeDigestRepository.Table toTable(AntiEntropyTable table) {
+        return switch (table) {
+            case POSTS -> RangeDigestRepository.Table.POSTS;
+            case MESSAGES -> RangeDigestRepository.Table.MESSAGES;
+            case NOTIFICATIONS -> RangeDigestRepository.Table.NOTIFICATIONS;
+            default -> throw new IllegalArgumentException("Tabela de anti-entropia desconhecida: " + table);
+        };
+    }
+}
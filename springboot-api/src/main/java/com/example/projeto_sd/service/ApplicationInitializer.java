@@ -1,5 +1,7 @@
 package com.example.projeto_sd.service;
 import com.example.projeto_sd.model.Server;
+import com.example.projeto_sd.repository.MessageRepository;
+import com.example.projeto_sd.repository.PostRepository;
 import com.example.projeto_sd.repository.ServerRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,13 +21,19 @@ public class ApplicationInitializer implements ApplicationListener<ApplicationRe
     private final ServerRepository serverRepository;
     private final ElectionService electionService;
     private final ClockSyncService clockSyncService;
+    private final LogicalClock logicalClock;
+    private final PostRepository postRepository;
+    private final MessageRepository messageRepository;
 
     @Value("${server.id}")
     private String selfServerId;
-    @Value("${grpc.server.port}")
+    // Porta anunciada aos peers; difere de grpc.server.port quando o servidor é só in-process (-1)
+    @Value("${server.grpc-port:${grpc.server.port}}")
     private int selfGrpcPort;
     @Value("${server.host}")
     private String selfHost;
+    @Value("${cluster.startup.settle.ms:5000}")
+    private long startupSettleMs;
 
     @Override
     @Transactional
@@ -35,9 +43,11 @@ public class ApplicationInitializer implements ApplicationListener<ApplicationRe
 
         clockSyncService.initializeOffset();
 
+        logicalClock.restore(Math.max(postRepository.findMaxLogicalClock(), messageRepository.findMaxLogicalClock()));
+
         log.info("Aguardando um momento para estabilizar registros de peers no Consul antes da eleição...");
         try {
-            Thread.sleep(5000);
+            Thread.sleep(startupSettleMs);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Espera de inicialização interrompida", e);
@@ -74,7 +84,8 @@ public class ApplicationInitializer implements ApplicationListener<ApplicationRe
 
 
         try {
-            serverRepository.save(self);
+            Server saved = serverRepository.save(self);
+            electionService.onServerUpdated(saved);
             log.info("Próprio servidor ({}) registrado/atualizado com sucesso no banco de dados.", selfServerId);
         } catch (Exception e) {
             log.error("Falha ao registrar próprio servidor ({}) localmente: {}", selfServerId, e.getMessage(), e);
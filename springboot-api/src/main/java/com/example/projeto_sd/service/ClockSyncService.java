@@ -216,20 +216,10 @@ public class ClockSyncService {
         long coordinatorTime = System.currentTimeMillis() + timeOffsetMillis;
         peerTimes.put(selfServerId, coordinatorTime);
 
-        long sum = peerTimes.values().stream().mapToLong(Long::longValue).sum();
-        long averageTime = sum / peerTimes.size();
-
-        log.info("[Berkeley] Tempo médio calculado: {}ms", averageTime);
-
-        Map<String, Long> adjustments = new HashMap<>();
-        for (Map.Entry<String, Long> entry : peerTimes.entrySet()) {
-            String serverId = entry.getKey();
-            long serverTime = entry.getValue();
-            long adjustment = averageTime - serverTime;
-
-            adjustments.put(serverId, adjustment);
+        Map<String, Long> adjustments = computeBerkeleyAdjustments(peerTimes);
+        for (Map.Entry<String, Long> entry : adjustments.entrySet()) {
             log.info("[Berkeley] Tempo do servidor {}: {}ms, ajuste: {}ms",
-                    serverId, serverTime, adjustment);
+                    entry.getKey(), peerTimes.get(entry.getKey()), entry.getValue());
         }
 
         long selfAdjustment = adjustments.getOrDefault(selfServerId, 0L);
@@ -246,4 +236,25 @@ public class ClockSyncService {
 
         return adjustments;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Núcleo do algoritmo de Berkeley, sem efeitos colaterais: ajuste de cada servidor
+     * em relação à média dos tempos informados.
+     *
+     * @param times Tempo (ms) de cada servidor, incluindo o coordenador.
+     * @return Ajuste (ms) a aplicar em cada servidor.
+     */
+    static Map<String, Long> computeBerkeleyAdjustments(Map<String, Long> times) {
+        long sum = 0;
+        for (long time : times.values()) {
+            sum += time;
+        }
+        long averageTime = sum / times.size();
+
+        Map<String, Long> adjustments = new HashMap<>(times.size() * 2);
+        for (Map.Entry<String, Long> entry : times.entrySet()) {
+            adjustments.put(entry.getKey(), averageTime - entry.getValue());
+        }
+        return adjustments;
+    }
+}
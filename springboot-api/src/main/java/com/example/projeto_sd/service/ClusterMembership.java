@@ -0,0 +1,224 @@
+package com.example.projeto_sd.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Visão local dos membros do cluster, mantida como um snapshot imutável.
+ * <p>
+ * O snapshot é reconstruído a partir do Consul quando o catalog watch do Spring Cloud Consul
+ * (blocking query sobre o índice do catálogo) publica um {@link HeartbeatEvent}, quando o
+ * HeartbeatService detecta um peer ausente ou desconhecido, e periodicamente como garantia.
+ * As leituras apenas retornam a referência atual: nenhuma chamada ao Consul no caminho de escrita.
+ * Os metadados {@code server-id} e {@code gRPC_port} são interpretados somente aqui.
+ */
+@Component
+@Slf4j
+public class ClusterMembership {
+
+    /**
+     * Membro do cluster com ID e endereço gRPC já normalizados.
+     */
+    public record Peer(String serverId, String host, int port) {
+        public String target() {
+            return host + ":" + port;
+        }
+    }
+
+    /**
+     * Snapshot imutável dos membros ativos (incluindo este nó), ordenados por ID.
+     */
+    public record Snapshot(long version, Instant refreshedAt, List<Peer> members, Map<String, Peer> byServerId) {
+        static final Snapshot EMPTY = new Snapshot(0, Instant.EPOCH, List.of(), Map.of());
+    }
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Value("${spring.application.name}")
+    private String selfServiceName;
+
+    @Value("${server.id}")
+    private String selfServerId;
+
+    @Value("${cluster.membership.refresh.ms:5000}")
+    private long refreshIntervalMs;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    // Serializa as atualizações; a consulta HTTP ao Consul ocorre com o lock retido.
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cluster-membership");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresh();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Mudança no catálogo do Consul (publicada pelo catalog watch).
+     */
+    @EventListener(HeartbeatEvent.class)
+    public void onCatalogChange(HeartbeatEvent event) {
+        requestRefresh();
+    }
+
+    /**
+     * Snapshot atual. Antes da primeira atualização, carrega-o de forma síncrona.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current.version() == 0) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Membros ativos, incluindo este nó.
+     */
+    public List<Peer> getMembers() {
+        return snapshot().members();
+    }
+
+    /**
+     * Membros ativos, exceto este nó.
+     */
+    public List<Peer> getPeers() {
+        List<Peer> members = snapshot().members();
+        List<Peer> peers = new ArrayList<>(members.size());
+        for (Peer peer : members) {
+            if (!peer.serverId().equals(selfServerId)) {
+                peers.add(peer);
+            }
+        }
+        return peers;
+    }
+
+    public Optional<Peer> findPeer(String serverId) {
+        return serverId == null ? Optional.empty() : Optional.ofNullable(snapshot().byServerId().get(serverId));
+    }
+
+    /**
+     * ID do servidor que atende no alvo "host:porta", se conhecido.
+     */
+    public Optional<String> findServerIdByTarget(String target) {
+        for (Peer peer : snapshot().members()) {
+            if (peer.target().equals(target)) {
+                return Optional.of(peer.serverId());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Agenda uma atualização assíncrona; pedidos feitos enquanto uma está pendente são agrupados.
+     */
+    public void requestRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                refresher.execute(() -> {
+                    refreshScheduled.set(false);
+                    refreshQuietly();
+                });
+            } catch (Exception e) {
+                refreshScheduled.set(false);
+                log.debug("[Membership] Não foi possível agendar atualização: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reconstrói o snapshot a partir do Consul (chamada síncrona).
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            doRefresh();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void doRefresh() {
+        List<ServiceInstance> instances = discoveryClient.getInstances(selfServiceName);
+        Map<String, Peer> byServerId = new LinkedHashMap<>();
+        for (ServiceInstance instance : instances) {
+            Peer peer = toPeer(instance);
+            if (peer != null) {
+                byServerId.putIfAbsent(peer.serverId(), peer);
+            }
+        }
+        List<Peer> members = new ArrayList<>(byServerId.values());
+        members.sort((a, b) -> a.serverId().compareTo(b.serverId()));
+
+        Snapshot previous = snapshot;
+        if (previous.version() > 0 && previous.members().equals(members)) {
+            return;
+        }
+        Map<String, Peer> sortedById = new LinkedHashMap<>();
+        members.forEach(peer -> sortedById.put(peer.serverId(), peer));
+        snapshot = new Snapshot(previous.version() + 1, Instant.now(),
+                Collections.unmodifiableList(members), Collections.unmodifiableMap(sortedById));
+        log.info("[Membership] Snapshot {} atualizado: {}", snapshot.version(),
+                members.stream().map(peer -> peer.serverId() + "@" + peer.target()).toList());
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("[Membership] Erro ao atualizar membros do cluster via Consul: {}", e.getMessage());
+        }
+    }
+
+    private Peer toPeer(ServiceInstance instance) {
+        String serverId = instance.getMetadata().get("server-id");
+        String grpcPort = instance.getMetadata().get("gRPC_port");
+        if (serverId == null || serverId.isBlank() || grpcPort == null) {
+            log.warn("[Membership] Ignorando instância {} sem metadados 'server-id'/'gRPC_port'.", instance.getInstanceId());
+            return null;
+        }
+        try {
+            return new Peer(serverId.trim(), instance.getHost(), Integer.parseInt(grpcPort.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("[Membership] Não foi possível converter o metadado gRPC_port ('{}') para a instância {}.", grpcPort, instance.getInstanceId());
+            return null;
+        }
+    }
+}
@@ -3,17 +3,16 @@ package com.example.projeto_sd.service;
 import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.repository.ServerRepository;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.ServiceInstance;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,53 +20,67 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ElectionService {
 
-    @Autowired
-    private DiscoveryClient discoveryClient;
-
+    private final ClusterMembership clusterMembership;
     private final ServerRepository serverRepository;
     private final GrpcClientService grpcClientService;
 
     @Value("${server.id}")
     private String selfServerId;
 
-    @Value("${spring.application.name}")
-    private String selfServiceName;
-
-    @Setter
-    private volatile String currentCoordinatorId = null;
     private volatile boolean electionInProgress = false;
 
+    /**
+     * Descritores do próprio servidor e do coordenador atual, trocados atomicamente a cada
+     * mudança (eleição, anúncio, registro). Escritas e roteamento leem daqui, sem consultar o banco.
+     */
+    private final AtomicReference<ServerDescriptors> descriptors = new AtomicReference<>(ServerDescriptors.EMPTY);
+
+    /**
+     * Visão imutável dos descritores. {@code version} cresce a cada troca; {@code self} e
+     * {@code coordinator} são cópias desanexadas das entidades (não devem ser alteradas),
+     * usadas para roteamento e como associação ao gravar posts e mensagens.
+     */
+    public record ServerDescriptors(long version, Server self, String coordinatorId, Server coordinator) {
+        static final ServerDescriptors EMPTY = new ServerDescriptors(0, null, null, null);
+    }
+
+    // ReentrantLock em vez de synchronized: a eleição faz I/O (Consul, banco, gRPC) com o
+    // lock retido, o que fixaria a carrier thread quando executada em virtual threads.
+    private final ReentrantLock electionLock = new ReentrantLock();
+
     @Transactional
-    public synchronized void startElection() {
+    public void startElection() {
+        electionLock.lock();
+        try {
+            doStartElection();
+        } finally {
+            electionLock.unlock();
+        }
+    }
+
+    private void doStartElection() {
         if (electionInProgress) {
             log.info("Eleição já em andamento, pulando requisição.");
             return;
         }
         electionInProgress = true;
-        log.info("Iniciando processo de eleição para o servidor {} via DiscoveryClient.", selfServerId);
+        log.info("Iniciando processo de eleição para o servidor {} via ClusterMembership.", selfServerId);
 
         try {
-            List<ServiceInstance> activePeers = getActivePeerInstances();
-
-            List<ServiceInstance> higherIdPeers = activePeers.stream()
-                    .filter(instance -> {
-                        String peerServerId = getServerIdFromInstance(instance);
-                        if ("unknown".equals(peerServerId)) {
-                            log.warn("Não foi possível determinar o ID do servidor para a instância {}. Excluindo da verificação de eleição.", instance.getInstanceId());
-                            return false;
-                        }
-                        return peerServerId.compareTo(selfServerId) > 0;
-                    })
+            // Eleições são raras: vale consultar o Consul para decidir com a visão mais recente.
+            clusterMembership.refresh();
+            List<ClusterMembership.Peer> higherIdPeers = clusterMembership.getPeers().stream()
+                    .filter(peer -> peer.serverId().compareTo(selfServerId) > 0)
                     .collect(Collectors.toList());
 
             if (higherIdPeers.isEmpty()) {
-                log.info("Nenhum peer ativo com ID maior encontrado via DiscoveryClient. Servidor {} se declara coordenador.", selfServerId);
+                log.info("Nenhum peer ativo com ID maior encontrado. Servidor {} se declara coordenador.", selfServerId);
                 becomeCoordinator();
             } else {
-                log.info("Encontrados {} servidor(es) ativo(s) com ID maior via DiscoveryClient. Aguardando anúncio do coordenador.", higherIdPeers.size());
+                log.info("Encontrados {} servidor(es) ativo(s) com ID maior. Aguardando anúncio do coordenador.", higherIdPeers.size());
             }
         } catch (Exception e) {
-           log.error("Erro durante o processo de eleição usando DiscoveryClient: {}", e.getMessage(), e);
+           log.error("Erro durante o processo de eleição: {}", e.getMessage(), e);
         } finally {
             electionInProgress = false;
         }
@@ -91,7 +104,8 @@ public class ElectionService {
                 self.setCoordinator(true);
                 self.setActive(true);
                 serverRepository.save(self);
-                this.currentCoordinatorId = selfServerId;
+                Server selfDescriptor = copyOf(self);
+                swap(current -> new ServerDescriptors(current.version() + 1, selfDescriptor, selfServerId, selfDescriptor));
                 log.info("Servidor {} marcado com sucesso como coordenador no banco de dados.", selfServerId);
                 announceToOthers(selfServerId);
             } else {
@@ -99,42 +113,39 @@ public class ElectionService {
             }
         } catch (Exception e) {
             log.error("Falha ao se tornar coordenador: {}", e.getMessage(), e);
-            this.currentCoordinatorId = null;
+            setCurrentCoordinatorId(null);
         }
     }
 
     private void announceToOthers(String coordinatorId) {
-        List<ServiceInstance> activePeers = getActivePeerInstances();
-        log.info("Anunciando coordenador {} para {} outros servidores ativos encontrados via DiscoveryClient.", coordinatorId, activePeers.size());
-
-        for (ServiceInstance targetInstance : activePeers) {
-            String targetHost = targetInstance.getHost();
-            int targetPort = getGrpcPortFromInstance(targetInstance);
-            String targetServerId = getServerIdFromInstance(targetInstance);
-
-            if (targetPort != -1 && !"unknown".equals(targetServerId)) {
-                if (!targetServerId.equals(selfServerId)) {
-                    log.debug("Anunciando coordenador {} para o servidor {} em {}:{}", coordinatorId, targetServerId, targetHost, targetPort);
-                    try {
-                        grpcClientService.announceCoordinatorToPeer(targetHost, targetPort, coordinatorId);
-                    } catch (Exception e) {
-                        log.warn("Falha ao anunciar coordenador para o servidor {} (InstanceId: {} em {}:{}): {}", 
-                                 targetServerId, targetInstance.getInstanceId(), targetHost, targetPort, e.getMessage());
-                    }
-                } else {
-                    log.debug("Pulando anúncio para si mesmo ({})", selfServerId);
-                }
-            } else {
-                 log.warn("Pulando anúncio para instância {} pois não foi possível obter ID do servidor ou porta gRPC dos metadados.", targetInstance.getInstanceId());
+        List<ClusterMembership.Peer> activePeers = clusterMembership.getPeers();
+        log.info("Anunciando coordenador {} para {} outros servidores ativos.", coordinatorId, activePeers.size());
+
+        for (ClusterMembership.Peer peer : activePeers) {
+            log.debug("Anunciando coordenador {} para o servidor {} em {}:{}", coordinatorId, peer.serverId(), peer.host(), peer.port());
+            try {
+                grpcClientService.announceCoordinatorToPeer(peer.host(), peer.port(), coordinatorId);
+            } catch (Exception e) {
+                log.warn("Falha ao anunciar coordenador para o servidor {} em {}:{}: {}",
+                         peer.serverId(), peer.host(), peer.port(), e.getMessage());
             }
         }
     }
     
     @Transactional
-    public synchronized void processCoordinatorAnnouncement(String announcedCoordinatorId) {
+    public void processCoordinatorAnnouncement(String announcedCoordinatorId) {
+        electionLock.lock();
+        try {
+            doProcessCoordinatorAnnouncement(announcedCoordinatorId);
+        } finally {
+            electionLock.unlock();
+        }
+    }
+
+    private void doProcessCoordinatorAnnouncement(String announcedCoordinatorId) {
         log.info("Processando anúncio de coordenador: {} é o novo coordenador.", announcedCoordinatorId);
 
-        if (announcedCoordinatorId.equals(this.currentCoordinatorId)) {
+        if (announcedCoordinatorId.equals(getCurrentCoordinatorId())) {
             log.debug("Anúncio para o coordenador já conhecido ({}), nenhuma ação necessária.", announcedCoordinatorId);
             return;
         }
@@ -147,23 +158,17 @@ public class ElectionService {
             newCoordinatorServerEntity = new Server();
             newCoordinatorServerEntity.setId(announcedCoordinatorId);
             newCoordinatorServerEntity.setServerName(announcedCoordinatorId);
-            Optional<ServiceInstance> coordinatorInstanceOpt = getActivePeerInstances().stream()
-                    .filter(instance -> announcedCoordinatorId.equals(getServerIdFromInstance(instance)))
-                    .findFirst();
-
-            if (coordinatorInstanceOpt.isPresent()) {
-                ServiceInstance coordinatorInstance = coordinatorInstanceOpt.get();
-                newCoordinatorServerEntity.setHost(coordinatorInstance.getHost());
-                int grpcPort = getGrpcPortFromInstance(coordinatorInstance);
-                if (grpcPort != -1) {
-                    newCoordinatorServerEntity.setPort(grpcPort);
-                } else {
-                    log.warn("Não foi possível obter a porta gRPC para o novo coordenador {} a partir dos metadados da instância {}. A porta não será definida.", announcedCoordinatorId, coordinatorInstance.getInstanceId());
-                }
-                log.info("Detalhes para o novo coordenador {} (Host: {}, Port: {}) obtidos via DiscoveryClient e serão usados para a nova entrada no BD.", 
+            Optional<ClusterMembership.Peer> coordinatorPeerOpt = clusterMembership.findPeer(announcedCoordinatorId);
+
+            if (coordinatorPeerOpt.isPresent()) {
+                ClusterMembership.Peer coordinatorPeer = coordinatorPeerOpt.get();
+                newCoordinatorServerEntity.setHost(coordinatorPeer.host());
+                newCoordinatorServerEntity.setPort(coordinatorPeer.port());
+                log.info("Detalhes para o novo coordenador {} (Host: {}, Port: {}) obtidos via ClusterMembership e serão usados para a nova entrada no BD.", 
                          announcedCoordinatorId, newCoordinatorServerEntity.getHost(), newCoordinatorServerEntity.getPort());
             } else {
-                log.warn("Não foi possível encontrar a instância do novo coordenador {} via DiscoveryClient para obter host/porta. A entrada será criada com informações limitadas.", announcedCoordinatorId);
+                log.warn("Não foi possível encontrar o novo coordenador {} no ClusterMembership para obter host/porta. A entrada será criada com informações limitadas.", announcedCoordinatorId);
+                clusterMembership.requestRefresh();
             }
         } else {
             newCoordinatorServerEntity = newCoordinatorOpt.get();
@@ -175,7 +180,7 @@ public class ElectionService {
         }
 
 
-        if (selfServerId.equals(this.currentCoordinatorId)) {
+        if (isCoordinator()) {
             log.info("Recebido anúncio para {}, mas eu ({}) pensava ser o coordenador. Rebaixando-me.", announcedCoordinatorId, selfServerId);
             demoteSelf(); 
         }
@@ -193,8 +198,9 @@ public class ElectionService {
             newCoordinatorServerEntity.setCoordinator(true);
         }
         serverRepository.save(newCoordinatorServerEntity);
-        
-        this.currentCoordinatorId = announcedCoordinatorId;
+
+        Server coordinatorDescriptor = copyOf(newCoordinatorServerEntity);
+        swap(current -> new ServerDescriptors(current.version() + 1, current.self(), announcedCoordinatorId, coordinatorDescriptor));
         log.info("Estado local atualizado com sucesso: {} é o coordenador.", announcedCoordinatorId);
 
         if (electionInProgress) {
@@ -212,61 +218,106 @@ public class ElectionService {
                 log.info("Servidor {} rebaixou a si mesmo com sucesso.", selfServerId);
             }
         });
-        if (selfServerId.equals(this.currentCoordinatorId)) {
-             this.currentCoordinatorId = null;
-        }
+        swap(current -> selfServerId.equals(current.coordinatorId())
+                ? new ServerDescriptors(current.version() + 1, current.self(), null, null)
+                : current);
     }
 
     public String getCurrentCoordinatorId() {
-        return currentCoordinatorId;
+        return descriptors.get().coordinatorId();
+    }
+
+    /**
+     * Define o coordenador conhecido sem eleição (coordenador já marcado no banco na inicialização,
+     * ou null quando ele some). O descritor é lido do banco uma vez, nesta troca.
+     */
+    public void setCurrentCoordinatorId(String coordinatorId) {
+        Server coordinatorDescriptor = coordinatorId == null ? null
+                : serverRepository.findById(coordinatorId).map(ElectionService::copyOf).orElse(null);
+        swap(current -> new ServerDescriptors(current.version() + 1, current.self(), coordinatorId, coordinatorDescriptor));
     }
 
     public boolean isCurrentNodeCoordinator() {
-        return selfServerId.equals(this.currentCoordinatorId);
+        return selfServerId.equals(getCurrentCoordinatorId());
     }
 
     public boolean isCoordinator() {
-        return selfServerId.equals(currentCoordinatorId);
+        return selfServerId.equals(getCurrentCoordinatorId());
     }
 
     public Optional<String> getCoordinatorId() {
-        return Optional.ofNullable(this.currentCoordinatorId);
+        return Optional.ofNullable(getCurrentCoordinatorId());
+    }
+
+    /**
+     * Descritores atuais (próprio servidor e coordenador) com a versão da troca.
+     */
+    public ServerDescriptors getDescriptors() {
+        return descriptors.get();
     }
 
     public Optional<Server> getCoordinatorServerDetails(String coordinatorServerId) {
-        if (coordinatorServerId == null) {
-            return Optional.empty();
-        }
-        return serverRepository.findById(coordinatorServerId);
+        return findServerDescriptor(coordinatorServerId);
     }
 
-    private List<ServiceInstance> getActivePeerInstances() {
-        List<ServiceInstance> instances = discoveryClient.getInstances(selfServiceName);
-        log.debug("Encontradas {} instâncias via DiscoveryClient para o serviço {}", instances.size(), selfServiceName);
-        return instances.stream()
-                .collect(Collectors.toList());
+    /**
+     * Descritor do próprio servidor, para gravar a origem de posts e mensagens.
+     * Lido do banco apenas até o primeiro carregamento.
+     */
+    public Optional<Server> getSelfServer() {
+        Server self = descriptors.get().self();
+        if (self != null) {
+            return Optional.of(self);
+        }
+        Optional<Server> loaded = serverRepository.findById(selfServerId).map(ElectionService::copyOf);
+        loaded.ifPresent(this::onServerUpdated);
+        return loaded;
     }
 
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        String grpcPortStr = instance.getMetadata().get("gRPC_port");
-        if (grpcPortStr == null) {
-             log.warn("Metadado 'gRPC_port' não encontrado para a instância {}.", instance.getInstanceId());
-             return -1;
+    /**
+     * Descritor de um servidor: o próprio ou o coordenador vêm da memória; outros, do banco.
+     */
+    public Optional<Server> findServerDescriptor(String serverId) {
+        if (serverId == null) {
+            return Optional.empty();
         }
-        try {
-            return Integer.parseInt(grpcPortStr);
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadata gRPC_port ('{}') para a instância {}. Erro: {}", grpcPortStr, instance.getInstanceId(), e.getMessage());
-            return -1;
+        ServerDescriptors current = descriptors.get();
+        if (current.self() != null && serverId.equals(current.self().getId())) {
+            return Optional.of(current.self());
+        }
+        if (current.coordinator() != null && serverId.equals(current.coordinatorId())) {
+            return Optional.of(current.coordinator());
         }
+        return serverRepository.findById(serverId).map(ElectionService::copyOf);
     }
 
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        String serverId = instance.getMetadata().get("server-id");
-        if (serverId == null || serverId.trim().isEmpty()) {
-             log.warn("Não foi possível encontrar ou metadado 'server-id' está vazio para a instância {}.", instance.getInstanceId());
-             return "unknown";
-        }
-        return serverId.trim();
+    /**
+     * Atualiza os descritores após gravar um servidor (registro do próprio nó ou de um peer),
+     * se ele for o próprio servidor ou o coordenador atual.
+     */
+    public void onServerUpdated(Server server) {
+        Server descriptor = copyOf(server);
+        swap(current -> {
+            boolean isSelf = selfServerId.equals(descriptor.getId());
+            boolean isCoordinator = descriptor.getId().equals(current.coordinatorId());
+            if (!isSelf && !isCoordinator) {
+                return current;
+            }
+            return new ServerDescriptors(current.version() + 1,
+                    isSelf ? descriptor : current.self(),
+                    current.coordinatorId(),
+                    isCoordinator ? descriptor : current.coordinator());
+        });
+    }
+
+    private void swap(UnaryOperator<ServerDescriptors> update) {
+        ServerDescriptors updated = descriptors.updateAndGet(update);
+        log.debug("Descritores de servidor na versão {} (coordenador: {}).", updated.version(), updated.coordinatorId());
+    }
+
+    private static Server copyOf(Server server) {
+        return new Server(server.getId(), server.getServerName(), server.getHost(), server.getPort(),
+                server.isActive(), server.isCoordinator(), server.getCreatedAt(), server.getUpdatedAt(),
+                server.getLastHeartbeatReceived());
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,388 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.dto.user.UserResponseDTO;
+import com.example.projeto_sd.repository.FollowRepository;
+import com.example.projeto_sd.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice em memória do grafo de seguidores.
+ * <p>
+ * Cada usuário recebe um handle inteiro; as listas de adjacência (seguidores e seguidos) são
+ * arrays ordenados de handles, gravados como deltas em varint. O índice é carregado do banco
+ * quando a aplicação fica pronta e atualizado após o commit de cada follow/unfollow/usuário
+ * (locais ou replicados). Antes do carregamento, as consultas caem no banco.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FollowGraphIndex {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FollowRepository followRepository;
+    private final UserRepository userRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Estado protegido por lock
+    private final Map<String, Integer> handles = new HashMap<>();
+    private String[] userIds = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private byte[][] followersOf = new byte[INITIAL_CAPACITY][];
+    private byte[][] followingOf = new byte[INITIAL_CAPACITY][];
+    private int[] followerCounts = new int[INITIAL_CAPACITY];
+    private int[] followingCounts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            // A carga segura o write lock: atualizações pós-commit concorrentes esperam e,
+            // por serem idempotentes, reaplicá-las sobre o snapshot carregado é seguro.
+            clear();
+            for (UserResponseDTO user : userRepository.findAllSummaries()) {
+                intern(user.getId(), user.getName());
+            }
+            List<Object[]> edges = followRepository.findAllEdges();
+            buildAdjacency(edges);
+            ready = true;
+            log.info("[FollowGraph] Índice carregado: {} usuários, {} relações em {} ms.",
+                    size, edges.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("[FollowGraph] Falha ao carregar índice; consultas continuarão no banco: {}", e.getMessage(), e);
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * IDs dos seguidores do usuário. Usa o banco enquanto o índice não está carregado.
+     */
+    public List<String> getFollowerIds(String userId) {
+        if (!ready) {
+            return followRepository.findFollowerIdsByFollowedId(userId);
+        }
+        lock.readLock().lock();
+        try {
+            Integer handle = handles.get(userId);
+            return handle == null ? List.of() : toIds(followersOf[handle], followerCounts[handle]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seguidores (ID e nome) do usuário, ou null se o índice ainda não foi carregado.
+     */
+    public List<UserResponseDTO> findFollowers(String userId) {
+        return ready ? neighbours(userId, true) : null;
+    }
+
+    /**
+     * Usuários seguidos (ID e nome), ou null se o índice ainda não foi carregado.
+     */
+    public List<UserResponseDTO> findFollowing(String userId) {
+        return ready ? neighbours(userId, false) : null;
+    }
+
+    public boolean containsUser(String userId) {
+        lock.readLock().lock();
+        try {
+            return handles.containsKey(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra um usuário recém-criado após o commit da transação corrente.
+     */
+    public void onUserCreated(String userId, String name) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                intern(userId, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Adiciona a aresta seguidor -> seguido após o commit da transação corrente.
+     */
+    public void onFollow(String followerId, String followedId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                int follower = intern(followerId, null);
+                int followed = intern(followedId, null);
+                byte[] updatedFollowing = insert(followingOf[follower], followingCounts[follower], followed);
+                if (updatedFollowing != null) {
+                    followingOf[follower] = updatedFollowing;
+                    followingCounts[follower]++;
+                }
+                byte[] updatedFollowers = insert(followersOf[followed], followerCounts[followed], follower);
+                if (updatedFollowers != null) {
+                    followersOf[followed] = updatedFollowers;
+                    followerCounts[followed]++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove a aresta seguidor -> seguido após o commit da transação corrente.
+     */
+    public void onUnfollow(String followerId, String followedId) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Integer follower = handles.get(followerId);
+                Integer followed = handles.get(followedId);
+                if (follower == null || followed == null) {
+                    return;
+                }
+                byte[] updatedFollowing = remove(followingOf[follower], followingCounts[follower], followed);
+                if (updatedFollowing != null) {
+                    followingOf[follower] = updatedFollowing;
+                    followingCounts[follower]--;
+                }
+                byte[] updatedFollowers = remove(followersOf[followed], followerCounts[followed], follower);
+                if (updatedFollowers != null) {
+                    followersOf[followed] = updatedFollowers;
+                    followerCounts[followed]--;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private List<UserResponseDTO> neighbours(String userId, boolean followers) {
+        lock.readLock().lock();
+        try {
+            Integer handle = handles.get(userId);
+            if (handle == null) {
+                return List.of();
+            }
+            int[] adjacent = followers
+                    ? decode(followersOf[handle], followerCounts[handle])
+                    : decode(followingOf[handle], followingCounts[handle]);
+            List<UserResponseDTO> result = new ArrayList<>(adjacent.length);
+            for (int other : adjacent) {
+                result.add(new UserResponseDTO(userIds[other], names[other]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> toIds(byte[] encoded, int count) {
+        int[] adjacent = decode(encoded, count);
+        List<String> result = new ArrayList<>(adjacent.length);
+        for (int other : adjacent) {
+            result.add(userIds[other]);
+        }
+        return result;
+    }
+
+    private int intern(String userId, String name) {
+        Integer existing = handles.get(userId);
+        if (existing != null) {
+            if (name != null) {
+                names[existing] = name;
+            }
+            return existing;
+        }
+        if (size == userIds.length) {
+            int capacity = size * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            followersOf = Arrays.copyOf(followersOf, capacity);
+            followingOf = Arrays.copyOf(followingOf, capacity);
+            followerCounts = Arrays.copyOf(followerCounts, capacity);
+            followingCounts = Arrays.copyOf(followingCounts, capacity);
+        }
+        int handle = size++;
+        userIds[handle] = userId;
+        names[handle] = name;
+        followersOf[handle] = EMPTY;
+        followingOf[handle] = EMPTY;
+        handles.put(userId, handle);
+        return handle;
+    }
+
+    /**
+     * Monta as adjacências em formato CSR (contagem, preenchimento, ordenação por segmento)
+     * e só então as comprime, evitando reinserções uma a uma na carga.
+     */
+    private void buildAdjacency(List<Object[]> edges) {
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            from[i] = intern((String) edges.get(i)[0], null);
+            to[i] = intern((String) edges.get(i)[1], null);
+        }
+        encodeAll(from, to, followingOf, followingCounts);
+        encodeAll(to, from, followersOf, followerCounts);
+    }
+
+    private void encodeAll(int[] source, int[] target, byte[][] adjacency, int[] counts) {
+        int[] offsets = new int[size + 1];
+        for (int s : source) {
+            offsets[s + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursor = Arrays.copyOf(offsets, size);
+        int[] flat = new int[source.length];
+        for (int i = 0; i < source.length; i++) {
+            flat[cursor[source[i]]++] = target[i];
+        }
+        for (int handle = 0; handle < size; handle++) {
+            int begin = offsets[handle];
+            int end = offsets[handle + 1];
+            Arrays.sort(flat, begin, end);
+            int[] distinct = distinct(flat, begin, end);
+            adjacency[handle] = encode(distinct, distinct.length);
+            counts[handle] = distinct.length;
+        }
+    }
+
+    private void clear() {
+        ready = false;
+        handles.clear();
+        userIds = new String[INITIAL_CAPACITY];
+        names = new String[INITIAL_CAPACITY];
+        followersOf = new byte[INITIAL_CAPACITY][];
+        followingOf = new byte[INITIAL_CAPACITY][];
+        followerCounts = new int[INITIAL_CAPACITY];
+        followingCounts = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ---- Codificação: handles ordenados, gravados como deltas em varint ----
+
+    private static int[] distinct(int[] sorted, int begin, int end) {
+        int[] result = new int[end - begin];
+        int n = 0;
+        for (int i = begin; i < end; i++) {
+            if (n == 0 || result[n - 1] != sorted[i]) {
+                result[n++] = sorted[i];
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    static byte[] encode(int[] sorted, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        byte[] buffer = new byte[count * 5];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = sorted[i] - previous;
+            previous = sorted[i];
+            while ((delta & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[position++] = (byte) delta;
+        }
+        return Arrays.copyOf(buffer, position);
+    }
+
+    static int[] decode(byte[] encoded, int count) {
+        int[] result = new int[count];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += delta;
+            result[i] = previous;
+        }
+        return result;
+    }
+
+    /**
+     * Retorna a lista com o valor inserido, ou null se ele já estava presente.
+     */
+    static byte[] insert(byte[] encoded, int count, int value) {
+        int[] values = decode(encoded, count);
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return null;
+        }
+        int insertAt = -index - 1;
+        int[] updated = new int[count + 1];
+        System.arraycopy(values, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(values, insertAt, updated, insertAt + 1, count - insertAt);
+        return encode(updated, updated.length);
+    }
+
+    /**
+     * Retorna a lista sem o valor, ou null se ele não estava presente.
+     */
+    static byte[] remove(byte[] encoded, int count, int value) {
+        int[] values = decode(encoded, count);
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return null;
+        }
+        int[] updated = new int[count - 1];
+        System.arraycopy(values, 0, updated, 0, index);
+        System.arraycopy(values, index + 1, updated, index, count - index - 1);
+        return encode(updated, updated.length);
+    }
+}
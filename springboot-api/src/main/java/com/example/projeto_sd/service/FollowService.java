@@ -2,10 +2,11 @@ package com.example.projeto_sd.service;
 
 import com.example.projeto_sd.dto.user.UserResponseDTO;
 import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.grpc.ServerCommsProto.FollowRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
 import com.example.projeto_sd.model.Follow;
 import com.example.projeto_sd.model.User;
 import com.example.projeto_sd.repository.FollowRepository;
-import com.example.projeto_sd.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
@@ -14,7 +15,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,25 +23,51 @@ import java.util.stream.Collectors;
 public class FollowService {
 
     private final FollowRepository followRepository;
-    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final TimelineService timelineService;
+    private final FollowGraphIndex followGraphIndex;
+    private final IdGenerator idGenerator;
+    private final ReplicationDispatcher replicationDispatcher;
 
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long RETRY_DELAY_MS = 200; // 200 milissegundos
 
     /**
-     * Cria a relação de seguir (APENAS LOCALMENTE).
-     * A lógica distribuída será tratada no ServerServiceImpl.
-     * Adicionada lógica de retry para UserNotFoundException.
+     * (Coordenador) Cria a relação de seguir e grava a replicação no outbox na mesma transação.
+     * Se a relação já existia, nada é replicado.
      */
     @Transactional
     public void followUser(String followerId, String followedId) {
+        if (createFollow(followerId, followedId)) {
+            log.info("Coordenador iniciando replicação para SEGUIR: {} -> {}", followerId, followedId);
+            FollowRequest follow = FollowRequest.newBuilder().setFollowerId(followerId).setFollowedId(followedId).build();
+            replicationDispatcher.replicate("Follow", followerId + "->" + followedId,
+                    ReplicationEnvelope.newBuilder().setFollow(follow).build());
+        }
+    }
+
+    /**
+     * (Seguidor) Aplica uma relação de seguir recebida por replicação (APENAS LOCALMENTE).
+     */
+    @Transactional
+    public void saveReplicatedFollow(String followerId, String followedId) {
+        createFollow(followerId, followedId);
+    }
+
+    /**
+     * Cria a relação de seguir localmente.
+     * Adicionada lógica de retry para UserNotFoundException.
+     *
+     * @return false se a relação já existia
+     */
+    private boolean createFollow(String followerId, String followedId) {
         log.info("[EXECUÇÃO LOCAL] Tentando seguir: {} -> {}", followerId, followedId);
 
         for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS; attempt++) {
             try {
-                User follower = userRepository.findById(followerId)
+                User follower = userCache.getReference(followerId)
                         .orElseThrow(() -> new UserNotFoundException("Usuário seguidor não encontrado com ID: " + followerId));
-                User followed = userRepository.findById(followedId)
+                User followed = userCache.getReference(followedId)
                         .orElseThrow(() -> new UserNotFoundException("Usuário seguido não encontrado com ID: " + followedId));
 
                 if (followerId.equals(followedId)) {
@@ -51,16 +77,18 @@ public class FollowService {
 
                 if (followRepository.existsByFollowerIdAndFollowedId(followerId, followedId)) {
                     log.info("[EXECUÇÃO LOCAL] Relação de seguir {} -> {} já existe. Pulando salvamento.", followerId, followedId);
-                    return;
+                    return false;
                 }
 
                 Follow newFollow = new Follow();
-                newFollow.setId(UUID.randomUUID().toString());
+                newFollow.setId(idGenerator.newId());
                 newFollow.setFollower(follower);
                 newFollow.setFollowed(followed);
                 followRepository.save(newFollow);
+                timelineService.onFollow(followerId, followedId);
+                followGraphIndex.onFollow(followerId, followedId);
                 log.info("[EXECUÇÃO LOCAL] Relação de seguir criada com sucesso na tentativa {}: {} -> {}", attempt + 1, followerId, followedId);
-                return;
+                return true;
             } catch (UserNotFoundException e) {
                 log.warn("[Tentativa {}/{}] Falha ao seguir {} -> {}: {}. Tentando novamente em {}ms...",
                         attempt + 1, MAX_RETRY_ATTEMPTS, followerId, followedId, e.getMessage(), RETRY_DELAY_MS);
@@ -79,27 +107,50 @@ public class FollowService {
                 }
             }
         }
+        throw new IllegalStateException("Tentativas de seguir esgotadas: " + followerId + " -> " + followedId);
     }
 
     /**
-     * Remove a relação de seguir (APENAS LOCALMENTE).
-     * A lógica distribuída será tratada no ServerServiceImpl.
+     * (Coordenador) Remove a relação de seguir e grava a replicação no outbox na mesma transação.
      */
     @Transactional
     public void unfollowUser(String followerId, String followedId) {
+        deleteFollow(followerId, followedId);
+        log.info("Coordenador iniciando replicação para DEIXAR DE SEGUIR: {} -> {}", followerId, followedId);
+        FollowRequest unfollow = FollowRequest.newBuilder().setFollowerId(followerId).setFollowedId(followedId).build();
+        replicationDispatcher.replicate("Unfollow", followerId + "->" + followedId,
+                ReplicationEnvelope.newBuilder().setUnfollow(unfollow).build());
+    }
+
+    /**
+     * (Seguidor) Remove uma relação de seguir recebida por replicação (APENAS LOCALMENTE).
+     */
+    @Transactional
+    public void deleteReplicatedFollow(String followerId, String followedId) {
+        deleteFollow(followerId, followedId);
+    }
+
+    private void deleteFollow(String followerId, String followedId) {
         log.info("[EXECUÇÃO LOCAL] Tentando deixar de seguir: {} deixa de seguir {}", followerId, followedId);
 
         followRepository.deleteByFollowerIdAndFollowedId(followerId, followedId);
+        timelineService.onUnfollow(followerId, followedId);
+        followGraphIndex.onUnfollow(followerId, followedId);
         log.info("[EXECUÇÃO LOCAL] Processado com sucesso deixar de seguir (tentativa de delete): {} deixou de seguir {}", followerId, followedId);
     }
 
     @Transactional(readOnly = true)
     public List<UserResponseDTO> getFollowers(String userId) {
         log.info("Buscando seguidores para o usuário ID: {}", userId);
-        if (!userRepository.existsById(userId)) {
+        if (!userExists(userId)) {
             log.warn("Não é possível obter seguidores: Usuário não encontrado com ID: {}", userId);
             throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
         }
+        List<UserResponseDTO> indexed = followGraphIndex.findFollowers(userId);
+        if (indexed != null) {
+            log.info("Encontrados {} seguidores para o usuário ID: {} (índice em memória)", indexed.size(), userId);
+            return indexed;
+        }
         List<Follow> follows = followRepository.findByFollowedId(userId, Pageable.unpaged()).getContent();
         if (follows.isEmpty()) return Collections.emptyList();
         List<UserResponseDTO> followers = follows.stream()
@@ -112,10 +163,15 @@ public class FollowService {
     @Transactional(readOnly = true)
     public List<UserResponseDTO> getFollowing(String userId) {
         log.info("Buscando usuários seguidos pelo usuário ID: {}", userId);
-        if (!userRepository.existsById(userId)) {
+        if (!userExists(userId)) {
             log.warn("Não é possível obter quem segue: Usuário não encontrado com ID: {}", userId);
             throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
         }
+        List<UserResponseDTO> indexed = followGraphIndex.findFollowing(userId);
+        if (indexed != null) {
+            log.info("Usuário ID: {} está seguindo {} usuários (índice em memória).", userId, indexed.size());
+            return indexed;
+        }
         List<Follow> follows = followRepository.findByFollowerId(userId, Pageable.unpaged()).getContent();
         if (follows.isEmpty()) return Collections.emptyList();
         List<UserResponseDTO> following = follows.stream()
@@ -124,4 +180,8 @@ public class FollowService {
         log.info("Usuário ID: {} está seguindo {} usuários.", userId, following.size());
         return following;
     }
-} 
\ No newline at end of file
+
+    private boolean userExists(String userId) {
+        return followGraphIndex.isReady() ? followGraphIndex.containsUser(userId) : userCache.exists(userId);
+    }
+}
@@ -2,23 +2,54 @@ package com.example.projeto_sd.service;
 
 import com.example.projeto_sd.grpc.ServerCommsProto.*;
 import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.grpc.ClientMetricsInterceptor;
+import com.example.projeto_sd.grpc.PeerCallGuard;
 import com.example.projeto_sd.grpc.ServerServiceGrpc;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.Iterator;
 import java.util.List;
 
 @Service
 @Slf4j
 public class GrpcClientService {
 
+    @Autowired
+    private ClientMetricsInterceptor clientMetricsInterceptor;
+
+    @Autowired
+    private PeerCallGuard peerCallGuard;
+
+    // Espera base antes do único retry de uma chamada idempotente (com jitter de até 100%)
+    @Value("${grpc.client.retry.backoff.ms:50}")
+    private long retryBackoffMs;
+
+    // Canais in-process (alvo "host:porta" como nome do servidor); usado pelo harness de cluster em uma JVM
+    @Value("${grpc.client.in-process:false}")
+    private boolean inProcess;
+
+    // Keepalive HTTP/2 dos canais TCP: detecta uma conexão meio-aberta com o peer (ex.: coordenador
+    // que caiu sem fechar o socket) sem esperar o deadline de cada escrita encaminhada pelo stream
+    @Value("${grpc.client.keepalive.time.ms:20000}")
+    private long keepAliveTimeMs;
+
+    @Value("${grpc.client.keepalive.timeout.ms:5000}")
+    private long keepAliveTimeoutMs;
 
     private final ConcurrentMap<String, ServerServiceGrpc.ServerServiceBlockingStub> stubs = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, ManagedChannel> channels = new ConcurrentHashMap<>();
@@ -32,12 +63,8 @@ public class GrpcClientService {
      */
     private ServerServiceGrpc.ServerServiceBlockingStub getStub(String target) {
         return stubs.computeIfAbsent(target, key -> {
-            log.debug("Criando novo canal gRPC e stub para o alvo: {}", key);
-            ManagedChannel channel = ManagedChannelBuilder.forTarget(key)
-                    .usePlaintext()  
-                    .build();
-            channels.put(key, channel);
-            return ServerServiceGrpc.newBlockingStub(channel);
+            log.debug("Criando novo stub gRPC para o alvo: {}", key);
+            return ServerServiceGrpc.newBlockingStub(getChannel(key));
         });
     }
 
@@ -69,24 +96,6 @@ public class GrpcClientService {
 
     // --- Métodos RPC ---
 
-    /**
-     * Envia solicitação de registro/atualização para um peer.
-     */
-    public ServerRegistrationResponse registerWithServer(String peerHost, int peerPort, ServerInfo selfInfo) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        try {
-            log.debug("Enviando requisição de registro para {}", target);
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).registerOrUpdateRemoteServer(selfInfo);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar registerOrUpdateRemoteServer em {}: Status={}", target, e.getStatus(), e);
-            return ServerRegistrationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar registerOrUpdateRemoteServer em {}: {}", target, e.getMessage(), e);
-             return ServerRegistrationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
     /**
      * Anuncia o coordenador para um peer.
      */
@@ -96,7 +105,7 @@ public class GrpcClientService {
         CoordinatorAnnouncement request = CoordinatorAnnouncement.newBuilder().setCoordinatorId(coordinatorId).build();
         try {
             log.debug("Anunciando coordenador {} para o peer {}", coordinatorId, target);
-            stub.withDeadlineAfter(5, TimeUnit.SECONDS).announceCoordinator(request);
+            withRetry(target, () -> stub.withDeadlineAfter(5, TimeUnit.SECONDS).announceCoordinator(request));
             log.info("Coordenador {} anunciado com sucesso para o peer {}", coordinatorId, target);
         } catch (StatusRuntimeException e) {
             log.error("Falha ao anunciar coordenador {} para o peer {}: Status={}", coordinatorId, target, e.getStatus(), e);
@@ -162,134 +171,6 @@ public class GrpcClientService {
         }
     }
 
-    /**
-     * Chama o RPC createUserRPC em um servidor remoto (espera-se que seja o líder).
-     */
-    public UserResponse createUserOnLeader(String target, String name) {
-        log.debug("Enviando requisição createUserRPC para {} para o nome de usuário: {}", target, name);
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        CreateUserRequest request = CreateUserRequest.newBuilder()
-                .setName(name)
-                .build();
-        try {
-            UserResponse response = stub.withDeadlineAfter(5, TimeUnit.SECONDS).createUserRPC(request);
-            log.debug("Resposta recebida de createUserRPC em {}: sucesso={}", target, response != null);
-            return response;
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar createUserRPC em {}: Status={} - {}", target, e.getStatus(), e.getStatus().getDescription(), e);
-            return null;
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar createUserRPC em {}: {}", target, e.getMessage(), e);
-            return null;
-        }
-    }
-
-    /**
-     * Chama o RPC replicateUserCreation em um peer para replicar dados de usuário.
-     */
-    public ReplicationResponse replicateUserCreationToPeer(String peerHost, int peerPort, UserInfo userInfo) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        log.debug("Enviando requisição replicateUserCreation para {} para o ID de usuário: {}", target, userInfo.getId());
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateUserCreation(userInfo);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar replicateUserCreation em {}: Status={}", target, e.getStatus(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar replicateUserCreation em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
-    // --- Novos Métodos RPC para Follow/Unfollow ---
-
-    /**
-     * Chama o RPC FollowUserRPC no líder.
-     */
-    public ReplicationResponse followUserOnLeader(String target, String followerId, String followedId) {
-        log.debug("Enviando requisição FollowUserRPC para {} para seguidor={}, seguido={}", target, followerId, followedId);
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        FollowRequest request = FollowRequest.newBuilder()
-                .setFollowerId(followerId)
-                .setFollowedId(followedId)
-                .build();
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).followUserRPC(request);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar FollowUserRPC em {}: Status={} - {}", target, e.getStatus(), e.getStatus().getDescription(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar FollowUserRPC em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
-    /**
-     * Chama o RPC UnfollowUserRPC no líder.
-     */
-    public ReplicationResponse unfollowUserOnLeader(String target, String followerId, String followedId) {
-        log.debug("Enviando requisição UnfollowUserRPC para {} para seguidor={}, seguido={}", target, followerId, followedId);
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        FollowRequest request = FollowRequest.newBuilder()
-                .setFollowerId(followerId)
-                .setFollowedId(followedId)
-                .build();
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).unfollowUserRPC(request);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar UnfollowUserRPC em {}: Status={} - {}", target, e.getStatus(), e.getStatus().getDescription(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar UnfollowUserRPC em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
-    /**
-     * Chama o RPC ReplicateFollow em um peer.
-     */
-    public ReplicationResponse replicateFollowToPeer(String peerHost, int peerPort, String followerId, String followedId) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        FollowRequest request = FollowRequest.newBuilder()
-                .setFollowerId(followerId)
-                .setFollowedId(followedId)
-                .build();
-        log.debug("Enviando requisição ReplicateFollow para {} para {} -> {}", target, followerId, followedId);
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateFollow(request);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar ReplicateFollow em {}: Status={}", target, e.getStatus(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar ReplicateFollow em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
-    /**
-     * Chama o RPC ReplicateUnfollow em um peer.
-     */
-    public ReplicationResponse replicateUnfollowToPeer(String peerHost, int peerPort, String followerId, String followedId) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        FollowRequest request = FollowRequest.newBuilder()
-                .setFollowerId(followerId)
-                .setFollowedId(followedId)
-                .build();
-        log.debug("Enviando requisição ReplicateUnfollow para {} para {} deixar de seguir {}", target, followerId, followedId);
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateUnfollow(request);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar ReplicateUnfollow em {}: Status={}", target, e.getStatus(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar ReplicateUnfollow em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
-    }
-
     // --- Métodos de Encaminhamento para o Coordenador ---
 
     /**
@@ -357,7 +238,7 @@ public class GrpcClientService {
         return stub.withDeadlineAfter(10, TimeUnit.SECONDS).unfollowUserRPC(request);
     }
 
-    // ----- Métodos de Encaminhamento e Replicação para Posts -----
+    // ----- Métodos de Encaminhamento para Posts -----
 
     /**
      * Encaminha a chamada createPostRPC para o servidor coordenador especificado.
@@ -375,32 +256,7 @@ public class GrpcClientService {
         return stub.withDeadlineAfter(10, TimeUnit.SECONDS).createPostRPC(protoRequest);
     }
 
-    /**
-     * Chama o RPC ReplicatePostCreation em um peer.
-     *
-     * @param peerHost Host do peer.
-     * @param peerPort Porta gRPC do peer.
-     * @param postInfo Os dados do post a serem replicados.
-     * @return A resposta da replicação.
-     * @throws StatusRuntimeException Se ocorrer um erro gRPC.
-     */
-    public ServerCommsProto.ReplicationResponse replicatePostCreationToPeer(String peerHost, int peerPort, ServerCommsProto.PostInfo postInfo) {
-        log.debug("Replicando criação do post {} para o peer {}:{}", postInfo.getId(), peerHost, peerPort);
-        try {
-            ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(peerHost + ":" + peerPort);
-            
-            log.info("Enviando replicação de post para {}:{} com ID {} e relógio lógico {}", 
-                    peerHost, peerPort, postInfo.getId(), postInfo.getLogicalClock());
-            
-            ServerCommsProto.ReplicationResponse response = stub.replicatePostCreation(postInfo);
-            return response;
-        } catch (Exception e) {
-            log.error("Falha ao replicar post {} para o peer {}:{}: {}", postInfo.getId(), peerHost, peerPort, e.getMessage(), e);
-            return null;
-        }
-    }
-
-    // ----- Métodos de Encaminhamento e Replicação para Deletar Posts -----
+    // ----- Encaminhamento de Remoção de Posts -----
 
     /**
      * Encaminha a chamada deletePostRPC para o servidor coordenador especificado.
@@ -417,47 +273,31 @@ public class GrpcClientService {
     }
 
     /**
-     * Chama o RPC ReplicatePostDeletion em um peer.
+     * Abre um stream bidirecional ReplicationStream com o peer.
+     *
+     * @param host Host do peer.
+     * @param port Porta gRPC do peer.
+     * @param ackObserver Observer que recebe os acks cumulativos do peer.
+     * @return Observer usado para enviar os envelopes de replicação.
      */
-    public ReplicationResponse replicatePostDeletionToPeer(String peerHost, int peerPort, String postId) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        ReplicatePostDeletionRequest request = ReplicatePostDeletionRequest.newBuilder()
-            .setPostId(postId)
-            .build();
-        log.debug("Enviando requisição ReplicatePostDeletion para {} para o ID do post: {}", target, postId);
-        return stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicatePostDeletion(request);
+    public StreamObserver<ReplicationEnvelope> openReplicationStream(String host, int port, StreamObserver<ReplicationAck> ackObserver) {
+        log.info("Abrindo stream de replicação para {}:{}", host, port);
+        return ServerServiceGrpc.newStub(getChannel(host, port)).replicationStream(ackObserver);
     }
 
-    // --- NOVO MÉTODO PARA REPLICAR NOTIFICAÇÃO ---
-
     /**
-     * Replica uma notificação para um peer.
+     * Abre um stream bidirecional ForwardWrites com o coordenador.
+     *
+     * @param target Endereço do coordenador no formato "host:port".
+     * @param resultObserver Observer que recebe os resultados das escritas encaminhadas.
+     * @return Observer usado para enviar os lotes de escritas.
      */
-     public ServerCommsProto.ReplicationResponse replicateNotificationToPeer(String host, int port, ServerCommsProto.NotificationProto notificationProto) {
-        ManagedChannel channel = null;
-        try {
-            channel = getChannel(host, port);
-            ServerServiceGrpc.ServerServiceBlockingStub stub = ServerServiceGrpc.newBlockingStub(channel);
-
-            // Construir a requisição de replicação
-            ServerCommsProto.ReplicateNotificationRequest request = ServerCommsProto.ReplicateNotificationRequest.newBuilder()
-                    .setNotification(notificationProto) // Passa o NotificationProto recebido
-                    // .setCoordinatorId(this.selfId) // O coordinatorId não é mais passado como arg, pode ser obtido de outra forma se necessário no futuro
-                    .build();
-
-            log.debug("Replicando notificação {} para o peer {}:{}", notificationProto.getId(), host, port);
-            ServerCommsProto.ReplicationResponse response = stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateNotification(request);
-            log.debug("Resposta da replicação para notificação {} de {}:{}: {}", notificationProto.getId(), host, port, response.getSuccess());
-            return response;
-        } catch (StatusRuntimeException e) {
-             log.error("Erro gRPC ao replicar notificação {} para {}:{}: Status={}. Mensagem={}",
-                    notificationProto.getId(), host, port, e.getStatus(), e.getMessage());
-            return ServerCommsProto.ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        }
+    public StreamObserver<ForwardedWriteBatch> openForwardWritesStream(String target, StreamObserver<ForwardedWriteResults> resultObserver) {
+        log.info("Abrindo stream de encaminhamento de escritas para o coordenador {}", target);
+        return ServerServiceGrpc.newStub(getChannel(target)).forwardWrites(resultObserver);
     }
 
-    // --- Added Methods ---
+    // --- Encaminhamento de Leitura de Notificações ---
 
     /**
      * Encaminha uma solicitação para marcar notificações como lidas para o coordenador.
@@ -473,7 +313,7 @@ public class GrpcClientService {
                     .build();
 
             log.debug("Encaminhando requisição para marcar notificações como lidas para o usuário {} para {}:{}", userId, host, port);
-            stub.withDeadlineAfter(5, TimeUnit.SECONDS).forwardMarkNotificationsRead(request);
+            withRetry(host + ":" + port, () -> stub.withDeadlineAfter(5, TimeUnit.SECONDS).forwardMarkNotificationsRead(request));
             log.info("Requisição para marcar notificações como lidas para o usuário {} encaminhada com sucesso para {}:{}", userId, host, port);
         } catch (StatusRuntimeException e) {
             log.error("Erro gRPC ao encaminhar marcação de notificações como lidas para o usuário {} para {}:{}: Status={}. Mensagem={}",
@@ -483,87 +323,109 @@ public class GrpcClientService {
     }
 
     /**
-     * Replica a ação de marcar notificações como lidas para um peer.
+     * Encaminha ao coordenador a marcação de todas as notificações do usuário criadas até
+     * {@code readUpToMillis} (epoch millis, UTC), sem lista de IDs.
      */
-    public ServerCommsProto.ReplicationResponse replicateMarkNotificationsRead(String host, int port, String userId, List<String> notificationIds) {
-        ManagedChannel channel = null;
+    public void forwardMarkAllNotificationsRead(String host, int port, String userId, long readUpToMillis) {
         try {
-            channel = getChannel(host, port);
-            ServerServiceGrpc.ServerServiceBlockingStub stub = ServerServiceGrpc.newBlockingStub(channel);
+            ServerServiceGrpc.ServerServiceBlockingStub stub = ServerServiceGrpc.newBlockingStub(getChannel(host, port));
             ServerCommsProto.MarkNotificationsReadRequest request = ServerCommsProto.MarkNotificationsReadRequest.newBuilder()
                     .setUserId(userId)
-                    .addAllNotificationIds(notificationIds)
+                    .setReadUpToMillis(readUpToMillis)
                     .build();
 
-            log.debug("Replicando marcação de notificações como lidas para o usuário {} para {}:{}", userId, host, port);
-            ServerCommsProto.ReplicationResponse response = stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateMarkNotificationsRead(request);
-            log.debug("Resposta da replicação de {}:{} para o usuário {} marcando notificações como lidas: {}", host, port, userId, response.getSuccess());
-            return response;
+            log.debug("Encaminhando marcação de todas as notificações como lidas (até {}) para o usuário {} para {}:{}", readUpToMillis, userId, host, port);
+            withRetry(host + ":" + port, () -> stub.withDeadlineAfter(5, TimeUnit.SECONDS).forwardMarkNotificationsRead(request));
+            log.info("Marcação de todas as notificações como lidas para o usuário {} encaminhada com sucesso para {}:{}", userId, host, port);
         } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao replicar marcação de notificações como lidas para o usuário {} para {}:{}: Status={}. Mensagem={}",
+            log.error("Erro gRPC ao encaminhar marcação de todas as notificações como lidas para o usuário {} para {}:{}: Status={}. Mensagem={}",
                     userId, host, port, e.getStatus(), e.getMessage());
-            return ServerCommsProto.ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
+            throw e;
         }
     }
 
-    // --- Método para Replicar Mensagem ---
+    // --- Anti-entropia e Snapshot ---
 
     /**
-     * Replica os dados de uma mensagem para um peer.
+     * Pede ao coordenador os digests por bucket de uma tabela (anti-entropia).
      *
-     * @param peerHost Host do peer.
-     * @param peerPort Porta gRPC do peer.
-     * @param messageInfo Os dados da mensagem a serem replicados.
-     * @return A resposta da replicação.
      * @throws StatusRuntimeException Se ocorrer um erro gRPC.
      */
-    public ReplicationResponse replicateMessageToPeer(String peerHost, int peerPort, MessageInfo messageInfo) {
-        String target = peerHost + ":" + peerPort;
-        ServerServiceGrpc.ServerServiceBlockingStub stub = getStub(target);
-        log.debug("Enviando requisição ReplicateMessage para {} para o ID da mensagem: {}", target, messageInfo.getId());
+    public RangeDigestResponse getRangeDigests(String host, int port, RangeDigestRequest request, long deadlineMillis) {
+        return getStub(host + ":" + port)
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .getRangeDigests(request);
+    }
 
-        ReplicateMessageRequest request = ReplicateMessageRequest.newBuilder()
-                .setMessageInfo(messageInfo)
-                .build();
-        try {
-            return stub.withDeadlineAfter(5, TimeUnit.SECONDS).replicateMessage(request);
-        } catch (StatusRuntimeException e) {
-            log.error("Erro gRPC ao chamar ReplicateMessage em {}: Status={}", target, e.getStatus(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro gRPC: " + e.getStatus()).build();
-        } catch (Exception e) {
-            log.error("Erro inesperado ao chamar ReplicateMessage em {}: {}", target, e.getMessage(), e);
-            return ReplicationResponse.newBuilder().setSuccess(false).setMessage("Erro: " + e.getMessage()).build();
-        }
+    /**
+     * Recebe do coordenador, em lotes, as linhas dos intervalos divergentes (anti-entropia).
+     * O iterador bloqueia até o próximo lote; erros gRPC surgem como StatusRuntimeException.
+     */
+    public Iterator<RangeRows> streamRangeRows(String host, int port, RangeRowsRequest request, long deadlineMillis) {
+        return getStub(host + ":" + port)
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .streamRangeRows(request);
+    }
+
+    /**
+     * Recebe do coordenador o snapshot completo das tabelas replicadas, em lotes (bootstrap).
+     * O iterador bloqueia até o próximo lote; erros gRPC surgem como StatusRuntimeException.
+     */
+    public Iterator<SnapshotChunk> streamSnapshot(String host, int port, SnapshotRequest request, long deadlineMillis) {
+        return getStub(host + ":" + port)
+                .withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .streamSnapshot(request);
     }
 
     private ManagedChannel getChannel(String host, int port) {
-        String target = host + ":" + port;
+        return getChannel(host + ":" + port);
+    }
+
+    /**
+     * Obtém ou cria o canal para o alvo "host:port". Todos os canais passam pelo
+     * interceptor de métricas, então cada chamada de saída é medida por RPC e peer,
+     * e pelas proteções do {@link PeerCallGuard} (circuit breaker e deadline adaptativo).
+     * Os canais TCP enviam pings de keepalive enquanto há chamadas abertas (streams de
+     * replicação e de encaminhamento de escritas).
+     * O interceptor de métricas é o mais externo, então chamadas recusadas pelo circuito também são medidas.
+     * Com {@code grpc.client.in-process}, o alvo é o nome do servidor in-process do peer.
+     */
+    private ManagedChannel getChannel(String target) {
         return channels.computeIfAbsent(target, t -> {
             log.info("Criando novo canal gRPC para o alvo: {}", t);
-            return ManagedChannelBuilder.forTarget(t)
-                    .usePlaintext()
+            ManagedChannelBuilder<?> builder = inProcess
+                    ? InProcessChannelBuilder.forName(t)
+                    : ManagedChannelBuilder.forTarget(t).usePlaintext()
+                            .keepAliveTime(keepAliveTimeMs, TimeUnit.MILLISECONDS)
+                            .keepAliveTimeout(keepAliveTimeoutMs, TimeUnit.MILLISECONDS);
+            return builder
+                    .intercept(peerCallGuard.interceptorFor(t), clientMetricsInterceptor)
                     .build();
         });
     }
 
-    // Método para fechar todos os canais quando a aplicação desliga
-    @PreDestroy
-    public void shutdownAllChannels() {
-        log.info("Desligando todos os canais do cliente gRPC...");
-        channels.values().forEach(channel -> {
+    /**
+     * Executa uma chamada unária idempotente com no máximo um retry, feito apenas se a falha foi
+     * UNAVAILABLE, o circuito do alvo não abriu e o orçamento global de retry tem fichas.
+     * A chamada deve aplicar o próprio deadline, para que o retry tenha um deadline novo.
+     */
+    private <T> T withRetry(String target, Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() != Status.Code.UNAVAILABLE
+                    || !peerCallGuard.isAvailable(target)
+                    || !peerCallGuard.tryAcquireRetry()) {
+                throw e;
+            }
+            log.debug("Retry da chamada gRPC para {} após UNAVAILABLE: {}", target, e.getStatus().getDescription());
             try {
-                if (!channel.isShutdown()) {
-                    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
-                }
-            } catch (InterruptedException e) {
-                log.error("Interrompido durante o desligamento do canal gRPC: {}", channel, e);
+                Thread.sleep(retryBackoffMs + ThreadLocalRandom.current().nextLong(retryBackoffMs + 1));
+            } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                log.error("Erro ao desligar canal gRPC: {}", channel, e);
+                throw e;
             }
-        });
-        channels.clear();
-        stubs.clear(); // Limpa os stubs também
-        log.info("Concluído o desligamento dos canais do cliente gRPC.");
+            return call.get();
+        }
     }
-}
\ No newline at end of file
+}
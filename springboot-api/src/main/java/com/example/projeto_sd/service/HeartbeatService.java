@@ -9,9 +9,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.ServiceInstance;
 
 import java.util.Optional;
 
@@ -23,12 +20,7 @@ public class HeartbeatService {
     private final ServerRepository serverRepository;
     private final GrpcClientService grpcClientService;
     private final ElectionService electionService;
-
-    @Autowired
-    private DiscoveryClient discoveryClient;
-
-    @Value("${spring.application.name}")
-    private String selfServiceName;
+    private final ClusterMembership clusterMembership;
 
     @Value("${server.id}")
     private String selfServerId;
@@ -70,19 +62,22 @@ public class HeartbeatService {
             return;
         }
 
-        Optional<ServiceInstance> coordinatorInstanceOpt = discoveryClient.getInstances(selfServiceName)
-            .stream()
-            .filter(instance -> coordinatorId.equals(getServerIdFromInstance(instance)))
-            .findFirst();
+        Optional<ClusterMembership.Peer> coordinatorOpt = clusterMembership.findPeer(coordinatorId);
+        if (coordinatorOpt.isEmpty()) {
+            // O snapshot pode estar desatualizado: confirma com o Consul antes de iniciar uma eleição.
+            clusterMembership.refresh();
+            coordinatorOpt = clusterMembership.findPeer(coordinatorId);
+        }
 
-        if (coordinatorInstanceOpt.isPresent()) {
-            ServiceInstance coordinatorInstance = coordinatorInstanceOpt.get();
-            String host = coordinatorInstance.getHost();
-            int port = getGrpcPortFromInstance(coordinatorInstance);
-            log.trace("Enviando heartbeat de {} para o coordenador {} encontrado via DiscoveryClient em {}:{}", selfServerId, coordinatorId, host, port);
+        if (coordinatorOpt.isPresent()) {
+            ClusterMembership.Peer coordinator = coordinatorOpt.get();
+            String host = coordinator.host();
+            int port = coordinator.port();
+            log.trace("Enviando heartbeat de {} para o coordenador {} em {}:{}", selfServerId, coordinatorId, host, port);
             HeartbeatResponse response = grpcClientService.sendHeartbeatToPeer(host, port, selfServerId);
             if (response == null || !response.getAcknowledged()) {
                 log.warn("Heartbeat para o coordenador {} em {}:{} não foi reconhecido ou falhou. Iniciando eleição.", coordinatorId, host, port);
+                clusterMembership.requestRefresh();
                 electionService.startElection();
             } else {
                 log.trace("Heartbeat reconhecido pelo coordenador {}", coordinatorId);
@@ -116,18 +111,9 @@ public class HeartbeatService {
         } else {
             log.warn("Recebido heartbeat de servidor desconhecido ID: {}. Ele deve se registrar primeiro.", senderId);
         }
-    }
-
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        try {
-            return Integer.parseInt(instance.getMetadata().getOrDefault("grpcPort", "9090"));
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadata grpcPort da instância {}. Utilizando padrão 9090.", instance.getInstanceId(), e);
-            return 9090;
+        if (clusterMembership.findPeer(senderId).isEmpty()) {
+            log.debug("Heartbeat de {}, ausente do snapshot de membros. Solicitando atualização.", senderId);
+            clusterMembership.requestRefresh();
         }
     }
-
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        return instance.getMetadata().getOrDefault("server.id", "desconhecido-" + instance.getInstanceId());
-    }
-} 
\ No newline at end of file
+}
\ No newline at end of file
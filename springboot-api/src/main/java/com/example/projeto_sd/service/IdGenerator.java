@@ -0,0 +1,16 @@
+package com.example.projeto_sd.service;
+
+/**
+ * Gerador das chaves primárias das entidades de domínio (usuários, posts, mensagens,
+ * notificações e follows).
+ * <p>
+ * As chaves são geradas uma única vez, no nó que cria a entidade (o coordenador, para as
+ * entidades replicadas), e viajam inalteradas nos envelopes de replicação.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return Novo identificador único, em forma textual.
+     */
+    String newId();
+}
@@ -1,21 +1,58 @@
 package com.example.projeto_sd.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementação de um relógio lógico de Lamport.
  * Mantém um contador que é incrementado a cada evento local
  * e sincronizado quando eventos externos são recebidos.
+ * <p>
+ * Também mantém a marca d'água das escritas aplicadas (relógio da última escrita de post ou
+ * mensagem confirmada localmente), usada como token de consistência: o cliente recebe o relógio
+ * da sua escrita e, ao ler em qualquer réplica, pode exigir que ela já tenha aplicado esse token
+ * (read-your-writes). O contador principal não serve para isso, pois também avança em leituras.
+ * <p>
+ * A marca d'água é contígua: um token N só é alcançado quando todas as escritas com relógio menor
+ * que N também estão visíveis. No coordenador, as escritas confirmam fora de ordem; por isso os
+ * relógios reservados por {@link #stampWrite} ficam pendentes até o fim da transação, e a marca
+ * d'água para logo abaixo do menor pendente. Nos seguidores, a ordem do outbox pode diferir da dos
+ * relógios; cada envelope leva um piso (ver {@link WriteAppend}) que {@link #markApplied} recebe
+ * na ordem do stream de replicação.
  */
 @Component
 @Slf4j
 public class LogicalClock {
 
+    /**
+     * Header HTTP com o token de consistência (relógio lógico da escrita).
+     */
+    public static final String CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+
     private final AtomicInteger clock = new AtomicInteger(0);
 
+    private final AtomicInteger applied = new AtomicInteger(0);
+    private final ReentrantLock appliedLock = new ReentrantLock();
+    private final Condition appliedAdvanced = appliedLock.newCondition();
+
+    // Maior relógio visível localmente, relógios reservados por transações ainda abertas e, entre
+    // eles, os que ainda não têm posição no outbox (protegidos por appliedLock).
+    private int maxVisible = 0;
+    private final TreeSet<Integer> pending = new TreeSet<>();
+    private final TreeSet<Integer> unappended = new TreeSet<>();
+
+    @Value("${consistency.read.max-wait.ms:2000}")
+    private long maxReadWaitMs;
+
     /**
      * Incrementa o relógio lógico para um novo evento local.
      * @return O novo valor do relógio.
@@ -54,4 +91,174 @@ public class LogicalClock {
     public int getValue() {
         return clock.get();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Restaura o relógio e a marca d'água a partir do maior relógio persistido, para que
+     * tokens emitidos antes de um reinício continuem sendo alcançáveis.
+     *
+     * @param persistedClock Maior relógio lógico gravado no banco local.
+     */
+    public void restore(int persistedClock) {
+        synchronizeWith(persistedClock);
+        advanceApplied(persistedClock);
+        log.info("Relógio lógico restaurado a partir do banco: {} (aplicado: {}).", clock.get(), applied.get());
+    }
+
+    /**
+     * Valor atual da marca d'água das escritas aplicadas (token de consistência desta réplica).
+     */
+    public int getAppliedValue() {
+        return applied.get();
+    }
+
+    /**
+     * Grava no outbox o envelope de uma escrita.
+     */
+    @FunctionalInterface
+    public interface WriteAppend {
+
+        /**
+         * @param writeClock Relógio reservado para a escrita.
+         * @param appliedFloor Piso a enviar no envelope: toda escrita com relógio até ele fica numa
+         *                     posição do outbox anterior à deste envelope. Um seguidor que aplicou o
+         *                     envelope pode avançar a marca d'água até o piso.
+         */
+        void append(int writeClock, int appliedFloor);
+    }
+
+    /**
+     * Reserva o relógio de uma escrita local (coordenador) e executa {@code append} com ele,
+     * que deve gravar o envelope da escrita no outbox.
+     * <p>
+     * Só a reserva e o registro do relógio como pendente acontecem sob lock; a gravação no outbox
+     * corre fora dele. Por isso a ordem do outbox pode diferir da dos relógios, e o piso entregue a
+     * {@code append} desconta as escritas reservadas que ainda não gravaram o envelope: a posição de
+     * cada uma delas pode ficar depois da deste. O relógio fica pendente até o fim da transação: a
+     * marca d'água local não passa dele antes do commit, e ele é descartado num rollback.
+     * Quando uma escrita com relógio menor grava o envelope depois desta, o piso desta fica abaixo do
+     * próprio relógio, e os seguidores só alcançam esse relógio com o piso de um envelope seguinte.
+     *
+     * @param append Grava o envelope da escrita com o relógio reservado e o piso.
+     * @return O relógio reservado.
+     */
+    public int stampWrite(WriteAppend append) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("O relógio de uma escrita precisa ser reservado dentro de uma transação.");
+        }
+        int writeClock;
+        int appliedFloor;
+        appliedLock.lock();
+        try {
+            writeClock = increment();
+            pending.add(writeClock);
+            // Escritas com relógio menor já terminaram ou gravaram o envelope (posição anterior), exceto
+            // as ainda sem posição no outbox; o piso para logo abaixo da menor delas.
+            appliedFloor = unappended.isEmpty() ? writeClock : Math.min(writeClock, unappended.first() - 1);
+            unappended.add(writeClock);
+        } finally {
+            appliedLock.unlock();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                completeWrite(writeClock, status == STATUS_COMMITTED);
+            }
+        });
+        try {
+            append.append(writeClock, appliedFloor);
+        } finally {
+            appliedLock.lock();
+            try {
+                unappended.remove(writeClock);
+            } finally {
+                appliedLock.unlock();
+            }
+        }
+        return writeClock;
+    }
+
+    /**
+     * Registra que as escritas replicadas até o relógio informado estão visíveis localmente.
+     * Recebe o piso de cada envelope ({@link WriteAppend}) na ordem do stream de replicação.
+     * Dentro de uma transação, só avança após o commit.
+     *
+     * @param writeClock Piso do envelope aplicado.
+     */
+    public void markApplied(int writeClock) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advanceApplied(writeClock);
+                }
+            });
+        } else {
+            advanceApplied(writeClock);
+        }
+    }
+
+    /**
+     * Aguarda, por no máximo {@code consistency.read.max-wait.ms}, até que esta réplica tenha
+     * aplicado as escritas até o token informado.
+     *
+     * @param minToken Token mínimo exigido pelo cliente (null ou <= 0 não espera).
+     * @return true se o token foi alcançado; false se o tempo de espera esgotou.
+     */
+    public boolean awaitApplied(Integer minToken) {
+        if (minToken == null || applied.get() >= minToken) {
+            return true;
+        }
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxReadWaitMs);
+        appliedLock.lock();
+        try {
+            while (applied.get() < minToken) {
+                if (remainingNanos <= 0) {
+                    log.debug("Token de consistência {} não alcançado em {}ms (aplicado: {}).", minToken, maxReadWaitMs, applied.get());
+                    return false;
+                }
+                remainingNanos = appliedAdvanced.awaitNanos(remainingNanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return applied.get() >= minToken;
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    private void completeWrite(int writeClock, boolean committed) {
+        appliedLock.lock();
+        try {
+            pending.remove(writeClock);
+            if (committed) {
+                maxVisible = Math.max(maxVisible, writeClock);
+            }
+            publishWatermark();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    private void advanceApplied(int writeClock) {
+        appliedLock.lock();
+        try {
+            maxVisible = Math.max(maxVisible, writeClock);
+            publishWatermark();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    /**
+     * Recalcula a marca d'água (chamado com appliedLock): o maior relógio visível, limitado
+     * a logo abaixo do menor relógio ainda pendente.
+     */
+    private void publishWatermark() {
+        int watermark = pending.isEmpty() ? maxVisible : Math.min(maxVisible, pending.first() - 1);
+        if (watermark > applied.get()) {
+            applied.set(watermark);
+            appliedAdvanced.signalAll();
+        }
+    }
+}
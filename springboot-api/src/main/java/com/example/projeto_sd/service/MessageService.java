@@ -1,30 +1,30 @@
 package com.example.projeto_sd.service;
 
+import com.example.projeto_sd.dto.message.ConversationSummaryDTO;
 import com.example.projeto_sd.dto.message.CreateMessageRequestDTO;
 import com.example.projeto_sd.dto.message.MessageDTO;
+import com.example.projeto_sd.model.ConversationSummary;
 import com.example.projeto_sd.model.Message;
 import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.model.User;
+import com.example.projeto_sd.repository.ConversationSummaryRepository;
 import com.example.projeto_sd.repository.MessageRepository;
-import com.example.projeto_sd.repository.ServerRepository;
-import com.example.projeto_sd.repository.UserRepository;
 import com.example.projeto_sd.exception.UserNotFoundException;
 
 import com.example.projeto_sd.grpc.ServerCommsProto.MessageInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
 import com.example.projeto_sd.grpc.ServerCommsProto.SendMessageRequest;
 import com.example.projeto_sd.grpc.ServerCommsProto.SendMessageResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.UUID;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.time.ZoneId;
@@ -42,13 +42,16 @@ public class MessageService {
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ConversationSummaryRepository conversationSummaryRepository;
 
     @Autowired
-    private ServerRepository serverRepository;
+    private UserCache userCache;
 
     @Autowired
-    private GrpcClientService grpcClientService;
+    private WriteForwarder writeForwarder;
+
+    @Autowired
+    private ReplicationDispatcher replicationDispatcher;
 
     @Autowired
     private LogicalClock logicalClock;
@@ -57,14 +60,11 @@ public class MessageService {
     private ElectionService electionService;
 
     @Autowired
-    private DiscoveryClient discoveryClient;
+    private IdGenerator idGenerator;
 
     @Value("${server.id}") // Injetar o ID do servidor atual
     private String selfServerId;
 
-    @Value("${spring.application.name}")
-    private String selfServiceName;
-
     /**
      * Processa o envio de uma nova mensagem.
      * Verifica se é coordenador, se sim, processa localmente e replica.
@@ -109,7 +109,7 @@ public class MessageService {
                      requestDTO.getSenderId(), requestDTO.getReceiverId(), coordinator.getId(), coordinator.getHost(), coordinator.getPort());
 
             try {
-                SendMessageResponse protoResponse = grpcClientService.forwardSendMessageRPC(
+                SendMessageResponse protoResponse = writeForwarder.forwardSendMessage(
                         coordinator.getHost(),
                         coordinator.getPort(),
                         protoRequest
@@ -131,64 +131,41 @@ public class MessageService {
      * @return O DTO da mensagem criada (MessageDTO).
      */
     private MessageDTO processAndReplicateMessage(CreateMessageRequestDTO requestDTO) { // Nome do DTO corrigido
-        logicalClock.increment();
-        
-        log.info("[SendMessage-Coord] Processando mensagem de {} para {}. Relógio atual: {}",
-                 requestDTO.getSenderId(), requestDTO.getReceiverId(), logicalClock.getValue());
+        log.info("[SendMessage-Coord] Processando mensagem de {} para {}.",
+                 requestDTO.getSenderId(), requestDTO.getReceiverId());
 
-        User sender = userRepository.findById(requestDTO.getSenderId())
+        User sender = userCache.getReference(requestDTO.getSenderId())
                 .orElseThrow(() -> new UserNotFoundException("Remetente não encontrado com ID: " + requestDTO.getSenderId()));
-        User receiver = userRepository.findById(requestDTO.getReceiverId())
+        User receiver = userCache.getReference(requestDTO.getReceiverId())
                 .orElseThrow(() -> new UserNotFoundException("Destinatário não encontrado com ID: " + requestDTO.getReceiverId()));
 
         Message message = new Message();
-        message.setId(UUID.randomUUID().toString());
+        message.setId(idGenerator.newId());
         message.setSender(sender);
         message.setReceiver(receiver);
+        message.setConversationId(Message.conversationIdOf(sender.getId(), receiver.getId()));
         message.setContent(requestDTO.getContent());
         message.setRead(false);
-        
-        message.setLogicalClock(logicalClock.getValue());
         message.setSentAt(LocalDateTime.now());
 
-        Server originServerEntity = serverRepository.findById(this.selfServerId)
+        Server originServerEntity = electionService.getSelfServer()
             .orElseThrow(() -> new IllegalStateException("Entidade do servidor atual com ID " + this.selfServerId + " não encontrada no banco de dados."));
         
         message.setServer(originServerEntity);
 
         Message savedMessage = messageRepository.save(message);
-        log.info("[SendMessage-Coord] Mensagem salva localmente com ID: {}. Relógio: {}", savedMessage.getId(), savedMessage.getLogicalClock());
 
-        MessageInfo messageInfoProto = convertEntityToProto(savedMessage);
-
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfServerId) && !"unknown".startsWith(peerServerId) && getGrpcPortFromInstance(instance) != -1;
-                })
-                .collect(Collectors.toList());
-
-        if (!activePeerInstances.isEmpty()) {
-             log.info("[SendMessage-Coord] Iniciando replicação da mensagem {} para {} peers ativos via Consul.", savedMessage.getId(), activePeerInstances.size());
-             activePeerInstances.forEach(peerInstance -> {
-                String peerHost = peerInstance.getHost();
-                int peerPort = getGrpcPortFromInstance(peerInstance);
-                String peerServerId = getServerIdFromInstance(peerInstance);
-
-                try {
-                    log.debug("[SendMessage-Coord] Replicando mensagem {} para o peer {} em {}:{}",
-                              savedMessage.getId(), peerServerId, peerHost, peerPort);
-                    grpcClientService.replicateMessageToPeer(peerHost, peerPort, messageInfoProto);
-                } catch (Exception e) {
-                    log.error("[SendMessage-Coord] Erro ao iniciar replicação da mensagem {} para o peer {} ({}:{}): {}",
-                              savedMessage.getId(), peerServerId, peerHost, peerPort, e.getMessage(), e);
-                }
-             });
-             log.info("[SendMessage-Coord] Finalizada a iniciação do processo de replicação para a mensagem {}.", savedMessage.getId());
-        } else {
-             log.info("[SendMessage-Coord] Nenhum peer ativo encontrado via Consul para replicação da mensagem {}.", savedMessage.getId());
-        }
+        // O envelope leva o piso do relógio para o token de consistência dos seguidores (ver LogicalClock.stampWrite).
+        logicalClock.stampWrite((clock, appliedFloor) -> {
+            savedMessage.setLogicalClock(clock);
+            replicationDispatcher.replicate("Mensagem", savedMessage.getId(),
+                    ReplicationEnvelope.newBuilder()
+                            .setMessageSent(convertEntityToProto(savedMessage))
+                            .setAppliedFloor(appliedFloor)
+                            .build());
+        });
+        recordInSummaries(savedMessage);
+        log.info("[SendMessage-Coord] Mensagem salva localmente com ID: {}. Relógio: {}", savedMessage.getId(), savedMessage.getLogicalClock());
 
         log.debug("[SendMessage-Coord] Mensagem processada e replicação iniciada. Retornando MessageDTO.");
         return convertEntityToDTO(savedMessage);
@@ -200,7 +177,7 @@ public class MessageService {
      * @param message A entidade Message.
      * @return O objeto MessageInfo Protobuf.
      */
-    private MessageInfo convertEntityToProto(Message message) {
+    static MessageInfo convertEntityToProto(Message message) {
         if (message.getSentAt() == null) {
             log.error("CRÍTICO: sentAt é nulo para a Mensagem ID {} mesmo após definição explícita e salvamento!", message.getId());
             throw new IllegalStateException("Timestamp sentAt da mensagem é nulo durante a conversão para proto.");
@@ -265,16 +242,52 @@ public class MessageService {
         log.debug("Buscando conversa entre {} e {} com paginação {}", userId1, userId2, pageable);
 
         
-        if (!userRepository.existsById(userId1)) {
+        if (!userCache.exists(userId1)) {
             throw new UserNotFoundException("Usuário não encontrado com ID: " + userId1);
         }
-         if (!userRepository.existsById(userId2)) {
+         if (!userCache.exists(userId2)) {
             throw new UserNotFoundException("Usuário não encontrado com ID: " + userId2);
         }
 
-        Page<Message> messagePage = messageRepository.findConversation(userId1, userId2, pageable);
+        List<MessageDTO> messages = messageRepository.findConversation(Message.conversationIdOf(userId1, userId2), pageable).stream()
+                .map(this::convertEntityToDTO)
+                .collect(Collectors.toList());
+        // O total vem do resumo da conversa (busca pela chave), não de um count sobre as mensagens.
+        long total = conversationSummaryRepository.findById(new ConversationSummary.Key(userId1, userId2))
+                .map(ConversationSummary::getMessageCount)
+                .orElse(0L);
+        return new PageImpl<>(messages, pageable, total);
+    }
 
-        return messagePage.map(this::convertEntityToDTO);
+    /**
+     * Busca a caixa de entrada de um usuário: suas conversas, da mais recente para a mais antiga,
+     * com a última mensagem e o total de mensagens não lidas de cada uma.
+     *
+     * @param userId ID do usuário.
+     * @param pageable Objeto de paginação (apenas página e tamanho são usados).
+     * @return Lista de resumos de conversa.
+     */
+    @Transactional(readOnly = true)
+    public List<ConversationSummaryDTO> getInbox(String userId, Pageable pageable) {
+        if (!userCache.exists(userId)) {
+            throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
+        return conversationSummaryRepository.findInbox(userId, pageable);
+    }
+
+    /**
+     * Atualiza o resumo da conversa dos dois participantes com uma mensagem recém-inserida.
+     * Participa da transação que salva a mensagem.
+     */
+    private void recordInSummaries(Message message) {
+        String senderId = message.getSender().getId();
+        String receiverId = message.getReceiver().getId();
+        conversationSummaryRepository.recordMessage(senderId, receiverId, message.getConversationId(), message.getId(),
+                senderId, message.getContent(), message.getSentAt(), message.getLogicalClock(), 0);
+        if (!receiverId.equals(senderId)) {
+            conversationSummaryRepository.recordMessage(receiverId, senderId, message.getConversationId(), message.getId(),
+                    senderId, message.getContent(), message.getSentAt(), message.getLogicalClock(), message.isRead() ? 0 : 1);
+        }
     }
 
     public List<MessageDTO> getMessagesForUser(String userId) {
@@ -282,7 +295,7 @@ public class MessageService {
         
         log.info("Buscando mensagens para o usuário {}. Relógio atual: {}", userId, logicalClock.getValue());
 
-        User user = userRepository.findById(userId)
+        User user = userCache.getReference(userId)
                 .orElseThrow(() -> new UserNotFoundException("Usuário não encontrado com ID: " + userId));
 
         
@@ -322,19 +335,20 @@ public class MessageService {
             return;
         }
 
-        User sender = userRepository.findById(messageInfo.getSenderId())
+        User sender = userCache.getReference(messageInfo.getSenderId())
                 .orElseThrow(() -> new UserNotFoundException("Remetente não encontrado para mensagem replicada: " + messageInfo.getSenderId()));
-        User receiver = userRepository.findById(messageInfo.getReceiverId())
+        User receiver = userCache.getReference(messageInfo.getReceiverId())
                 .orElseThrow(() -> new UserNotFoundException("Destinatário não encontrado para mensagem replicada: " + messageInfo.getReceiverId()));
 
         String originServerId = messageInfo.getOriginServerId();
-        Server originServer = serverRepository.findById(originServerId)
+        Server originServer = electionService.findServerDescriptor(originServerId)
                 .orElseThrow(() -> new IllegalStateException("Servidor de origem com ID " + originServerId + " não encontrado para mensagem replicada " + messageInfo.getId()));
 
         Message message = new Message();
         message.setId(messageInfo.getId());
         message.setSender(sender);
         message.setReceiver(receiver);
+        message.setConversationId(Message.conversationIdOf(sender.getId(), receiver.getId()));
         message.setContent(messageInfo.getContent());
         message.setSentAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(messageInfo.getSentAtMillis()), ZoneId.systemDefault()));
         message.setRead(messageInfo.getIsRead());
@@ -342,29 +356,7 @@ public class MessageService {
         message.setServer(originServer);
 
         messageRepository.save(message);
+        recordInSummaries(message);
         log.info("[Replicação] Mensagem replicada ID: {} salva com sucesso. Relógio: {}. Associada ao servidor de origem: {}", message.getId(), message.getLogicalClock(), originServerId);
     }
-
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        String grpcPortStr = instance.getMetadata().get("gRPC_port");
-        if (grpcPortStr == null) {
-             log.warn("Metadado 'gRPC_port' não encontrado para a instância {}. Usando porta padrão ou retornando -1.", instance.getInstanceId());
-             return -1; 
-        }
-        try {
-            return Integer.parseInt(grpcPortStr);
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadata gRPC_port ('{}') para a instância {}. Erro: {}", grpcPortStr, instance.getInstanceId(), e.getMessage());
-            return -1;
-        }
-    }
-
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        String serverId = instance.getMetadata().get("server-id");
-        if (serverId == null || serverId.trim().isEmpty()) {
-             log.warn("Não foi possível encontrar ou metadado 'server-id' está vazio para a instância {}.", instance.getInstanceId());
-             return "unknown-" + instance.getInstanceId(); 
-        }
-        return serverId.trim();
-    }
 }
\ No newline at end of file
@@ -1,21 +1,38 @@
 package com.example.projeto_sd.service;
 
+import com.example.projeto_sd.dto.notification.NotificationCursor;
 import com.example.projeto_sd.dto.notification.NotificationDTO;
+import com.example.projeto_sd.dto.notification.UnreadCountDTO;
+import com.example.projeto_sd.dto.response.CursorPageResponse;
+import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.grpc.ServerCommsProto;
 import com.example.projeto_sd.model.Notification;
 import com.example.projeto_sd.model.Server;
+import com.example.projeto_sd.model.User;
+import com.example.projeto_sd.repository.NotificationBulkWriter;
+import com.example.projeto_sd.repository.NotificationCounterRepository;
 import com.example.projeto_sd.repository.NotificationRepository;
 import com.example.projeto_sd.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.protobuf.Timestamp;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,44 +41,20 @@ import java.util.stream.Collectors;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final NotificationBulkWriter notificationBulkWriter;
+    private final NotificationCounterRepository notificationCounterRepository;
+    private final NotificationStreamRegistry notificationStreamRegistry;
     private final UserRepository userRepository;
+    private final UserCache userCache;
     private final GrpcClientService grpcClientService;
-
-    @Autowired
-    private DiscoveryClient discoveryClient;
+    private final ReplicationDispatcher replicationDispatcher;
 
     @Autowired
     private ElectionService electionService;
 
-    @Value("${spring.application.name}")
-    private String selfServiceName;
-
     @Value("${server.id}")
     private String selfServerId;
 
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        String grpcPortStr = instance.getMetadata().get("gRPC_port");
-        if (grpcPortStr == null) {
-             log.warn("Metadado 'gRPC_port' não encontrado para a instância {}. Retornando -1.", instance.getInstanceId());
-             return -1; 
-        }
-        try {
-            return Integer.parseInt(grpcPortStr);
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadado gRPC_port ('{}') para a instância {}. Erro: {}", grpcPortStr, instance.getInstanceId(), e.getMessage());
-            return -1;
-        }
-    }
-
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        String serverId = instance.getMetadata().get("server-id");
-        if (serverId == null || serverId.trim().isEmpty()) {
-             log.warn("Metadado 'server-id' não encontrado ou vazio para a instância {}. Retornando fallback.", instance.getInstanceId());
-             return "unknown-" + instance.getInstanceId(); 
-        }
-        return serverId.trim();
-    }
-
     /**
      * Busca as notificações não lidas para um usuário específico.
      *
@@ -72,7 +65,7 @@ public class NotificationService {
     public List<NotificationDTO> getUnreadNotifications(String userId) {
         log.debug("Buscando notificações não lidas para o usuário ID: {}", userId);
 
-        if (!userRepository.existsById(userId)) {
+        if (!userCache.exists(userId)) {
             log.warn("Tentativa de buscar notificações para usuário inexistente ID: {}", userId);
             return List.of();
         }
@@ -87,6 +80,68 @@ public class NotificationService {
         return dtos;
     }
 
+    /**
+     * Busca as notificações não lidas de um usuário paginadas por cursor (createdAt, id).
+     *
+     * @param userId O ID do usuário.
+     * @param cursor Cursor retornado na página anterior, ou nulo para a primeira página.
+     * @param limit Quantidade máxima de notificações na página.
+     * @param withCount Se verdadeiro, inclui o total de não lidas (lido do contador).
+     * @throws UserNotFoundException Se o usuário não existir.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<NotificationDTO> getUnreadNotificationsByCursor(String userId, String cursor, int limit, boolean withCount) {
+        log.debug("Buscando notificações não lidas por cursor para o usuário ID: {}, limite: {}", userId, limit);
+        if (!userCache.exists(userId)) {
+            throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
+        NotificationCursor after = cursor == null || cursor.isBlank() ? null : NotificationCursor.decode(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<NotificationDTO> rows = after == null
+                ? notificationRepository.findByUserIdDtoFirst(userId, false, pageRequest)
+                : notificationRepository.findByUserIdDtoAfter(userId, false, after.createdAt(), after.notificationId(), pageRequest);
+
+        boolean hasMore = rows.size() > limit;
+        List<NotificationDTO> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? NotificationCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore, withCount ? unreadCount(userId) : null);
+    }
+
+    /**
+     * Quantidade de notificações não lidas de um usuário, lida do contador mantido nas gravações.
+     *
+     * @param userId O ID do usuário.
+     * @throws UserNotFoundException Se o usuário não existir.
+     */
+    @Transactional(readOnly = true)
+    public UnreadCountDTO getUnreadCount(String userId) {
+        if (!userCache.exists(userId)) {
+            throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
+        return new UnreadCountDTO(userId, unreadCount(userId));
+    }
+
+    /**
+     * Inscreve um cliente no push de notificações do usuário neste nó.
+     * As notificações anteriores à inscrição não são reenviadas: o cliente deve ler as
+     * pendentes pelo GET paginado depois de se inscrever (descartando IDs repetidos).
+     *
+     * @return ação que cancela a inscrição
+     * @throws UserNotFoundException Se o usuário não existir.
+     * @throws IllegalStateException Se o limite de inscrições do nó foi atingido.
+     */
+    public Runnable subscribe(String userId, NotificationStreamRegistry.Subscriber subscriber) {
+        if (!userCache.exists(userId)) {
+            throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
+        return notificationStreamRegistry.subscribe(userId, subscriber);
+    }
+
+    private long unreadCount(String userId) {
+        return notificationCounterRepository.findUnreadCount(userId).orElse(0L);
+    }
+
     /**
      * Ponto de entrada para marcar notificações como lidas.
      * Verifica se é o coordenador, processa localmente e replica, ou encaminha para o coordenador.
@@ -109,28 +164,73 @@ public class NotificationService {
             processAndReplicateMarkAsRead(userId, notificationIds);
         } else {
             log.info("[MarcarLido] Nó {} é SEGUIDOR. Encaminhando requisição para o coordenador.", selfServerId);
-            Optional<String> coordinatorIdOpt = electionService.getCoordinatorId();
-            if (coordinatorIdOpt.isEmpty()) {
-                log.error("[MarcarLido] ID do Coordenador desconhecido via ElectionService. Não é possível encaminhar.");
-                throw new RuntimeException("Coordenador não disponível para processar a requisição de marcar notificações como lidas.");
+            forwardToCoordinator(coordinator -> grpcClientService.forwardMarkNotificationsRead(
+                    coordinator.getHost(), coordinator.getPort(), userId, notificationIds));
+        }
+    }
+
+    /**
+     * Ponto de entrada para marcar como lidas todas as notificações do usuário criadas até {@code upTo}.
+     * A replicação leva apenas o usuário e o limite, independentemente de quantas notificações forem marcadas.
+     *
+     * @param userId O ID do usuário.
+     * @param upTo Limite de data de criação (UTC, inclusivo).
+     */
+    @Transactional
+    public void markAllNotificationsAsReadUpTo(String userId, LocalDateTime requestedUpTo) {
+        // O limite é replicado em milissegundos; trunca aqui para todos os nós usarem o mesmo valor
+        LocalDateTime upTo = requestedUpTo.truncatedTo(ChronoUnit.MILLIS);
+        log.info("[MarcarTodasLidas] Requisição recebida para o usuário {} marcar notificações até {} como lidas.", userId, upTo);
+
+        if (electionService.isCoordinator()) {
+            if (!userCache.exists(userId)) {
+                throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+            }
+            int updatedCount = notificationRepository.markAllAsReadUpTo(userId, upTo);
+            log.info("[MarcarTodasLidas-Coord] {} notificações marcadas como lidas localmente para o usuário ID: {}", updatedCount, userId);
+            if (updatedCount == 0) {
+                return;
             }
-            String coordinatorId = coordinatorIdOpt.get();
-            Optional<Server> coordinatorServerOpt = electionService.getCoordinatorServerDetails(coordinatorId);
-
-            if (coordinatorServerOpt.isPresent()) {
-                Server coordinator = coordinatorServerOpt.get();
-                try {
-                    log.info("[MarcarLido] Encaminhando para coordenador {} ({}:{})", coordinator.getId(), coordinator.getHost(), coordinator.getPort());
-                    grpcClientService.forwardMarkNotificationsRead(coordinator.getHost(), coordinator.getPort(), userId, notificationIds);
-                    log.info("[MarcarLido] Requisição encaminhada com sucesso para o coordenador {}", coordinator.getId());
-                } catch (Exception e) {
-                    log.error("[MarcarLido] Falha ao encaminhar requisição para o coordenador {}: {}", coordinator.getId(), e.getMessage(), e);
-                    throw new RuntimeException("Falha ao encaminhar requisição para o coordenador.", e);
-                }
-            } else {
-                log.error("[MarcarLido] Detalhes do coordenador {} não encontrados via ElectionService. Não é possível encaminhar a requisição.", coordinatorId);
-                throw new RuntimeException("Detalhes do coordenador não encontrados, não é possível processar a requisição.");
+            notificationCounterRepository.decrement(userId, updatedCount);
+
+            ServerCommsProto.MarkNotificationsReadRequest markRead = ServerCommsProto.MarkNotificationsReadRequest.newBuilder()
+                    .setUserId(userId)
+                    .setReadUpToMillis(toEpochMillis(upTo))
+                    .build();
+            replicationDispatcher.replicate("MarcarTodasLidas", userId,
+                    ServerCommsProto.ReplicationEnvelope.newBuilder().setNotificationsRead(markRead).build());
+        } else {
+            log.info("[MarcarTodasLidas] Nó {} é SEGUIDOR. Encaminhando requisição para o coordenador.", selfServerId);
+            forwardToCoordinator(coordinator -> grpcClientService.forwardMarkAllNotificationsRead(
+                    coordinator.getHost(), coordinator.getPort(), userId, toEpochMillis(upTo)));
+        }
+    }
+
+    /**
+     * (Seguidor) Encaminha a requisição ao coordenador atual.
+     */
+    private void forwardToCoordinator(Consumer<Server> forward) {
+        Optional<String> coordinatorIdOpt = electionService.getCoordinatorId();
+        if (coordinatorIdOpt.isEmpty()) {
+            log.error("[MarcarLido] ID do Coordenador desconhecido via ElectionService. Não é possível encaminhar.");
+            throw new RuntimeException("Coordenador não disponível para processar a requisição de marcar notificações como lidas.");
+        }
+        String coordinatorId = coordinatorIdOpt.get();
+        Optional<Server> coordinatorServerOpt = electionService.getCoordinatorServerDetails(coordinatorId);
+
+        if (coordinatorServerOpt.isPresent()) {
+            Server coordinator = coordinatorServerOpt.get();
+            try {
+                log.info("[MarcarLido] Encaminhando para coordenador {} ({}:{})", coordinator.getId(), coordinator.getHost(), coordinator.getPort());
+                forward.accept(coordinator);
+                log.info("[MarcarLido] Requisição encaminhada com sucesso para o coordenador {}", coordinator.getId());
+            } catch (Exception e) {
+                log.error("[MarcarLido] Falha ao encaminhar requisição para o coordenador {}: {}", coordinator.getId(), e.getMessage(), e);
+                throw new RuntimeException("Falha ao encaminhar requisição para o coordenador.", e);
             }
+        } else {
+            log.error("[MarcarLido] Detalhes do coordenador {} não encontrados via ElectionService. Não é possível encaminhar a requisição.", coordinatorId);
+            throw new RuntimeException("Detalhes do coordenador não encontrados, não é possível processar a requisição.");
         }
     }
 
@@ -142,11 +242,12 @@ public class NotificationService {
 
         int updatedCount = 0;
         try {
-            if (!userRepository.existsById(userId)) {
+            if (!userCache.exists(userId)) {
                 log.warn("[MarcarLido-Coord] Tentativa de marcar notificações como lidas para usuário inexistente ID: {}. Ignorando atualização e replicação.", userId);
                 return;
             }
             updatedCount = notificationRepository.markAsRead(userId, notificationIds);
+            notificationCounterRepository.decrement(userId, updatedCount);
             log.info("[MarcarLido-Coord] {} notificações marcadas como lidas localmente para o usuário ID: {}", updatedCount, userId);
         } catch (Exception e) {
             log.error("[MarcarLido-Coord] Erro ao marcar notificações como lidas localmente para o usuário ID {}: {}", userId, e.getMessage(), e);
@@ -158,33 +259,12 @@ public class NotificationService {
              return;
         }
 
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfServerId) && !peerServerId.startsWith("unknown") && getGrpcPortFromInstance(instance) != -1;
-                })
-                .collect(Collectors.toList());
-
-        if (activePeerInstances.isEmpty()) {
-            log.info("[MarcarLido-Coord] Nenhum outro peer ativo encontrado via Consul. Ignorando replicação.");
-            return;
-        }
-
-        log.info("[MarcarLido-Coord] Iniciando replicação para {} peers ativos via Consul.", activePeerInstances.size());
-        activePeerInstances.forEach(peerInstance -> {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-            try {
-                log.debug("[MarcarLido-Coord] Replicando marcação como lido para o usuário {} para o peer {} ({}:{})", userId, peerServerId, peerHost, peerPort);
-                grpcClientService.replicateMarkNotificationsRead(peerHost, peerPort, userId, notificationIds);
-                 log.debug("[MarcarLido-Coord] Replicação iniciada com sucesso para o peer {}", peerServerId);
-            } catch (Exception e) {
-                log.error("[MarcarLido-Coord] Erro ao replicar marcação como lido para o usuário {} para o peer {} ({}:{}): {}", userId, peerServerId, peerHost, peerPort, e.getMessage(), e);
-            }
-        });
-        log.info("[MarcarLido-Coord] Finalizada a iniciação do processo de replicação.");
+        ServerCommsProto.MarkNotificationsReadRequest markRead = ServerCommsProto.MarkNotificationsReadRequest.newBuilder()
+                .setUserId(userId)
+                .addAllNotificationIds(notificationIds)
+                .build();
+        replicationDispatcher.replicate("MarcarLido", userId,
+                ServerCommsProto.ReplicationEnvelope.newBuilder().setNotificationsRead(markRead).build());
     }
 
      /**
@@ -201,12 +281,78 @@ public class NotificationService {
 
          try {
             int updatedCount = notificationRepository.markAsRead(userId, notificationIds);
+            notificationCounterRepository.decrement(userId, updatedCount);
             log.info("[MarcarLido-Replica] Replicação processada com sucesso, {} notificações marcadas como lidas para o usuário ID: {}", updatedCount, userId);
         } catch (Exception e) {
             log.error("[MarcarLido-Replica] Erro ao processar replicação para o usuário ID {}: {}", userId, e.getMessage(), e);
         }
     }
 
+    /**
+     * (Seguidor) Aplica a marcação de todas as notificações do usuário criadas até {@code upTo},
+     * recebida via replicação. O limite é o mesmo usado pelo coordenador.
+     */
+    @Transactional
+    public void markReplicatedNotificationsAsReadUpTo(String userId, LocalDateTime upTo) {
+        int updatedCount = notificationRepository.markAllAsReadUpTo(userId, upTo);
+        notificationCounterRepository.decrement(userId, updatedCount);
+        log.info("[MarcarTodasLidas-Replica] {} notificações até {} marcadas como lidas para o usuário ID: {}", updatedCount, upTo, userId);
+    }
+
+    /**
+     * (Seguidor) Aplica um lote de notificações replicadas pelo coordenador.
+     * Ignora IDs já existentes (ON CONFLICT) e usuários desconhecidos; os usuários são
+     * verificados pelo {@link UserCache} e as notificações inseridas pelo {@link NotificationBulkWriter}.
+     *
+     * @param protos As notificações recebidas.
+     * @return Quantidade de notificações efetivamente salvas.
+     */
+    @Transactional
+    public int saveReplicatedNotifications(List<ServerCommsProto.NotificationProto> protos) {
+        if (protos == null || protos.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> userIds = protos.stream().map(ServerCommsProto.NotificationProto::getUserId).collect(Collectors.toSet());
+        Set<String> existingUserIds = userIds.stream().filter(userCache::exists).collect(Collectors.toSet());
+
+        List<Notification> toSave = new ArrayList<>(protos.size());
+        for (ServerCommsProto.NotificationProto proto : protos) {
+            if (!existingUserIds.contains(proto.getUserId())) {
+                log.warn("[Notificações-Replica] Usuário {} não encontrado localmente. Pulando notificação {}.", proto.getUserId(), proto.getId());
+                continue;
+            }
+            Notification notification = new Notification();
+            notification.setId(proto.getId());
+            notification.setUser(userRepository.getReferenceById(proto.getUserId()));
+            notification.setType(proto.getType());
+            notification.setMessage(proto.getMessage());
+            notification.setRelatedEntityId(proto.getRelatedEntityId());
+            notification.setRead(proto.getIsRead());
+            Timestamp createdAt = proto.getCreatedAt();
+            notification.setCreatedAt(LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(createdAt.getSeconds(), createdAt.getNanos()), ZoneId.of("UTC")));
+            toSave.add(notification);
+        }
+
+        List<Notification> inserted = notificationBulkWriter.insertIgnoringExisting(toSave);
+        notificationStreamRegistry.publishAfterCommit(inserted);
+        log.info("[Notificações-Replica] Lote de {} notificações processado: {} salvas, {} já existentes ou sem usuário.",
+                protos.size(), inserted.size(), protos.size() - inserted.size());
+        return inserted.size();
+    }
+
+    private static long toEpochMillis(LocalDateTime utc) {
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Converte o limite replicado (epoch millis) para o horário UTC usado em {@code created_at}.
+     */
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
     private NotificationDTO convertToDto(Notification notification) {
         return new NotificationDTO(
                 notification.getId(),
@@ -0,0 +1,183 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.dto.notification.NotificationDTO;
+import com.example.projeto_sd.model.Notification;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro, por nó, dos clientes inscritos no push de notificações (gRPC {@code SubscribeNotifications} e SSE).
+ * <p>
+ * As notificações gravadas neste nó (fan-out no coordenador, lotes replicados e reparos da
+ * anti-entropia) são publicadas aqui após o commit e entregues por uma única thread, na ordem
+ * de gravação. Só são convertidas as notificações de usuários com inscrição ativa, então sem
+ * inscritos a publicação é uma leitura de mapa. Um inscrito que não aceita mais envios
+ * (desconectado ou lento) é removido e encerrado; ao reconectar, o cliente lê as pendentes pelo GET paginado.
+ */
+@Component
+@Slf4j
+public class NotificationStreamRegistry {
+
+    /**
+     * Destino das notificações de um usuário (stream gRPC ou emissor SSE).
+     * Os métodos são chamados apenas pela thread de entrega.
+     */
+    public interface Subscriber {
+
+        /**
+         * Envia uma notificação ao cliente.
+         * @return false se o cliente não aceita mais envios; o inscrito é então removido e encerrado
+         */
+        boolean deliver(NotificationDTO notification);
+
+        /**
+         * Encerra o stream do lado do servidor.
+         */
+        void close();
+    }
+
+    @Value("${notifications.stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    private final ConcurrentMap<String, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "notification-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(NotificationStreamRegistry::closeQuietly));
+        subscribersByUser.clear();
+    }
+
+    /**
+     * Inscreve um cliente para receber as notificações de um usuário.
+     *
+     * @return ação que cancela a inscrição (idempotente)
+     * @throws IllegalStateException se o limite de inscrições do nó foi atingido
+     */
+    public Runnable subscribe(String userId, Subscriber subscriber) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Limite de " + maxSubscribers + " inscrições de notificações atingido neste nó.");
+        }
+        subscribersByUser.compute(userId, (key, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        log.debug("[PushNotificações] Inscrição aberta para o usuário {} ({} no nó).", userId, subscriberCount.get());
+        return () -> unsubscribe(userId, subscriber);
+    }
+
+    public void unsubscribe(String userId, Subscriber subscriber) {
+        subscribersByUser.computeIfPresent(userId, (key, subscribers) -> {
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+                log.debug("[PushNotificações] Inscrição encerrada para o usuário {}.", userId);
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Publica notificações recém-inseridas aos inscritos dos destinatários após o commit da
+     * transação corrente (imediatamente se não houver transação). Deve receber apenas as
+     * notificações efetivamente inseridas, para não reenviar as já existentes.
+     */
+    public void publishAfterCommit(List<Notification> notifications) {
+        if (subscriberCount.get() == 0 || notifications == null || notifications.isEmpty()) {
+            return;
+        }
+        Map<String, List<NotificationDTO>> byUser = new HashMap<>();
+        for (Notification notification : notifications) {
+            String userId = notification.getUser().getId();
+            if (subscribersByUser.containsKey(userId)) {
+                byUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(new NotificationDTO(
+                        notification.getId(),
+                        notification.getType(),
+                        notification.getMessage(),
+                        notification.getRelatedEntityId(),
+                        notification.getCreatedAt(),
+                        notification.isRead()));
+            }
+        }
+        if (byUser.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                dispatcher.execute(() -> byUser.forEach(this::deliver));
+            } catch (RejectedExecutionException e) {
+                log.debug("[PushNotificações] Entrega descartada: registro encerrado.");
+            }
+        });
+    }
+
+    private void deliver(String userId, List<NotificationDTO> notifications) {
+        Set<Subscriber> subscribers = subscribersByUser.get(userId);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            boolean accepted;
+            try {
+                accepted = notifications.stream().allMatch(subscriber::deliver);
+            } catch (Exception e) {
+                log.debug("[PushNotificações] Falha ao entregar ao usuário {}: {}", userId, e.getMessage());
+                accepted = false;
+            }
+            if (!accepted) {
+                log.info("[PushNotificações] Inscrito do usuário {} não aceita mais envios. Encerrando a inscrição.", userId);
+                unsubscribe(userId, subscriber);
+                closeQuietly(subscriber);
+            }
+        }
+    }
+
+    private static void closeQuietly(Subscriber subscriber) {
+        try {
+            subscriber.close();
+        } catch (Exception e) {
+            log.debug("[PushNotificações] Erro ao encerrar inscrito: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
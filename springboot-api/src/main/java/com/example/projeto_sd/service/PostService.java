@@ -1,7 +1,6 @@
 package com.example.projeto_sd.service;
 
 import com.example.projeto_sd.dto.post.CreatePostRequestDto;
-import com.example.projeto_sd.dto.user.UserResponseDTO;
 import com.example.projeto_sd.model.Post;
 import com.example.projeto_sd.model.Server;
 import com.example.projeto_sd.model.User;
@@ -11,22 +10,24 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.projeto_sd.grpc.ServerCommsProto;
 import com.example.projeto_sd.dto.post.PostResponseDto;
+import com.example.projeto_sd.dto.post.PostCursor;
+import com.example.projeto_sd.dto.response.CursorPageResponse;
 import com.example.projeto_sd.dto.post.DeletePostRequestDto;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
-import com.example.projeto_sd.repository.NotificationRepository;
+import com.example.projeto_sd.repository.NotificationBulkWriter;
 import com.example.projeto_sd.model.Notification;
 
 import java.time.ZoneOffset;
@@ -35,9 +36,6 @@ import java.time.Instant;
 import java.time.ZoneId;
 import com.google.protobuf.Timestamp;
 
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.client.ServiceInstance;
 
 @Service
 @RequiredArgsConstructor
@@ -46,56 +44,43 @@ public class PostService {
 
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final com.example.projeto_sd.repository.ServerRepository serverRepository;
+    private final UserCache userCache;
     private final ElectionService electionService;
     private final GrpcClientService grpcClientService;
+    private final WriteForwarder writeForwarder;
     private final ClockSyncService clockSyncService;
-    private final FollowService followService;
-    private final NotificationRepository notificationRepository;
+    private final NotificationBulkWriter notificationBulkWriter;
+    private final NotificationStreamRegistry notificationStreamRegistry;
+    private final FollowGraphIndex followGraphIndex;
     private final LogicalClock logicalClock;
+    private final ReplicationDispatcher replicationDispatcher;
+    private final TimelineService timelineService;
+    private final IdGenerator idGenerator;
 
     @Value("${server.id}")
     private String selfServerId;
 
-    @Autowired
-    private DiscoveryClient discoveryClient;
+    @Value("${replication.notifications.batch.max-bytes:1048576}")
+    private int notificationBatchMaxBytes;
 
-    @Value("${spring.application.name}")
-    private String selfServiceName;
-
-    private int getGrpcPortFromInstance(ServiceInstance instance) {
-        String grpcPortStr = instance.getMetadata().get("gRPC_port");
-        if (grpcPortStr == null) {
-             log.warn("Metadado 'gRPC_port' não encontrado para a instância {}. Usando porta padrão ou retornando -1.", instance.getInstanceId());
-             return -1; 
-        }
-        try {
-            return Integer.parseInt(grpcPortStr);
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o metadata gRPC_port ('{}') para a instância {}. Erro: {}", grpcPortStr, instance.getInstanceId(), e.getMessage());
-            return -1;
-        }
-    }
-
-    private String getServerIdFromInstance(ServiceInstance instance) {
-        String serverId = instance.getMetadata().get("server-id");
-        if (serverId == null || serverId.trim().isEmpty()) {
-             log.warn("Não foi possível encontrar ou metadado 'server-id' está vazio para a instância {}.", instance.getInstanceId());
-             return "unknown-" + instance.getInstanceId();
-        }
-        return serverId.trim();
-    }
+    @Value("${replication.notifications.batch.max-count:1000}")
+    private int notificationBatchMaxCount;
 
+    /**
+     * Cria o post (localmente, se coordenador; senão, via coordenador).
+     *
+     * @return Relógio lógico do post criado, devolvido ao cliente como token de consistência.
+     */
     @Transactional
-    public void createPost(CreatePostRequestDto requestDto) {
+    public int createPost(CreatePostRequestDto requestDto) {
         log.info("Processando requisição createPost para o usuário: {}", requestDto.getUserId());
 
-        User user = userRepository.findById(requestDto.getUserId())
+        User user = userCache.getReference(requestDto.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + requestDto.getUserId()));
 
         if (electionService.isCoordinator()) {
             log.info("Nó {} é o coordenador. Processando createPost localmente.", selfServerId);
-            processAndReplicatePost(user, requestDto.getContent());
+            return processAndReplicatePost(user, requestDto.getContent()).getLogicalClock();
         } else {
             Optional<Server> coordinatorOpt = electionService.getCoordinatorId()
                                                                .flatMap(electionService::getCoordinatorServerDetails);
@@ -110,7 +95,8 @@ public class PostService {
                     .build();
 
                 try {
-                    grpcClientService.forwardCreatePostRPC(coordinator.getHost(), coordinator.getPort(), protoRequest);
+                    return writeForwarder.forwardCreatePost(coordinator.getHost(), coordinator.getPort(), protoRequest)
+                            .getPostInfo().getLogicalClock();
                 } catch (Exception e) {
                     log.error("Erro ao encaminhar requisição createPost para o coordenador {}: {}", coordinator.getId(), e.getMessage(), e);
                     throw new IllegalStateException("Falha ao encaminhar requisição para o coordenador.", e);
@@ -129,91 +115,69 @@ public class PostService {
     @Transactional
     public Post processAndReplicatePost(User user, String content) {
         LocalDateTime now = clockSyncService.getCurrentCorrectedLocalDateTime();
-        
-        int postLogicalClock = logicalClock.increment();
-        
-        Server coordinadorServerEntity = serverRepository.findById(selfServerId)
+
+        Server coordinadorServerEntity = electionService.getSelfServer()
                 .orElseThrow(() -> new IllegalStateException("Servidor local (coordenador) " + selfServerId + " não encontrado no BD ao processar post."));
 
         Post newPost = new Post();
-        newPost.setId(UUID.randomUUID().toString());
+        newPost.setId(idGenerator.newId());
         newPost.setUser(user);
         newPost.setContent(content);
         newPost.setCreatedAt(now);
-        newPost.setLogicalClock(postLogicalClock);
         newPost.setDeleted(false);
         newPost.setServer(coordinadorServerEntity);
 
         Post savedPost = postRepository.save(newPost);
-        log.info("[CreatePost-Coord] Post {} do usuário {} salvo localmente com sucesso (relógio lógico: {}, servidor: {}).", 
-                savedPost.getId(), user.getId(), postLogicalClock, selfServerId);
+        // O merge troca o autor por um proxy; mantém o usuário vindo do cache (ID e nome)
+        // para que montar as notificações não carregue o usuário do banco.
+        savedPost.setUser(user);
+        log.info("[CreatePost-Coord] Post {} do usuário {} salvo localmente com sucesso (servidor: {}).",
+                savedPost.getId(), user.getId(), selfServerId);
 
-        replicatePostCreation(savedPost);
+        timelineService.fanOut(savedPost);
 
         createAndSaveNotifications(savedPost);
 
+        // O envelope do post vai por último no outbox: quando um seguidor aplica o relógio
+        // deste post (token de consistência), as notificações dele já foram aplicadas.
+        // O envelope leva o piso do relógio para o token de consistência dos seguidores (ver LogicalClock.stampWrite).
+        int postLogicalClock = logicalClock.stampWrite((clock, appliedFloor) -> {
+            savedPost.setLogicalClock(clock);
+            replicatePostCreation(savedPost, appliedFloor);
+        });
+        log.info("[CreatePost-Coord] Post {} replicado com relógio lógico {}.", savedPost.getId(), postLogicalClock);
+
         return savedPost;
     }
 
     /**
      * Inicia o processo de replicação de um post recém-criado.
+     * A mutação vai para o outbox na mesma transação; o envio aos peers é feito
+     * pelos shippers (ver {@link ReplicationDispatcher}).
      * (Executado pelo Coordenador)
      */
-    private void replicatePostCreation(Post post) {
+    private void replicatePostCreation(Post post, int appliedFloor) {
         log.info("[Replicação-PostCriado] Servidor {} (coordenador) iniciando replicação para o post {}.", selfServerId, post.getId());
 
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfServerId) && !"unknown".startsWith(peerServerId);
-                })
-                .collect(Collectors.toList());
-
-        if (activePeerInstances.isEmpty()) {
-            log.info("[Replicação-PostCriado] Nenhum peer ativo encontrado via Consul. Pulando replicação.");
-            return;
-        }
+        replicationDispatcher.replicate("PostCriado", post.getId(),
+                ServerCommsProto.ReplicationEnvelope.newBuilder()
+                        .setPostCreated(toReplicatedPostInfo(post))
+                        .setAppliedFloor(appliedFloor)
+                        .build());
+    }
 
+    /**
+     * Converte o post no PostInfo replicado (createdAt no fuso do sistema, como em {@link #saveReplicatedPost}).
+     */
+    static ServerCommsProto.PostInfo toReplicatedPostInfo(Post post) {
         long createdAtMillis = post.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        ServerCommsProto.PostInfo postInfo = ServerCommsProto.PostInfo.newBuilder()
+        return ServerCommsProto.PostInfo.newBuilder()
                 .setId(post.getId())
                 .setUserId(post.getUser().getId())
                 .setContent(post.getContent())
                 .setCreatedAtMillis(createdAtMillis)
                 .setLogicalClock(post.getLogicalClock())
                 .build();
-
-        log.info("[Replicação-PostCriado] Iniciando replicação do post {} (relógio lógico: {}) para {} peers ativos via Consul", 
-                 post.getId(), post.getLogicalClock(), activePeerInstances.size());
-        
-        for (ServiceInstance peerInstance : activePeerInstances) {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-
-            if (peerPort == -1) {
-                log.warn("[Replicação-PostCriado] Não foi possível obter a porta gRPC para o peer {}. Pulando replicação para este peer.", peerServerId);
-                continue;
-            }
-
-            try {
-                ServerCommsProto.ReplicationResponse response = 
-                        grpcClientService.replicatePostCreationToPeer(peerHost, peerPort, postInfo);
-                
-                if (response == null || !response.getSuccess()) {
-                    log.error("[Replicação-PostCriado] Falha ao replicar post {} para o peer {} ({}:{}): {}", 
-                              post.getId(), peerServerId, peerHost, peerPort,
-                              response != null ? response.getMessage() : "Sem resposta");
-                } else {
-                    log.info("[Replicação-PostCriado] Post {} replicado com sucesso para o peer {} ({}:{})", post.getId(), peerServerId, peerHost, peerPort);
-                }
-            } catch (Exception e) {
-                log.error("[Replicação-PostCriado] Erro durante a replicação do post {} para o peer {} ({}:{}): {}", 
-                          post.getId(), peerServerId, peerHost, peerPort, e.getMessage(), e);
-            }
-        }
-        log.info("[Replicação-PostCriado] Processo de replicação finalizado para o post {}", post.getId());
     }
 
     /**
@@ -224,96 +188,114 @@ public class PostService {
         String authorId = post.getUser().getId();
         log.info("[Notificações-PostCriado] Coordenador ({}) iniciando criação de notificações no BD para o post {} do autor {}", selfServerId, post.getId(), authorId);
 
-        List<UserResponseDTO> followers = followService.getFollowers(authorId);
+        // IDs vindos do índice em memória do grafo (sem consulta ao banco após a carga).
+        List<String> followerIds = followGraphIndex.getFollowerIds(authorId);
 
-        if (followers.isEmpty()) {
+        if (followerIds.isEmpty()) {
             log.info("[Notificações-PostCriado] Autor {} não possui seguidores. Nenhuma notificação de BD a ser criada para o post {}.", authorId, post.getId());
             return;
         }
 
-        log.info("Encontrados {} seguidores para o autor {}. Criando notificações no BD.", followers.size(), authorId);
+        log.info("Encontrados {} seguidores para o autor {}. Criando notificações no BD.", followerIds.size(), authorId);
 
-        List<String> followerIds = followers.stream().map(UserResponseDTO::getId).collect(Collectors.toList());
-        List<User> followerUsers = userRepository.findAllById(followerIds); 
+        // Referências não inicializadas: o writer em massa só lê o ID do usuário.
+        List<User> followerUsers = followerIds.stream().map(userRepository::getReferenceById).collect(Collectors.toList());
+        List<Notification> notificationsToSave = buildPostNotifications(post, followerUsers, idGenerator);
 
-        if (followerUsers.isEmpty()) {
-            log.warn("[Notificações-PostCriado] Não foi possível encontrar entidades User para os IDs dos seguidores. Pulando salvamento de notificações.");
-            return;
+        // Uma falha aqui já abortou a transação no Postgres: ela propaga e o post inteiro é desfeito.
+        List<Notification> inserted = notificationBulkWriter.insertIgnoringExisting(notificationsToSave);
+        notificationStreamRegistry.publishAfterCommit(inserted);
+        log.info("[Notificações-PostCriado] Salvas {} notificações no BD com sucesso para o post {}", inserted.size(), post.getId());
+
+        // Replica só o que foi de fato gravado localmente.
+        if (!inserted.isEmpty()) {
+            List<ServerCommsProto.ReplicateNotificationsBatchRequest> batches = buildNotificationBatches(
+                    inserted, selfServerId, notificationBatchMaxBytes, notificationBatchMaxCount);
+            log.info("[Notificações-PostCriado] Coordenador ({}) iniciando replicação de {} notificações para o post {} em {} lotes",
+                    selfServerId, inserted.size(), post.getId(), batches.size());
+
+            for (int i = 0; i < batches.size(); i++) {
+                ServerCommsProto.ReplicateNotificationsBatchRequest batch = batches.get(i);
+                replicationDispatcher.replicate("NotificacoesLote", post.getId() + "#" + (i + 1),
+                        ServerCommsProto.ReplicationEnvelope.newBuilder().setNotifications(batch).build());
+            }
+            log.info("[Notificações-PostCriado] Finalizada a replicação das notificações do post {}", post.getId());
         }
+    }
 
-        List<Notification> notificationsToSave = new ArrayList<>();
+    /**
+     * Cria uma notificação NEW_POST do post para cada seguidor.
+     */
+    static List<Notification> buildPostNotifications(Post post, List<User> followers, IdGenerator idGenerator) {
+        List<Notification> notifications = new ArrayList<>(followers.size());
         String message = String.format("Usuário '%s' publicou um novo post.", post.getUser().getName());
 
-        for (User follower : followerUsers) {
+        for (User follower : followers) {
             Notification notification = new Notification();
-            notification.setId(UUID.randomUUID().toString());
+            notification.setId(idGenerator.newId());
             notification.setUser(follower);
             notification.setType("NEW_POST");
             notification.setMessage(message);
             notification.setRelatedEntityId(post.getId());
             notification.setRead(false);
             notification.setCreatedAt(LocalDateTime.now(ZoneId.of("UTC")));
-            notificationsToSave.add(notification);
-        }
-
-        try {
-            notificationRepository.saveAll(notificationsToSave);
-            log.info("[Notificações-PostCriado] Salvas {} notificações no BD com sucesso para o post {}", notificationsToSave.size(), post.getId());
-        } catch (Exception e) {
-            log.error("[Notificações-PostCriado] Erro ao salvar notificações no BD para o post {}: {}", post.getId(), e.getMessage(), e);
+            notifications.add(notification);
         }
+        return notifications;
+    }
 
-        if (!notificationsToSave.isEmpty()) {
-            log.info("[Notificações-PostCriado] Coordenador ({}) iniciando replicação de {} notificações para o post {}", selfServerId, notificationsToSave.size(), post.getId());
-            
-            List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfServerId) && !"unknown".startsWith(peerServerId);
-                })
-                .collect(Collectors.toList());
-
-            if (activePeerInstances.isEmpty()) {
-                 log.warn("[Notificações-PostCriado] Nenhum peer ativo encontrado via Consul para replicar notificações para o post {}.", post.getId());
-                 return;
+    /**
+     * Agrupa as notificações em lotes limitados pelo tamanho serializado e pela quantidade,
+     * mantendo cada requisição abaixo do limite de mensagem do gRPC.
+     */
+    static List<ServerCommsProto.ReplicateNotificationsBatchRequest> buildNotificationBatches(
+            List<Notification> notifications, String coordinatorId, int maxBytes, int maxCount) {
+        List<ServerCommsProto.ReplicateNotificationsBatchRequest> batches = new ArrayList<>();
+        ServerCommsProto.ReplicateNotificationsBatchRequest.Builder current = newNotificationBatch(coordinatorId);
+        int currentBytes = 0;
+
+        for (Notification notificationEntity : notifications) {
+            ServerCommsProto.NotificationProto notificationProto = toNotificationProto(notificationEntity);
+
+            // Tamanho do campo repetido: tag + varint do comprimento + corpo
+            int entryBytes = com.google.protobuf.CodedOutputStream.computeMessageSize(1, notificationProto);
+            if (current.getNotificationsCount() > 0
+                    && (currentBytes + entryBytes > maxBytes || current.getNotificationsCount() >= maxCount)) {
+                batches.add(current.build());
+                current = newNotificationBatch(coordinatorId);
+                currentBytes = 0;
             }
+            current.addNotifications(notificationProto);
+            currentBytes += entryBytes;
+        }
 
-            notificationsToSave.forEach(notificationEntity -> {
-                Timestamp createdAtProto = Timestamp.newBuilder()
-                    .setSeconds(notificationEntity.getCreatedAt().toEpochSecond(ZoneOffset.UTC))
-                    .setNanos(notificationEntity.getCreatedAt().getNano())
-                    .build();
-                ServerCommsProto.NotificationProto notificationProto = ServerCommsProto.NotificationProto.newBuilder()
-                    .setId(notificationEntity.getId())
-                    .setUserId(notificationEntity.getUser().getId())
-                    .setType(notificationEntity.getType())
-                    .setMessage(notificationEntity.getMessage())
-                    .setRelatedEntityId(notificationEntity.getRelatedEntityId() != null ? notificationEntity.getRelatedEntityId() : "")
-                    .setIsRead(notificationEntity.isRead())
-                    .setCreatedAt(createdAtProto)
-                    .build();
-                
-                activePeerInstances.forEach(peerInstance -> {
-                    String peerHost = peerInstance.getHost();
-                    int peerPort = getGrpcPortFromInstance(peerInstance);
-                    String peerServerId = getServerIdFromInstance(peerInstance);
-
-                    if(peerPort == -1){
-                        log.warn("[Notificações-PostCriado] Não foi possível obter porta gRPC para peer {}. Pulando replicação da notificação {} para este peer.", peerServerId, notificationEntity.getId());
-                        return;
-                    }
-
-                    log.debug("[Notificações-PostCriado] Replicando notificação {} para o peer {} ({}:{})", notificationEntity.getId(), peerServerId, peerHost, peerPort);
-                    try {
-                        grpcClientService.replicateNotificationToPeer(peerHost, peerPort, notificationProto);
-                    } catch (Exception e) {
-                        log.error("[Notificações-PostCriado] Erro ao replicar notificação {} para o peer {} ({}:{}): {}", notificationEntity.getId(), peerServerId, peerHost, peerPort, e.getMessage(), e);
-                    }
-                });
-            });
-            log.info("[Notificações-PostCriado] Finalizada a iniciação da replicação para as notificações do post {}", post.getId());
+        if (current.getNotificationsCount() > 0) {
+            batches.add(current.build());
         }
+        return batches;
+    }
+
+    /**
+     * Converte a notificação no NotificationProto replicado (createdAt em UTC).
+     */
+    static ServerCommsProto.NotificationProto toNotificationProto(Notification notification) {
+        Timestamp createdAtProto = Timestamp.newBuilder()
+            .setSeconds(notification.getCreatedAt().toEpochSecond(ZoneOffset.UTC))
+            .setNanos(notification.getCreatedAt().getNano())
+            .build();
+        return ServerCommsProto.NotificationProto.newBuilder()
+            .setId(notification.getId())
+            .setUserId(notification.getUser().getId())
+            .setType(notification.getType())
+            .setMessage(notification.getMessage())
+            .setRelatedEntityId(notification.getRelatedEntityId() != null ? notification.getRelatedEntityId() : "")
+            .setIsRead(notification.isRead())
+            .setCreatedAt(createdAtProto)
+            .build();
+    }
+
+    private static ServerCommsProto.ReplicateNotificationsBatchRequest.Builder newNotificationBatch(String coordinatorId) {
+        return ServerCommsProto.ReplicateNotificationsBatchRequest.newBuilder().setCoordinatorId(coordinatorId);
     }
 
      /**
@@ -331,10 +313,10 @@ public class PostService {
             return;
         }
 
-        User userEntity = userRepository.findById(userId)
+        User userEntity = userCache.getReference(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado ao salvar post replicado: " + userId));
 
-        Server seguidorServerEntity = serverRepository.findById(selfServerId) 
+        Server seguidorServerEntity = electionService.getSelfServer() 
                 .orElseThrow(() -> new IllegalStateException("Servidor local (seguidor) " + selfServerId + " não encontrado no BD ao salvar post replicado."));
 
         Post post = new Post();
@@ -347,6 +329,7 @@ public class PostService {
         post.setServer(seguidorServerEntity);
         
         postRepository.save(post);
+        timelineService.fanOut(post);
         log.info("[PostReplicado] Post replicado {} salvo com sucesso com relógio lógico {} no servidor {}.", postId, logicalClock, selfServerId);
     }
 
@@ -363,12 +346,69 @@ public class PostService {
      */
     public Page<PostResponseDto> getPostsByUserId(String userId, Pageable pageable) {
         log.info("Buscando posts DTOs para o usuário: {}, página: {}, tamanho: {}", userId, pageable.getPageNumber(), pageable.getPageSize());
-        if (!userRepository.existsById(userId)) {
+        if (!userCache.exists(userId)) {
             throw new IllegalArgumentException("Usuário não encontrado com ID: " + userId);
         }
         return postRepository.findPostsByUserIdDto(userId, pageable);
     }
 
+    /**
+     * Busca posts não deletados paginados por cursor (createdAt, id), sem consulta de contagem
+     * por padrão. O custo de cada página independe da profundidade.
+     *
+     * @param cursor Cursor retornado na página anterior, ou nulo para a primeira página.
+     * @param limit Quantidade máxima de posts na página.
+     * @param withCount Se verdadeiro, inclui o total de posts (uma consulta de contagem a mais).
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PostResponseDto> getAllPostsByCursor(String cursor, int limit, boolean withCount) {
+        log.info("Buscando posts DTOs por cursor, limite: {}, contagem: {}", limit, withCount);
+        PostCursor after = decodeCursor(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<PostResponseDto> rows = after == null
+                ? postRepository.findPostsDtoFirst(pageRequest)
+                : postRepository.findPostsDtoAfter(after.createdAt(), after.postId(), pageRequest);
+        return toCursorPage(rows, limit, withCount ? postRepository.countByIsDeletedFalse() : null);
+    }
+
+    /**
+     * Busca posts não deletados de um usuário paginados por cursor (createdAt, id).
+     *
+     * @param userId O ID do usuário.
+     * @param cursor Cursor retornado na página anterior, ou nulo para a primeira página.
+     * @param limit Quantidade máxima de posts na página.
+     * @param withCount Se verdadeiro, inclui o total de posts do usuário.
+     * @throws IllegalArgumentException Se o usuário não existir ou o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PostResponseDto> getPostsByUserIdByCursor(String userId, String cursor, int limit, boolean withCount) {
+        log.info("Buscando posts DTOs por cursor para o usuário: {}, limite: {}, contagem: {}", userId, limit, withCount);
+        if (!userCache.exists(userId)) {
+            throw new IllegalArgumentException("Usuário não encontrado com ID: " + userId);
+        }
+        PostCursor after = decodeCursor(cursor);
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<PostResponseDto> rows = after == null
+                ? postRepository.findPostsByUserIdDtoFirst(userId, pageRequest)
+                : postRepository.findPostsByUserIdDtoAfter(userId, after.createdAt(), after.postId(), pageRequest);
+        return toCursorPage(rows, limit, withCount ? postRepository.countByUserIdAndIsDeletedFalse(userId) : null);
+    }
+
+    private PostCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : PostCursor.decode(cursor);
+    }
+
+    /**
+     * Monta a página a partir de {@code limit + 1} linhas: a linha extra indica se há próxima página.
+     */
+    private CursorPageResponse<PostResponseDto> toCursorPage(List<PostResponseDto> rows, int limit, Long totalElements) {
+        boolean hasMore = rows.size() > limit;
+        List<PostResponseDto> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? PostCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore, totalElements);
+    }
+
     @Transactional
     public void deletePost(String postId, DeletePostRequestDto requestDto) {
         log.info("Processando requisição deletePost para o post ID: {} pelo usuário: {}", postId, requestDto.getUserId());
@@ -419,6 +459,7 @@ public class PostService {
         log.debug("Coordenador marcando o post {} como deletado.", post.getId());
         post.setDeleted(true);
         Post deletedPost = postRepository.save(post);
+        timelineService.removePost(deletedPost.getId());
         log.info("Post {} marcado como deletado localmente pelo coordenador {}. Iniciando replicação...", deletedPost.getId(), selfServerId);
 
         replicatePostDeletion(deletedPost.getId());
@@ -430,49 +471,12 @@ public class PostService {
      */
     private void replicatePostDeletion(String postId) {
         log.info("[Replicação-PostDeletado] Coordenador ({}) iniciando replicação para deleção do post ID: {}", selfServerId, postId);
-        
-        List<ServiceInstance> activePeerInstances = discoveryClient.getInstances(selfServiceName)
-                .stream()
-                .filter(instance -> {
-                    String peerServerId = getServerIdFromInstance(instance);
-                    return !peerServerId.equals(selfServerId) && !"unknown".startsWith(peerServerId);
-                })
-                .collect(Collectors.toList());
-
-        if (activePeerInstances.isEmpty()) {
-            log.info("[Replicação-PostDeletado] Nenhum peer ativo encontrado via Consul. Pulando replicação da deleção.");
-            return;
-        }
-        
-        log.info("[Replicação-PostDeletado] Iniciando replicação da deleção do post {} para {} peers ativos via Consul", 
-                 postId, activePeerInstances.size());
-
-        activePeerInstances.forEach(peerInstance -> {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerServerId = getServerIdFromInstance(peerInstance);
-            
-            if(peerPort == -1){
-                 log.warn("[Replicação-PostDeletado] Não foi possível obter porta gRPC para peer {}. Pulando replicação da deleção do post {} para este peer.", peerServerId, postId);
-                return;
-            }
 
-            log.debug("[Replicação-PostDeletado] Replicando deleção do post {} para o servidor {} ({}:{})", postId, peerServerId, peerHost, peerPort);
-            try {
-                ServerCommsProto.ReplicationResponse replicationResponse = 
-                    grpcClientService.replicatePostDeletionToPeer(peerHost, peerPort, postId);
-                
-                if (replicationResponse == null || !replicationResponse.getSuccess()) {
-                     log.warn("[Replicação-PostDeletado] Replicação da deleção do post {} para o servidor {} ({}:{}) falhou. Mensagem: {}",
-                              postId, peerServerId, peerHost, peerPort, replicationResponse != null ? replicationResponse.getMessage() : "Sem resposta");
-                } else {
-                     log.info("[Replicação-PostDeletado] Replicação da deleção do post {} para o servidor {} ({}:{}) iniciada com sucesso", postId, peerServerId, peerHost, peerPort);
-                }
-            } catch (Exception e) {
-                log.error("[Replicação-PostDeletado] Erro ao replicar deleção do post {} para o servidor {} ({}:{}): {}", postId, peerServerId, peerHost, peerPort, e.getMessage(), e);
-            }
-        });
-        log.info("[Replicação-PostDeletado] Finalizada a iniciação do processo de replicação para deleção do post ID: {}", postId);
+        ServerCommsProto.ReplicatePostDeletionRequest deletion = ServerCommsProto.ReplicatePostDeletionRequest.newBuilder()
+                .setPostId(postId)
+                .build();
+        replicationDispatcher.replicate("PostDeletado", postId,
+                ServerCommsProto.ReplicationEnvelope.newBuilder().setPostDeleted(deletion).build());
     }
 
     @Transactional
@@ -488,6 +492,7 @@ public class PostService {
             if (!post.isDeleted()) {
                 post.setDeleted(true);
                 postRepository.save(post);
+                timelineService.removePost(postId);
                 log.info("Post replicado {} marcado como deletado com sucesso.", postId);
             } else {
                  log.warn("Requisição de replicação para deletar post {}, mas já estava deletado localmente.", postId);
@@ -497,5 +502,4 @@ public class PostService {
              log.warn("Recebida requisição de replicação para deletar post ID inexistente: {}", postId);
         }
     }
-
-} 
\ No newline at end of file
+}
\ No newline at end of file
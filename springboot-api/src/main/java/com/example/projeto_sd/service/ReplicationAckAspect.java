@@ -0,0 +1,42 @@
+package com.example.projeto_sd.service;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Envolve os métodos {@code @Transactional} dos serviços por fora do interceptor de
+ * transação: quando a chamada é a mais externa, a espera pelos acks da replicação
+ * (ver {@link ReplicationDispatcher#awaitCommittedReplication()}) só começa depois que a
+ * transação terminou e a conexão JDBC voltou ao pool. Chamadas aninhadas apenas prosseguem.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ReplicationAckAspect {
+
+    private final ReplicationDispatcher replicationDispatcher;
+
+    @Around("@annotation(transactional) && within(com.example.projeto_sd.service..*)")
+    public Object awaitAfterTransaction(ProceedingJoinPoint joinPoint, Transactional transactional) throws Throwable {
+        if (transactional.readOnly() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            replicationDispatcher.discardCommittedReplication();
+            throw e;
+        }
+        replicationDispatcher.awaitCommittedReplication();
+        return result;
+    }
+}
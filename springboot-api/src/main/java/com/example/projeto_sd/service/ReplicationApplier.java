@@ -0,0 +1,192 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.MarkNotificationsReadRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.PostInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationAck;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import com.example.projeto_sd.grpc.ServerCommsProto.UserInfo;
+import com.example.projeto_sd.model.User;
+import com.example.projeto_sd.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aplica, no nó seguidor, os envelopes recebidos pelo ReplicationStream.
+ * Os envelopes de um mesmo stream são aplicados em ordem; sequências já aplicadas
+ * (reenvios após reconexão) são apenas confirmadas novamente, e uma sequência que falha
+ * é reenviada pelo remetente em vez de descartada.
+ * <p>
+ * Só este caminho avança o token de consistência ({@link LogicalClock#markApplied}), pelo piso de
+ * relógio de cada envelope, que vale na ordem do outbox do coordenador; a anti-entropia repara
+ * linhas fora de ordem.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicationApplier {
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final FollowService followService;
+    private final FollowGraphIndex followGraphIndex;
+    private final PostService postService;
+    private final NotificationService notificationService;
+    private final MessageService messageService;
+    private final ElectionService electionService;
+    private final SnapshotService snapshotService;
+    private final LogicalClock logicalClock;
+
+    /**
+     * Estado de aplicação por stream_id.
+     */
+    private final ConcurrentMap<String, StreamState> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Aplica um envelope e retorna o ack cumulativo correspondente.
+     * <p>
+     * Um envelope que falha não avança o stream: o ack mantém a última sequência aplicada e informa
+     * a rejeitada, e o remetente reenvia a partir dela com o seu backoff. Até que ela seja aplicada,
+     * as sequências seguintes também são recusadas, para não aplicar nada fora de ordem.
+     *
+     * @param envelope O envelope recebido.
+     * @return Ack com a maior sequência aplicada do stream (e a sequência rejeitada, se houver).
+     */
+    public ReplicationAck apply(ReplicationEnvelope envelope) {
+        String streamId = envelope.getStreamId();
+        long sequence = envelope.getSequence();
+        StreamState state = streams.computeIfAbsent(streamId, k -> new StreamState());
+
+        // A aplicação faz I/O no banco: um ReentrantLock (e não synchronized) não prende a thread carrier das threads virtuais
+        state.lock.lock();
+        try {
+            ReplicationAck.Builder ack = ReplicationAck.newBuilder()
+                    .setStreamId(streamId)
+                    .setAckedSequence(state.lastApplied);
+
+            if (envelope.getSnapshotRequired()) {
+                // O remetente não tem mais o que falta a este nó: volta ao bootstrap e recusa até ser reposicionado
+                snapshotService.requireBootstrap();
+                return ack.setRejectedSequence(sequence)
+                        .setMessage("Nó voltando ao bootstrap por snapshot.")
+                        .build();
+            }
+
+            if (sequence <= state.lastApplied) {
+                log.debug("[ReplicationStream] Sequência {} do stream {} já aplicada. Confirmando novamente.", sequence, streamId);
+                return ack.build();
+            }
+
+            if (state.blockedAt > 0 && sequence > state.blockedAt) {
+                log.debug("[ReplicationStream] Sequência {} do stream {} recusada: aguardando o reenvio da sequência {}.",
+                        sequence, streamId, state.blockedAt);
+                return ack.setRejectedSequence(sequence)
+                        .setMessage("Aguardando o reenvio da sequência " + state.blockedAt + ".")
+                        .build();
+            }
+
+            if (snapshotService.isBootstrapping()) {
+                // Recusa sem avançar: o coordenador reenvia a partir da posição coberta pelo snapshot.
+                log.debug("[ReplicationStream] Nó em bootstrap. Envelope {} do stream {} recusado.", sequence, streamId);
+                return ack.setRejectedSequence(sequence)
+                        .setMessage("Nó aguardando a carga do snapshot.")
+                        .build();
+            }
+
+            if (electionService.isCurrentNodeCoordinator()) {
+                // Durante uma troca de coordenador o remetente pode ainda não saber da eleição:
+                // recusa sem avançar, para que o envelope não seja descartado se este nó voltar a seguidor.
+                log.warn("[ReplicationStream] Nó coordenador recebeu envelope {} do stream {} (origem {}). Recusando.",
+                        sequence, streamId, envelope.getOriginServerId());
+                return ack.setRejectedSequence(sequence)
+                        .setMessage("Coordinator should not process replication.")
+                        .build();
+            }
+
+            try {
+                applyMutation(envelope);
+                state.lastApplied = sequence;
+                state.blockedAt = 0;
+                return ack.setAckedSequence(sequence).build();
+            } catch (Exception e) {
+                log.error("[ReplicationStream] Erro ao aplicar envelope {} ({}) do stream {}: {}. Aguardando reenvio.",
+                        sequence, envelope.getMutationCase(), streamId, e.getMessage(), e);
+                state.blockedAt = sequence;
+                return ack.setRejectedSequence(sequence)
+                        .setMessage("Erro ao aplicar " + envelope.getMutationCase() + ": " + e.getMessage())
+                        .build();
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Descarta o estado de um stream encerrado. Se o remetente reabrir o stream com o mesmo
+     * stream_id, os reenvios já aplicados são aplicados de novo, o que é seguro porque a
+     * aplicação da replicação é idempotente.
+     */
+    public void streamClosed(String streamId) {
+        if (streams.remove(streamId) != null) {
+            log.debug("[ReplicationStream] Estado do stream {} descartado.", streamId);
+        }
+    }
+
+    private void applyMutation(ReplicationEnvelope envelope) {
+        switch (envelope.getMutationCase()) {
+            case USER_CREATED -> applyUserCreated(envelope.getUserCreated());
+            case FOLLOW -> followService.saveReplicatedFollow(envelope.getFollow().getFollowerId(), envelope.getFollow().getFollowedId());
+            case UNFOLLOW -> followService.deleteReplicatedFollow(envelope.getUnfollow().getFollowerId(), envelope.getUnfollow().getFollowedId());
+            case POST_CREATED -> {
+                PostInfo post = envelope.getPostCreated();
+                postService.saveReplicatedPost(post.getId(), post.getUserId(), post.getContent(),
+                        post.getCreatedAtMillis(), post.getLogicalClock());
+                logicalClock.markApplied(envelope.getAppliedFloor());
+            }
+            case POST_DELETED -> postService.markReplicatedPostAsDeleted(envelope.getPostDeleted().getPostId());
+            case NOTIFICATIONS -> notificationService.saveReplicatedNotifications(envelope.getNotifications().getNotificationsList());
+            case NOTIFICATIONS_READ -> applyNotificationsRead(envelope.getNotificationsRead());
+            case MESSAGE_SENT -> {
+                messageService.saveReplicatedMessage(envelope.getMessageSent());
+                logicalClock.markApplied(envelope.getAppliedFloor());
+            }
+            case MUTATION_NOT_SET -> throw new IllegalArgumentException("Envelope sem mutação.");
+        }
+    }
+
+    private void applyNotificationsRead(MarkNotificationsReadRequest markRead) {
+        if (markRead.getReadUpToMillis() > 0) {
+            notificationService.markReplicatedNotificationsAsReadUpTo(markRead.getUserId(),
+                    NotificationService.fromEpochMillis(markRead.getReadUpToMillis()));
+        } else {
+            notificationService.markReplicatedNotificationsAsRead(markRead.getUserId(), markRead.getNotificationIdsList());
+        }
+    }
+
+    private void applyUserCreated(UserInfo userInfo) {
+        if (userInfo.getId().isEmpty() || userInfo.getName().isEmpty()) {
+            throw new IllegalStateException("Requisição de replicação inválida: campos obrigatórios ausentes");
+        }
+        if (userCache.exists(userInfo.getId())) {
+            log.debug("Usuário {} já existe. Assumindo que já foi replicado.", userInfo.getId());
+            return;
+        }
+        userRepository.save(new User(userInfo.getId(), userInfo.getName()));
+        followGraphIndex.onUserCreated(userInfo.getId(), userInfo.getName());
+        userCache.onUserCreated(userInfo.getId(), userInfo.getName());
+        log.info("ID de usuário replicado com sucesso via stream: {}, Nome: {}", userInfo.getId(), userInfo.getName());
+    }
+
+    /**
+     * Última sequência aplicada e, após uma falha, a sequência que precisa ser reaplicada antes das seguintes.
+     */
+    private static final class StreamState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long lastApplied;
+        private long blockedAt;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.PeerCallGuard;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Ponto de entrada da replicação no coordenador. As mutações são gravadas no outbox
+ * na mesma transação da entidade e enviadas pelos shippers em segundo plano. A espera
+ * (limitada por tempo) pelo número de confirmações exigido pelo modo de ack configurado
+ * (NONE, ONE, QUORUM ou ALL) acontece só depois que a transação mais externa terminou e
+ * devolveu a conexão ao pool (ver {@link ReplicationAckAspect}). Peers mais lentos recebem depois.
+ */
+@Service
+@Slf4j
+public class ReplicationDispatcher {
+
+    /**
+     * Quantidade de confirmações que o coordenador aguarda antes de retornar.
+     */
+    public enum AckMode {
+        NONE,
+        ONE,
+        QUORUM,
+        ALL
+    }
+
+    @Autowired
+    private ClusterMembership clusterMembership;
+
+    @Autowired
+    private ReplicationOutbox replicationOutbox;
+
+    @Autowired
+    private ReplicationProgress replicationProgress;
+
+    @Autowired
+    private PeerCallGuard peerCallGuard;
+
+    @Value("${replication.ack.mode:QUORUM}")
+    private AckMode ackMode;
+
+    @Value("${replication.ack.timeout.ms:3000}")
+    private long ackTimeoutMs;
+
+    /**
+     * Maior posição confirmada (commit) pela thread corrente e ainda não aguardada.
+     * Como os acks são cumulativos, basta aguardar a última mutação da requisição.
+     */
+    private final ThreadLocal<CommittedPosition> committedPosition = new ThreadLocal<>();
+
+    private record CommittedPosition(String operation, String entityId, long outboxId) {
+    }
+
+    /**
+     * Grava a mutação no outbox, participando da transação corrente. Nenhuma chamada de rede
+     * é feita aqui: após o commit os shippers são acordados e a posição fica registrada para
+     * {@link #awaitCommittedReplication()}, chamado depois que a transação devolveu a conexão.
+     * Fora de transação a espera pelo quórum acontece aqui mesmo.
+     *
+     * @param operation Rótulo da operação (usado nos logs).
+     * @param entityId ID da entidade replicada (usado nos logs).
+     * @param mutation Envelope contendo apenas a mutação; a sequência é o ID do outbox.
+     * @return A posição da mutação no outbox.
+     */
+    public long replicate(String operation, String entityId, ReplicationEnvelope mutation) {
+        long outboxId = replicationOutbox.append(operation, entityId, mutation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Só acorda os shippers: aguardar acks aqui seguraria a conexão JDBC da transação
+                    replicationProgress.notifyAppended(outboxId);
+                    CommittedPosition previous = committedPosition.get();
+                    if (previous == null || previous.outboxId() < outboxId) {
+                        committedPosition.set(new CommittedPosition(operation, entityId, outboxId));
+                    }
+                }
+            });
+        } else {
+            replicationProgress.notifyAppended(outboxId);
+            awaitAcks(new CommittedPosition(operation, entityId, outboxId));
+        }
+        return outboxId;
+    }
+
+    /**
+     * Aguarda, conforme o modo de ack, as confirmações da última mutação confirmada pela
+     * thread corrente. Deve ser chamado fora de qualquer transação; sem mutação pendente, não faz nada.
+     */
+    public void awaitCommittedReplication() {
+        CommittedPosition position = committedPosition.get();
+        if (position == null) {
+            return;
+        }
+        committedPosition.remove();
+        awaitAcks(position);
+    }
+
+    /**
+     * Descarta a posição pendente da thread corrente (a requisição falhou e não vai aguardar acks).
+     */
+    public void discardCommittedReplication() {
+        committedPosition.remove();
+    }
+
+    private void awaitAcks(CommittedPosition position) {
+        String operation = position.operation();
+        String entityId = position.entityId();
+        long outboxId = position.outboxId();
+        if (ackMode == AckMode.NONE) {
+            return;
+        }
+        List<ClusterMembership.Peer> peers = clusterMembership.getPeers();
+        if (peers.isEmpty()) {
+            return;
+        }
+        int required = requiredAcks(peers.size());
+        // Peers com o circuito aberto não vão confirmar dentro do timeout: não esperamos por eles
+        List<String> peerIds = peers.stream()
+                .filter(peer -> peerCallGuard.isAvailable(peer.host(), peer.port()))
+                .map(ClusterMembership.Peer::serverId)
+                .toList();
+        if (peerIds.size() < required) {
+            log.warn("[Replicação-{}] Quórum inalcançável para {} (posição {}): {} de {} peers com circuito fechado, exigidos {}. Os shippers seguem em segundo plano.",
+                    operation, entityId, outboxId, peerIds.size(), peers.size(), required);
+            return;
+        }
+        int acked = replicationProgress.awaitAcks(peerIds, outboxId, required, ackTimeoutMs);
+        if (acked >= required) {
+            log.info("[Replicação-{}] Quórum atingido para {} (posição {}, {}/{} acks, exigidos {}).",
+                    operation, entityId, outboxId, acked, peers.size(), required);
+        } else {
+            log.warn("[Replicação-{}] Quórum NÃO atingido para {} em {}ms (posição {}, {} acks, exigidos {}). Os shippers seguem em segundo plano.",
+                    operation, entityId, ackTimeoutMs, outboxId, acked, required);
+        }
+    }
+
+    /**
+     * Número de acks de peers necessários. O coordenador conta como uma réplica,
+     * então QUORUM exige (peers + 1) / 2 confirmações remotas.
+     */
+    int requiredAcks(int peerCount) {
+        return switch (ackMode) {
+            case NONE -> 0;
+            case ONE -> 1;
+            case QUORUM -> (peerCount + 1) / 2;
+            case ALL -> peerCount;
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import com.example.projeto_sd.model.ReplicationOutboxEntry;
+import com.example.projeto_sd.repository.ReplicationOutboxRepository;
+import com.example.projeto_sd.repository.ReplicationPeerOffsetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acesso ao outbox de replicação: gravação junto com a entidade (mesma transação),
+ * leitura em lotes pelos shippers e limpeza das entradas já confirmadas.
+ * <p>
+ * A limpeza nunca remove uma entrada que um peer acompanhado ainda não confirmou. Um peer cuja
+ * entrada não confirmada mais antiga passou da retenção é marcado para recarga por snapshot
+ * ({@link com.example.projeto_sd.model.ReplicationPeerOffset#isSnapshotRequired()}) e deixa de
+ * segurar a limpeza; o shipper passa a pedir que ele se recarregue em vez de enviar o que falta.
+ * <p>
+ * IDs são alocados antes do commit, então um buraco na sequência pode ser uma transação ainda
+ * aberta ou uma revertida. A decisão vem do banco, não do relógio: cada gravação garante um ID de
+ * transação antes de alocar a posição, então a transação dona de um buraco abaixo de uma entrada
+ * visível tem ID menor que o xmax de uma leitura feita depois dela. Quando o xmin do banco passa
+ * desse xmax, essa transação terminou, e um buraco que continua vazio foi revertido.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicationOutbox {
+
+    private final ReplicationOutboxRepository outboxRepository;
+    private final ReplicationPeerOffsetRepository peerOffsetRepository;
+
+    @Value("${replication.outbox.retention.hours:24}")
+    private long retentionHours;
+
+    @Value("${replication.outbox.settle.poll.ms:20}")
+    private long settlePollMs;
+
+    /**
+     * Lote lido do outbox.
+     *
+     * @param entries Entradas em ordem de posição.
+     * @param visibilityHorizon xmax lido após as entradas: as transações que alocaram posições
+     *                          abaixo delas têm ID menor que este.
+     */
+    public record Batch(List<ReplicationOutboxEntry> entries, long visibilityHorizon) {
+    }
+
+    /**
+     * Grava a mutação no outbox. Participa da transação corrente, se houver.
+     *
+     * @param operation Rótulo da operação.
+     * @param entityId ID da entidade replicada.
+     * @param mutation Envelope contendo apenas a mutação.
+     * @return A posição da entrada no outbox.
+     */
+    @Transactional
+    public long append(String operation, String entityId, ReplicationEnvelope mutation) {
+        // A transação precisa ter um ID antes de alocar a posição (ver a descrição da classe)
+        outboxRepository.assignTransactionId();
+        ReplicationOutboxEntry entry = new ReplicationOutboxEntry();
+        entry.setOperation(operation);
+        entry.setEntityId(entityId);
+        entry.setPayload(mutation.toByteArray());
+        entry.setCreatedAt(LocalDateTime.now());
+        ReplicationOutboxEntry saved = outboxRepository.save(entry);
+        log.debug("[Outbox] {} de {} gravado na posição {}.", operation, entityId, saved.getId());
+        return saved.getId();
+    }
+
+    /**
+     * Lê as próximas entradas após a posição informada, com o horizonte de visibilidade da leitura.
+     */
+    @Transactional(readOnly = true)
+    public Batch fetchAfter(long offset, int limit) {
+        List<ReplicationOutboxEntry> entries = outboxRepository.findByIdGreaterThanOrderByIdAsc(offset, PageRequest.of(0, limit));
+        return new Batch(entries, outboxRepository.findNextTransactionId());
+    }
+
+    /**
+     * Menor ID de transação ainda ativa no banco.
+     */
+    @Transactional(readOnly = true)
+    public long oldestActiveTransactionId() {
+        return outboxRepository.findOldestActiveTransactionId();
+    }
+
+    /**
+     * Posição assentada do outbox: a maior posição atual, devolvida depois que todas as transações
+     * que podem ter alocado posições até ela terminaram. Tudo até essa posição fica visível para
+     * uma leitura iniciada depois do retorno.
+     *
+     * @throws IllegalStateException se alguma transação segue aberta após {@code timeoutMs}
+     */
+    public long settledPosition(long timeoutMs) throws InterruptedException {
+        long position = outboxRepository.findMaxId();
+        long horizon = outboxRepository.findNextTransactionId();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (outboxRepository.findOldestActiveTransactionId() < horizon) {
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException("Transações anteriores à posição " + position + " do outbox seguem abertas após " + timeoutMs + "ms.");
+            }
+            Thread.sleep(settlePollMs);
+        }
+        return position;
+    }
+
+    /**
+     * Menor posição ainda presente no outbox (0 se estiver vazio).
+     */
+    @Transactional(readOnly = true)
+    public long firstPosition() {
+        return outboxRepository.findMinId();
+    }
+
+    /**
+     * Marca para recarga por snapshot os peers atrasados além da retenção e remove as entradas
+     * confirmadas por todos os demais. Sem nenhum peer acompanhado, remove só as entradas além da
+     * retenção: um peer que aparecer depois começa por snapshot (ver o shipper).
+     *
+     * @return IDs dos peers marcados nesta limpeza
+     */
+    @Transactional
+    public List<String> prune() {
+        LocalDateTime olderThan = LocalDateTime.now().minusHours(retentionHours);
+        List<String> lagging = peerOffsetRepository.findLaggingSince(olderThan);
+        if (!lagging.isEmpty()) {
+            peerOffsetRepository.markSnapshotRequired(lagging);
+            log.warn("[Outbox] Peers {} com entradas não confirmadas há mais de {}h. Marcados para recarga por snapshot.", lagging, retentionHours);
+        }
+        Optional<Long> ackedByAll = peerOffsetRepository.findMinAckedOffset();
+        int removed = ackedByAll.isPresent()
+                ? outboxRepository.pruneUpTo(ackedByAll.get())
+                : outboxRepository.pruneOlderThan(olderThan);
+        if (removed > 0) {
+            log.info("[Outbox] {} entradas removidas ({}).", removed, ackedByAll
+                    .map(acked -> "confirmadas até " + acked)
+                    .orElse("nenhum peer acompanhado, mais de " + retentionHours + "h"));
+        }
+        return lagging;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.projeto_sd.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ponto de encontro entre quem grava no outbox e os shippers:
+ * avisa os shippers sobre novas entradas e registra a posição confirmada por cada peer,
+ * permitindo aguardar um quórum de confirmações.
+ * <p>
+ * Usa {@link ReentrantLock}/{@link Condition} em vez de monitor: as threads de requisição
+ * esperam o quórum aqui, e {@code Object.wait} fixaria a carrier thread em virtual threads.
+ */
+@Component
+public class ReplicationProgress {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Long> ackedByPeer = new ConcurrentHashMap<>();
+    private long latestAppended = 0;
+
+    /**
+     * Sinaliza que uma nova entrada foi confirmada (commit) no outbox.
+     */
+    public void notifyAppended(long offset) {
+        lock.lock();
+        try {
+            if (offset > latestAppended) {
+                latestAppended = offset;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aguarda até que exista uma entrada posterior a {@code offset} ou o tempo esgote.
+     */
+    public void awaitAppendedAfter(long offset, long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (latestAppended <= offset && remainingNanos > 0) {
+                remainingNanos = changed.awaitNanos(remainingNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registra a posição confirmada por um peer.
+     */
+    public void recordAck(String peerServerId, long offset) {
+        ackedByPeer.merge(peerServerId, offset, Math::max);
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aguarda até que {@code required} peers dentre os informados tenham confirmado {@code offset}.
+     *
+     * @return Quantos peers confirmaram ao final da espera.
+     */
+    public int awaitAcks(Collection<String> peerServerIds, long offset, int required, long timeoutMs) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            int acked = countAcked(peerServerIds, offset);
+            while (acked < required && remainingNanos > 0) {
+                try {
+                    remainingNanos = changed.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                acked = countAcked(peerServerIds, offset);
+            }
+            return acked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Posição confirmada por peer (visão em memória deste nó).
+     */
+    public Map<String, Long> getAckedOffsets() {
+        return Map.copyOf(ackedByPeer);
+    }
+
+    private int countAcked(Collection<String> peerServerIds, long offset) {
+        int count = 0;
+        for (String peer : peerServerIds) {
+            if (ackedByPeer.getOrDefault(peer, 0L) >= offset) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
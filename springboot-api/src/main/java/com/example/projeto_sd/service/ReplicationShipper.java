@@ -0,0 +1,344 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationResponse;
+import com.example.projeto_sd.model.ReplicationOutboxEntry;
+import com.example.projeto_sd.model.ReplicationPeerOffset;
+import com.example.projeto_sd.repository.ReplicationPeerOffsetRepository;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Envia o outbox de replicação para os peers em segundo plano.
+ * Há uma thread por peer ativo: ela lê lotes a partir da última posição confirmada,
+ * envia pelo ReplicationStream usando o ID do outbox como sequência, persiste a posição
+ * confirmada e, em caso de falha, reenvia a partir dela. Peers que estavam fora do ar
+ * retomam automaticamente quando voltam a aparecer no Consul.
+ * <p>
+ * Um peer marcado para recarga por snapshot (atrasado além da retenção do outbox, ou novo quando
+ * o início do outbox já foi removido) não recebe mais entradas: o shipper envia periodicamente um
+ * envelope de controle {@code snapshot_required}, e o peer volta ao bootstrap. O {@code StreamSnapshot}
+ * que ele pede reposiciona o shipper ({@link #repositionPeer(String)}) e remove a marca.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicationShipper {
+
+    private final ReplicationOutbox replicationOutbox;
+    private final ReplicationPeerOffsetRepository peerOffsetRepository;
+    private final ReplicationStreamClient replicationStreamClient;
+    private final ClusterMembership clusterMembership;
+    private final ReplicationProgress replicationProgress;
+    private final WorkerThreads workerThreads;
+
+    @Value("${server.id}")
+    private String selfServerId;
+
+    @Value("${replication.shipper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${replication.shipper.poll.ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${replication.outbox.settle.timeout.ms:30000}")
+    private long settleTimeoutMs;
+
+    @Value("${replication.shipper.retry-backoff.ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${replication.shipper.batch.timeout.ms:35000}")
+    private long batchTimeoutMs;
+
+    @Value("${replication.outbox.prune.interval.ms:60000}")
+    private long pruneIntervalMs;
+
+    @Value("${replication.shipper.snapshot-request.interval.ms:5000}")
+    private long snapshotRequestIntervalMs;
+
+    private final ConcurrentMap<String, PeerShipper> shippers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replication-shipper-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Identifica os streams abertos por este processo; o peer deduplica reenvios dentro dele.
+     */
+    private String streamId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        streamId = "outbox-" + selfServerId + "-" + UUID.randomUUID();
+        log.info("[Shipper] Iniciando shippers do outbox (stream {}).", streamId);
+        supervisor.scheduleWithFixedDelay(this::refreshPeers, 0, 1, TimeUnit.SECONDS);
+        supervisor.scheduleWithFixedDelay(this::pruneOutbox, pruneIntervalMs, pruneIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        supervisor.shutdownNow();
+        shippers.values().forEach(PeerShipper::stop);
+        shippers.clear();
+    }
+
+    /**
+     * Reposiciona o envio para um peer que será carregado por snapshot: grava como confirmada a
+     * posição já assentada do outbox (coberta pelo snapshot lido em seguida) e encerra o shipper
+     * atual do peer, que é recriado a partir dela na próxima atualização de peers. A posição
+     * gravada também impede que a limpeza do outbox remova as entradas seguintes.
+     * Executa na thread supervisora para não concorrer com {@link #refreshPeers()}.
+     *
+     * @return a posição a partir da qual o peer volta a receber o outbox
+     */
+    public long repositionPeer(String serverId) throws InterruptedException, ExecutionException {
+        return supervisor.submit(() -> {
+            long position = replicationOutbox.settledPosition(settleTimeoutMs);
+            shippers.entrySet().removeIf(entry -> {
+                if (!entry.getValue().peer.serverId().equals(serverId)) {
+                    return false;
+                }
+                entry.getValue().stop();
+                return true;
+            });
+            peerOffsetRepository.save(new ReplicationPeerOffset(serverId, position, LocalDateTime.now(), false));
+            log.info("[Shipper] Peer {} reposicionado na posição {} para bootstrap por snapshot.", serverId, position);
+            return position;
+        }).get();
+    }
+
+    /**
+     * Inicia shippers para peers novos e encerra os de peers que saíram do cluster.
+     */
+    private void refreshPeers() {
+        try {
+            Set<String> activeKeys = new HashSet<>();
+            for (ClusterMembership.Peer peer : clusterMembership.getPeers()) {
+                String key = peer.serverId() + "@" + peer.host() + ":" + peer.port();
+                activeKeys.add(key);
+                shippers.computeIfAbsent(key, k -> {
+                    PeerShipper shipper = new PeerShipper(peer);
+                    shipper.start();
+                    return shipper;
+                });
+            }
+            shippers.entrySet().removeIf(entry -> {
+                if (activeKeys.contains(entry.getKey())) {
+                    return false;
+                }
+                log.info("[Shipper] Peer {} saiu do cluster. Encerrando shipper.", entry.getValue().peer.serverId());
+                entry.getValue().stop();
+                return true;
+            });
+        } catch (Exception e) {
+            log.warn("[Shipper] Erro ao atualizar a lista de peers: {}", e.getMessage());
+        }
+    }
+
+    private void pruneOutbox() {
+        try {
+            List<String> lagging = replicationOutbox.prune();
+            shippers.values().stream()
+                    .filter(shipper -> lagging.contains(shipper.peer.serverId()))
+                    .forEach(shipper -> shipper.snapshotRequired = true);
+        } catch (Exception e) {
+            log.warn("[Outbox] Erro ao limpar o outbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Thread de envio para um peer.
+     */
+    private final class PeerShipper implements Runnable {
+        private final ClusterMembership.Peer peer;
+        private final Thread thread;
+        private volatile boolean active = true;
+        private volatile boolean snapshotRequired;
+
+        // Horizonte de visibilidade do lote em que o buraco atual foi visto (0 se não há buraco)
+        // e a última posição daquele lote: buracos até ela são cobertos pelo horizonte
+        private long gapHorizon;
+        private long gapCoveredUpTo;
+
+        private PeerShipper(ClusterMembership.Peer peer) {
+            this.peer = peer;
+            this.thread = workerThreads.newThread("replication-shipper-" + peer.serverId(), this);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void stop() {
+            active = false;
+            thread.interrupt();
+            replicationStreamClient.close(peer, streamId);
+        }
+
+        @Override
+        public void run() {
+            long acked = loadOffset();
+            replicationProgress.recordAck(peer.serverId(), acked);
+            log.info("[Shipper] Shipper do peer {} iniciado a partir da posição {}.", peer.serverId(), acked);
+
+            while (active) {
+                try {
+                    if (snapshotRequired) {
+                        requestSnapshot(acked);
+                        Thread.sleep(snapshotRequestIntervalMs);
+                        continue;
+                    }
+                    // Lido antes do lote: se já passou do horizonte de um buraco, o lote mostra o estado final dele
+                    long oldestActive = replicationOutbox.oldestActiveTransactionId();
+                    ReplicationOutbox.Batch batch = replicationOutbox.fetchAfter(acked, batchSize);
+                    List<ReplicationOutboxEntry> fetched = batch.entries();
+                    List<ReplicationOutboxEntry> ready = readyEntries(batch, acked, oldestActive);
+                    if (ready.isEmpty()) {
+                        long seen = fetched.isEmpty() ? acked : fetched.get(fetched.size() - 1).getId();
+                        replicationProgress.awaitAppendedAfter(seen, pollIntervalMs);
+                        continue;
+                    }
+
+                    List<ListenableFuture<ReplicationResponse>> futures = new ArrayList<>(ready.size());
+                    for (ReplicationOutboxEntry entry : ready) {
+                        futures.add(replicationStreamClient.send(peer, streamId, toEnvelope(entry)));
+                    }
+                    try {
+                        Futures.successfulAsList(futures).get(batchTimeoutMs, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        log.warn("[Shipper] Peer {} não confirmou o lote em {}ms.", peer.serverId(), batchTimeoutMs);
+                    }
+
+                    long confirmed = replicationStreamClient.getAckedSequence(peer, streamId);
+                    if (confirmed > acked) {
+                        acked = confirmed;
+                        peerOffsetRepository.saveAckedOffset(peer.serverId(), acked, LocalDateTime.now());
+                        replicationProgress.recordAck(peer.serverId(), acked);
+                    }
+
+                    long last = ready.get(ready.size() - 1).getId();
+                    if (acked < last) {
+                        log.warn("[Shipper] Peer {} confirmou até {} de {}. Reenviando em {}ms.", peer.serverId(), acked, last, retryBackoffMs);
+                        Thread.sleep(retryBackoffMs);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    if (!active) {
+                        break;
+                    }
+                    log.error("[Shipper] Erro ao enviar outbox para o peer {}: {}", peer.serverId(), e.getMessage(), e);
+                    try {
+                        Thread.sleep(retryBackoffMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            log.info("[Shipper] Shipper do peer {} encerrado na posição {}.", peer.serverId(), acked);
+        }
+
+        /**
+         * Lê a posição confirmada do peer. Um peer sem posição gravada começa do início do outbox;
+         * se esse início já foi removido pela limpeza, ele é marcado para recarga por snapshot.
+         */
+        private long loadOffset() {
+            Optional<ReplicationPeerOffset> offset = peerOffsetRepository.findById(peer.serverId());
+            if (offset.isPresent()) {
+                snapshotRequired = offset.get().isSnapshotRequired();
+                return offset.get().getAckedOffset();
+            }
+            peerOffsetRepository.saveAckedOffset(peer.serverId(), 0, LocalDateTime.now());
+            if (replicationOutbox.firstPosition() > 1) {
+                peerOffsetRepository.markSnapshotRequired(List.of(peer.serverId()));
+                snapshotRequired = true;
+                log.warn("[Shipper] Peer {} sem posição e o início do outbox já foi removido. Marcado para recarga por snapshot.", peer.serverId());
+            }
+            return 0;
+        }
+
+        /**
+         * Pede ao peer que se recarregue por snapshot: as entradas após {@code acked} podem já ter sido removidas.
+         */
+        private void requestSnapshot(long acked) throws InterruptedException {
+            log.debug("[Shipper] Pedindo ao peer {} a recarga por snapshot (confirmado até {}).", peer.serverId(), acked);
+            ReplicationEnvelope request = ReplicationEnvelope.newBuilder()
+                    .setSequence(acked + 1)
+                    .setSnapshotRequired(true)
+                    .build();
+            try {
+                replicationStreamClient.send(peer, streamId, request).get(batchTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                log.debug("[Shipper] Pedido de snapshot ao peer {} sem resposta: {}", peer.serverId(), e.getMessage());
+            }
+        }
+
+        /**
+         * Entradas que podem ser enviadas em ordem. Um buraco na sequência pode ser uma transação
+         * ainda aberta: no primeiro encontro guarda-se o horizonte de visibilidade do lote, e o buraco
+         * só é considerado definitivo (transação revertida) quando a transação ativa mais antiga do
+         * banco passa desse horizonte e ele continua vazio. Transações lentas apenas atrasam o envio.
+         */
+        private List<ReplicationOutboxEntry> readyEntries(ReplicationOutbox.Batch batch, long acked, long oldestActive) {
+            List<ReplicationOutboxEntry> fetched = batch.entries();
+            List<ReplicationOutboxEntry> ready = new ArrayList<>(fetched.size());
+            boolean horizonPassed = gapHorizon > 0 && oldestActive >= gapHorizon;
+            long expected = acked + 1;
+            for (ReplicationOutboxEntry entry : fetched) {
+                if (entry.getId() != expected) {
+                    if (!horizonPassed || entry.getId() > gapCoveredUpTo) {
+                        if (gapHorizon == 0 || horizonPassed) {
+                            gapHorizon = batch.visibilityHorizon();
+                            gapCoveredUpTo = fetched.get(fetched.size() - 1).getId();
+                        }
+                        return ready;
+                    }
+                    // Buraco aberto pela limpeza (peer marcado enquanto este lote era lido): não é reversão
+                    if (peerOffsetRepository.findById(peer.serverId()).map(ReplicationPeerOffset::isSnapshotRequired).orElse(false)) {
+                        snapshotRequired = true;
+                        return ready;
+                    }
+                    log.info("[Shipper] Posições {} a {} do outbox revertidas. Pulando para o peer {}.",
+                            expected, entry.getId() - 1, peer.serverId());
+                }
+                ready.add(entry);
+                expected = entry.getId() + 1;
+            }
+            gapHorizon = 0;
+            return ready;
+        }
+
+        private ReplicationEnvelope toEnvelope(ReplicationOutboxEntry entry) throws InvalidProtocolBufferException {
+            return ReplicationEnvelope.parseFrom(entry.getPayload()).toBuilder()
+                    .setSequence(entry.getId())
+                    .build();
+        }
+    }
+}
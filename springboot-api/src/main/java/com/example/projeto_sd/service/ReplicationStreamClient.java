@@ -0,0 +1,343 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationAck;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationResponse;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantém um stream bidirecional ReplicationStream de longa duração por peer.
+ * O chamador (shipper do outbox) define a sequência de cada envelope; os envelopes
+ * são enviados em pipeline e confirmados por acks cumulativos. Envelopes ainda não
+ * confirmados são reenviados, em ordem, quando o stream é reaberto após uma falha
+ * (o peer descarta duplicados pelo par stream_id/sequência).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicationStreamClient {
+
+    private final GrpcClientService grpcClientService;
+
+    @Value("${server.id}")
+    private String selfServerId;
+
+    @Value("${replication.stream.max-pending:10000}")
+    private int maxPendingPerPeer;
+
+    @Value("${replication.stream.pending.timeout.ms:30000}")
+    private long pendingTimeoutMs;
+
+    @Value("${replication.stream.reconnect.initial-backoff.ms:200}")
+    private long initialBackoffMs;
+
+    @Value("${replication.stream.reconnect.max-backoff.ms:5000}")
+    private long maxBackoffMs;
+
+    private final ConcurrentMap<String, PeerStream> peerStreams = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replication-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void startExpirySweep() {
+        scheduler.scheduleAtFixedRate(this::expireStalePending, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Encerrando {} streams de replicação.", peerStreams.size());
+        scheduler.shutdownNow();
+        peerStreams.values().forEach(PeerStream::close);
+        peerStreams.clear();
+    }
+
+    /**
+     * Enfileira um envelope para o peer. stream_id e origem são preenchidos aqui;
+     * a sequência deve vir preenchida e ser crescente dentro do stream.
+     *
+     * @param peer Peer de destino.
+     * @param streamId Identificador do stream (sessão do remetente).
+     * @param envelope Envelope com a mutação e a sequência.
+     * @return Future completado quando o peer confirmar (ou rejeitar) o envelope.
+     */
+    public ListenableFuture<ReplicationResponse> send(ClusterMembership.Peer peer, String streamId, ReplicationEnvelope envelope) {
+        return peerStreams.computeIfAbsent(streamKey(peer, streamId), k -> new PeerStream(peer, streamId)).send(envelope);
+    }
+
+    /**
+     * Maior sequência confirmada cumulativamente pelo peer no stream informado.
+     */
+    public long getAckedSequence(ClusterMembership.Peer peer, String streamId) {
+        PeerStream stream = peerStreams.get(streamKey(peer, streamId));
+        return stream != null ? stream.ackedSequence : 0;
+    }
+
+    /**
+     * Encerra o stream com o peer (ex: peer saiu do cluster), falhando os envelopes pendentes.
+     */
+    public void close(ClusterMembership.Peer peer, String streamId) {
+        PeerStream stream = peerStreams.remove(streamKey(peer, streamId));
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private static String streamKey(ClusterMembership.Peer peer, String streamId) {
+        return streamId + "|" + peer.serverId() + "@" + peer.host() + ":" + peer.port();
+    }
+
+    private void expireStalePending() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(pendingTimeoutMs);
+        peerStreams.values().forEach(stream -> stream.expireOlderThan(cutoff));
+    }
+
+    private static ReplicationResponse failure(String message) {
+        return ReplicationResponse.newBuilder().setSuccess(false).setMessage(message).build();
+    }
+
+    private record PendingEnvelope(ReplicationEnvelope envelope, SettableFuture<ReplicationResponse> future, long enqueuedAtNanos) {
+    }
+
+    /**
+     * Estado do stream com um peer. Todo envio e troca de stream acontece sob {@code lock},
+     * garantindo que a ordem de escrita seja a ordem de envio.
+     */
+    private final class PeerStream {
+        private final ClusterMembership.Peer peer;
+        private final String streamId;
+        private final ConcurrentSkipListMap<Long, PendingEnvelope> pending = new ConcurrentSkipListMap<>();
+        private final Object lock = new Object();
+
+        private volatile long ackedSequence = 0;
+        private StreamObserver<ReplicationEnvelope> requestObserver;
+        private int generation = 0;
+        private int failedAttempts = 0;
+        private boolean reconnectScheduled = false;
+        private boolean closed = false;
+
+        private PeerStream(ClusterMembership.Peer peer, String streamId) {
+            this.peer = peer;
+            this.streamId = streamId;
+        }
+
+        private ListenableFuture<ReplicationResponse> send(ReplicationEnvelope sequenced) {
+            SettableFuture<ReplicationResponse> future = SettableFuture.create();
+            synchronized (lock) {
+                if (closed) {
+                    future.set(failure("Stream de replicação encerrado."));
+                    return future;
+                }
+                if (pending.size() >= maxPendingPerPeer) {
+                    log.warn("[ReplicationStream] Fila de envelopes pendentes cheia para o peer {} ({}). Rejeitando envio.", peer.serverId(), pending.size());
+                    future.set(failure("Fila de replicação cheia para o peer " + peer.serverId()));
+                    return future;
+                }
+                ReplicationEnvelope envelope = sequenced.toBuilder()
+                        .setStreamId(streamId)
+                        .setOriginServerId(selfServerId)
+                        .build();
+                PendingEnvelope previous = pending.put(envelope.getSequence(), new PendingEnvelope(envelope, future, System.nanoTime()));
+                if (previous != null) {
+                    previous.future().set(failure("Sequência reenviada."));
+                }
+
+                if (requestObserver == null && !reconnectScheduled) {
+                    open();
+                } else if (requestObserver != null) {
+                    write(envelope);
+                }
+            }
+            return future;
+        }
+
+        /**
+         * Abre um novo stream e reenvia tudo o que ainda não foi confirmado. Chamado sob {@code lock}.
+         */
+        private void open() {
+            int streamGeneration = ++generation;
+            try {
+                requestObserver = grpcClientService.openReplicationStream(peer.host(), peer.port(), new AckObserver(streamGeneration));
+            } catch (Exception e) {
+                log.error("[ReplicationStream] Falha ao abrir stream para o peer {} ({}:{}): {}", peer.serverId(), peer.host(), peer.port(), e.getMessage());
+                requestObserver = null;
+                scheduleReconnect();
+                return;
+            }
+            if (!pending.isEmpty()) {
+                log.info("[ReplicationStream] Reenviando {} envelopes pendentes para o peer {} a partir da sequência {}.",
+                        pending.size(), peer.serverId(), pending.firstKey());
+            }
+            for (PendingEnvelope entry : pending.values()) {
+                if (requestObserver == null) {
+                    break;
+                }
+                write(entry.envelope());
+            }
+        }
+
+        private void write(ReplicationEnvelope envelope) {
+            try {
+                requestObserver.onNext(envelope);
+            } catch (Exception e) {
+                log.warn("[ReplicationStream] Erro ao enviar sequência {} para o peer {}: {}", envelope.getSequence(), peer.serverId(), e.getMessage());
+                requestObserver = null;
+                scheduleReconnect();
+            }
+        }
+
+        /**
+         * Agenda a reabertura do stream com backoff exponencial. Chamado sob {@code lock}.
+         * Sem envelopes pendentes, o stream só é reaberto no próximo envio.
+         */
+        private void scheduleReconnect() {
+            if (closed || reconnectScheduled || pending.isEmpty()) {
+                return;
+            }
+            long delay = Math.min(maxBackoffMs, initialBackoffMs << Math.min(failedAttempts, 16));
+            failedAttempts++;
+            reconnectScheduled = true;
+            log.info("[ReplicationStream] Reconectando ao peer {} em {}ms ({} envelopes pendentes).", peer.serverId(), delay, pending.size());
+            try {
+                scheduler.schedule(() -> {
+                    synchronized (lock) {
+                        reconnectScheduled = false;
+                        if (!closed && requestObserver == null && !pending.isEmpty()) {
+                            open();
+                        }
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                reconnectScheduled = false;
+                log.warn("[ReplicationStream] Não foi possível agendar reconexão ao peer {}: {}", peer.serverId(), e.getMessage());
+            }
+        }
+
+        private void onStreamTerminated(int streamGeneration, Throwable t) {
+            synchronized (lock) {
+                if (streamGeneration != generation) {
+                    return;
+                }
+                if (t != null) {
+                    log.warn("[ReplicationStream] Stream com o peer {} falhou: {}", peer.serverId(), t.getMessage());
+                } else {
+                    log.info("[ReplicationStream] Stream com o peer {} encerrado pelo peer.", peer.serverId());
+                }
+                requestObserver = null;
+                scheduleReconnect();
+            }
+        }
+
+        private void onAck(ReplicationAck ack) {
+            if (ack.getRejectedSequence() > 0) {
+                PendingEnvelope rejected = pending.remove(ack.getRejectedSequence());
+                if (rejected != null) {
+                    log.warn("[ReplicationStream] Peer {} rejeitou a sequência {}: {}", peer.serverId(), ack.getRejectedSequence(), ack.getMessage());
+                    rejected.future().set(failure(ack.getMessage()));
+                }
+            }
+            long acked = ack.getAckedSequence();
+            if (acked > ackedSequence) {
+                ackedSequence = acked;
+            }
+            ConcurrentNavigableMap<Long, PendingEnvelope> confirmed = pending.headMap(acked, true);
+            Iterator<PendingEnvelope> it = confirmed.values().iterator();
+            while (it.hasNext()) {
+                PendingEnvelope entry = it.next();
+                it.remove();
+                entry.future().set(ReplicationResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Confirmado via stream (sequência " + entry.envelope().getSequence() + ").")
+                        .build());
+            }
+            synchronized (lock) {
+                failedAttempts = 0;
+            }
+        }
+
+        /**
+         * Se o envelope mais antigo expirou, falha todos os pendentes: reenviar apenas os
+         * mais novos abriria um buraco na sequência que o peer nunca preencheria.
+         * O remetente reenvia a partir da última sequência confirmada.
+         */
+        private void expireOlderThan(long cutoffNanos) {
+            Map.Entry<Long, PendingEnvelope> oldest = pending.firstEntry();
+            if (oldest == null || oldest.getValue().enqueuedAtNanos() - cutoffNanos >= 0) {
+                return;
+            }
+            int expired = 0;
+            Iterator<PendingEnvelope> it = pending.values().iterator();
+            while (it.hasNext()) {
+                PendingEnvelope entry = it.next();
+                it.remove();
+                entry.future().set(failure("Tempo de espera pelo ack esgotado."));
+                expired++;
+            }
+            log.warn("[ReplicationStream] {} envelopes para o peer {} expiraram sem confirmação (a partir da sequência {}).",
+                    expired, peer.serverId(), oldest.getKey());
+        }
+
+        private void close() {
+            synchronized (lock) {
+                closed = true;
+                if (requestObserver != null) {
+                    try {
+                        requestObserver.onCompleted();
+                    } catch (Exception e) {
+                        log.debug("Erro ao encerrar stream com o peer {}: {}", peer.serverId(), e.getMessage());
+                    }
+                    requestObserver = null;
+                }
+            }
+            pending.values().forEach(entry -> entry.future().set(failure("Stream de replicação encerrado.")));
+            pending.clear();
+        }
+
+        /**
+         * Recebe os acks de uma geração específica do stream; callbacks de streams antigos são ignorados.
+         */
+        private final class AckObserver implements StreamObserver<ReplicationAck> {
+            private final int streamGeneration;
+
+            private AckObserver(int streamGeneration) {
+                this.streamGeneration = streamGeneration;
+            }
+
+            @Override
+            public void onNext(ReplicationAck ack) {
+                onAck(ack);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                onStreamTerminated(streamGeneration, t);
+            }
+
+            @Override
+            public void onCompleted() {
+                onStreamTerminated(streamGeneration, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.FollowInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.MessageInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.NotificationProto;
+import com.example.projeto_sd.grpc.ServerCommsProto.PostInfo;
+import com.example.projeto_sd.grpc.ServerCommsProto.SnapshotChunk;
+import com.example.projeto_sd.grpc.ServerCommsProto.SnapshotRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.UserInfo;
+import com.example.projeto_sd.model.Message;
+import com.example.projeto_sd.model.Server;
+import com.example.projeto_sd.model.SnapshotMarker;
+import com.example.projeto_sd.repository.ConversationSummaryRepository;
+import com.example.projeto_sd.repository.NotificationCounterRepository;
+import com.example.projeto_sd.repository.MessageRepository;
+import com.example.projeto_sd.repository.PostRepository;
+import com.example.projeto_sd.repository.ServerRepository;
+import com.example.projeto_sd.repository.SnapshotMarkerRepository;
+import com.example.projeto_sd.repository.SnapshotRepository;
+import com.example.projeto_sd.repository.SnapshotRepository.Table;
+import com.example.projeto_sd.repository.UserRepository;
+import com.google.protobuf.Timestamp;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bootstrap de nós novos ou com o banco apagado por um snapshot em stream do coordenador.
+ * <p>
+ * Repassar o outbox desde o início não funciona para esses nós: as entradas confirmadas por
+ * todos os peers acompanhados já foram removidas. O mesmo caminho recarrega um nó que ficou
+ * atrasado além da retenção do outbox: o coordenador o marca e envia {@code snapshot_required}
+ * pelo stream de replicação, e o nó apaga a marca de carga e volta ao bootstrap ({@link #requireBootstrap()}). Ao subir sem a marca de carga
+ * concluída ({@link SnapshotMarker}), o nó entra em modo de bootstrap: o ReplicationApplier deixa de aplicar e de
+ * confirmar envelopes, e uma thread pede {@code StreamSnapshot} ao coordenador. O coordenador
+ * grava a posição assentada do outbox como confirmada pelo nó e reinicia o shipper dele a partir
+ * dela, depois envia todas as tabelas de uma leitura consistente (REPEATABLE READ) em lotes de
+ * {@code snapshot.chunk.rows}. O nó grava cada lote com INSERTs em massa, recria as timelines,
+ * os resumos de conversa, os contadores de não lidas, o índice do grafo e o relógio lógico e então
+ * sai do modo de bootstrap;
+ * a replicação ao vivo continua da posição gravada. Entradas entre essa posição e o snapshot são reaplicadas, o que
+ * é seguro porque a aplicação da replicação é idempotente.
+ * <p>
+ * A marca só é gravada depois que a carga e as reconstruções terminam. Uma carga interrompida
+ * (queda no meio do stream) deixa o banco com usuários mas sem a marca, e é retomada no próximo
+ * início; os INSERTs ignoram as linhas já carregadas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotService {
+
+    private final ElectionService electionService;
+    private final GrpcClientService grpcClientService;
+    private final ReplicationShipper replicationShipper;
+    private final SnapshotRepository snapshotRepository;
+    private final SnapshotMarkerRepository snapshotMarkerRepository;
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final MessageRepository messageRepository;
+    private final ServerRepository serverRepository;
+    private final TimelineService timelineService;
+    private final ConversationSummaryRepository conversationSummaryRepository;
+    private final NotificationCounterRepository notificationCounterRepository;
+    private final FollowGraphIndex followGraphIndex;
+    private final LogicalClock logicalClock;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${server.id}")
+    private String selfServerId;
+
+    @Value("${snapshot.bootstrap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${snapshot.chunk.rows:1000}")
+    private int chunkRows;
+
+    @Value("${snapshot.deadline.ms:600000}")
+    private long deadlineMs;
+
+    @Value("${snapshot.retry.ms:5000}")
+    private long retryMs;
+
+    private volatile boolean bootstrapping;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "snapshot-bootstrap");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Decide antes do servidor gRPC aceitar envelopes se o nó precisa de bootstrap.
+     */
+    @PostConstruct
+    void detectPendingBootstrap() {
+        bootstrapping = enabled && !snapshotMarkerRepository.existsById(selfServerId);
+        if (bootstrapping) {
+            log.info("[Snapshot] Carga inicial não concluída ({} usuários no banco local). Replicação suspensa até a carga do snapshot do coordenador.",
+                    userRepository.count());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (bootstrapping) {
+            scheduler.execute(this::attemptBootstrap);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Volta ao bootstrap a pedido do coordenador, que já removeu do outbox entradas que este nó não
+     * confirmou. A marca de carga é apagada antes de suspender a replicação, para que uma queda no
+     * meio da nova carga também seja retomada no próximo início.
+     */
+    public void requireBootstrap() {
+        if (!enabled) {
+            log.error("[Snapshot] Coordenador pediu recarga por snapshot, mas o bootstrap está desabilitado. A anti-entropia segue reparando o que faltar.");
+            return;
+        }
+        synchronized (this) {
+            if (bootstrapping) {
+                return;
+            }
+            bootstrapping = true;
+        }
+        snapshotMarkerRepository.deleteById(selfServerId);
+        log.warn("[Snapshot] Coordenador removeu entradas do outbox não confirmadas por este nó. Replicação suspensa até a recarga por snapshot.");
+        scheduler.execute(this::attemptBootstrap);
+    }
+
+    /**
+     * Indica se o nó ainda aguarda a carga do snapshot (envelopes de replicação não devem ser aplicados).
+     */
+    public boolean isBootstrapping() {
+        return bootstrapping;
+    }
+
+    // ---- Lado do coordenador (RPC) ----
+
+    /**
+     * Reposiciona o shipper do solicitante e envia ao {@code sink} o snapshot de todas as tabelas.
+     * O primeiro lote traz apenas a posição de replicação coberta pelo snapshot.
+     */
+    public void streamSnapshot(SnapshotRequest request, Consumer<SnapshotChunk> sink) throws InterruptedException, ExecutionException {
+        if (!electionService.isCoordinator()) {
+            throw new IllegalStateException("Apenas o coordenador envia snapshots.");
+        }
+        long position = replicationShipper.repositionPeer(request.getRequesterServerId());
+        sink.accept(SnapshotChunk.newBuilder().setReplicationPosition(position).build());
+
+        TransactionTemplate snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setReadOnly(true);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransaction.executeWithoutResult(status -> {
+            ChunkWriter writer = new ChunkWriter(sink);
+            scan(Table.USERS, writer, (chunk, rs) -> chunk.addUsers(UserInfo.newBuilder()
+                    .setId(rs.getString("id"))
+                    .setName(rs.getString("name"))));
+            scan(Table.FOLLOWS, writer, (chunk, rs) -> chunk.addFollows(FollowInfo.newBuilder()
+                    .setId(rs.getString("id"))
+                    .setFollowerId(rs.getString("follower_id"))
+                    .setFollowedId(rs.getString("followed_id"))
+                    .setCreatedAtMillis(toMillis(rs.getObject("created_at", LocalDateTime.class)))));
+            scan(Table.POSTS, writer, (chunk, rs) -> {
+                String postId = rs.getString("id");
+                chunk.addPosts(PostInfo.newBuilder()
+                        .setId(postId)
+                        .setUserId(rs.getString("user_id"))
+                        .setContent(rs.getString("content"))
+                        .setCreatedAtMillis(toMillis(rs.getObject("created_at", LocalDateTime.class)))
+                        .setLogicalClock(rs.getInt("logical_clock")));
+                if (rs.getBoolean("is_deleted")) {
+                    chunk.addDeletedPostIds(postId);
+                }
+            });
+            scan(Table.MESSAGES, writer, (chunk, rs) -> chunk.addMessages(MessageInfo.newBuilder()
+                    .setId(rs.getString("id"))
+                    .setSenderId(rs.getString("sender_id"))
+                    .setReceiverId(rs.getString("receiver_id"))
+                    .setContent(rs.getString("content"))
+                    .setSentAtMillis(toMillis(rs.getObject("sent_at", LocalDateTime.class)))
+                    .setLogicalClock(rs.getInt("logical_clock"))
+                    .setIsRead(rs.getBoolean("is_read"))
+                    .setOriginServerId(rs.getString("server_id"))));
+            scan(Table.NOTIFICATIONS, writer, (chunk, rs) -> {
+                LocalDateTime createdAt = rs.getObject("created_at", LocalDateTime.class);
+                String relatedEntityId = rs.getString("related_entity_id");
+                chunk.addNotifications(NotificationProto.newBuilder()
+                        .setId(rs.getString("id"))
+                        .setUserId(rs.getString("user_id"))
+                        .setType(rs.getString("type"))
+                        .setMessage(rs.getString("message"))
+                        .setRelatedEntityId(relatedEntityId != null ? relatedEntityId : "")
+                        .setIsRead(rs.getBoolean("is_read"))
+                        .setCreatedAt(Timestamp.newBuilder()
+                                .setSeconds(createdAt.toEpochSecond(ZoneOffset.UTC))
+                                .setNanos(createdAt.getNano())));
+            });
+            log.info("[Snapshot] Snapshot enviado ao nó {}: {} linhas em {} lotes (replicação a partir de {}).",
+                    request.getRequesterServerId(), writer.rows, writer.chunks, position);
+        });
+    }
+
+    private void scan(Table table, ChunkWriter writer, RowMapper mapper) {
+        snapshotRepository.scan(table, chunkRows, rs -> writer.add(mapper, rs));
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    private interface RowMapper {
+        void addTo(SnapshotChunk.Builder chunk, ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Acumula linhas de uma tabela e envia um lote a cada {@code snapshot.chunk.rows}.
+     */
+    private final class ChunkWriter {
+        private final Consumer<SnapshotChunk> sink;
+        private SnapshotChunk.Builder chunk = SnapshotChunk.newBuilder();
+        private int inChunk;
+        private long rows;
+        private long chunks;
+
+        private ChunkWriter(Consumer<SnapshotChunk> sink) {
+            this.sink = sink;
+        }
+
+        private void add(RowMapper mapper, ResultSet rs) throws SQLException {
+            mapper.addTo(chunk, rs);
+            rows++;
+            if (++inChunk >= chunkRows) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (inChunk == 0) {
+                return;
+            }
+            sink.accept(chunk.build());
+            chunk = SnapshotChunk.newBuilder();
+            inChunk = 0;
+            chunks++;
+        }
+    }
+
+    // ---- Lado do nó em bootstrap ----
+
+    private void attemptBootstrap() {
+        try {
+            if (bootstrap()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("[Snapshot] Falha no bootstrap: {}. Nova tentativa em {}ms.", e.getMessage(), retryMs);
+        }
+        scheduler.schedule(this::attemptBootstrap, retryMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return false se ainda não há coordenador conhecido
+     */
+    private boolean bootstrap() {
+        if (electionService.isCoordinator()) {
+            log.info("[Snapshot] Este nó é o coordenador; não há de onde copiar. Bootstrap dispensado.");
+            markCompleted(0);
+            return true;
+        }
+        Optional<Server> coordinator = electionService.getCoordinatorId()
+                .flatMap(electionService::getCoordinatorServerDetails);
+        if (coordinator.isEmpty()) {
+            log.debug("[Snapshot] Coordenador desconhecido. Aguardando para pedir o snapshot.");
+            return false;
+        }
+
+        log.info("[Snapshot] Pedindo snapshot ao coordenador {}.", coordinator.get().getId());
+        Set<String> knownServerIds = serverRepository.findAll().stream().map(Server::getId).collect(Collectors.toSet());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        SnapshotRequest request = SnapshotRequest.newBuilder().setRequesterServerId(selfServerId).build();
+        Iterator<SnapshotChunk> chunks = grpcClientService.streamSnapshot(
+                coordinator.get().getHost(), coordinator.get().getPort(), request, deadlineMs);
+
+        long position = 0;
+        long inserted = 0;
+        while (chunks.hasNext()) {
+            SnapshotChunk chunk = chunks.next();
+            if (chunk.getReplicationPosition() > 0) {
+                position = chunk.getReplicationPosition();
+            }
+            inserted += transaction.execute(status -> load(chunk, knownServerIds));
+        }
+
+        timelineService.rebuildAll();
+        conversationSummaryRepository.rebuildAll();
+        notificationCounterRepository.rebuildAll();
+        followGraphIndex.load();
+        logicalClock.restore(Math.max(postRepository.findMaxLogicalClock(), messageRepository.findMaxLogicalClock()));
+        markCompleted(position);
+        log.info("[Snapshot] Bootstrap concluído a partir do coordenador {}: {} linhas inseridas. Replicação ao vivo a partir da posição {}.",
+                coordinator.get().getId(), inserted, position);
+        return true;
+    }
+
+    /**
+     * Grava a marca de carga concluída e libera a aplicação da replicação.
+     */
+    private void markCompleted(long position) {
+        snapshotMarkerRepository.save(new SnapshotMarker(selfServerId, position, LocalDateTime.now()));
+        bootstrapping = false;
+    }
+
+    private long load(SnapshotChunk chunk, Set<String> knownServerIds) {
+        long inserted = 0;
+
+        List<Object[]> users = new ArrayList<>(chunk.getUsersCount());
+        for (UserInfo user : chunk.getUsersList()) {
+            users.add(new Object[]{user.getId(), user.getName()});
+        }
+        inserted += snapshotRepository.insertIgnoringExisting(Table.USERS, users);
+
+        List<Object[]> follows = new ArrayList<>(chunk.getFollowsCount());
+        for (FollowInfo follow : chunk.getFollowsList()) {
+            follows.add(new Object[]{follow.getId(), follow.getFollowerId(), follow.getFollowedId(),
+                    fromMillis(follow.getCreatedAtMillis())});
+        }
+        inserted += snapshotRepository.insertIgnoringExisting(Table.FOLLOWS, follows);
+
+        Set<String> deletedPostIds = Set.copyOf(chunk.getDeletedPostIdsList());
+        List<Object[]> posts = new ArrayList<>(chunk.getPostsCount());
+        for (PostInfo post : chunk.getPostsList()) {
+            posts.add(new Object[]{post.getId(), post.getUserId(), post.getContent(),
+                    fromMillis(post.getCreatedAtMillis()), post.getLogicalClock(),
+                    deletedPostIds.contains(post.getId()), selfServerId});
+        }
+        inserted += snapshotRepository.insertIgnoringExisting(Table.POSTS, posts);
+
+        List<Object[]> messages = new ArrayList<>(chunk.getMessagesCount());
+        for (MessageInfo message : chunk.getMessagesList()) {
+            String serverId = knownServerIds.contains(message.getOriginServerId()) ? message.getOriginServerId() : selfServerId;
+            messages.add(new Object[]{message.getId(), message.getSenderId(), message.getReceiverId(), message.getContent(),
+                    fromMillis(message.getSentAtMillis()), message.getLogicalClock(),
+                    message.getIsRead(), serverId, Message.conversationIdOf(message.getSenderId(), message.getReceiverId())});
+        }
+        inserted += snapshotRepository.insertIgnoringExisting(Table.MESSAGES, messages);
+
+        List<Object[]> notifications = new ArrayList<>(chunk.getNotificationsCount());
+        for (NotificationProto notification : chunk.getNotificationsList()) {
+            Timestamp createdAt = notification.getCreatedAt();
+            notifications.add(new Object[]{notification.getId(), notification.getUserId(), notification.getType(),
+                    notification.getMessage(),
+                    notification.getRelatedEntityId().isEmpty() ? null : notification.getRelatedEntityId(),
+                    notification.getIsRead(),
+                    LocalDateTime.ofInstant(Instant.ofEpochSecond(createdAt.getSeconds(), createdAt.getNanos()), ZoneOffset.UTC)});
+        }
+        inserted += snapshotRepository.insertIgnoringExisting(Table.NOTIFICATIONS, notifications);
+        return inserted;
+    }
+
+    // Mesma convenção da replicação de posts e mensagens: LocalDateTime no fuso do sistema.
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
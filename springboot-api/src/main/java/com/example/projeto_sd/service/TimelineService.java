@@ -0,0 +1,342 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.dto.post.PostCursor;
+import com.example.projeto_sd.dto.post.PostResponseDto;
+import com.example.projeto_sd.dto.response.CursorPageResponse;
+import com.example.projeto_sd.exception.UserNotFoundException;
+import com.example.projeto_sd.model.Post;
+import com.example.projeto_sd.model.TimelineEntry;
+import com.example.projeto_sd.repository.PostRepository;
+import com.example.projeto_sd.repository.TimelineEntryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Timeline materializada (fan-out na escrita). Quando um post é criado (coordenador) ou
+ * replicado (seguidores), seu ID é inserido na timeline de cada seguidor do autor, em
+ * memória e na tabela timeline_entries. A leitura do feed é uma varredura de intervalo
+ * por cursor (createdAt, postId), servida da memória quando possível.
+ * <p>
+ * Cada nó mantém suas próprias timelines a partir dos posts e follows que já replica;
+ * as timelines em si não são replicadas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineService {
+
+    private static final Comparator<TimelineItem> NEWEST_FIRST = Comparator
+            .comparing(TimelineItem::createdAt).reversed()
+            .thenComparing(TimelineItem::postId, Comparator.reverseOrder());
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final PostRepository postRepository;
+    private final UserCache userCache;
+    private final FollowGraphIndex followGraphIndex;
+
+    @Value("${timeline.max-entries-per-user:800}")
+    private int maxEntriesPerUser;
+
+    @Value("${timeline.cache.entries-per-user:200}")
+    private int cacheEntriesPerUser;
+
+    @Value("${timeline.cache.max-users:10000}")
+    private int cacheMaxUsers;
+
+    @Value("${timeline.follow.backfill:50}")
+    private int followBackfill;
+
+    @Value("${timeline.trim.interval.ms:300000}")
+    private long trimIntervalMs;
+
+    /**
+     * Timelines em memória dos usuários lidos recentemente (LRU).
+     */
+    private Map<String, CachedTimeline> cache;
+
+    private final ScheduledExecutorService trimmer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "timeline-trimmer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void initCache() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTimeline> eldest) {
+                return size() > cacheMaxUsers;
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTrimmer() {
+        trimmer.scheduleWithFixedDelay(this::trim, trimIntervalMs, trimIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        trimmer.shutdownNow();
+    }
+
+    /**
+     * Insere o post na timeline do autor e de todos os seus seguidores.
+     * Deve ser chamado na transação que salva o post; a memória é atualizada após o commit.
+     *
+     * @param post O post recém-salvo (local ou replicado).
+     */
+    @Transactional
+    public void fanOut(Post post) {
+        String authorId = post.getUser().getId();
+        int inserted = timelineEntryRepository.fanOut(post.getId(), authorId, post.getCreatedAt());
+
+        List<String> recipients = new ArrayList<>(followGraphIndex.getFollowerIds(authorId));
+        recipients.add(authorId);
+        TimelineItem item = new TimelineItem(post.getCreatedAt(), post.getId());
+        afterCommit(() -> recipients.forEach(userId -> {
+            CachedTimeline timeline = cache.get(userId);
+            if (timeline != null) {
+                timeline.add(item);
+            }
+        }));
+        log.info("[Timeline] Post {} do autor {} distribuído para {} timelines.", post.getId(), authorId, inserted);
+    }
+
+    /**
+     * Remove um post deletado de todas as timelines.
+     *
+     * @param postId O ID do post deletado.
+     */
+    @Transactional
+    public void removePost(String postId) {
+        int removed = timelineEntryRepository.deleteByPostId(postId);
+        afterCommit(() -> {
+            synchronized (cache) {
+                cache.values().forEach(timeline -> timeline.remove(postId));
+            }
+        });
+        log.debug("[Timeline] Post {} removido de {} timelines.", postId, removed);
+    }
+
+    /**
+     * Recria todas as timelines a partir dos posts e follows do banco (após a carga por snapshot)
+     * e descarta o cache em memória.
+     *
+     * @return número de entradas inseridas
+     */
+    @Transactional
+    public int rebuildAll() {
+        int inserted = timelineEntryRepository.rebuildAll(maxEntriesPerUser);
+        afterCommit(cache::clear);
+        log.info("[Timeline] Timelines recriadas: {} entradas inseridas.", inserted);
+        return inserted;
+    }
+
+    /**
+     * Copia os posts recentes do seguido para a timeline do novo seguidor.
+     */
+    @Transactional
+    public void onFollow(String followerId, String followedId) {
+        int inserted = timelineEntryRepository.backfill(followerId, followedId, followBackfill);
+        afterCommit(() -> cache.remove(followerId));
+        log.debug("[Timeline] {} posts de {} copiados para a timeline de {}.", inserted, followedId, followerId);
+    }
+
+    /**
+     * Remove os posts do ex-seguido da timeline do usuário.
+     */
+    @Transactional
+    public void onUnfollow(String followerId, String followedId) {
+        int removed = timelineEntryRepository.deleteByUserIdAndAuthorId(followerId, followedId);
+        afterCommit(() -> cache.remove(followerId));
+        log.debug("[Timeline] {} posts de {} removidos da timeline de {}.", removed, followedId, followerId);
+    }
+
+    /**
+     * Busca uma página da timeline de um usuário, do post mais recente para o mais antigo.
+     *
+     * @param userId O ID do dono da timeline.
+     * @param cursor Cursor retornado na página anterior, ou nulo para a primeira página.
+     * @param limit Quantidade máxima de posts na página.
+     * @return A página de posts e o cursor da próxima página.
+     * @throws UserNotFoundException Se o usuário não existir.
+     * @throws IllegalArgumentException Se o cursor for inválido.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PostResponseDto> getTimeline(String userId, String cursor, int limit) {
+        if (!userCache.exists(userId)) {
+            throw new UserNotFoundException("Usuário não encontrado com ID: " + userId);
+        }
+        PostCursor after = cursor == null || cursor.isBlank() ? null : PostCursor.decode(cursor);
+
+        CachedTimeline timeline = cachedTimeline(userId);
+        if (timeline != null) {
+            List<TimelineItem> slice = timeline.page(after, limit + 1);
+            if (slice.size() > limit || timeline.complete) {
+                return fromMemory(slice, limit);
+            }
+        }
+        return fromDatabase(userId, after, limit);
+    }
+
+    private CursorPageResponse<PostResponseDto> fromMemory(List<TimelineItem> slice, int limit) {
+        boolean hasMore = slice.size() > limit;
+        List<TimelineItem> page = hasMore ? slice.subList(0, limit) : slice;
+        if (page.isEmpty()) {
+            return new CursorPageResponse<>(List.of(), null, false);
+        }
+
+        Map<String, PostResponseDto> postsById = postRepository
+                .findPostDtosByIds(page.stream().map(TimelineItem::postId).toList())
+                .stream()
+                .collect(Collectors.toMap(PostResponseDto::getId, Function.identity()));
+        List<PostResponseDto> items = page.stream()
+                .map(item -> postsById.get(item.postId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        TimelineItem last = page.get(page.size() - 1);
+        String nextCursor = hasMore ? new PostCursor(last.createdAt(), last.postId()).encode() : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    private CursorPageResponse<PostResponseDto> fromDatabase(String userId, PostCursor after, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<PostResponseDto> rows = after == null
+                ? timelineEntryRepository.findTimeline(userId, pageRequest)
+                : timelineEntryRepository.findTimelineAfter(userId, after.createdAt(), after.postId(), pageRequest);
+
+        boolean hasMore = rows.size() > limit;
+        List<PostResponseDto> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? PostCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Retorna a timeline em memória, carregando-a do banco na primeira leitura.
+     * A entrada é registrada antes da consulta para que fan-outs concorrentes não se percam;
+     * enquanto a carga não termina, as leituras vão direto ao banco (retorna nulo).
+     */
+    private CachedTimeline cachedTimeline(String userId) {
+        CachedTimeline existing = cache.get(userId);
+        if (existing != null) {
+            return existing.ready ? existing : null;
+        }
+        CachedTimeline created = new CachedTimeline();
+        CachedTimeline raced = cache.putIfAbsent(userId, created);
+        if (raced != null) {
+            return raced.ready ? raced : null;
+        }
+
+        try {
+            List<TimelineEntry> recent = timelineEntryRepository.findRecentEntries(userId, PageRequest.of(0, cacheEntriesPerUser));
+            created.load(recent, recent.size() < cacheEntriesPerUser);
+            return created;
+        } catch (RuntimeException e) {
+            cache.remove(userId, created);
+            throw e;
+        }
+    }
+
+    private void trim() {
+        try {
+            int removed = timelineEntryRepository.trim(maxEntriesPerUser);
+            if (removed > 0) {
+                log.info("[Timeline] {} entradas antigas removidas (limite de {} por usuário).", removed, maxEntriesPerUser);
+            }
+        } catch (Exception e) {
+            log.warn("[Timeline] Erro ao limitar as timelines: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record TimelineItem(LocalDateTime createdAt, String postId) {
+    }
+
+    /**
+     * Os {@code cacheEntriesPerUser} posts mais recentes de uma timeline.
+     * {@code complete} indica que a timeline inteira cabe na memória (não é preciso ir ao banco).
+     */
+    private final class CachedTimeline {
+        private final ConcurrentSkipListSet<TimelineItem> items = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+        private volatile boolean complete;
+        private volatile boolean ready;
+
+        private void load(List<TimelineEntry> entries, boolean wholeTimeline) {
+            entries.forEach(entry -> items.add(new TimelineItem(entry.getCreatedAt(), entry.getPostId())));
+            complete = wholeTimeline;
+            evictOverflow();
+            ready = true;
+        }
+
+        private void add(TimelineItem item) {
+            items.add(item);
+            evictOverflow();
+        }
+
+        private void remove(String postId) {
+            items.removeIf(item -> item.postId().equals(postId));
+        }
+
+        private void evictOverflow() {
+            while (items.size() > cacheEntriesPerUser) {
+                if (items.pollLast() == null) {
+                    break;
+                }
+                complete = false;
+            }
+        }
+
+        private List<TimelineItem> page(PostCursor after, int count) {
+            Iterable<TimelineItem> source = after == null
+                    ? items
+                    : items.tailSet(new TimelineItem(after.createdAt(), after.postId()), false);
+            List<TimelineItem> page = new ArrayList<>(count);
+            for (TimelineItem item : source) {
+                if (page.size() == count) {
+                    break;
+                }
+                page.add(item);
+            }
+            return page;
+        }
+    }
+}
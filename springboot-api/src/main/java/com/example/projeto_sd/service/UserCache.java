@@ -0,0 +1,111 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.dto.user.UserResponseDTO;
+import com.example.projeto_sd.model.User;
+import com.example.projeto_sd.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * Cache limitado (Caffeine) de ID de usuário para nome, usado pelos caminhos de escrita e pelas
+ * verificações de existência no lugar de um SELECT em {@code users} por operação.
+ * <p>
+ * Usuários não mudam depois de criados, então uma entrada nunca fica desatualizada: o cache é
+ * aquecido quando a aplicação fica pronta e preenchido após o commit de cada criação (local ou
+ * replicada). Em caso de falta, consulta o banco e guarda o resultado; ausências não são
+ * guardadas, já que o usuário pode chegar depois por replicação ou snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.cache.max-size:100000}")
+    private long maxSize;
+
+    private Cache<String, String> names;
+
+    @PostConstruct
+    void init() {
+        names = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, names, "users");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            long start = System.nanoTime();
+            for (UserResponseDTO user : userRepository.findAllSummaries()) {
+                if (names.estimatedSize() >= maxSize) {
+                    break;
+                }
+                names.put(user.getId(), user.getName());
+            }
+            log.info("[UserCache] Cache aquecido com {} usuários em {} ms.",
+                    names.estimatedSize(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("[UserCache] Falha ao aquecer o cache; usuários serão carregados sob demanda: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indica se o usuário existe (cache ou, na falta, banco).
+     */
+    public boolean exists(String userId) {
+        return getName(userId).isPresent();
+    }
+
+    /**
+     * Nome do usuário (cache ou, na falta, banco).
+     */
+    public Optional<String> getName(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(names.get(userId, id -> userRepository.findNameById(id).orElse(null)));
+    }
+
+    /**
+     * Usuário com ID e nome, montado a partir do cache, para uso como associação (autor de post,
+     * remetente de mensagem, seguidor...). Não é uma entidade gerenciada: o Hibernate usa apenas
+     * o ID como chave estrangeira, sem SELECT, e o nome pode ser lido sem carregar o usuário.
+     */
+    public Optional<User> getReference(String userId) {
+        return getName(userId).map(name -> new User(userId, name));
+    }
+
+    /**
+     * Registra um usuário criado (local ou replicado) após o commit da transação corrente.
+     */
+    public void onUserCreated(String userId, String name) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    names.put(userId, name);
+                }
+            });
+        } else {
+            names.put(userId, name);
+        }
+    }
+}
@@ -7,15 +7,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.client.ServiceInstance;
 import com.example.projeto_sd.grpc.ServerCommsProto.UserInfo;
-import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationResponse;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,29 +20,31 @@ import java.util.stream.Collectors;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final GrpcClientService grpcClientService;
-
-    @Autowired
-    private DiscoveryClient discoveryClient;
-
-    @Value("${spring.application.name}")
-    private String selfServiceName;
+    private final ReplicationDispatcher replicationDispatcher;
+    private final FollowGraphIndex followGraphIndex;
+    private final UserCache userCache;
+    private final IdGenerator idGenerator;
 
     @Value("${server.id}")
     private String selfServerId;
 
+    /**
+     * (Coordenador) Cria o usuário e grava a replicação no outbox na mesma transação.
+     */
     @Transactional
     public User createUser(String name) {
         log.info("Tentando criar usuário com nome: {}", name);
 
         User newUser = new User();
-        newUser.setId(UUID.randomUUID().toString());
+        newUser.setId(idGenerator.newId());
         newUser.setName(name);
 
         User savedUser = userRepository.save(newUser);
+        followGraphIndex.onUserCreated(savedUser.getId(), savedUser.getName());
+        userCache.onUserCreated(savedUser.getId(), savedUser.getName());
         log.info("Usuário criado localmente com sucesso. ID: {}, Nome: {}", savedUser.getId(), savedUser.getName());
 
-
+        replicateUserCreation(savedUser);
         return savedUser;
     }
 
@@ -62,71 +60,20 @@ public class UserService {
     }
 
 
-    public void replicateUserCreation(User user) {
+    /**
+     * (Coordenador) Replica a criação do usuário para os peers via stream de replicação.
+     * Participa da transação de {@link #createUser(String)}.
+     */
+    private void replicateUserCreation(User user) {
         log.info("Coordenador ({}) iniciando replicação para o usuário ID: {}", selfServerId, user.getId());
-        List<ServiceInstance> activePeers = getActivePeerInstances();
-
-        if (activePeers.isEmpty()) {
-            log.warn("Nenhum peer ativo encontrado pelo DiscoveryClient para replicar a criação do usuário.");
-            return;
-        }
 
         UserInfo userInfoProto = UserInfo.newBuilder()
                 .setId(user.getId())
                 .setName(user.getName())
                 .build();
 
-        log.info("Replicando criação do usuário {} para {} peers ativos.", user.getId(), activePeers.size());
-
-        for (ServiceInstance peerInstance : activePeers) {
-            String peerHost = peerInstance.getHost();
-            int peerPort = getGrpcPortFromInstance(peerInstance);
-            String peerId = getServerIdFromInstance(peerInstance);
-
-            log.debug("Replicando usuário {} para peer {} em {}:{}", user.getId(), peerId, peerHost, peerPort);
-            try {
-                ReplicationResponse response = grpcClientService.replicateUserCreationToPeer(peerHost, peerPort, userInfoProto);
-                if (response == null || !response.getSuccess()) {
-                    log.warn("Falha ao replicar usuário {} para peer {}. Mensagem: {}",
-                            user.getId(), peerId,
-                            response != null ? response.getMessage() : "Sem resposta");
-
-                } else {
-                    log.info("Usuário {} replicado com sucesso para peer {}", user.getId(), peerId);
-                }
-            } catch (Exception e) {
-                log.error("Erro ao replicar usuário {} para peer {}: {}",
-                        user.getId(), peerId, e.getMessage());
-            }
-        }
-        log.info("Processo de replicação finalizado para o usuário ID: {}", user.getId());
-    }
-
-
-    private List<ServiceInstance> getActivePeerInstances() {
-        List<ServiceInstance> instances = discoveryClient.getInstances(selfServiceName);
-        log.debug("{} instâncias encontradas via DiscoveryClient para o serviço {}", instances.size(), selfServiceName);
-        return instances.stream()
-                .filter(instance -> !isSelf(instance))
-                .collect(Collectors.toList());
-    }
-
-    private boolean isSelf(ServiceInstance instance) {
-        String instanceServerId = instance.getMetadata().get("server.id");
-        return selfServerId.equals(instanceServerId);
-    }
-
-     private int getGrpcPortFromInstance(ServiceInstance instance) {
-        try {
-            return Integer.parseInt(instance.getMetadata().getOrDefault("grpcPort", "9090"));
-        } catch (NumberFormatException e) {
-            log.warn("Não foi possível converter o grpcPort da instância {}. Usando padrão 9090.", instance.getInstanceId(), e);
-            return 9090;
-        }
-    }
-
-     private String getServerIdFromInstance(ServiceInstance instance) {
-        return instance.getMetadata().getOrDefault("server.id", "unknown-" + instance.getInstanceId());
+        replicationDispatcher.replicate("UsuarioCriado", user.getId(),
+                ReplicationEnvelope.newBuilder().setUserCreated(userInfoProto).build());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.example.projeto_sd.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * IDs UUIDv7 (RFC 9562) ordenados pelo tempo e marcados com o nó de origem.
+ * <p>
+ * Layout dos 128 bits:
+ * <ul>
+ *   <li>48 bits: tempo em ms, lido do relógio sincronizado por Berkeley ({@link ClockSyncService});</li>
+ *   <li>4 bits: versão (7) e 12 bits: contador dentro do mesmo milissegundo;</li>
+ *   <li>2 bits: variante, 16 bits: marca do nó (derivada de {@code server.id}) e 46 bits aleatórios.</li>
+ * </ul>
+ * IDs gerados em sequência num mesmo nó são estritamente crescentes, mesmo se o relógio corrigido
+ * voltar no tempo após um ajuste (o contador avança e, se esgotar, "empresta" o milissegundo seguinte).
+ * Inserções passam a cair no fim dos índices B-tree em vez de em páginas aleatórias.
+ */
+@Component
+@Slf4j
+public class UuidV7IdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long RANDOM_MASK = (1L << 46) - 1;
+
+    private final LongSupplier timeSource;
+    private final long nodeTag;
+
+    /**
+     * Último (milissegundo << 12 | contador) emitido.
+     */
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Autowired
+    public UuidV7IdGenerator(ClockSyncService clockSyncService, @Value("${server.id}") String selfServerId) {
+        this(clockSyncService::getCurrentCorrectedTimeMillis, selfServerId);
+    }
+
+    UuidV7IdGenerator(LongSupplier timeSource, String serverId) {
+        this.timeSource = timeSource;
+        this.nodeTag = serverId.hashCode() & 0xFFFFL;
+        log.info("[IdGenerator] Gerando IDs UUIDv7 com marca de nó {} (server.id={}).", String.format("%04x", nodeTag), serverId);
+    }
+
+    @Override
+    public String newId() {
+        long now = timeSource.getAsLong();
+        long previous;
+        long next;
+        do {
+            previous = lastTimestampAndCounter.get();
+            next = now > (previous >>> COUNTER_BITS) ? now << COUNTER_BITS : previous + 1;
+        } while (!lastTimestampAndCounter.compareAndSet(previous, next));
+
+        long millis = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        long mostSignificant = (millis << 16) | 0x7000L | counter;
+        long leastSignificant = 0x8000000000000000L | (nodeTag << 46) | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.projeto_sd.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Criação das threads de trabalho bloqueante (shippers de replicação, executor do servidor gRPC).
+ * <p>
+ * Com {@code spring.threads.virtual.enabled=true} e Java 21+, usa virtual threads; caso contrário
+ * (padrão, Java 17), threads de plataforma daemon. A mesma propriedade faz o Spring Boot
+ * executar as requisições do Tomcat em virtual threads.
+ */
+@Component
+@Slf4j
+public class WorkerThreads {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    private ThreadFactory virtualThreadFactory;
+
+    @PostConstruct
+    public void init() {
+        if (!virtualThreadsEnabled) {
+            return;
+        }
+        try {
+            virtualThreadFactory = new VirtualThreadTaskExecutor("worker-").getVirtualThreadFactory();
+            log.info("[WorkerThreads] Modo virtual threads ativo (Java {}).", Runtime.version().feature());
+        } catch (UnsupportedOperationException e) {
+            log.warn("[WorkerThreads] spring.threads.virtual.enabled=true, mas o Java {} não suporta virtual threads. Usando threads de plataforma.",
+                    Runtime.version().feature());
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtualThreadFactory != null;
+    }
+
+    /**
+     * Cria (sem iniciar) uma thread para uma tarefa de longa duração.
+     */
+    public Thread newThread(String name, Runnable task) {
+        if (isVirtual()) {
+            Thread thread = virtualThreadFactory.newThread(task);
+            thread.setName(name);
+            return thread;
+        }
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Executor com uma virtual thread por tarefa, se o modo estiver ativo.
+     */
+    public Optional<Executor> virtualExecutor(String threadNamePrefix) {
+        return isVirtual() ? Optional.of(new VirtualThreadTaskExecutor(threadNamePrefix)) : Optional.empty();
+    }
+}
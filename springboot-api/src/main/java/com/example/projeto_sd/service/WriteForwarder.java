@@ -0,0 +1,344 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.CreatePostRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.CreatePostResponse;
+import com.example.projeto_sd.grpc.ServerCommsProto.CreateUserRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.FollowRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.ForwardedWrite;
+import com.example.projeto_sd.grpc.ServerCommsProto.ForwardedWriteBatch;
+import com.example.projeto_sd.grpc.ServerCommsProto.ForwardedWriteResult;
+import com.example.projeto_sd.grpc.ServerCommsProto.ForwardedWriteResults;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationResponse;
+import com.example.projeto_sd.grpc.ServerCommsProto.SendMessageRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.SendMessageResponse;
+import com.example.projeto_sd.grpc.ServerCommsProto.UserResponse;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encaminha escritas de um nó não coordenador para o coordenador por um stream ForwardWrites
+ * persistente, em vez de uma chamada unária (com deadline próprio) por escrita.
+ * <p>
+ * Escritas concorrentes são enfileiradas e enviadas em micro-lotes por uma única thread;
+ * enquanto um lote está sendo enviado, as seguintes se acumulam no próximo. Os resultados são
+ * devolvidos aos chamadores pelo ID de cada escrita. Erros do coordenador chegam como
+ * {@link StatusRuntimeException}, como nas chamadas unárias. Com {@code forward.stream.enabled=false},
+ * as chamadas unárias do {@link GrpcClientService} são usadas.
+ * <p>
+ * Uma escrita cujo chamador desistiu (deadline ou interrupção) sai da chamada em que foi enviada,
+ * para que um coordenador que nunca responde não acumule futures. Uma conexão meio-aberta é
+ * detectada pelo keepalive do canal ({@code grpc.client.keepalive.*}), que falha o stream.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WriteForwarder {
+
+    private final GrpcClientService grpcClientService;
+
+    @Value("${forward.stream.enabled:true}")
+    private boolean streamEnabled;
+
+    @Value("${forward.deadline.ms:10000}")
+    private long deadlineMs;
+
+    @Value("${forward.batch.max-writes:256}")
+    private int maxBatchWrites;
+
+    @Value("${forward.batch.linger.ms:0}")
+    private long lingerMs;
+
+    private final AtomicLong nextWriteId = new AtomicLong();
+
+    private final ConcurrentMap<String, CoordinatorStream> streams = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "write-forwarder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Encerrando {} streams de encaminhamento de escritas.", streams.size());
+        sender.shutdownNow();
+        streams.values().forEach(CoordinatorStream::close);
+        streams.clear();
+    }
+
+    public CreatePostResponse forwardCreatePost(String coordinatorHost, int coordinatorPort, CreatePostRequest request) {
+        if (!streamEnabled) {
+            return grpcClientService.forwardCreatePostRPC(coordinatorHost, coordinatorPort, request);
+        }
+        return forward(coordinatorHost, coordinatorPort, ForwardedWrite.newBuilder().setCreatePost(request)).getCreatePost();
+    }
+
+    public SendMessageResponse forwardSendMessage(String coordinatorHost, int coordinatorPort, SendMessageRequest request) {
+        if (!streamEnabled) {
+            return grpcClientService.forwardSendMessageRPC(coordinatorHost, coordinatorPort, request);
+        }
+        return forward(coordinatorHost, coordinatorPort, ForwardedWrite.newBuilder().setSendMessage(request)).getSendMessage();
+    }
+
+    public ReplicationResponse forwardFollow(String coordinatorHost, int coordinatorPort, FollowRequest request) {
+        if (!streamEnabled) {
+            return grpcClientService.forwardFollowUserRPC(coordinatorHost, coordinatorPort, request);
+        }
+        return forward(coordinatorHost, coordinatorPort, ForwardedWrite.newBuilder().setFollow(request)).getReplication();
+    }
+
+    public ReplicationResponse forwardUnfollow(String coordinatorHost, int coordinatorPort, FollowRequest request) {
+        if (!streamEnabled) {
+            return grpcClientService.forwardUnfollowUserRPC(coordinatorHost, coordinatorPort, request);
+        }
+        return forward(coordinatorHost, coordinatorPort, ForwardedWrite.newBuilder().setUnfollow(request)).getReplication();
+    }
+
+    public UserResponse forwardCreateUser(String coordinatorHost, int coordinatorPort, CreateUserRequest request) {
+        if (!streamEnabled) {
+            return grpcClientService.forwardCreateUserRPC(coordinatorHost, coordinatorPort, request);
+        }
+        return forward(coordinatorHost, coordinatorPort, ForwardedWrite.newBuilder().setCreateUser(request)).getCreateUser();
+    }
+
+    /**
+     * Enfileira a escrita no stream do coordenador e aguarda seu resultado.
+     *
+     * @throws StatusRuntimeException Se o coordenador rejeitar a escrita, o stream falhar ou o deadline expirar.
+     */
+    private ForwardedWriteResult forward(String coordinatorHost, int coordinatorPort, ForwardedWrite.Builder write) {
+        String target = coordinatorHost + ":" + coordinatorPort;
+        CoordinatorStream stream = streams.computeIfAbsent(target, CoordinatorStream::new);
+        closeStreamsExcept(target);
+
+        long writeId = nextWriteId.incrementAndGet();
+        SettableFuture<ForwardedWriteResult> future = stream.submit(write.setId(writeId).build());
+        ForwardedWriteResult result;
+        try {
+            result = future.get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw Status.DEADLINE_EXCEEDED
+                    .withDescription("Escrita encaminhada " + writeId + " sem resposta do coordenador " + target + " em " + deadlineMs + "ms")
+                    .asRuntimeException();
+        } catch (ExecutionException e) {
+            throw Status.fromThrowable(e.getCause()).asRuntimeException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw Status.CANCELLED.withDescription("Encaminhamento interrompido").withCause(e).asRuntimeException();
+        }
+
+        if (result.getStatusCode() != Status.Code.OK.value()) {
+            throw Status.fromCodeValue(result.getStatusCode())
+                    .withDescription(result.getStatusDescription())
+                    .asRuntimeException();
+        }
+        return result;
+    }
+
+    /**
+     * O coordenador mudou: streams para coordenadores antigos deixam de receber escritas.
+     */
+    private void closeStreamsExcept(String currentTarget) {
+        if (streams.size() > 1) {
+            streams.entrySet().removeIf(entry -> {
+                if (entry.getKey().equals(currentTarget)) {
+                    return false;
+                }
+                log.info("[WriteForwarder] Coordenador mudou; encerrando stream para {}.", entry.getKey());
+                entry.getValue().close();
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Escrita enfileirada e o future do chamador que aguarda seu resultado.
+     */
+    private record QueuedWrite(ForwardedWrite write, SettableFuture<ForwardedWriteResult> future) {
+    }
+
+    /**
+     * Stream ForwardWrites com um coordenador. Só a thread {@code sender} escreve no stream.
+     */
+    private final class CoordinatorStream {
+        private final String target;
+        private final ConcurrentLinkedQueue<QueuedWrite> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private final Object lock = new Object();
+        private Call call; // guardado por lock
+        private boolean closed; // guardado por lock
+
+        private CoordinatorStream(String target) {
+            this.target = target;
+        }
+
+        private SettableFuture<ForwardedWriteResult> submit(ForwardedWrite write) {
+            SettableFuture<ForwardedWriteResult> future = SettableFuture.create();
+            queue.add(new QueuedWrite(write, future));
+            if (flushScheduled.compareAndSet(false, true)) {
+                try {
+                    if (lingerMs > 0) {
+                        sender.schedule(this::flush, lingerMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        sender.execute(this::flush);
+                    }
+                } catch (Exception e) {
+                    flushScheduled.set(false);
+                    future.setException(Status.UNAVAILABLE.withDescription("Encaminhador de escritas encerrado").asRuntimeException());
+                }
+            }
+            return future;
+        }
+
+        /**
+         * Envia tudo o que estiver na fila, em lotes de até {@code maxBatchWrites} escritas.
+         */
+        private void flush() {
+            flushScheduled.set(false);
+            while (true) {
+                List<QueuedWrite> batch = new ArrayList<>();
+                QueuedWrite queued;
+                while (batch.size() < maxBatchWrites && (queued = queue.poll()) != null) {
+                    if (!queued.future().isDone()) { // chamador já desistiu (deadline)
+                        batch.add(queued);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                send(batch);
+            }
+        }
+
+        private void send(List<QueuedWrite> batch) {
+            Call current;
+            synchronized (lock) {
+                if (closed) {
+                    failAll(batch, Status.UNAVAILABLE.withDescription("Stream para o coordenador " + target + " encerrado"));
+                    return;
+                }
+                if (call == null) {
+                    call = new Call();
+                    try {
+                        call.requestObserver = grpcClientService.openForwardWritesStream(target, call);
+                    } catch (Exception e) {
+                        call = null;
+                        failAll(batch, Status.fromThrowable(e));
+                        return;
+                    }
+                }
+                current = call;
+            }
+
+            ForwardedWriteBatch.Builder message = ForwardedWriteBatch.newBuilder();
+            for (QueuedWrite queued : batch) {
+                current.track(queued.write().getId(), queued.future());
+                message.addWrites(queued.write());
+            }
+            try {
+                current.requestObserver.onNext(message.build());
+                log.debug("[WriteForwarder] Lote de {} escritas enviado ao coordenador {}.", batch.size(), target);
+            } catch (Exception e) {
+                log.warn("[WriteForwarder] Falha ao enviar lote ao coordenador {}: {}", target, e.getMessage());
+                current.terminate(Status.fromThrowable(e));
+            }
+        }
+
+        private void close() {
+            Call current;
+            synchronized (lock) {
+                closed = true;
+                current = call;
+                call = null;
+            }
+            failAll(new ArrayList<>(queue), Status.UNAVAILABLE.withDescription("Stream para o coordenador " + target + " encerrado"));
+            queue.clear();
+            if (current != null) {
+                try {
+                    current.requestObserver.onCompleted();
+                } catch (Exception e) {
+                    log.debug("[WriteForwarder] Erro ao encerrar stream com {}: {}", target, e.getMessage());
+                }
+                current.terminate(Status.UNAVAILABLE.withDescription("Stream para o coordenador " + target + " encerrado"));
+            }
+        }
+
+        private void failAll(List<QueuedWrite> writes, Status status) {
+            writes.forEach(queued -> queued.future().setException(status.asRuntimeException()));
+        }
+
+        /**
+         * Uma chamada ForwardWrites aberta e as escritas enviadas por ela ainda sem resultado.
+         */
+        private final class Call implements StreamObserver<ForwardedWriteResults> {
+            private final ConcurrentMap<Long, SettableFuture<ForwardedWriteResult>> inFlight = new ConcurrentHashMap<>();
+            private volatile StreamObserver<ForwardedWriteBatch> requestObserver;
+
+            /**
+             * Registra a escrita como sem resultado até o future terminar, inclusive quando o
+             * chamador o cancela por deadline ou interrupção.
+             */
+            private void track(long writeId, SettableFuture<ForwardedWriteResult> future) {
+                inFlight.put(writeId, future);
+                future.addListener(() -> inFlight.remove(writeId, future), MoreExecutors.directExecutor());
+            }
+
+            @Override
+            public void onNext(ForwardedWriteResults results) {
+                for (ForwardedWriteResult result : results.getResultsList()) {
+                    SettableFuture<ForwardedWriteResult> future = inFlight.remove(result.getId());
+                    if (future != null) {
+                        future.set(result);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.warn("[WriteForwarder] Stream com o coordenador {} falhou: {}", target, t.getMessage());
+                terminate(Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                terminate(Status.UNAVAILABLE.withDescription("Stream encerrado pelo coordenador " + target));
+            }
+
+            /**
+             * Falha as escritas sem resultado; a próxima escrita abre uma nova chamada.
+             */
+            private void terminate(Status status) {
+                synchronized (lock) {
+                    if (call == this) {
+                        call = null;
+                    }
+                }
+                inFlight.values().forEach(future -> future.setException(status.asRuntimeException()));
+                inFlight.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.projeto_sd.cluster;
+
+import com.example.projeto_sd.ProjetoSdApplication;
+import com.example.projeto_sd.service.ElectionService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cluster de N nós da aplicação em uma única JVM, para testes de replicação sem docker-compose.
+ * <p>
+ * Cada nó é um contexto Spring completo com:
+ * <ul>
+ *   <li>banco próprio (um database por nó em um Postgres embarcado; o H2 não cobre o SQL nativo
+ *       do projeto, como CTEs com {@code RETURNING} e {@code ON CONFLICT DO UPDATE});</li>
+ *   <li>servidor gRPC apenas in-process, com nome igual ao alvo "host:porta" anunciado, e canais de saída
+ *       in-process ({@code grpc.client.in-process});</li>
+ *   <li>um {@link FakeDiscoveryClient} compartilhado no lugar do Consul.</li>
+ * </ul>
+ * Ganchos de falha: {@link #pause}/{@link #resume} isolam um nó da rede; {@link #kill} encerra
+ * o contexto e o remove do catálogo; {@link #restart} o sobe de novo com o mesmo banco.
+ */
+public final class ClusterHarness implements AutoCloseable {
+
+    static final String HOST = "localhost";
+    private static final String SERVICE_NAME = "rede-social-cluster-test";
+    private static final int BASE_GRPC_PORT = 19090;
+
+    private final EmbeddedPostgres postgres;
+    private final FakeDiscoveryClient discovery = new FakeDiscoveryClient(SERVICE_NAME);
+    private final NetworkFaults faults = new NetworkFaults();
+    private final Map<String, ClusterNode> nodes = new LinkedHashMap<>();
+    private final Map<String, String> overrides;
+
+    private ClusterHarness(EmbeddedPostgres postgres, Map<String, String> overrides) {
+        this.postgres = postgres;
+        this.overrides = overrides;
+    }
+
+    /**
+     * Sobe {@code size} nós em paralelo (IDs {@code node-01}...) e retorna quando todos concluíram
+     * a inicialização. Use {@link #awaitCoordinator} antes de enviar escritas.
+     *
+     * @param overrides propriedades aplicadas a todos os nós (ex.: {@code replication.ack.mode})
+     */
+    public static ClusterHarness start(int size, Map<String, String> overrides) throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", String.valueOf(20 + size * 12))
+                .start();
+        ClusterHarness harness = new ClusterHarness(postgres, overrides);
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int i = 1; i <= size; i++) {
+                String serverId = String.format("node-%02d", i);
+                String database = serverId.replace('-', '_');
+                statement.execute("CREATE DATABASE " + database);
+                harness.nodes.put(serverId, new ClusterNode(serverId, BASE_GRPC_PORT + i, postgres.getJdbcUrl("postgres", database)));
+            }
+        }
+        try {
+            harness.startAll();
+        } catch (Exception e) {
+            harness.close();
+            throw e;
+        }
+        return harness;
+    }
+
+    public static ClusterHarness start(int size) throws Exception {
+        return start(size, Map.of());
+    }
+
+    private void startAll() throws Exception {
+        // A inicialização de cada nó bloqueia na espera de estabilização e na eleição; em paralelo
+        // os nós se enxergam no catálogo como num deploy real.
+        ExecutorService starter = Executors.newFixedThreadPool(nodes.size());
+        try {
+            List<Future<?>> started = new ArrayList<>();
+            for (ClusterNode node : nodes.values()) {
+                started.add(starter.submit(() -> {
+                    startNode(node);
+                    return null;
+                }));
+            }
+            for (Future<?> future : started) {
+                future.get();
+            }
+        } finally {
+            starter.shutdownNow();
+        }
+    }
+
+    private void startNode(ClusterNode node) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.application.name", SERVICE_NAME);
+        properties.put("server.id", node.serverId());
+        properties.put("server.host", HOST);
+        properties.put("server.port", "0");
+        properties.put("server.grpc-port", String.valueOf(node.grpcPort()));
+        properties.put("grpc.server.port", "-1");
+        properties.put("grpc.server.in-process-name", node.target());
+        properties.put("grpc.client.in-process", "true");
+        properties.put("spring.datasource.url", node.jdbcUrl());
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.hikari.maximum-pool-size", "10");
+        properties.put("spring.cloud.consul.enabled", "false");
+        properties.put("spring.cloud.service-registry.auto-registration.enabled", "false");
+        properties.put("cluster.membership.refresh.ms", "500");
+        properties.put("cluster.startup.settle.ms", "1000");
+        properties.put("heartbeat.initial.delay.ms", "2000");
+        properties.put("heartbeat.interval.ms", "1000");
+        properties.put("clocksync.initial.delay.ms", "5000");
+        properties.put("logging.level.com.example.projeto_sd", "WARN");
+        properties.putAll(overrides);
+
+        discovery.register(node.serverId(), HOST, node.grpcPort());
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProjetoSdApplication.class)
+                .properties(properties)
+                .initializers(ctx -> {
+                    ctx.getBeanFactory().registerSingleton("clusterDiscoveryClient", (DiscoveryClient) discovery);
+                    ctx.getBeanFactory().registerSingleton("clusterNetworkFaults",
+                            (GrpcServerConfigurer) serverBuilder -> serverBuilder.intercept(faults.interceptorFor(node.serverId())));
+                })
+                .run();
+        node.started(context);
+    }
+
+    /**
+     * Aguarda até que todos os nós em execução concordem sobre um coordenador e o retorna.
+     */
+    public ClusterNode awaitCoordinator(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            List<String> views = new ArrayList<>();
+            for (ClusterNode node : running()) {
+                if (!faults.isPaused(node.serverId())) {
+                    views.add(node.bean(ElectionService.class).getCurrentCoordinatorId());
+                }
+            }
+            String first = views.isEmpty() ? null : views.get(0);
+            if (first != null && views.stream().allMatch(first::equals) && nodes.containsKey(first) && nodes.get(first).isRunning()) {
+                return nodes.get(first);
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Os nós não convergiram para um coordenador em " + timeout.toSeconds() + "s.");
+    }
+
+    public ClusterNode node(String serverId) {
+        return Objects.requireNonNull(nodes.get(serverId), () -> "Nó desconhecido: " + serverId);
+    }
+
+    public List<ClusterNode> nodes() {
+        return List.copyOf(nodes.values());
+    }
+
+    public List<ClusterNode> running() {
+        return nodes.values().stream().filter(ClusterNode::isRunning).toList();
+    }
+
+    /**
+     * Isola o nó da rede (chamadas recebidas e originadas falham com UNAVAILABLE) sem encerrá-lo.
+     */
+    public void pause(String serverId) {
+        node(serverId);
+        faults.pause(serverId);
+    }
+
+    public void resume(String serverId) {
+        node(serverId);
+        faults.resume(serverId);
+    }
+
+    /**
+     * Encerra o nó e o remove do catálogo; o banco é mantido para {@link #restart}.
+     */
+    public void kill(String serverId) {
+        ClusterNode node = node(serverId);
+        discovery.deregister(serverId);
+        faults.resume(serverId);
+        node.stop();
+    }
+
+    /**
+     * Sobe novamente um nó encerrado, com o mesmo banco.
+     */
+    public void restart(String serverId) {
+        ClusterNode node = node(serverId);
+        if (node.isRunning()) {
+            throw new IllegalStateException("Nó " + serverId + " já está em execução.");
+        }
+        startNode(node);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (ClusterNode node : nodes.values()) {
+            try {
+                discovery.deregister(node.serverId());
+                node.stop();
+            } catch (Exception e) {
+                System.err.println("[ClusterHarness] Erro ao encerrar " + node + ": " + e.getMessage());
+            }
+        }
+        postgres.close();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.projeto_sd.cluster;
+
+import com.example.projeto_sd.grpc.ServerServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Um nó do harness: contexto Spring completo da aplicação, com banco próprio e servidor gRPC in-process.
+ */
+public final class ClusterNode {
+
+    private final String serverId;
+    private final int grpcPort;
+    private final String jdbcUrl;
+    private volatile ConfigurableApplicationContext context;
+    private volatile ManagedChannel clientChannel;
+
+    ClusterNode(String serverId, int grpcPort, String jdbcUrl) {
+        this.serverId = serverId;
+        this.grpcPort = grpcPort;
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    public String serverId() {
+        return serverId;
+    }
+
+    /**
+     * Alvo "host:porta" anunciado aos peers, que também é o nome do servidor in-process.
+     */
+    public String target() {
+        return ClusterHarness.HOST + ":" + grpcPort;
+    }
+
+    int grpcPort() {
+        return grpcPort;
+    }
+
+    String jdbcUrl() {
+        return jdbcUrl;
+    }
+
+    public boolean isRunning() {
+        ConfigurableApplicationContext current = context;
+        return current != null && current.isActive();
+    }
+
+    /**
+     * Bean do contexto deste nó (repositórios, serviços...), para inspecionar o estado local.
+     */
+    public <T> T bean(Class<T> type) {
+        ConfigurableApplicationContext current = context;
+        if (current == null || !current.isActive()) {
+            throw new IllegalStateException("Nó " + serverId + " não está em execução.");
+        }
+        return current.getBean(type);
+    }
+
+    /**
+     * Porta HTTP (REST) em que o Tomcat deste nó escuta (atribuída na inicialização).
+     */
+    public int httpPort() {
+        ConfigurableApplicationContext current = context;
+        if (!(current instanceof WebServerApplicationContext web) || !current.isActive()) {
+            throw new IllegalStateException("Nó " + serverId + " não está em execução.");
+        }
+        return web.getWebServer().getPort();
+    }
+
+    /**
+     * Stub de cliente para este nó, pelo transporte in-process (como um cliente gRPC externo).
+     */
+    public ServerServiceGrpc.ServerServiceBlockingStub stub() {
+        ManagedChannel channel = clientChannel;
+        if (channel == null || channel.isShutdown()) {
+            synchronized (this) {
+                channel = clientChannel;
+                if (channel == null || channel.isShutdown()) {
+                    channel = InProcessChannelBuilder.forName(target()).build();
+                    clientChannel = channel;
+                }
+            }
+        }
+        return ServerServiceGrpc.newBlockingStub(channel);
+    }
+
+    void started(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    void stop() {
+        ManagedChannel channel = clientChannel;
+        clientChannel = null;
+        if (channel != null) {
+            channel.shutdownNow();
+            try {
+                channel.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ConfigurableApplicationContext current = context;
+        context = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return serverId + "@" + target();
+    }
+}
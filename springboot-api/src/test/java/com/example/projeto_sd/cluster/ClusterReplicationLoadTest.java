@@ -0,0 +1,168 @@
+package com.example.projeto_sd.cluster;
+
+import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.grpc.ServerServiceGrpc;
+import com.example.projeto_sd.repository.PostRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vazão de escritas replicadas e atraso de replicação com 3, 5 e 7 nós no {@link ClusterHarness}
+ * (executar com {@code ./gradlew loadTest --tests '*ClusterReplicationLoadTest'}).
+ * <p>
+ * Clientes concorrentes criam posts no coordenador por {@link #LOAD_DURATION}; em paralelo, uma sonda
+ * cria um post a cada {@link #PROBE_INTERVAL_MS} ms e mede, em cada seguidor, o tempo desde o envio
+ * até o post ficar visível no banco do seguidor. Ao final, espera todos os seguidores convergirem:
+ * a vazão replicada conta as escritas até o último seguidor alcançar o coordenador.
+ */
+@Tag("load")
+class ClusterReplicationLoadTest {
+
+    private static final int WRITERS = 16;
+    private static final int USERS = 50;
+    private static final Duration LOAD_DURATION = Duration.ofSeconds(20);
+    private static final long PROBE_INTERVAL_MS = 200;
+    private static final Duration CONVERGENCE_TIMEOUT = Duration.ofSeconds(60);
+
+    @ParameterizedTest(name = "{0} nós")
+    @ValueSource(ints = {3, 5, 7})
+    void replicatedWritesPerSecondAndLag(int size) throws Exception {
+        try (ClusterHarness cluster = ClusterHarness.start(size, Map.of("replication.ack.mode", "QUORUM"))) {
+            ClusterNode coordinator = cluster.awaitCoordinator(Duration.ofSeconds(60));
+            List<ClusterNode> followers = cluster.running().stream().filter(node -> node != coordinator).toList();
+            ServerServiceGrpc.ServerServiceBlockingStub stub = coordinator.stub();
+
+            List<String> userIds = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                userIds.add(stub.withDeadlineAfter(10, TimeUnit.SECONDS)
+                        .createUserRPC(ServerCommsProto.CreateUserRequest.newBuilder().setName("load_" + i).build())
+                        .getId());
+            }
+            long baseline = coordinator.bean(PostRepository.class).count();
+
+            AtomicLong acknowledged = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            long start = System.nanoTime();
+            long loadDeadline = start + LOAD_DURATION.toNanos();
+            ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.execute(() -> {
+                    int i = 0;
+                    while (System.nanoTime() < loadDeadline) {
+                        try {
+                            createPost(stub, userIds.get((writer + i++) % userIds.size()));
+                            acknowledged.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+
+            List<Long> lagsMicros = probeReplicationLag(stub, userIds.get(0), followers, loadDeadline);
+
+            writers.shutdown();
+            assertTrue(writers.awaitTermination(30, TimeUnit.SECONDS), "Clientes de escrita não terminaram");
+            long loadEnd = System.nanoTime();
+
+            long expected = coordinator.bean(PostRepository.class).count();
+            long convergedAt = awaitConvergence(followers, expected);
+            long written = expected - baseline;
+
+            double loadSeconds = (loadEnd - start) / 1e9;
+            double replicatedSeconds = (convergedAt - start) / 1e9;
+            Collections.sort(lagsMicros);
+            System.out.printf("[LoadTest] %d nós: %d escritas confirmadas (%d falhas) em %.1fs = %.0f/s; "
+                            + "replicadas em todos os seguidores em %.1fs = %.0f/s; "
+                            + "atraso de visibilidade nos seguidores (%d amostras): p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    size, acknowledged.get(), failed.get(), loadSeconds, acknowledged.get() / loadSeconds,
+                    replicatedSeconds, written / replicatedSeconds,
+                    lagsMicros.size(), percentile(lagsMicros, 50), percentile(lagsMicros, 99), percentile(lagsMicros, 100));
+
+            assertTrue(acknowledged.get() > 0, "Nenhuma escrita confirmada pelo coordenador");
+            for (ClusterNode follower : followers) {
+                assertEquals(expected, follower.bean(PostRepository.class).count(), "Seguidor " + follower + " divergiu");
+            }
+        }
+    }
+
+    /**
+     * Cria sondas até {@code deadline} e retorna, por seguidor e sonda, o tempo (µs) do envio até a visibilidade.
+     */
+    private static List<Long> probeReplicationLag(ServerServiceGrpc.ServerServiceBlockingStub stub, String userId,
+                                                  List<ClusterNode> followers, long deadline) throws InterruptedException {
+        List<Long> lagsMicros = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            long sentAt = System.nanoTime();
+            String postId;
+            try {
+                postId = createPost(stub, userId);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            List<ClusterNode> pending = new ArrayList<>(followers);
+            long probeDeadline = sentAt + TimeUnit.SECONDS.toNanos(10);
+            while (!pending.isEmpty() && System.nanoTime() < probeDeadline) {
+                pending.removeIf(follower -> {
+                    if (follower.bean(PostRepository.class).existsById(postId)) {
+                        lagsMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                        return true;
+                    }
+                    return false;
+                });
+                Thread.sleep(1);
+            }
+            assertTrue(pending.isEmpty(), "Sonda " + postId + " não chegou a " + pending);
+            long next = sentAt + TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MS);
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        return lagsMicros;
+    }
+
+    private static long awaitConvergence(List<ClusterNode> followers, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + CONVERGENCE_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (followers.stream().allMatch(follower -> follower.bean(PostRepository.class).count() >= expected)) {
+                return System.nanoTime();
+            }
+            Thread.sleep(10);
+        }
+        return System.nanoTime();
+    }
+
+    private static String createPost(ServerServiceGrpc.ServerServiceBlockingStub stub, String userId) {
+        return stub.withDeadlineAfter(10, TimeUnit.SECONDS)
+                .createPostRPC(ServerCommsProto.CreatePostRequest.newBuilder()
+                        .setUserId(userId)
+                        .setContent("post de carga do harness de cluster")
+                        .build())
+                .getPostInfo()
+                .getId();
+    }
+
+    private static double percentile(List<Long> sortedMicros, double percentile) {
+        if (sortedMicros.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedMicros.size()) - 1;
+        return sortedMicros.get(Math.max(0, Math.min(index, sortedMicros.size() - 1))) / 1000.0;
+    }
+}
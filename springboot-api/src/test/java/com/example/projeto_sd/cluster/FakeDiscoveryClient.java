@@ -0,0 +1,50 @@
+package com.example.projeto_sd.cluster;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Catálogo em memória compartilhado pelos nós do harness, no lugar do Consul.
+ * Publica os mesmos metadados que o registro no Consul ({@code server-id} e {@code gRPC_port}),
+ * então o ClusterMembership dos nós funciona sem alterações.
+ */
+class FakeDiscoveryClient implements DiscoveryClient {
+
+    private final String serviceId;
+    private final ConcurrentMap<String, ServiceInstance> instances = new ConcurrentHashMap<>();
+
+    FakeDiscoveryClient(String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    void register(String serverId, String host, int grpcPort) {
+        instances.put(serverId, new DefaultServiceInstance(serviceId + "-" + serverId, serviceId, host, grpcPort, false,
+                Map.of("server-id", serverId, "gRPC_port", String.valueOf(grpcPort))));
+    }
+
+    void deregister(String serverId) {
+        instances.remove(serverId);
+    }
+
+    @Override
+    public String description() {
+        return "Catálogo em memória do harness de cluster";
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return this.serviceId.equals(serviceId) ? new ArrayList<>(instances.values()) : List.of();
+    }
+
+    @Override
+    public List<String> getServices() {
+        return instances.isEmpty() ? List.of() : List.of(serviceId);
+    }
+}
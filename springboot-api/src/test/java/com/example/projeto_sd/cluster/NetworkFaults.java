@@ -0,0 +1,53 @@
+package com.example.projeto_sd.cluster;
+
+import com.example.projeto_sd.grpc.GrpcMetrics;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Falhas de rede simuladas entre os nós do harness. Um nó pausado fica isolado: as chamadas
+ * que ele recebe e as que ele origina (identificadas pelo header {@link GrpcMetrics#SERVER_ID_HEADER})
+ * falham com UNAVAILABLE, como um processo congelado visto pelos peers. O nó continua rodando
+ * localmente e volta ao cluster em {@link #resume}.
+ */
+class NetworkFaults {
+
+    private final Set<String> paused = ConcurrentHashMap.newKeySet();
+
+    void pause(String serverId) {
+        paused.add(serverId);
+    }
+
+    void resume(String serverId) {
+        paused.remove(serverId);
+    }
+
+    boolean isPaused(String serverId) {
+        return paused.contains(serverId);
+    }
+
+    /**
+     * Interceptor do servidor in-process do nó {@code serverId}.
+     */
+    ServerInterceptor interceptorFor(String serverId) {
+        return new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                String callerId = headers.get(GrpcMetrics.SERVER_ID_HEADER);
+                if (paused.contains(serverId) || (callerId != null && paused.contains(callerId))) {
+                    call.close(Status.UNAVAILABLE.withDescription("Nó pausado pelo harness de cluster."), new Metadata());
+                    return new ServerCall.Listener<>() {
+                    };
+                }
+                return next.startCall(call, headers);
+            }
+        };
+    }
+}
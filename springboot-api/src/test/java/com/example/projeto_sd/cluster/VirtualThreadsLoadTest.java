@@ -0,0 +1,157 @@
+package com.example.projeto_sd.cluster;
+
+import com.example.projeto_sd.grpc.ServerCommsProto;
+import com.example.projeto_sd.grpc.ServerServiceGrpc;
+import com.example.projeto_sd.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Teste de carga do modo virtual threads contra a aplicação real, com
+ * {@code spring.threads.virtual.enabled} desligado e ligado
+ * (executar com {@code ./gradlew loadTest -PjavaVersion=21 --tests '*VirtualThreadsLoadTest'}).
+ * <p>
+ * Sobe um {@link ClusterHarness} de 3 nós e dispara {@link #CLIENTS} clientes HTTP concorrentes de
+ * {@code POST /api/posts} contra os seguidores por {@link #LOAD_DURATION}. Cada requisição bloqueia a
+ * thread do Tomcat enquanto a escrita é encaminhada ao coordenador e replicada, que é o caminho
+ * bloqueante que as virtual threads devem liberar. Com threads de plataforma, a concorrência fica
+ * limitada a {@code server.tomcat.threads.max} ({@link #TOMCAT_MAX_THREADS}) por nó.
+ * Imprime vazão e latência (p50/p99/max) de cada modo.
+ */
+@Tag("load")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadsLoadTest {
+
+    private static final int CLUSTER_SIZE = 3;
+    private static final int USERS = 50;
+    private static final int CLIENTS = 400;
+    private static final int TOMCAT_MAX_THREADS = 50;
+    private static final Duration LOAD_DURATION = Duration.ofSeconds(15);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    @ParameterizedTest(name = "virtual threads = {0}")
+    @ValueSource(booleans = {false, true})
+    void forwardedWritesUnderConcurrentHttpLoad(boolean virtualThreads) throws Exception {
+        Map<String, String> overrides = Map.of(
+                "spring.threads.virtual.enabled", String.valueOf(virtualThreads),
+                "server.tomcat.threads.max", String.valueOf(TOMCAT_MAX_THREADS));
+        try (ClusterHarness cluster = ClusterHarness.start(CLUSTER_SIZE, overrides)) {
+            ClusterNode coordinator = cluster.awaitCoordinator(Duration.ofSeconds(60));
+            List<ClusterNode> followers = cluster.running().stream().filter(node -> node != coordinator).toList();
+            List<String> userIds = createUsers(coordinator.stub());
+            awaitUsers(followers, userIds.size());
+
+            List<URI> endpoints = followers.stream()
+                    .map(node -> URI.create("http://" + ClusterHarness.HOST + ":" + node.httpPort() + "/api/posts"))
+                    .toList();
+            HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            AtomicLong created = new AtomicLong();
+            AtomicLong failed = new AtomicLong();
+            ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+            long start = System.nanoTime();
+            long loadDeadline = start + LOAD_DURATION.toNanos();
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                clients.execute(() -> {
+                    int i = 0;
+                    while (System.nanoTime() < loadDeadline) {
+                        String userId = userIds.get((client + i) % userIds.size());
+                        URI endpoint = endpoints.get((client + i) % endpoints.size());
+                        i++;
+                        long sentAt = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(createPostRequest(endpoint, userId), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 201) {
+                                created.incrementAndGet();
+                                latenciesMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(LOAD_DURATION.plus(REQUEST_TIMEOUT).toSeconds() + 30, TimeUnit.SECONDS),
+                    "Clientes HTTP não terminaram");
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            List<Long> sorted = new ArrayList<>(latenciesMicros);
+            Collections.sort(sorted);
+            System.out.printf("[LoadTest] virtual threads=%s, %d clientes, Tomcat max %d threads: %d posts criados via seguidores "
+                            + "(%d falhas) em %.1fs = %.0f/s; latência p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    virtualThreads, CLIENTS, TOMCAT_MAX_THREADS, created.get(), failed.get(), seconds, created.get() / seconds,
+                    percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100));
+
+            assertTrue(created.get() > 0, "Nenhum post criado pelos seguidores");
+        }
+    }
+
+    private static HttpRequest createPostRequest(URI endpoint, String userId) {
+        String body = "{\"userId\":\"" + userId + "\",\"content\":\"post de carga do teste de virtual threads\"}";
+        return HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static List<String> createUsers(ServerServiceGrpc.ServerServiceBlockingStub stub) {
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(stub.withDeadlineAfter(10, TimeUnit.SECONDS)
+                    .createUserRPC(ServerCommsProto.CreateUserRequest.newBuilder().setName("vt_" + i).build())
+                    .getId());
+        }
+        return userIds;
+    }
+
+    /**
+     * Os seguidores só aceitam posts de usuários que já replicaram.
+     */
+    private static void awaitUsers(List<ClusterNode> followers, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            if (followers.stream().allMatch(follower -> follower.bean(UserRepository.class).count() >= expected)) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Usuários não replicaram para os seguidores em 30s.");
+    }
+
+    private static double percentile(List<Long> sortedMicros, double percentile) {
+        if (sortedMicros.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedMicros.size()) - 1;
+        return sortedMicros.get(Math.max(0, Math.min(index, sortedMicros.size() - 1))) / 1000.0;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.projeto_sd.grpc;
+
+import com.google.protobuf.Empty;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeerCallGuardTest {
+
+    private static final String TARGET = "peer-test:9090";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MS = 100;
+
+    private final AtomicInteger received = new AtomicInteger();
+    private volatile Status.Code respondWith = Status.Code.OK;
+
+    private PeerCallGuard guard;
+    private Server server;
+    private ManagedChannel channel;
+    private ServerServiceGrpc.ServerServiceBlockingStub stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        guard = new PeerCallGuard(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(guard, "failureThreshold", FAILURE_THRESHOLD);
+        ReflectionTestUtils.setField(guard, "openMs", OPEN_MS);
+        ReflectionTestUtils.setField(guard, "adaptiveDeadlines", false);
+        ReflectionTestUtils.setField(guard, "adaptiveDeadlineExclusions", Set.of());
+        ReflectionTestUtils.setField(guard, "retryRatio", 0.1);
+        ReflectionTestUtils.setField(guard, "retryMaxTokens", 20.0);
+        guard.init();
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor().addService(new ServerServiceGrpc.ServerServiceImplBase() {
+            @Override
+            public void forwardMarkNotificationsRead(ServerCommsProto.MarkNotificationsReadRequest request, StreamObserver<Empty> responseObserver) {
+                received.incrementAndGet();
+                if (respondWith == Status.Code.OK) {
+                    responseObserver.onNext(Empty.getDefaultInstance());
+                    responseObserver.onCompleted();
+                } else {
+                    responseObserver.onError(Status.fromCode(respondWith).asRuntimeException());
+                }
+            }
+        }).build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = ServerServiceGrpc.newBlockingStub(ClientInterceptors.intercept(channel, guard.interceptorFor(TARGET)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void opensAfterConsecutiveTransportFailuresAndRejectsWithoutCallingThePeer() {
+        respondWith = Status.Code.UNAVAILABLE;
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertEquals(Status.Code.UNAVAILABLE, call());
+        }
+        assertFalse(guard.isAvailable(TARGET));
+
+        assertEquals(Status.Code.UNAVAILABLE, call());
+        assertEquals(FAILURE_THRESHOLD, received.get(), "Com o circuito aberto a chamada não deveria chegar ao peer");
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        respondWith = Status.Code.UNAVAILABLE;
+        for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            call();
+        }
+        respondWith = Status.Code.OK;
+        call();
+        respondWith = Status.Code.UNAVAILABLE;
+        for (int i = 0; i < FAILURE_THRESHOLD - 1; i++) {
+            call();
+        }
+
+        assertTrue(guard.isAvailable(TARGET));
+    }
+
+    @Test
+    void applicationErrorsDoNotOpenTheCircuit() {
+        respondWith = Status.Code.INVALID_ARGUMENT;
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertEquals(Status.Code.INVALID_ARGUMENT, call());
+        }
+
+        assertTrue(guard.isAvailable(TARGET));
+        assertEquals(FAILURE_THRESHOLD * 2, received.get());
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() throws InterruptedException {
+        openCircuit();
+        Thread.sleep(OPEN_MS + 50);
+        assertTrue(guard.isAvailable(TARGET), "Após open.ms uma sonda deveria ser permitida");
+
+        respondWith = Status.Code.OK;
+        assertEquals(Status.Code.OK, call());
+        assertEquals(Status.Code.OK, call());
+
+        assertTrue(guard.isAvailable(TARGET));
+        assertEquals(FAILURE_THRESHOLD + 2, received.get());
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() throws InterruptedException {
+        openCircuit();
+        Thread.sleep(OPEN_MS + 50);
+
+        assertEquals(Status.Code.UNAVAILABLE, call());
+        assertEquals(FAILURE_THRESHOLD + 1, received.get(), "A sonda deveria chegar ao peer");
+        assertFalse(guard.isAvailable(TARGET));
+
+        assertEquals(Status.Code.UNAVAILABLE, call());
+        assertEquals(FAILURE_THRESHOLD + 1, received.get(), "Após a sonda falhar o circuito deveria estar aberto");
+    }
+
+    private void openCircuit() {
+        respondWith = Status.Code.UNAVAILABLE;
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            call();
+        }
+        assertFalse(guard.isAvailable(TARGET));
+    }
+
+    private Status.Code call() {
+        try {
+            stub.withDeadlineAfter(5, TimeUnit.SECONDS)
+                    .forwardMarkNotificationsRead(ServerCommsProto.MarkNotificationsReadRequest.newBuilder().setUserId("u").build());
+            return Status.Code.OK;
+        } catch (StatusRuntimeException e) {
+            return e.getStatus().getCode();
+        }
+    }
+}
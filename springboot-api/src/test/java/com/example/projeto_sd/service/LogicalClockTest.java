@@ -0,0 +1,67 @@
+package com.example.projeto_sd.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogicalClockTest {
+
+    private final LogicalClock logicalClock = new LogicalClock();
+
+    @BeforeEach
+    void startTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void endTransaction() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void floorIsTheWriteClockWhenNoOtherWriteIsAppending() {
+        AtomicInteger floor = new AtomicInteger();
+
+        int clock = logicalClock.stampWrite((writeClock, appliedFloor) -> floor.set(appliedFloor));
+
+        assertEquals(clock, floor.get());
+    }
+
+    @Test
+    void floorStopsBelowAWriteThatHasNotAppendedYet() {
+        AtomicInteger outerClock = new AtomicInteger();
+        AtomicInteger innerClock = new AtomicInteger();
+        AtomicInteger innerFloor = new AtomicInteger();
+
+        // A escrita interna reserva e grava o envelope enquanto a externa ainda não gravou o seu
+        logicalClock.stampWrite((writeClock, appliedFloor) -> {
+            outerClock.set(writeClock);
+            innerClock.set(logicalClock.stampWrite((clock, floor) -> innerFloor.set(floor)));
+        });
+        AtomicInteger laterFloor = new AtomicInteger();
+        int laterClock = logicalClock.stampWrite((writeClock, appliedFloor) -> laterFloor.set(appliedFloor));
+
+        assertEquals(outerClock.get() + 1, innerClock.get());
+        assertEquals(outerClock.get() - 1, innerFloor.get());
+        assertEquals(laterClock, laterFloor.get());
+    }
+
+    @Test
+    void watermarkWaitsForTheLowestPendingWrite() {
+        int first = logicalClock.stampWrite((writeClock, appliedFloor) -> { });
+        int second = logicalClock.stampWrite((writeClock, appliedFloor) -> { });
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(first - 1, logicalClock.getAppliedValue());
+
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(second, logicalClock.getAppliedValue());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicateNotificationsBatchRequest;
+import com.example.projeto_sd.model.Notification;
+import com.example.projeto_sd.model.Post;
+import com.example.projeto_sd.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostServiceNotificationBatchTest {
+
+    private static final String COORDINATOR = "server-1";
+
+    @Test
+    void emptyListProducesNoBatches() {
+        assertTrue(PostService.buildNotificationBatches(List.of(), COORDINATOR, 1024, 10).isEmpty());
+    }
+
+    @Test
+    void splitsByCountKeepingOrder() {
+        List<Notification> notifications = notifications(25);
+
+        List<ReplicateNotificationsBatchRequest> batches =
+                PostService.buildNotificationBatches(notifications, COORDINATOR, Integer.MAX_VALUE, 10);
+
+        assertEquals(List.of(10, 10, 5), batches.stream().map(ReplicateNotificationsBatchRequest::getNotificationsCount).toList());
+        List<String> ids = batches.stream()
+                .flatMap(batch -> batch.getNotificationsList().stream())
+                .map(notification -> notification.getId())
+                .toList();
+        assertEquals(notifications.stream().map(Notification::getId).toList(), ids);
+        batches.forEach(batch -> assertEquals(COORDINATOR, batch.getCoordinatorId()));
+    }
+
+    @Test
+    void splitsBySerializedSize() {
+        List<Notification> notifications = notifications(20);
+        int maxBytes = 1024;
+
+        List<ReplicateNotificationsBatchRequest> batches =
+                PostService.buildNotificationBatches(notifications, COORDINATOR, maxBytes, Integer.MAX_VALUE);
+
+        assertTrue(batches.size() > 1, "Deveria dividir em mais de um lote");
+        int total = 0;
+        for (ReplicateNotificationsBatchRequest batch : batches) {
+            total += batch.getNotificationsCount();
+            int notificationBytes = batch.toBuilder().clearCoordinatorId().build().getSerializedSize();
+            assertTrue(notificationBytes <= maxBytes, "Lote com " + notificationBytes + " bytes acima do limite");
+        }
+        assertEquals(notifications.size(), total);
+    }
+
+    @Test
+    void oversizedNotificationGoesAloneInItsBatch() {
+        List<Notification> notifications = notifications(3);
+
+        List<ReplicateNotificationsBatchRequest> batches =
+                PostService.buildNotificationBatches(notifications, COORDINATOR, 1, Integer.MAX_VALUE);
+
+        assertEquals(3, batches.size());
+        batches.forEach(batch -> assertEquals(1, batch.getNotificationsCount()));
+    }
+
+    private static List<Notification> notifications(int followers) {
+        User author = new User("author", "autor");
+        Post post = new Post();
+        post.setId("post-1");
+        post.setUser(author);
+        List<User> followerUsers = new ArrayList<>();
+        for (int i = 0; i < followers; i++) {
+            followerUsers.add(new User("follower-" + i, "seguidor " + i));
+        }
+        AtomicLong sequence = new AtomicLong();
+        return PostService.buildPostNotifications(post, followerUsers,
+                () -> String.format("00000000-0000-7000-8000-%012d", sequence.incrementAndGet()));
+    }
+}
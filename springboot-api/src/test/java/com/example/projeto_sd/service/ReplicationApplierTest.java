@@ -0,0 +1,130 @@
+package com.example.projeto_sd.service;
+
+import com.example.projeto_sd.grpc.ServerCommsProto.FollowRequest;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationAck;
+import com.example.projeto_sd.grpc.ServerCommsProto.ReplicationEnvelope;
+import com.example.projeto_sd.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicationApplierTest {
+
+    private static final String STREAM = "server-1/stream-a";
+
+    @Mock private UserRepository userRepository;
+    @Mock private UserCache userCache;
+    @Mock private FollowService followService;
+    @Mock private FollowGraphIndex followGraphIndex;
+    @Mock private PostService postService;
+    @Mock private NotificationService notificationService;
+    @Mock private MessageService messageService;
+    @Mock private ElectionService electionService;
+    @Mock private SnapshotService snapshotService;
+    @Mock private LogicalClock logicalClock;
+
+    @InjectMocks
+    private ReplicationApplier applier;
+
+    @Test
+    void appliesInOrderAndReacksDuplicatesWithoutReapplying() {
+        ReplicationAck first = applier.apply(follow(1, "a"));
+        ReplicationAck second = applier.apply(follow(2, "b"));
+        ReplicationAck duplicate = applier.apply(follow(1, "a"));
+
+        assertEquals(1, first.getAckedSequence());
+        assertEquals(2, second.getAckedSequence());
+        assertEquals(2, duplicate.getAckedSequence());
+        assertEquals(0, duplicate.getRejectedSequence());
+        verify(followService, times(1)).saveReplicatedFollow("a", "target");
+        verify(followService, times(1)).saveReplicatedFollow("b", "target");
+    }
+
+    @Test
+    void failedEnvelopeIsRejectedAndBlocksLaterSequencesUntilResent() {
+        applier.apply(follow(1, "a"));
+        doThrow(new IllegalStateException("banco indisponível")).doNothing()
+                .when(followService).saveReplicatedFollow("b", "target");
+
+        ReplicationAck failed = applier.apply(follow(2, "b"));
+        ReplicationAck blocked = applier.apply(follow(3, "c"));
+
+        assertEquals(1, failed.getAckedSequence(), "A falha não deveria avançar o ack");
+        assertEquals(2, failed.getRejectedSequence());
+        assertEquals(1, blocked.getAckedSequence());
+        assertEquals(3, blocked.getRejectedSequence());
+        verify(followService, never()).saveReplicatedFollow("c", "target");
+
+        ReplicationAck resent = applier.apply(follow(2, "b"));
+        ReplicationAck next = applier.apply(follow(3, "c"));
+
+        assertEquals(2, resent.getAckedSequence());
+        assertEquals(0, resent.getRejectedSequence());
+        assertEquals(3, next.getAckedSequence());
+        verify(followService).saveReplicatedFollow("c", "target");
+    }
+
+    @Test
+    void streamsAreTrackedIndependently() {
+        applier.apply(follow(1, "a"));
+
+        ReplicationAck otherStream = applier.apply(follow(1, "b").toBuilder().setStreamId("server-1/stream-b").build());
+
+        assertEquals(1, otherStream.getAckedSequence());
+        verify(followService).saveReplicatedFollow("b", "target");
+    }
+
+    @Test
+    void closedStreamStateIsDiscarded() {
+        applier.apply(follow(1, "a"));
+        applier.streamClosed(STREAM);
+
+        ReplicationAck reopened = applier.apply(follow(1, "a"));
+
+        assertEquals(1, reopened.getAckedSequence());
+        verify(followService, times(2)).saveReplicatedFollow("a", "target");
+    }
+
+    @Test
+    void rejectsWithoutAdvancingWhileBootstrapping() {
+        when(snapshotService.isBootstrapping()).thenReturn(true);
+
+        ReplicationAck ack = applier.apply(follow(1, "a"));
+
+        assertEquals(0, ack.getAckedSequence());
+        assertEquals(1, ack.getRejectedSequence());
+        verify(followService, never()).saveReplicatedFollow(anyString(), anyString());
+    }
+
+    @Test
+    void rejectsWithoutAdvancingOnTheCoordinator() {
+        applier.apply(follow(1, "a"));
+        when(electionService.isCurrentNodeCoordinator()).thenReturn(true);
+
+        ReplicationAck ack = applier.apply(follow(2, "b"));
+
+        assertEquals(1, ack.getAckedSequence());
+        assertEquals(2, ack.getRejectedSequence());
+        verify(followService, never()).saveReplicatedFollow("b", "target");
+    }
+
+    private static ReplicationEnvelope follow(long sequence, String followerId) {
+        return ReplicationEnvelope.newBuilder()
+                .setSequence(sequence)
+                .setStreamId(STREAM)
+                .setOriginServerId("server-1")
+                .setFollow(FollowRequest.newBuilder().setFollowerId(followerId).setFollowedId("target"))
+                .build();
+    }
+}
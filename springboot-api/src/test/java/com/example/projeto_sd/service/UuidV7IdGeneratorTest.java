@@ -0,0 +1,81 @@
+package com.example.projeto_sd.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7IdGeneratorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void encodesTimestampVersionVariantAndNodeTag() {
+        UuidV7IdGenerator generator = new UuidV7IdGenerator(() -> NOW, "server-1");
+
+        UUID id = UUID.fromString(generator.newId());
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(NOW, id.getMostSignificantBits() >>> 16);
+        assertEquals(0, id.getMostSignificantBits() & 0xFFF, "Primeiro ID do milissegundo deveria ter contador 0");
+        assertEquals("server-1".hashCode() & 0xFFFFL, (id.getLeastSignificantBits() >>> 46) & 0xFFFF);
+    }
+
+    @Test
+    void countsWithinTheSameMillisecondAndResetsOnTheNext() {
+        AtomicLong clock = new AtomicLong(NOW);
+        UuidV7IdGenerator generator = new UuidV7IdGenerator(clock::get, "server-1");
+
+        UUID first = UUID.fromString(generator.newId());
+        UUID second = UUID.fromString(generator.newId());
+        clock.incrementAndGet();
+        UUID third = UUID.fromString(generator.newId());
+
+        assertEquals(NOW, second.getMostSignificantBits() >>> 16);
+        assertEquals(1, second.getMostSignificantBits() & 0xFFF);
+        assertEquals(NOW + 1, third.getMostSignificantBits() >>> 16);
+        assertEquals(0, third.getMostSignificantBits() & 0xFFF);
+        assertTrue(first.toString().compareTo(second.toString()) < 0);
+        assertTrue(second.toString().compareTo(third.toString()) < 0);
+    }
+
+    @Test
+    void staysMonotonicWhenTheClockGoesBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        UuidV7IdGenerator generator = new UuidV7IdGenerator(clock::get, "server-1");
+
+        String beforeAdjustment = generator.newId();
+        clock.set(NOW - 5_000);
+        UUID afterAdjustment = UUID.fromString(generator.newId());
+
+        assertTrue(beforeAdjustment.compareTo(afterAdjustment.toString()) < 0);
+        assertEquals(NOW, afterAdjustment.getMostSignificantBits() >>> 16, "Deveria manter o milissegundo já emitido");
+        assertEquals(1, afterAdjustment.getMostSignificantBits() & 0xFFF);
+    }
+
+    @Test
+    void borrowsTheNextMillisecondWhenTheCounterIsExhausted() {
+        UuidV7IdGenerator generator = new UuidV7IdGenerator(() -> NOW, "server-1");
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4096 + 2; i++) {
+            ids.add(generator.newId());
+        }
+
+        UUID lastOfMillisecond = UUID.fromString(ids.get(4095));
+        UUID borrowed = UUID.fromString(ids.get(4096));
+        assertEquals(NOW, lastOfMillisecond.getMostSignificantBits() >>> 16);
+        assertEquals(0xFFF, lastOfMillisecond.getMostSignificantBits() & 0xFFF);
+        assertEquals(NOW + 1, borrowed.getMostSignificantBits() >>> 16);
+        assertEquals(0, borrowed.getMostSignificantBits() & 0xFFF);
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "IDs deveriam ser estritamente crescentes");
+        }
+    }
+}